@@ -0,0 +1,336 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.symplegit.util.ApiDateUtil;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * Creates and tracks the temporary files of the outputs spilled to disk by a
+ * SympleGit instance. <br>
+ * <br>
+ * Each spill file is owned by its {@link OutputCapture}, and is deleted:
+ * <ul>
+ * <li>When the {@link GitResult} holding the capture is closed.</li>
+ * <li>Else, when the capture is not referenced anymore and is garbage
+ * collected, thanks to a {@link Cleaner}.</li>
+ * </ul>
+ * The bytes written to the spill files of the store are counted against the
+ * disk quota of the SympleGit instance. <br>
+ * <br>
+ * The spill files are created in a subdirectory of the capture directory
+ * owned by this JVM, which holds a lock on its {@value #LOCK_FILE} file for its
+ * whole life. A background task sweeps each capture directory periodically, to
+ * delete the subdirectories left by crashed JVMs: the ones whose lock file is
+ * not locked anymore. The files of a live JVM are never deleted, however old
+ * they are.
+ *
+ * @author KawanSoft SAS
+ */
+final class CaptureStore {
+
+    /** The prefix of the subdirectories owned by a JVM. */
+    static final String OWNED_DIRECTORY_PREFIX = "symplegit-captures-";
+
+    /** The file locked by the JVM that owns a subdirectory. */
+    static final String LOCK_FILE = ".lock";
+
+    /** The age under which a subdirectory is never swept. */
+    static final long MIN_ORPHAN_AGE_MINUTES = 1;
+
+    /** The delay between two sweeps of a capture directory. */
+    private static final long SWEEP_PERIOD_MINUTES = 10;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** The subdirectory owned by this JVM, per capture directory. */
+    private static final Map<File, File> OWNED_DIRECTORIES = new ConcurrentHashMap<>();
+
+    /** The locks of the owned subdirectories, held until the JVM exits. */
+    private static final Map<File, FileLock> OWNED_LOCKS = new ConcurrentHashMap<>();
+
+    /** The directories already swept by the background task. */
+    private static final Set<File> SWEPT_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    private final File directory;
+    private final long diskQuota;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * Constructs a CaptureStore.
+     *
+     * @param directory the directory of the spill files
+     * @param diskQuota the maximum number of bytes of all the live spill files
+     */
+    CaptureStore(File directory, long diskQuota) {
+	this.directory = directory;
+	this.diskQuota = diskQuota;
+    }
+
+    /**
+     * Gets the directory of the spill files.
+     *
+     * @return the directory of the spill files
+     */
+    File getDirectory() {
+	return directory;
+    }
+
+    /**
+     * Gets the number of bytes of the live spill files of this store.
+     *
+     * @return the number of bytes on disk
+     */
+    long getUsedBytes() {
+	return usedBytes.get();
+    }
+
+    /**
+     * Creates a new spill file, deleted when its owner is garbage collected.
+     *
+     * @param owner the capture that owns the file
+     * @return the spill file
+     * @throws IOException if the file cannot be created
+     */
+    SpillFile createSpillFile(Object owner) throws IOException {
+	if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+	    throw new IOException("Cannot create capture directory: " + directory);
+	}
+	scheduleSweep(directory);
+
+	File file = File.createTempFile(GitCommander.SYMPLEGIT_OUTPUT + ApiDateUtil.getDateWithTime() + "-", ".txt",
+		ownedDirectory(directory));
+	SpillFile spillFile = new SpillFile(this, file);
+	spillFile.cleanable = CLEANER.register(owner, spillFile);
+	return spillFile;
+    }
+
+    /**
+     * Counts bytes written to a spill file against the disk quota.
+     *
+     * @param bytes the number of bytes to write
+     * @throws IOException if the disk quota would be exceeded
+     */
+    private void reserve(long bytes) throws IOException {
+	long used;
+	do {
+	    used = usedBytes.get();
+	    if (used + bytes > diskQuota) {
+		throw new IOException("Output capture disk quota exceeded in " + directory + ": " + diskQuota
+			+ " bytes. Used: " + used + " bytes.");
+	    }
+	} while (!usedBytes.compareAndSet(used, used + bytes));
+    }
+
+    /**
+     * Gets the subdirectory owned by this JVM in a capture directory, created
+     * and locked on first use. A new one is created if it was deleted.
+     */
+    private static File ownedDirectory(File directory) throws IOException {
+	File owned = OWNED_DIRECTORIES.get(directory);
+	if (owned != null && owned.isDirectory()) {
+	    return owned;
+	}
+	synchronized (OWNED_DIRECTORIES) {
+	    owned = OWNED_DIRECTORIES.get(directory);
+	    if (owned != null && owned.isDirectory()) {
+		return owned;
+	    }
+	    if (owned != null) {
+		FileLock lock = OWNED_LOCKS.remove(owned);
+		if (lock != null) {
+		    lock.channel().close();
+		}
+	    }
+
+	    owned = Files.createTempDirectory(directory.toPath(),
+		    OWNED_DIRECTORY_PREFIX + ProcessHandle.current().pid() + "-").toFile();
+	    FileChannel channel = FileChannel.open(new File(owned, LOCK_FILE).toPath(), StandardOpenOption.CREATE,
+		    StandardOpenOption.WRITE);
+	    FileLock lock = tryLock(channel);
+	    if (lock == null) {
+		channel.close();
+		throw new IOException("Cannot lock capture subdirectory: " + owned);
+	    }
+	    OWNED_LOCKS.put(owned, lock);
+	    OWNED_DIRECTORIES.put(directory, owned);
+	    return owned;
+	}
+    }
+
+    /**
+     * Tries to lock a file.
+     *
+     * @return the lock, or null if it is held by another process or by
+     *         another channel of this JVM
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+	try {
+	    return channel.tryLock();
+	} catch (OverlappingFileLockException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Schedules the periodic sweep of a directory, once per JVM.
+     */
+    private static void scheduleSweep(File directory) {
+	if (!SWEPT_DIRECTORIES.add(directory)) {
+	    return;
+	}
+	// The scheduler thread must not block: the sweep runs on the executor
+	GitExecutors.scheduler().scheduleWithFixedDelay(
+		() -> GitExecutors.defaultExecutor().execute(() -> sweep(directory)), 0, SWEEP_PERIOD_MINUTES,
+		TimeUnit.MINUTES);
+    }
+
+    /**
+     * Deletes the subdirectories of a capture directory whose owner JVM is
+     * dead, with their output files.
+     *
+     * @param directory the directory to sweep
+     * @return the number of deleted output files
+     */
+    static int sweep(File directory) {
+	File[] subdirectories = directory
+		.listFiles((dir, name) -> name.startsWith(OWNED_DIRECTORY_PREFIX) && new File(dir, name).isDirectory());
+	if (subdirectories == null) {
+	    return 0;
+	}
+
+	// A subdirectory being created is not locked yet by its owner
+	long limit = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(MIN_ORPHAN_AGE_MINUTES);
+	int deleted = 0;
+	for (File subdirectory : subdirectories) {
+	    if (OWNED_LOCKS.containsKey(subdirectory) || subdirectory.lastModified() >= limit) {
+		continue;
+	    }
+	    try (FileChannel channel = FileChannel.open(new File(subdirectory, LOCK_FILE).toPath(),
+		    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+		if (tryLock(channel) == null) {
+		    continue; // The owner is alive
+		}
+		deleted += deleteOutputFiles(subdirectory);
+	    } catch (IOException e) {
+		debug("Cannot sweep " + subdirectory + ": " + e);
+		continue;
+	    }
+	    new File(subdirectory, LOCK_FILE).delete();
+	    if (!subdirectory.delete()) {
+		debug("Cannot delete capture subdirectory: " + subdirectory);
+	    }
+	}
+	debug("Orphan output files deleted in " + directory + ": " + deleted);
+	return deleted;
+    }
+
+    private static int deleteOutputFiles(File subdirectory) {
+	File[] files = subdirectory.listFiles(
+		(dir, name) -> name.startsWith(GitCommander.SYMPLEGIT_OUTPUT) && name.endsWith(".txt"));
+	int deleted = 0;
+	if (files != null) {
+	    for (File file : files) {
+		if (file.delete()) {
+		    deleted++;
+		}
+	    }
+	}
+	return deleted;
+    }
+
+    /**
+     * A spill file and its accounting. Deletes the file when run, at most once.
+     * Must not reference its owner, or the owner would never be collected.
+     */
+    static final class SpillFile implements Runnable {
+
+	private final CaptureStore store;
+	private final File file;
+	private final AtomicLong bytes = new AtomicLong();
+	private Cleaner.Cleanable cleanable;
+
+	private SpillFile(CaptureStore store, File file) {
+	    this.store = store;
+	    this.file = file;
+	}
+
+	/**
+	 * Gets the spill file.
+	 *
+	 * @return the spill file
+	 */
+	File getFile() {
+	    return file;
+	}
+
+	/**
+	 * Counts bytes to be written against the disk quota.
+	 *
+	 * @param length the number of bytes to write
+	 * @throws IOException if the disk quota would be exceeded
+	 */
+	void reserve(long length) throws IOException {
+	    store.reserve(length);
+	    bytes.addAndGet(length);
+	}
+
+	/**
+	 * Deletes the file now. Idempotent.
+	 */
+	void release() {
+	    cleanable.clean();
+	}
+
+	@Override
+	public void run() {
+	    if (!file.delete() && file.exists()) {
+		debug("Cannot delete output file: " + file);
+	    }
+	    store.usedBytes.addAndGet(-bytes.get());
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (GitCommander.DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+import com.symplegit.api.exception.UncheckedTimeoutException;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * Runs a list of Git commands with a bounded number of concurrent processes.
+ * <br>
+ * The calling thread dispatches the commands: it starts the first ones up to
+ * the parallelism, then starts a new one each time a command completes. No
+ * executor thread is ever blocked waiting for a slot, and the completion
+ * callback is always invoked from the calling thread, so it does not need to
+ * be thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+class GitBatch {
+
+    private final SympleGit sympleGit;
+
+    /**
+     * Constructs a GitBatch.
+     *
+     * @param sympleGit The SympleGit instance that holds the configuration.
+     */
+    GitBatch(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
+    }
+
+    /**
+     * Executes the commands and waits for their end.
+     *
+     * @param commands     the Git commands to execute
+     * @param parallelism  the maximum number of concurrent processes
+     * @param onCompletion the callback invoked with each result and its index in
+     *                     the commands list as soon as the command completes,
+     *                     or null
+     * @return the results, in the order of the commands
+     * @throws InterruptedException if the calling thread is interrupted. The
+     *                              running commands are killed.
+     */
+    List<GitResult> executeAll(List<String[]> commands, int parallelism, ObjIntConsumer<GitResult> onCompletion)
+	    throws InterruptedException {
+	Objects.requireNonNull(commands, "commands cannot be null!");
+	if (parallelism <= 0) {
+	    throw new IllegalArgumentException("parallelism must be > 0: " + parallelism);
+	}
+
+	int size = commands.size();
+	GitResult[] results = new GitResult[size];
+	GitExecution[] executions = new GitExecution[size];
+	BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+
+	debug("Batch of " + size + " commands, parallelism: " + parallelism);
+
+	int started = 0;
+	int done = 0;
+	boolean success = false;
+
+	try {
+	    while (done < size) {
+		while (started < size && started - done < parallelism) {
+		    start(started, commands.get(started), executions, results, completed);
+		    started++;
+		}
+
+		int index = completed.take();
+		done++;
+		executions[index] = null;
+		if (onCompletion != null) {
+		    onCompletion.accept(results[index], index);
+		}
+	    }
+	    success = true;
+	} finally {
+	    if (!success) {
+		killAll(executions);
+	    }
+	}
+
+	return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(results)));
+    }
+
+    /**
+     * Starts one command. Its result is stored and its index is queued when it
+     * completes.
+     */
+    private void start(int index, String[] command, GitExecution[] executions, GitResult[] results,
+	    BlockingQueue<Integer> completed) {
+	GitExecution execution = new GitExecution(sympleGit, command);
+
+	if (!execution.isParamsOk()) {
+	    results[index] = execution.invalidResult();
+	    completed.add(index);
+	    return;
+	}
+
+	executions[index] = execution;
+
+	try {
+	    sympleGit.getExecutorService().execute(() -> {
+		// The timeout starts with the process, not while queued in the executor
+		ScheduledFuture<?> timeoutTask = scheduleTimeout(execution);
+		try {
+		    results[index] = execution.run();
+		} catch (Throwable throwable) {
+		    results[index] = GitResult.custom(command).setException(new Exception(throwable)).build();
+		} finally {
+		    if (timeoutTask != null) {
+			timeoutTask.cancel(false);
+		    }
+		    // The queue publishes the result to the dispatching thread
+		    completed.add(index);
+		}
+	    });
+	} catch (RuntimeException e) {
+	    // Rejected by the executor
+	    executions[index] = null;
+	    results[index] = GitResult.custom(command).setException(e).build();
+	    completed.add(index);
+	}
+    }
+
+    /**
+     * Schedules the kill of the execution when the timeout of the SympleGit
+     * instance expires.
+     *
+     * @return the timeout task, or null if there is no timeout
+     */
+    private ScheduledFuture<?> scheduleTimeout(GitExecution execution) {
+	long timeout = sympleGit.getTimeout();
+	if (timeout <= 0) {
+	    return null;
+	}
+	TimeUnit unit = sympleGit.getUnit();
+	// The scheduler thread must not block: the kill runs on the executor
+	return GitExecutors.scheduler().schedule(() -> GitExecutors.defaultExecutor()
+		.execute(() -> execution.kill(new UncheckedTimeoutException("Timeout after " + timeout + unit))),
+		timeout, unit);
+    }
+
+    /**
+     * Kills the running commands, without waiting for the end of the kills.
+     */
+    private static void killAll(GitExecution[] executions) {
+	for (GitExecution execution : executions) {
+	    if (execution != null) {
+		GitExecutors.defaultExecutor()
+			.execute(() -> execution.kill(new CancellationException("Git batch interrupted.")));
+	    }
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (GitCommander.DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
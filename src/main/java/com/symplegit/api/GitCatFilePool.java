@@ -0,0 +1,448 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.symplegit.internal.objects.ObjectReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * The GitCatFilePool class reads Git objects through a pool of long-lived
+ * {@code git cat-file --batch} and {@code git cat-file --batch-check}
+ * processes. This avoids a process creation per object read, which dominates
+ * when reading many small blobs, trees or commits. <br>
+ * <br>
+ * Objects may be designated by id or by any revision expression understood by
+ * Git, such as {@code HEAD}, {@code v1.0^{commit}} or {@code HEAD:path/to/file}.
+ * An object designated by its full id is first looked up directly in the loose
+ * objects and the packs of the repository: no process is involved unless the
+ * object is not found there, or the repository has replace references.
+ * <br>
+ * <br>
+ * The pool is thread-safe: each thread borrows a process for the duration of a
+ * single read. Processes left idle longer than the configured idle timeout are
+ * stopped, and a process that dies or breaks the protocol is discarded and
+ * transparently replaced. <br>
+ * <br>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+	String repoDirectoryPath = "/path/to/my/git/repository";
+	final SympleGit sympleGit = SympleGit.custom()
+		.setDirectory(repoDirectoryPath)
+		.build();
+
+	GitCatFilePool catFilePool = sympleGit.catFilePool();
+	GitObjectHeader header = catFilePool.readHeader("HEAD");
+	GitObject readme = catFilePool.readObject("HEAD:README.md");
+ * </code>
+ * </pre>
+ *
+ * The pool is closed by {@link SympleGit#close()}.
+ *
+ * @author KawanSoft SAS
+ */
+public class GitCatFilePool implements AutoCloseable {
+
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(GitCatFilePool.class);
+
+    private final SympleGit sympleGit;
+    private final long idleTimeoutNanos;
+
+    private final Deque<CatFileProcess> idleBatchProcesses = new ArrayDeque<>();
+    private final Deque<CatFileProcess> idleCheckProcesses = new ArrayDeque<>();
+    private final Semaphore batchPermits;
+    private final Semaphore checkPermits;
+
+    private final ScheduledFuture<?> evictionTask;
+    private volatile boolean closed = false;
+
+    private volatile GitDirectory gitDirectory = null;
+    private volatile ObjectReader objectReader = null;
+
+    /**
+     * Constructs a GitCatFilePool for the specified SympleGit instance.
+     *
+     * @param sympleGit    The SympleGit instance that holds the repository
+     *                     directory.
+     * @param maxProcesses The maximum number of processes per mode (batch and
+     *                     batch-check).
+     * @param idleTimeout  The time after which an unused process is stopped.
+     * @param unit         The time unit of idleTimeout.
+     */
+    GitCatFilePool(SympleGit sympleGit, int maxProcesses, long idleTimeout, TimeUnit unit) {
+	this.sympleGit = Objects.requireNonNull(sympleGit, "sympleGit cannot be null!");
+	Objects.requireNonNull(unit, "unit cannot be null!");
+
+	if (maxProcesses <= 0) {
+	    throw new IllegalArgumentException("maxProcesses must be > 0: " + maxProcesses);
+	}
+	if (idleTimeout <= 0) {
+	    throw new IllegalArgumentException("idleTimeout must be > 0: " + idleTimeout);
+	}
+
+	this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+	this.batchPermits = new Semaphore(maxProcesses, true);
+	this.checkPermits = new Semaphore(maxProcesses, true);
+
+	long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleTimeoutNanos / 2);
+	this.evictionTask = GitExecutors.scheduler().scheduleWithFixedDelay(this::evictIdleProcesses, period, period,
+		TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads the header of an object: id, type and size.
+     *
+     * @param objectName The object id or revision expression, for example
+     *                   {@code HEAD:path/to/file}.
+     * @return The object header, or null if the object does not exist.
+     * @throws IOException if the cat-file process cannot be started or fails
+     *                     twice in a row.
+     */
+    public GitObjectHeader readHeader(String objectName) throws IOException {
+	checkObjectName(objectName);
+	return (GitObjectHeader) read(objectName, false);
+    }
+
+    /**
+     * Reads an object: header and content.
+     *
+     * @param objectName The object id or revision expression, for example
+     *                   {@code HEAD:path/to/file}.
+     * @return The object, or null if the object does not exist.
+     * @throws IOException if the cat-file process cannot be started or fails
+     *                     twice in a row.
+     */
+    public GitObject readObject(String objectName) throws IOException {
+	checkObjectName(objectName);
+	return (GitObject) read(objectName, true);
+    }
+
+    /**
+     * Says if an object exists.
+     *
+     * @param objectName The object id or revision expression.
+     * @return true if the object exists, else false
+     * @throws IOException if the cat-file process cannot be started or fails
+     *                     twice in a row.
+     */
+    public boolean exists(String objectName) throws IOException {
+	return readHeader(objectName) != null;
+    }
+
+    /**
+     * Borrows a process, sends the request and returns the process to the pool.
+     * A broken process is discarded and the request is retried once on a fresh
+     * process.
+     */
+    private Object read(String objectName, boolean withContent) throws IOException {
+	if (closed) {
+	    throw new IllegalStateException("GitCatFilePool is closed.");
+	}
+
+	if (RefReader.isObjectId(objectName)) {
+	    Object object = readFromFiles(objectName, withContent);
+	    if (object != null) {
+		return object;
+	    }
+	}
+
+	Semaphore permits = withContent ? batchPermits : checkPermits;
+	try {
+	    permits.acquire();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while waiting for a cat-file process.", e);
+	}
+
+	try {
+	    IOException lastException = null;
+	    for (int attempt = 0; attempt < 2; attempt++) {
+		CatFileProcess catFileProcess = borrow(withContent);
+		try {
+		    Object result = catFileProcess.read(objectName);
+		    release(catFileProcess);
+		    return result;
+		} catch (IOException ioException) {
+		    debug("cat-file process failed, restarting: " + ioException);
+		    catFileProcess.destroy();
+		    lastException = ioException;
+		}
+	    }
+	    throw lastException;
+	} finally {
+	    permits.release();
+	}
+    }
+
+    /**
+     * Reads an object designated by its full id directly from the repository
+     * files, without a cat-file process.
+     *
+     * @return the GitObject or GitObjectHeader, or null if the object must be
+     *         read by Git
+     */
+    private Object readFromFiles(String id, boolean withContent) {
+	ObjectReader reader = objectReader;
+	GitDirectory gitDirectory = this.gitDirectory;
+	if (reader == null) {
+	    gitDirectory = GitDirectory.find(sympleGit.getDirectory());
+	    if (gitDirectory == null) {
+		return null;
+	    }
+	    reader = new ObjectReader(gitDirectory);
+	    this.gitDirectory = gitDirectory;
+	    objectReader = reader;
+	}
+
+	try {
+	    if (new RefReader(gitDirectory).usesReplaceObjects()) {
+		return null; // Git reads the replacement object
+	    }
+	    return withContent ? reader.read(id) : reader.readHeader(id);
+	} catch (IOException | RuntimeException exception) {
+	    // A corrupt or truncated index or pack may fail with a buffer exception
+	    debug("Fallback to cat-file process: " + exception);
+	    return null;
+	}
+    }
+
+    private CatFileProcess borrow(boolean withContent) throws IOException {
+	Deque<CatFileProcess> idleProcesses = withContent ? idleBatchProcesses : idleCheckProcesses;
+	synchronized (this) {
+	    while (!idleProcesses.isEmpty()) {
+		CatFileProcess catFileProcess = idleProcesses.pollFirst();
+		if (catFileProcess.isAlive()) {
+		    return catFileProcess;
+		}
+		catFileProcess.destroy();
+	    }
+	}
+	return new CatFileProcess(withContent);
+    }
+
+    private void release(CatFileProcess catFileProcess) {
+	Deque<CatFileProcess> idleProcesses = catFileProcess.withContent ? idleBatchProcesses : idleCheckProcesses;
+	synchronized (this) {
+	    if (closed || !catFileProcess.isAlive()) {
+		catFileProcess.destroy();
+		return;
+	    }
+	    catFileProcess.lastUsedNanos = System.nanoTime();
+	    // Most recently used first, so that the oldest processes age out
+	    idleProcesses.addFirst(catFileProcess);
+	}
+    }
+
+    /**
+     * Stops the processes that have been idle longer than the idle timeout.
+     */
+    private void evictIdleProcesses() {
+	long now = System.nanoTime();
+	synchronized (this) {
+	    evictIdleProcesses(idleBatchProcesses, now);
+	    evictIdleProcesses(idleCheckProcesses, now);
+	}
+    }
+
+    private void evictIdleProcesses(Deque<CatFileProcess> idleProcesses, long now) {
+	Iterator<CatFileProcess> iterator = idleProcesses.iterator();
+	while (iterator.hasNext()) {
+	    CatFileProcess catFileProcess = iterator.next();
+	    if (now - catFileProcess.lastUsedNanos >= idleTimeoutNanos) {
+		debug("Evicting idle cat-file process.");
+		iterator.remove();
+		catFileProcess.destroy();
+	    }
+	}
+    }
+
+    /**
+     * Gets the number of started processes currently waiting in the pool.
+     *
+     * @return the number of idle processes
+     */
+    public synchronized int getIdleProcessCount() {
+	return idleBatchProcesses.size() + idleCheckProcesses.size();
+    }
+
+    /**
+     * Stops all the processes of the pool. Processes in use are stopped as soon
+     * as their current read is done.
+     */
+    @Override
+    public void close() {
+	evictionTask.cancel(false);
+	synchronized (this) {
+	    closed = true;
+	    for (CatFileProcess catFileProcess : idleBatchProcesses) {
+		catFileProcess.destroy();
+	    }
+	    for (CatFileProcess catFileProcess : idleCheckProcesses) {
+		catFileProcess.destroy();
+	    }
+	    idleBatchProcesses.clear();
+	    idleCheckProcesses.clear();
+	}
+    }
+
+    private static void checkObjectName(String objectName) {
+	Objects.requireNonNull(objectName, "objectName cannot be null!");
+	if (objectName.isEmpty() || objectName.indexOf('\n') >= 0 || objectName.indexOf('\r') >= 0) {
+	    throw new IllegalArgumentException("Invalid object name: " + objectName);
+	}
+    }
+
+    /**
+     * One running {@code git cat-file --batch} or {@code --batch-check} process.
+     */
+    private class CatFileProcess {
+
+	private final boolean withContent;
+	private final Process process;
+	private final OutputStream stdin;
+	private final InputStream stdout;
+	private long lastUsedNanos = System.nanoTime();
+
+	CatFileProcess(boolean withContent) throws IOException {
+	    this.withContent = withContent;
+	    ProcessBuilder builder = new ProcessBuilder("git", "cat-file", withContent ? "--batch" : "--batch-check");
+	    builder.directory(sympleGit.getDirectory());
+	    builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+	    process = builder.start();
+	    stdin = new BufferedOutputStream(process.getOutputStream());
+	    stdout = new BufferedInputStream(process.getInputStream(), 64 * 1024);
+	    debug("Started cat-file process " + (withContent ? "--batch" : "--batch-check"));
+	}
+
+	boolean isAlive() {
+	    return process.isAlive();
+	}
+
+	/**
+	 * Sends the object name and parses the answer. Returns a GitObject or
+	 * GitObjectHeader, depending on the mode, or null if the object is missing.
+	 */
+	Object read(String objectName) throws IOException {
+	    stdin.write(objectName.getBytes(StandardCharsets.UTF_8));
+	    stdin.write('\n');
+	    stdin.flush();
+
+	    String line = readLine();
+	    if (line.endsWith(" missing") || line.endsWith(" ambiguous")) {
+		return null;
+	    }
+
+	    // <oid> SP <type> SP <size> LF
+	    String[] parts = line.split(" ");
+	    if (parts.length != 3) {
+		throw new IOException("Unexpected cat-file header: " + line);
+	    }
+
+	    long size;
+	    try {
+		size = Long.parseLong(parts[2]);
+	    } catch (NumberFormatException numberFormatException) {
+		throw new IOException("Unexpected cat-file header: " + line, numberFormatException);
+	    }
+
+	    GitObjectHeader header = new GitObjectHeader(parts[0], parts[1], size);
+	    if (!withContent) {
+		return header;
+	    }
+
+	    if (size > Integer.MAX_VALUE - 8) {
+		throw new IOException("Object too big to be read in memory: " + header);
+	    }
+
+	    byte[] content = new byte[(int) size];
+	    readFully(content);
+	    if (stdout.read() != '\n') {
+		throw new IOException("Missing cat-file content terminator for: " + header);
+	    }
+	    return new GitObject(header, content);
+	}
+
+	private String readLine() throws IOException {
+	    ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+	    int c;
+	    while ((c = stdout.read()) != '\n') {
+		if (c == -1) {
+		    throw new EOFException("cat-file process ended unexpectedly.");
+		}
+		line.write(c);
+	    }
+	    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private void readFully(byte[] content) throws IOException {
+	    int offset = 0;
+	    while (offset < content.length) {
+		int read = stdout.read(content, offset, content.length - offset);
+		if (read == -1) {
+		    throw new EOFException("cat-file process ended unexpectedly.");
+		}
+		offset += read;
+	    }
+	}
+
+	void destroy() {
+	    try {
+		stdin.close();
+	    } catch (IOException ignore) {
+		// Process may be already dead
+	    }
+	    process.destroy();
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    protected void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+
+}
@@ -20,32 +20,33 @@
 
 package com.symplegit.api;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Objects;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.IOUtils;
 
 import com.symplegit.api.exception.UncheckedTimeoutException;
-import com.symplegit.util.ApiDateUtil;
 import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
 
 /**
  * The GitCommander class is responsible for executing Git commands and handling
@@ -88,6 +89,29 @@ import com.symplegit.util.FrameworkDebug;
  * </code>
  * </pre>
  *
+ * Commands may also be executed asynchronously with
+ * {@link #executeGitCommandAsync(String...)}, which allows to run several
+ * commands in parallel:
+ *
+ * <pre>
+ * <code>
+	CompletableFuture&lt;GitResult&gt; branch = gitCommander.executeGitCommandAsync("git", "rev-parse", "--abbrev-ref", "HEAD");
+	CompletableFuture&lt;GitResult&gt; status = gitCommander.executeGitCommandAsync("git", "status", "--porcelain");
+	CompletableFuture.allOf(branch, status).join();
+ * </code>
+ * </pre>
+ *
+ * Large outputs may be streamed to the caller while Git runs, without any
+ * temporary file, with {@link #executeGitCommandToStream(OutputStream, String...)},
+ * {@link #executeGitCommandToChannel(WritableByteChannel, String...)} and
+ * {@link #executeGitCommandForEachLine(Consumer, String...)}:
+ *
+ * <pre>
+ * <code>
+	gitCommander.executeGitCommandForEachLine(line -&gt; System.out.println(line), "git", "ls-files");
+ * </code>
+ * </pre>
+ *
  * @author KawanSoft SAS
  */
 public class GitCommander {
@@ -97,17 +121,13 @@ public class GitCommander {
 
     static final String SYMPLEGIT_OUTPUT = "symplegit-output-";
 
+    /** The buffer size used when streaming an output to a consumer. */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     private SympleGit sympleGit;
 
-    private ProcessBuilder builder;
+    private GitResult result = null;
     private Exception exception;
-    private int exitCode;
-
-    private File tempOutputFile = null;
-
-    private Process process = null;
-
-    private boolean paramsOk;
 
     /**
      * Constructs a GitCommander object with a specified SympleGit instance.
@@ -117,8 +137,6 @@ public class GitCommander {
      */
     GitCommander(SympleGit sympleGit) {
 	this.sympleGit = Objects.requireNonNull(sympleGit, "sympleGit cannot be null!");
-	builder = new ProcessBuilder();
-	builder.directory(sympleGit.getDirectory());
     }
 
     /**
@@ -128,132 +146,256 @@ public class GitCommander {
      *                strings.
      */
     public void executeGitCommand(String... command) {
-	
-	paramsOk = basicParamsCheks(command);
-	if (!paramsOk) {
-	    writeErrorInTempFile();
-	    return;
-	}
-
-	ExecutorService executor = Executors.newSingleThreadExecutor();
-
-	Callable<String> task = new Callable<String>() {
-	    @Override
-	    public String call() throws InterruptedException {
-		executeInThread(command);
-		return "OK";
-	    }
-	};
-
-	Future<String> future = executor.submit(task);
-
-	long timeout = sympleGit.getTimeout();
-	TimeUnit unit = sympleGit.getUnit();
-
-	debug("unit: " + unit);
-	try {
+	executeAndWait(null, command);
+    }
 
-	    long futureTimeout = timeout == 0 ? Long.MAX_VALUE : timeout;
+    /**
+     * Executes a Git command and writes bytes to its standard input, which is
+     * closed after them. This is used for commands that read their arguments
+     * from the standard input, such as
+     * {@code git add --pathspec-from-file=-}. <br>
+     * The output is handled as with {@link #executeGitCommand(String...)}.
+     *
+     * @param input   The bytes written to the standard input of Git.
+     * @param command The Git command to be executed, split into an array of
+     *                strings.
+     */
+    public void executeGitCommandWithInput(byte[] input, String... command) {
+	Objects.requireNonNull(input, "input cannot be null!");
+	executeAndWait(input, null, command);
+    }
 
-	    // Get the result of the asynchronous computation with a timeout of 1 second
-	    future.get(futureTimeout, unit);
-	} catch (TimeoutException e) {
-	    stopProcess();
-	    throw new UncheckedTimeoutException("Timeout after " + timeout + unit);
-	} catch (InterruptedException | ExecutionException e) {
-	    e.printStackTrace();
-	} finally {
-	    executor.shutdown(); // Always remember to shut down the executor service
-	}
+    /**
+     * Executes a Git command and writes its output to an OutputStream while the
+     * process runs. The output is not captured: no temporary file is created
+     * and the first bytes reach the caller as soon as Git writes them. <br>
+     * The OutputStream is written from another thread and is not closed. A slow
+     * OutputStream slows down Git itself, as the process blocks when the pipe is
+     * full. <br>
+     * Exit code and exception are available as with
+     * {@link #executeGitCommand(String...)}, and {@link #getSize()} returns the
+     * number of written bytes. Note that the error output of Git is also written
+     * to the OutputStream, unless
+     * {@link SympleGit.Builder#setSeparateErrorStream(boolean)} is set.
+     *
+     * @param outputStream The OutputStream that receives the output.
+     * @param command      The Git command to be executed, split into an array of
+     *                     strings.
+     */
+    public void executeGitCommandToStream(OutputStream outputStream, String... command) {
+	Objects.requireNonNull(outputStream, "outputStream cannot be null!");
+	executeAndWait(processOutput -> IOUtils.copy(processOutput, outputStream), command);
     }
 
     /**
-     * Write an error message in a temporary file, because command malformed
+     * Executes a Git command and writes its output to a WritableByteChannel
+     * while the process runs. See
+     * {@link #executeGitCommandToStream(OutputStream, String...)} for the
+     * behavior. The channel is not closed.
+     *
+     * @param channel The channel that receives the output.
+     * @param command The Git command to be executed, split into an array of
+     *                strings.
      */
-    private void writeErrorInTempFile() {
-	try {
-	    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
-		    "Please input valid git command starting with \"git\".".getBytes());
-	    createOutputTempFile(byteArrayInputStream);
-	} catch (IOException ioexception) {
-	    exception = ioexception;
-	}
+    public void executeGitCommandToChannel(WritableByteChannel channel, String... command) {
+	Objects.requireNonNull(channel, "channel cannot be null!");
+	executeAndWait(processOutput -> {
+	    ReadableByteChannel processChannel = Channels.newChannel(processOutput);
+	    ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+	    while (processChannel.read(buffer) != -1) {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+		    channel.write(buffer);
+		}
+		buffer.clear();
+	    }
+	}, command);
     }
 
     /**
-     * @param command
+     * Executes a Git command and passes each line of its output to a consumer
+     * while the process runs. See
+     * {@link #executeGitCommandToStream(OutputStream, String...)} for the
+     * behavior. Lines are decoded as UTF-8 and passed without their line
+     * terminator.
+     *
+     * @param lineConsumer The consumer of the output lines.
+     * @param command      The Git command to be executed, split into an array of
+     *                     strings.
      */
-    private void executeInThread(String... command) {
-	builder.redirectErrorStream(true);
+    public void executeGitCommandForEachLine(Consumer<String> lineConsumer, String... command) {
+	Objects.requireNonNull(lineConsumer, "lineConsumer cannot be null!");
+	executeAndWait(processOutput -> {
+	    BufferedReader reader = new BufferedReader(new InputStreamReader(processOutput, StandardCharsets.UTF_8),
+		    STREAM_BUFFER_SIZE);
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		lineConsumer.accept(line);
+	    }
+	}, command);
+    }
 
+    /**
+     * Runs the command on the executor and waits for its end, within the timeout
+     * of the SympleGit instance.
+     *
+     * @param outputConsumer the consumer of the output, or null to capture it
+     * @param command        the Git command to be executed
+     */
+    private void executeAndWait(GitExecution.OutputConsumer outputConsumer, String... command) {
+	executeAndWait(null, outputConsumer, command);
+    }
 
-	debug("paramsOk   : " + paramsOk);
-	debug("Git command: " + removeCommas(Arrays.toString(command)));
+    /**
+     * Runs the command on the executor and waits for its end, within the timeout
+     * of the SympleGit instance.
+     *
+     * @param input          the standard input of the command, or null
+     * @param outputConsumer the consumer of the output, or null to capture it
+     * @param command        the Git command to be executed
+     */
+    private void executeAndWait(byte[] input, GitExecution.OutputConsumer outputConsumer, String... command) {
 
-	try {
+	GitExecution execution = new GitExecution(sympleGit, command);
+	execution.setInput(input);
+	result = null;
+	exception = null;
 
-	    builder.command(command); // Correctly set the command
-	    process = builder.start();
+	if (!execution.isParamsOk()) {
+	    result = execution.invalidResult();
+	    return;
+	}
 
-	    createOutputTempFile(process.getInputStream());
-	
-	    debug("waitFor...: " + removeCommas(Arrays.toString(command)));
+	ExecutorService executor = sympleGit.getExecutorService();
+	Future<GitResult> future = executor.submit(() -> execution.run(outputConsumer));
 
-	    exitCode = process.waitFor();
-	    debug("exitCode: " + exitCode);
+	long timeout = sympleGit.getTimeout();
+	TimeUnit unit = sympleGit.getUnit();
 
-	    // process.destroy();
-	    process.destroyForcibly();
+	debug("unit: " + unit);
+	try {
 
-	} catch (Throwable throwable) {
-	    if (throwable instanceof Exception) {
-		exception = (Exception) throwable;
+	    long futureTimeout = timeout == 0 ? Long.MAX_VALUE : timeout;
 
-	    } else {
-		exception = new Exception(throwable);
+	    // Get the result of the asynchronous computation with a timeout
+	    result = future.get(futureTimeout, unit);
+	} catch (TimeoutException e) {
+	    int reapedProcessCount = execution.kill(new UncheckedTimeoutException("Timeout after " + timeout + unit));
+	    try {
+		// The process tree is dead: the result holding the reaped count is
+		// available almost immediately
+		result = future.get(sympleGit.getKillGracePeriodMillis() + 1000, TimeUnit.MILLISECONDS);
+	    } catch (InterruptedException interruptedException) {
+		Thread.currentThread().interrupt();
+	    } catch (ExecutionException | TimeoutException ignore) {
+		// Result stays unknown
 	    }
-	} finally {
-	    // sympleGit.addTempFile(tempErrorFile);
-	    sympleGit.addTempFile(tempOutputFile);
+	    throw new UncheckedTimeoutException(
+		    "Timeout after " + timeout + unit + ". Processes reaped: " + reapedProcessCount, reapedProcessCount);
+	} catch (InterruptedException e) {
+	    execution.kill(new CancellationException("Git command interrupted."));
+	    Thread.currentThread().interrupt();
+	    exception = e;
+	} catch (ExecutionException e) {
+	    exception = e;
 	}
     }
 
     /**
-     * Check basic parameters of the Git command. (It must start with "git", etc.).
-     * @param command
+     * Executes a Git command asynchronously. The command runs on the executor of
+     * the SympleGit instance and the returned future completes when the process
+     * ends. <br>
+     * If a timeout is set on the SympleGit instance, the process tree is killed
+     * when it expires and the future completes exceptionally with an
+     * {@link UncheckedTimeoutException}. <br>
+     * Cancelling the returned future kills the process tree in the background.
+     * Note that cancelling a stage derived from it, for example with
+     * {@code thenApply}, does not. <br>
+     * This method does not modify the state of this GitCommander: the outcome is
+     * only available through the returned {@link GitResult}.
+     *
+     * @param command The Git command to be executed, split into an array of
+     *                strings.
+     * @return a future of the result of the command
      */
-    private boolean basicParamsCheks(String... command) {
-	return command == null || command.length == 0 || ! command[0].equals("git") ? false : true;
+    public CompletableFuture<GitResult> executeGitCommandAsync(String... command) {
+	GitExecution execution = new GitExecution(sympleGit, command);
+
+	if (!execution.isParamsOk()) {
+	    return CompletableFuture.completedFuture(execution.invalidResult());
+	}
+
+	GitResultFuture future = new GitResultFuture(execution);
+	sympleGit.getExecutorService().execute(() -> {
+	    if (future.isDone()) {
+		return; // Cancelled before start
+	    }
+	    try {
+		GitResult gitResult = execution.run();
+		if (!future.timedOut) {
+		    future.complete(gitResult);
+		}
+	    } catch (Throwable throwable) {
+		future.completeExceptionally(throwable);
+	    }
+	});
+
+	long timeout = sympleGit.getTimeout();
+	if (timeout > 0) {
+	    TimeUnit unit = sympleGit.getUnit();
+	    // The scheduler thread must not block: the kill runs on the executor
+	    ScheduledFuture<?> timeoutTask = GitExecutors.scheduler().schedule(() -> {
+		future.timedOut = true;
+		if (future.isDone()) {
+		    return;
+		}
+		GitExecutors.defaultExecutor().execute(() -> {
+		    int reapedProcessCount = execution
+			    .kill(new UncheckedTimeoutException("Timeout after " + timeout + unit));
+		    future.completeExceptionally(new UncheckedTimeoutException(
+			    "Timeout after " + timeout + unit + ". Processes reaped: " + reapedProcessCount,
+			    reapedProcessCount));
+		});
+	    }, timeout, unit);
+	    future.whenComplete((gitResult, throwable) -> timeoutTask.cancel(false));
+	}
+
+	return future;
     }
 
     /**
-     * Create a temporary file to store the output of the last executed Git command.
-     * @param inputStream the input stream to create the temporary file from.
-     * 
-     * @throws IOException
-     * @throws FileNotFoundException
+     * A CompletableFuture that kills the Git process when cancelled.
      */
-    private void createOutputTempFile(InputStream inputStream) throws IOException, FileNotFoundException {
-	debug("Before tempOutputFile creation");
+    private static class GitResultFuture extends CompletableFuture<GitResult> {
 
-	tempOutputFile = File.createTempFile(SYMPLEGIT_OUTPUT + ApiDateUtil.getDateWithTime() + "-", ".txt");
+	private final GitExecution execution;
+	private volatile boolean timedOut = false;
 
-	try (InputStream osInput = new BufferedInputStream(inputStream);
-		OutputStream osOutput = new BufferedOutputStream(new FileOutputStream(tempOutputFile))) {
-	    IOUtils.copy(osInput, osOutput);
+	GitResultFuture(GitExecution execution) {
+	    this.execution = execution;
 	}
 
-	debug("After tempOutputFile creation");
-
-	// Optionally, delete the file when the JVM exits
-	tempOutputFile.deleteOnExit();
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+	    boolean cancelled = super.cancel(mayInterruptIfRunning);
+	    if (cancelled) {
+		// Killing may wait for the grace period: do not block the caller
+		GitExecutors.defaultExecutor()
+			.execute(() -> execution.kill(new CancellationException("Git command cancelled.")));
+	    }
+	    return cancelled;
+	}
     }
 
-    private void stopProcess() {
-	if (this.process != null) {
-	    // this.process.destroy();
-	    this.process.destroyForcibly();
-	}
+    /**
+     * Gets the result of the last executed Git command.
+     *
+     * @return the result of the last executed Git command, or null if no command
+     *         has been executed, or if it timed out, was interrupted or failed
+     *         before publishing its result.
+     */
+    public GitResult getResult() {
+	return result;
     }
 
     /**
@@ -263,12 +405,7 @@ public class GitCommander {
      *         false otherwise.
      */
     public boolean isResponseOk() {
-	if (paramsOk) {
-	    return exitCode == 0;
-	}
-	else {
-	    return false;
-	}
+	return result != null && exception == null && result.isResponseOk();
     }    
 
 
@@ -278,13 +415,7 @@ public class GitCommander {
      * @return The exit code of the last Git command execution.
      */
     public int getExitCode() {
-	if (paramsOk) {
-	    return  exitCode;
-	}
-	else {
-	    return -1;
-	}
-
+	return result == null ? -1 : result.getExitCode();
     }
 
     /**
@@ -296,9 +427,7 @@ public class GitCommander {
      * @throws IOException if an I/O error occurs while reading the output.
      */
     public String getProcessOutput() throws IOException {
-	try (InputStream is = getProcessOutputAsInputStream()) {
-	    return IOUtils.toString(is, "UTF-8");
-	}
+	return result == null ? null : result.getProcessOutput();
     }
 
     /**
@@ -308,7 +437,7 @@ public class GitCommander {
      * @throws IOException if an I/O error occurs while reading the error output.
      */
     public String getProcessError() throws IOException {
-	return getProcessOutput(); // Fusion of stream output and error output
+	return result == null ? null : result.getProcessError();
     }
 
     /**
@@ -318,7 +447,7 @@ public class GitCommander {
      * @return The length of the standard output of the last executed Git command.
      */
     public long getSize() {
-	return tempOutputFile.length();
+	return result == null ? 0 : result.getSize();
     }
 
     /**
@@ -330,11 +459,21 @@ public class GitCommander {
      * @throws IOException if the output file does not exist or an I/O error occurs.
      */
     public InputStream getProcessOutputAsInputStream() throws IOException {
+	return result == null ? null : result.getProcessOutputAsInputStream();
+    }
 
-	if (tempOutputFile != null && tempOutputFile.exists()) {
-	    return new BufferedInputStream(new FileInputStream(tempOutputFile));
-	}
-	return null;
+    /**
+     * Retrieves the standard output of the last executed Git command as a
+     * read-only ByteBuffer, memory-mapped if the output is held in a temporary
+     * file. See {@link GitResult#getProcessOutputAsByteBuffer()}.
+     *
+     * @return A read-only ByteBuffer on the standard output of the last executed
+     *         Git command, or null if no command was executed.
+     * @throws IOException if the output is larger than 2 Gb or an I/O error
+     *                     occurs.
+     */
+    public ByteBuffer getProcessOutputAsByteBuffer() throws IOException {
+	return result == null ? null : result.getProcessOutputAsByteBuffer();
     }
 
     /**
@@ -345,7 +484,7 @@ public class GitCommander {
      * @throws IOException if the error file does not exist or an I/O error occurs.
      */
     public InputStream getProcessErrorAsInputStream() throws IOException {
-	return getProcessOutputAsInputStream(); // Fusion of stream output and error output
+	return result == null ? null : result.getProcessErrorAsInputStream();
     }
 
     /**
@@ -356,20 +495,10 @@ public class GitCommander {
      *         if no exception occurred.
      */
     public Exception getException() {
-	return exception;
-    }
-
-    /**
-     * Removes commas from a given string.
-     *
-     * @param str The string from which commas should be removed.
-     * @return The string without commas.
-     */
-    private String removeCommas(String str) {
-	if (str != null && str.contains(",")) {
-	    str = str.replace(",", "");
+	if (exception != null) {
+	    return exception;
 	}
-	return str;
+	return result == null ? null : result.getException();
     }
 
     /**
@@ -0,0 +1,430 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+import com.symplegit.api.exception.UncheckedTimeoutException;
+import com.symplegit.api.metrics.GitCommandEvent;
+import com.symplegit.api.metrics.GitMetricsCollector;
+import com.symplegit.util.GitExecutors;
+import com.symplegit.util.ProcessTreeKiller;
+
+/**
+ * Runs one Git command in a process and builds its {@link GitResult}. <br>
+ * The execution may be killed from another thread with {@link #kill()}: this is
+ * used on timeout and on cancellation of asynchronous commands.
+ *
+ * @author KawanSoft SAS
+ */
+class GitExecution {
+
+    /**
+     * Consumes the output of a process while it runs, instead of capturing it.
+     */
+    interface OutputConsumer {
+
+	/**
+	 * Reads the process output until its end.
+	 *
+	 * @param processOutput the process output
+	 * @throws IOException if an I/O error occurs
+	 */
+	void consume(InputStream processOutput) throws IOException;
+    }
+
+    private final SympleGit sympleGit;
+    private final String[] command;
+    private final boolean paramsOk;
+    private byte[] input = null;
+
+    private Process process = null;
+    private boolean killed = false;
+    private Exception killCause = null;
+    private final CountDownLatch killDone = new CountDownLatch(1);
+    private volatile int reapedProcessCount = 0;
+
+    /**
+     * Constructs a GitExecution.
+     *
+     * @param sympleGit The SympleGit instance that holds the configuration.
+     * @param command   The Git command to be executed, split into an array of
+     *                  strings.
+     */
+    GitExecution(SympleGit sympleGit, String... command) {
+	this.sympleGit = sympleGit;
+	this.command = command == null ? null : command.clone();
+	this.paramsOk = basicParamsCheks(this.command);
+    }
+
+    /**
+     * Sets the bytes written to the standard input of the process, which is
+     * closed after them. By default nothing is written and the standard input
+     * stays open.
+     *
+     * @param input the standard input of the process, or null
+     */
+    void setInput(byte[] input) {
+	this.input = input;
+    }
+
+    /**
+     * Says if the command passes the basic checks and may be executed.
+     *
+     * @return true if the command may be executed
+     */
+    boolean isParamsOk() {
+	return paramsOk;
+    }
+
+    /**
+     * Builds the result of a command that did not pass the basic checks.
+     *
+     * @return the result holding the error message as output
+     */
+    GitResult invalidResult() {
+	OutputCapture outputCapture = OutputCapture
+		.of("Please input valid git command starting with \"git\".".getBytes());
+	return GitResult.custom(command).setParamsOk(false).setOutputCapture(outputCapture).build();
+    }
+
+    /**
+     * Executes the command and waits for the process end. Does not throw: any
+     * exception is stored in the returned result.
+     *
+     * @return the result of the command.
+     */
+    GitResult run() {
+	return run(null);
+    }
+
+    /**
+     * Executes the command and waits for the process end. Does not throw: any
+     * exception is stored in the returned result.
+     *
+     * @param outputConsumer the consumer of the process output while it runs, or
+     *                       null to capture the output.
+     * @return the result of the command.
+     */
+    GitResult run(OutputConsumer outputConsumer) {
+	if (!paramsOk) {
+	    return invalidResult();
+	}
+
+	boolean separateErrorStream = sympleGit.isSeparateErrorStream();
+
+	ProcessBuilder builder = new ProcessBuilder();
+	builder.directory(sympleGit.getDirectory());
+	builder.redirectErrorStream(!separateErrorStream);
+	builder.command(command); // Correctly set the command
+
+	debug("Git command: " + removeCommas(Arrays.toString(command)));
+
+	GitResult.Builder resultBuilder = GitResult.custom(command);
+	TailCapture errorCapture = separateErrorStream ? new TailCapture(sympleGit.getErrorCaptureLimit()) : null;
+	resultBuilder.setErrorCapture(errorCapture);
+
+	Future<?> errorDrain = null;
+	Future<?> inputFeed = null;
+
+	long startNanos = System.nanoTime();
+	long spawnNanos = 0;
+	boolean started = false;
+
+	try {
+	    synchronized (this) {
+		if (killed) {
+		    throw new CancellationException("Git command cancelled before start.");
+		}
+		process = builder.start();
+	    }
+	    spawnNanos = System.nanoTime() - startNanos;
+	    started = true;
+
+	    if (separateErrorStream) {
+		// Drained concurrently, so that a full stderr pipe never blocks Git.
+		// Uses the unbounded shared executor: a bounded user executor could
+		// queue the drain behind this very task.
+		InputStream errorStream = process.getErrorStream();
+		errorDrain = GitExecutors.defaultExecutor().submit(() -> {
+		    try (InputStream in = errorStream) {
+			IOUtils.copy(in, errorCapture);
+		    }
+		    return null;
+		});
+	    }
+
+	    if (input != null) {
+		// Written concurrently, so that Git may write its output before it
+		// has read all its input
+		OutputStream processInput = process.getOutputStream();
+		byte[] bytes = input;
+		inputFeed = GitExecutors.defaultExecutor().submit(() -> {
+		    try (OutputStream out = processInput) {
+			out.write(bytes);
+		    } catch (IOException e) {
+			// Git ended without reading all its input: the exit code tells why
+			debug("Input not fully read: " + e);
+		    }
+		    return null;
+		});
+	    }
+
+	    if (outputConsumer == null) {
+		resultBuilder.setOutputCapture(captureOutput(process.getInputStream()));
+	    } else {
+		CountingInputStream countingInputStream = new CountingInputStream(process.getInputStream());
+		try {
+		    outputConsumer.consume(countingInputStream);
+		    // Drain what the consumer did not read, so that the process can end
+		    IOUtils.skip(countingInputStream, Long.MAX_VALUE);
+		} finally {
+		    resultBuilder.setStreamedSize(countingInputStream.getByteCount());
+		}
+	    }
+
+	    debug("waitFor...: " + removeCommas(Arrays.toString(command)));
+
+	    int exitCode = process.waitFor();
+	    debug("exitCode: " + exitCode);
+
+	    if (errorDrain != null) {
+		errorDrain.get();
+	    }
+	    if (inputFeed != null) {
+		inputFeed.get();
+	    }
+
+	    resultBuilder.setExitCode(exitCode);
+
+	    // process.destroy();
+	    process.destroyForcibly();
+
+	} catch (Throwable throwable) {
+	    if (throwable instanceof InterruptedException) {
+		Thread.currentThread().interrupt();
+	    }
+	    if (throwable instanceof Exception) {
+		resultBuilder.setException((Exception) throwable);
+
+	    } else {
+		resultBuilder.setException(new Exception(throwable));
+	    }
+	    resultBuilder.setExitCode(-1);
+	    // The consumer may have failed while the process still writes
+	    if (process != null) {
+		process.destroyForcibly();
+	    }
+	    if (errorDrain != null) {
+		errorDrain.cancel(true);
+	    }
+	    if (inputFeed != null) {
+		inputFeed.cancel(true);
+	    }
+	}
+
+	long wallNanos = System.nanoTime() - startNanos;
+
+	awaitKillDone();
+	resultBuilder.setReapedProcessCount(reapedProcessCount);
+	Exception cause;
+	synchronized (this) {
+	    cause = killCause;
+	}
+	if (cause != null) {
+	    resultBuilder.setException(cause);
+	}
+
+	GitStatusTracker statusTracker = sympleGit.getStatusTracker();
+	if (started && statusTracker != null) {
+	    statusTracker.commandExecuted(command);
+	}
+
+	GitResult result = resultBuilder.build();
+	recordMetrics(result, started, spawnNanos, wallNanos, cause);
+	return result;
+    }
+
+    /**
+     * Passes the metrics of the command to the collector of the SympleGit
+     * instance, if any.
+     */
+    private void recordMetrics(GitResult result, boolean started, long spawnNanos, long wallNanos,
+	    Exception cause) {
+	GitMetricsCollector metricsCollector = sympleGit.getMetricsCollector();
+	if (metricsCollector == null) {
+	    return;
+	}
+
+	GitCommandEvent event = GitCommandEvent.custom(command).setStarted(started).setSpawnNanos(spawnNanos)
+		.setWallNanos(wallNanos).setOutputBytes(result.getSize()).setExitCode(result.getExitCode())
+		.setTimedOut(cause instanceof UncheckedTimeoutException)
+		.setCancelled(cause instanceof CancellationException).build();
+	try {
+	    metricsCollector.record(event);
+	} catch (RuntimeException e) {
+	    // Metrics must never make a command fail
+	    debug("Metrics collector failure: " + e);
+	}
+    }
+
+    /**
+     * Captures the output of the command. The output is held in memory up to the
+     * threshold set with {@link SympleGit.Builder#setOutputMemoryThreshold(int)}
+     * and is spilled to a temporary file beyond, in the directory set with
+     * {@link SympleGit.Builder#setCaptureDirectory(java.io.File)}.
+     *
+     * @param inputStream the input stream to capture.
+     * @return the capture of the output
+     * @throws IOException
+     */
+    private OutputCapture captureOutput(InputStream inputStream) throws IOException {
+	debug("Before output capture");
+
+	OutputCapture outputCapture = new OutputCapture(sympleGit.getOutputMemoryThreshold(),
+		sympleGit.getOutputCaptureLimit(), sympleGit.captureStore());
+
+	try (InputStream osInput = new BufferedInputStream(inputStream); OutputStream osOutput = outputCapture) {
+	    IOUtils.copy(osInput, osOutput);
+	} catch (IOException | RuntimeException e) {
+	    // Not returned: free the temporary file at once
+	    outputCapture.release();
+	    throw e;
+	}
+
+	debug("After output capture: " + outputCapture.length() + " bytes"
+		+ (outputCapture.getFile() != null ? " in " + outputCapture.getFile() : " in memory"));
+	return outputCapture;
+    }
+
+    /**
+     * Kills the process of the command and all its descendants: they are asked
+     * to terminate, and killed forcibly after the grace period set with
+     * {@link SympleGit.Builder#setKillGracePeriod(long, TimeUnit)}. If the
+     * process is not started yet, it will not be started. <br>
+     * Blocks up to the grace period.
+     *
+     * @return the number of processes that have been terminated
+     */
+    int kill() {
+	return kill(null);
+    }
+
+    /**
+     * Kills the process of the command and all its descendants, as
+     * {@link #kill()}, and stores the cause of the kill as the exception of the
+     * result.
+     *
+     * @param cause the exception stored in the result, or null
+     * @return the number of processes that have been terminated
+     */
+    int kill(Exception cause) {
+	Process processToKill;
+	synchronized (this) {
+	    if (killed) {
+		return reapedProcessCount;
+	    }
+	    killed = true;
+	    killCause = cause;
+	    processToKill = process;
+	}
+
+	try {
+	    if (processToKill != null) {
+		reapedProcessCount = ProcessTreeKiller.kill(processToKill, sympleGit.getKillGracePeriodMillis(),
+			TimeUnit.MILLISECONDS);
+		debug("Processes reaped: " + reapedProcessCount);
+	    }
+	    return reapedProcessCount;
+	} finally {
+	    killDone.countDown();
+	}
+    }
+
+    /**
+     * Gets the number of processes terminated by {@link #kill()}.
+     *
+     * @return the number of processes terminated by {@link #kill()}
+     */
+    int getReapedProcessCount() {
+	return reapedProcessCount;
+    }
+
+    /**
+     * If the execution is being killed, waits for the kill to be complete, so
+     * that the result holds the number of reaped processes.
+     */
+    private void awaitKillDone() {
+	synchronized (this) {
+	    if (!killed) {
+		return;
+	    }
+	}
+	try {
+	    killDone.await();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /**
+     * Check basic parameters of the Git command. (It must start with "git", etc.).
+     * @param command
+     */
+    private static boolean basicParamsCheks(String... command) {
+	return command == null || command.length == 0 || ! "git".equals(command[0]) ? false : true;
+    }
+
+    /**
+     * Removes commas from a given string.
+     *
+     * @param str The string from which commas should be removed.
+     * @return The string without commas.
+     */
+    private static String removeCommas(String str) {
+	if (str != null && str.contains(",")) {
+	    str = str.replace(",", "");
+	}
+	return str;
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (GitCommander.DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The GitObject class holds a Git object read from the repository: its
+ * {@link GitObjectHeader} and its raw content. <br>
+ * Instances are immutable: {@link #getContent()} returns a copy of the content.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitObject {
+
+    private final GitObjectHeader header;
+    private final byte[] content;
+
+    /**
+     * Constructs a GitObject.
+     *
+     * @param header  the object header
+     * @param content the raw object content
+     */
+    public GitObject(GitObjectHeader header, byte[] content) {
+	this.header = Objects.requireNonNull(header, "header cannot be null!");
+	this.content = Objects.requireNonNull(content, "content cannot be null!").clone();
+    }
+
+    /**
+     * Gets the object header.
+     *
+     * @return the object header
+     */
+    public GitObjectHeader getHeader() {
+	return header;
+    }
+
+    /**
+     * Gets the full object id.
+     *
+     * @return the full object id
+     */
+    public String getId() {
+	return header.getId();
+    }
+
+    /**
+     * Gets the object type: "blob", "tree", "commit" or "tag".
+     *
+     * @return the object type
+     */
+    public String getType() {
+	return header.getType();
+    }
+
+    /**
+     * Gets the object size in bytes.
+     *
+     * @return the object size in bytes
+     */
+    public long getSize() {
+	return header.getSize();
+    }
+
+    /**
+     * Gets a copy of the raw object content.
+     *
+     * @return a copy of the raw object content
+     */
+    public byte[] getContent() {
+	return content.clone();
+    }
+
+    /**
+     * Gets the object content decoded as an UTF-8 String.
+     *
+     * @return the object content as a String
+     */
+    public String getContentAsString() {
+	return new String(content, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+	return "GitObject [header=" + header + "]";
+    }
+}
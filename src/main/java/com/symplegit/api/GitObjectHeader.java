@@ -0,0 +1,82 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.util.Objects;
+
+/**
+ * The GitObjectHeader class holds the header of a Git object, as returned by
+ * {@code git cat-file --batch-check}: the full object id, the object type
+ * ("blob", "tree", "commit" or "tag") and the object size in bytes. <br>
+ * Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitObjectHeader {
+
+    private final String id;
+    private final String type;
+    private final long size;
+
+    /**
+     * Constructs a GitObjectHeader.
+     *
+     * @param id   the full object id
+     * @param type the object type
+     * @param size the object size in bytes
+     */
+    public GitObjectHeader(String id, String type, long size) {
+	this.id = Objects.requireNonNull(id, "id cannot be null!");
+	this.type = Objects.requireNonNull(type, "type cannot be null!");
+	this.size = size;
+    }
+
+    /**
+     * Gets the full object id.
+     *
+     * @return the full object id
+     */
+    public String getId() {
+	return id;
+    }
+
+    /**
+     * Gets the object type: "blob", "tree", "commit" or "tag".
+     *
+     * @return the object type
+     */
+    public String getType() {
+	return type;
+    }
+
+    /**
+     * Gets the object size in bytes.
+     *
+     * @return the object size in bytes
+     */
+    public long getSize() {
+	return size;
+    }
+
+    @Override
+    public String toString() {
+	return "GitObjectHeader [id=" + id + ", type=" + type + ", size=" + size + "]";
+    }
+}
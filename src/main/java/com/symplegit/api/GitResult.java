@@ -0,0 +1,343 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The GitResult class holds the outcome of one executed Git command: exit code,
+ * captured output and exception, if any. <br>
+ * Instances are immutable and may be shared between threads. They are returned
+ * by {@link GitCommander#executeGitCommandAsync(String...)} and
+ * {@link GitCommander#getResult()}. <br>
+ * When the output was streamed to a consumer, it is not kept: the output
+ * accessors return an empty output. <br>
+ * A large output is held in a temporary file owned by the result. The file is
+ * deleted when the result is closed, or else when the result is not referenced
+ * anymore and is garbage collected.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitResult implements AutoCloseable {
+
+    private final String[] command;
+    private final boolean paramsOk;
+    private final int exitCode;
+    private final OutputCapture outputCapture;
+    private final long streamedSize;
+    private final byte[] error;
+    private final boolean errorTruncated;
+    private final int reapedProcessCount;
+    private final Exception exception;
+
+    /**
+     * Constructs a GitResult from a Builder.
+     *
+     * @param builder the Builder holding the values
+     */
+    private GitResult(Builder builder) {
+	this.command = builder.command == null ? new String[0] : builder.command.clone();
+	this.paramsOk = builder.paramsOk;
+	this.exitCode = builder.exitCode;
+	this.outputCapture = builder.outputCapture;
+	this.streamedSize = builder.streamedSize;
+	this.error = builder.errorCapture == null ? null : builder.errorCapture.toByteArray();
+	this.errorTruncated = builder.errorCapture != null && builder.errorCapture.isTruncated();
+	this.reapedProcessCount = builder.reapedProcessCount;
+	this.exception = builder.exception;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @param command the executed command
+     * @return A new Builder instance.
+     */
+    static Builder custom(String[] command) {
+	return new Builder(command);
+    }
+
+    /**
+     * Builder class for GitResult, used by the classes that execute commands.
+     */
+    static class Builder {
+
+	private final String[] command;
+	private boolean paramsOk = true;
+	private int exitCode = -1;
+	private OutputCapture outputCapture = null;
+	private long streamedSize = 0;
+	private TailCapture errorCapture = null;
+	private int reapedProcessCount = 0;
+	private Exception exception = null;
+
+	private Builder(String[] command) {
+	    this.command = command;
+	}
+
+	Builder setParamsOk(boolean paramsOk) {
+	    this.paramsOk = paramsOk;
+	    return this;
+	}
+
+	Builder setExitCode(int exitCode) {
+	    this.exitCode = exitCode;
+	    return this;
+	}
+
+	Builder setOutputCapture(OutputCapture outputCapture) {
+	    this.outputCapture = outputCapture;
+	    return this;
+	}
+
+	Builder setStreamedSize(long streamedSize) {
+	    this.streamedSize = streamedSize;
+	    return this;
+	}
+
+	Builder setErrorCapture(TailCapture errorCapture) {
+	    this.errorCapture = errorCapture;
+	    return this;
+	}
+
+	Builder setReapedProcessCount(int reapedProcessCount) {
+	    this.reapedProcessCount = reapedProcessCount;
+	    return this;
+	}
+
+	Builder setException(Exception exception) {
+	    this.exception = exception;
+	    return this;
+	}
+
+	GitResult build() {
+	    return new GitResult(this);
+	}
+    }
+
+    /**
+     * Gets the executed Git command.
+     *
+     * @return a copy of the executed Git command
+     */
+    public String[] getCommand() {
+	return command.clone();
+    }
+
+    /**
+     * Says if the Git command was successful.
+     *
+     * @return true if the Git command executed successfully (exit code 0), false
+     *         otherwise.
+     */
+    public boolean isResponseOk() {
+	return paramsOk && exception == null && exitCode == 0;
+    }
+
+    /**
+     * Gets the exit code of the Git command.
+     *
+     * @return The exit code of the Git command, or -1 if the command could not be
+     *         executed.
+     */
+    public int getExitCode() {
+	return paramsOk ? exitCode : -1;
+    }
+
+    /**
+     * Gets the standard output of the Git command as a String. <br>
+     * It's good practice to test the length of the output as it can be retrieved
+     * with {@link #getSize()}.
+     *
+     * @return The standard output of the Git command, or an empty String if the
+     *         command produced no output.
+     * @throws IOException if an I/O error occurs while reading the output.
+     */
+    public String getProcessOutput() throws IOException {
+	if (outputCapture == null) {
+	    return "";
+	}
+	try (InputStream is = getProcessOutputAsInputStream()) {
+	    return IOUtils.toString(is, "UTF-8");
+	}
+    }
+
+    /**
+     * Gets the error output of the Git command as a String.
+     *
+     * If the error output is separated from the standard output (see
+     * {@link SympleGit.Builder#setSeparateErrorStream(boolean)}), this is the
+     * tail of the error output. Else, this is the standard output, which holds
+     * both.
+     *
+     * @return The error output of the Git command. If the process could not be
+     *         started, the description of the exception.
+     * @throws IOException if an I/O error occurs while reading the error output.
+     */
+    public String getProcessError() throws IOException {
+	if (error != null) {
+	    if (error.length == 0 && exception != null) {
+		return exception.toString();
+	    }
+	    return new String(error, StandardCharsets.UTF_8);
+	}
+	if (outputCapture == null && exception != null) {
+	    return exception.toString();
+	}
+	return getProcessOutput(); // Fusion of stream output and error output
+    }
+
+    /**
+     * Gets the length of the standard output of the Git command. For a streamed
+     * command, this is the number of bytes passed to the consumer.
+     *
+     * @return The length of the standard output of the Git command.
+     */
+    public long getSize() {
+	return outputCapture == null ? streamedSize : outputCapture.length();
+    }
+
+    /**
+     * Retrieves the standard output of the Git command as an InputStream.
+     *
+     * @return An InputStream of the standard output of the Git command, or null if
+     *         there is no output.
+     * @throws IOException if the result has been closed, or if an I/O error
+     *                     occurs.
+     */
+    public InputStream getProcessOutputAsInputStream() throws IOException {
+	return outputCapture == null ? null : outputCapture.openInputStream();
+    }
+
+    /**
+     * Retrieves the standard output of the Git command as a read-only
+     * ByteBuffer, for random access without copying the output into the heap.
+     * <br>
+     * An output spilled to a temporary file is returned as a
+     * {@link java.nio.MappedByteBuffer}; a small output held in memory is
+     * returned as a read-only view of its bytes. Use {@link LineIndex} to access
+     * the lines of the buffer. <br>
+     * The mapping stays valid after the result is closed on Linux and macOS; on
+     * Windows, the temporary file cannot be deleted while it is mapped.
+     *
+     * @return a read-only ByteBuffer on the standard output, empty if there is
+     *         no output
+     * @throws IOException if the result has been closed, if the output is larger
+     *                     than 2 Gb, or if an I/O error occurs.
+     */
+    public ByteBuffer getProcessOutputAsByteBuffer() throws IOException {
+	return outputCapture == null ? ByteBuffer.allocate(0).asReadOnlyBuffer() : outputCapture.asByteBuffer();
+    }
+
+    /**
+     * Builds the line index of the standard output of the Git command, on top of
+     * {@link #getProcessOutputAsByteBuffer()}.
+     *
+     * @return the line index of the standard output
+     * @throws IOException if the result has been closed, if the output is larger
+     *                     than 2 Gb, or if an I/O error occurs.
+     */
+    public LineIndex getProcessOutputLineIndex() throws IOException {
+	return new LineIndex(getProcessOutputAsByteBuffer());
+    }
+
+    /**
+     * Retrieves the error output of the Git command as an InputStream.
+     *
+     * @return An InputStream of the error output of the Git command.
+     * @throws IOException if an I/O error occurs.
+     */
+    public InputStream getProcessErrorAsInputStream() throws IOException {
+	if (error != null) {
+	    return new ByteArrayInputStream(error);
+	}
+	return getProcessOutputAsInputStream(); // Fusion of stream output and error output
+    }
+
+    /**
+     * Says if the standard output was cut because it exceeded the limit set with
+     * {@link SympleGit.Builder#setOutputCaptureLimit(long)}.
+     *
+     * @return true if the captured standard output is truncated
+     */
+    public boolean isOutputTruncated() {
+	return outputCapture != null && outputCapture.isTruncated();
+    }
+
+    /**
+     * Says if the beginning of the separated error output was dropped because it
+     * exceeded the limit set with
+     * {@link SympleGit.Builder#setErrorCaptureLimit(int)}.
+     *
+     * @return true if the captured error output is truncated
+     */
+    public boolean isErrorTruncated() {
+	return errorTruncated;
+    }
+
+    /**
+     * Gets the number of processes (the git process and its descendants) that
+     * were terminated because the command timed out or was cancelled.
+     *
+     * @return the number of terminated processes, 0 if the command ended by
+     *         itself
+     */
+    public int getReapedProcessCount() {
+	return reapedProcessCount;
+    }
+
+    /**
+     * Retrieves the exception that occurred during the Git command execution, if
+     * any.
+     *
+     * @return The exception thrown during the Git command execution, or null if no
+     *         exception occurred.
+     */
+    public Exception getException() {
+	return exception;
+    }
+
+    /**
+     * Frees the captured output: its temporary file, if any, is deleted at once.
+     * The output cannot be read anymore. <br>
+     * Calling this method is optional: the temporary file is also deleted when the
+     * result is garbage collected. It is a good practice for large outputs, to
+     * relieve the capture directory without waiting for the garbage collector.
+     */
+    @Override
+    public void close() {
+	if (outputCapture != null) {
+	    outputCapture.release();
+	}
+    }
+
+    @Override
+    public String toString() {
+	return "GitResult [command=" + Arrays.toString(command) + ", exitCode=" + getExitCode() + ", size="
+		+ getSize() + ", reapedProcessCount=" + reapedProcessCount + ", exception=" + exception + "]";
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefStateFingerprint;
+import com.symplegit.util.FrameworkDebug;
+
+/**
+ * A cache of the results of read-only Git commands, such as the lists of
+ * branches or tags. <br>
+ * Entries that depend on the references are stored with a fingerprint of the
+ * reference files (see {@link RefStateFingerprint}): an entry is returned only
+ * if the fingerprint is unchanged, so a cache hit costs a few {@code stat}
+ * calls instead of a Git process. <br>
+ * The cache holds at most a fixed number of entries: the least recently used
+ * entry is evicted first. <br>
+ * <br>
+ * The cache is enabled with {@link SympleGit.Builder#setResultCache(int)} and
+ * is used by the facilitator classes. It is thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitResultCache {
+
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(GitResultCache.class);
+
+    /**
+     * Loads a value when it is not in the cache.
+     *
+     * @param <T> the type of the value
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+
+	/**
+	 * Loads the value.
+	 *
+	 * @return the value, or null if it could not be loaded. A null value is not
+	 *         cached.
+	 * @throws IOException if an I/O error occurs
+	 */
+	T load() throws IOException;
+    }
+
+    private final SympleGit sympleGit;
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Constructs a GitResultCache.
+     *
+     * @param sympleGit  The SympleGit instance of the repository.
+     * @param maxEntries the maximum number of entries
+     */
+    GitResultCache(SympleGit sympleGit, int maxEntries) {
+	if (maxEntries <= 0) {
+	    throw new IllegalArgumentException("maxEntries must be > 0: " + maxEntries);
+	}
+	this.sympleGit = sympleGit;
+	this.maxEntries = maxEntries;
+	this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+	    private static final long serialVersionUID = 1L;
+
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+		if (size() > GitResultCache.this.maxEntries) {
+		    evictionCount.incrementAndGet();
+		    return true;
+		}
+		return false;
+	    }
+	};
+    }
+
+    /**
+     * Gets a value that depends on the references of the repository. The value
+     * is loaded if it is not in the cache, or if the references have changed
+     * since it was cached. <br>
+     * If the repository files cannot be located, the value is always loaded.
+     *
+     * @param <T>    the type of the value
+     * @param key    the key of the value, for example the Git command
+     * @param loader the loader of the value
+     * @return the value, or null if the loader returns null
+     * @throws IOException if an I/O error occurs
+     */
+    public <T> T get(String key, Loader<T> loader) throws IOException {
+	GitDirectory gitDirectory = GitDirectory.find(sympleGit.getDirectory());
+	if (gitDirectory == null) {
+	    missCount.incrementAndGet();
+	    return loader.load();
+	}
+
+	// Computed before the load: a change during the load forces a reload
+	return get(key, RefStateFingerprint.compute(gitDirectory), loader);
+    }
+
+    /**
+     * Gets a value that does not depend on the state of the repository, such as
+     * the Git version. The value is loaded once, then kept until evicted or
+     * cleared.
+     *
+     * @param <T>    the type of the value
+     * @param key    the key of the value, for example the Git command
+     * @param loader the loader of the value
+     * @return the value, or null if the loader returns null
+     * @throws IOException if an I/O error occurs
+     */
+    public <T> T getConstant(String key, Loader<T> loader) throws IOException {
+	return get(key, "", loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, String fingerprint, Loader<T> loader) throws IOException {
+	synchronized (entries) {
+	    Entry entry = entries.get(key);
+	    if (entry != null && entry.fingerprint.equals(fingerprint)) {
+		hitCount.incrementAndGet();
+		return (T) entry.value;
+	    }
+	}
+
+	missCount.incrementAndGet();
+	debug("Cache miss: " + key);
+
+	T value = loader.load();
+	if (value != null) {
+	    synchronized (entries) {
+		entries.put(key, new Entry(fingerprint, value));
+	    }
+	}
+	return value;
+    }
+
+    /**
+     * Removes all entries. The counters are not reset.
+     */
+    public void clear() {
+	synchronized (entries) {
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+	synchronized (entries) {
+	    return entries.size();
+	}
+    }
+
+    /**
+     * Gets the maximum number of entries.
+     *
+     * @return the maximum number of entries
+     */
+    public int getMaxEntries() {
+	return maxEntries;
+    }
+
+    /**
+     * Gets the number of values returned from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+	return hitCount.get();
+    }
+
+    /**
+     * Gets the number of values that had to be loaded.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+	return missCount.get();
+    }
+
+    /**
+     * Gets the number of entries evicted because the cache was full.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+	return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+	return "GitResultCache [size=" + size() + ", maxEntries=" + maxEntries + ", hitCount=" + hitCount
+		+ ", missCount=" + missCount + ", evictionCount=" + evictionCount + "]";
+    }
+
+    /**
+     * A cached value with the fingerprint of the references when it was loaded.
+     */
+    private static class Entry {
+	private final String fingerprint;
+	private final Object value;
+
+	Entry(String fingerprint, Object value) {
+	    this.fingerprint = fingerprint;
+	    this.value = value;
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.symplegit.api.metrics.GitCommandEvent;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * Keeps the status of the working tree in memory, for applications that ask
+ * many times per second which files changed. <br>
+ * <br>
+ * The first query runs a full {@code git status} and starts to watch the
+ * working tree with a {@link WatchService}. Each following query only asks Git
+ * about the paths that were touched since the previous query, and answers from
+ * memory if none was. A change of the index, of {@code HEAD} or of a branch,
+ * or a lost watch event, triggers a new full status. <br>
+ * The directories ignored by Git when the tracker starts are not watched. New
+ * directories are watched from the query that follows their creation, unless
+ * Git ignores them. <br>
+ * <br>
+ * The status holds one entry per changed path, with the two-letter code of
+ * {@code git status --porcelain}: {@code " M"} for a modified file,
+ * {@code "A "} for a staged new file, {@code "??"} for an untracked file, etc.
+ * Untracked files are listed one by one and renames are not detected. <br>
+ * <br>
+ * A change is seen once the watch service reports it: within milliseconds on
+ * Linux and Windows, but the JDK polls the file system on macOS. The commands
+ * run with the SympleGit instance do not wait for the watch service: any
+ * command that may write the repository, such as {@code git add} or
+ * {@code git commit}, makes the next query run a full status. If the watches
+ * cannot be registered, for example because the inotify limit is reached, each
+ * query runs a full status. <br>
+ * The tracker is enabled with {@link SympleGit.Builder#setStatusTracker(boolean)}
+ * and is closed with its SympleGit instance. It is thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitStatusTracker implements AutoCloseable {
+
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(GitStatusTracker.class);
+
+    /** The maximum length of the paths passed on a command line (Windows limit is 32K). */
+    private static final int MAX_PATHS_LENGTH = 16 * 1024;
+
+    private static final Set<String> GIT_STATE_FILES = new HashSet<>(Arrays.asList("index", "HEAD", "packed-refs"));
+
+    /** The subcommands that never change the status of the working tree. */
+    private static final Set<String> READ_ONLY_SUBCOMMANDS = new HashSet<>(Arrays.asList("status", "log", "show",
+	    "diff", "diff-tree", "diff-index", "diff-files", "rev-parse", "rev-list", "ls-files", "ls-tree",
+	    "ls-remote", "cat-file", "for-each-ref", "show-ref", "merge-base", "describe", "name-rev", "blame",
+	    "shortlog", "grep", "check-ignore", "count-objects", "var", "--version", "version"));
+
+    private final SympleGit sympleGit;
+    private final Path workTree;
+
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Set<Path> gitDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<Path> refDirectories = ConcurrentHashMap.newKeySet();
+    private final Set<String> touchedPaths = ConcurrentHashMap.newKeySet();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private volatile boolean fullScanNeeded = true;
+
+    private final SortedMap<String, String> status = new TreeMap<>();
+    private WatchService watchService = null;
+    private Future<?> watchTask = null;
+    private boolean watching = false;
+    private boolean started = false;
+    private boolean closed = false;
+
+    private final AtomicLong fullScanCount = new AtomicLong();
+    private final AtomicLong pathScanCount = new AtomicLong();
+
+    /**
+     * Constructs a GitStatusTracker. Nothing is watched before the first query.
+     *
+     * @param sympleGit The SympleGit instance of the repository.
+     */
+    GitStatusTracker(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
+	this.workTree = sympleGit.getDirectory().toPath().toAbsolutePath();
+    }
+
+    /**
+     * Says if the working tree is clean: no staged, unstaged or untracked
+     * change.
+     *
+     * @return true if the working tree is clean
+     * @throws IOException if the tracker is closed, if the directory is not a
+     *                     working tree, or if Git fails
+     */
+    public synchronized boolean isClean() throws IOException {
+	refresh();
+	return status.isEmpty();
+    }
+
+    /**
+     * Gets the status of the changed paths.
+     *
+     * @return a sorted map of the changed paths, relative to the working tree,
+     *         to their two-letter {@code git status --porcelain} code
+     * @throws IOException if the tracker is closed, if the directory is not a
+     *                     working tree, or if Git fails
+     */
+    public synchronized SortedMap<String, String> getStatus() throws IOException {
+	refresh();
+	return Collections.unmodifiableSortedMap(new TreeMap<>(status));
+    }
+
+    /**
+     * Gets the number of full {@code git status} run so far.
+     *
+     * @return the number of full scans
+     */
+    public long getFullScanCount() {
+	return fullScanCount.get();
+    }
+
+    /**
+     * Gets the number of {@code git status} run on the touched paths only.
+     *
+     * @return the number of scans limited to touched paths
+     */
+    public long getPathScanCount() {
+	return pathScanCount.get();
+    }
+
+    /**
+     * Makes the next query run a full status if a command executed with the
+     * SympleGit instance may have changed the repository.
+     *
+     * @param command the executed Git command
+     */
+    void commandExecuted(String[] command) {
+	if (!READ_ONLY_SUBCOMMANDS.contains(GitCommandEvent.subcommandOf(command))) {
+	    fullScanNeeded = true;
+	}
+    }
+
+    /**
+     * Brings the status up to date with the changes reported by the watch
+     * service.
+     */
+    private void refresh() throws IOException {
+	if (closed) {
+	    throw new IOException("The status tracker is closed.");
+	}
+	if (!started) {
+	    start();
+	}
+
+	registerCreatedDirectories();
+
+	if (fullScanNeeded || !watching) {
+	    fullScan();
+	    return;
+	}
+
+	if (touchedPaths.isEmpty()) {
+	    return;
+	}
+
+	List<String> paths = new ArrayList<>(touchedPaths);
+	touchedPaths.removeAll(paths);
+
+	long length = paths.stream().mapToLong(path -> path.length() + 1).sum();
+	if (length > MAX_PATHS_LENGTH) {
+	    fullScan();
+	    return;
+	}
+
+	try {
+	    String output = executeStatus(paths);
+	    for (String path : paths) {
+		status.remove(path);
+		status.subMap(path + "/", path + "0").clear(); // '0' follows '/'
+	    }
+	    parseStatus(output);
+	    pathScanCount.incrementAndGet();
+	} catch (IOException e) {
+	    fullScanNeeded = true;
+	    throw e;
+	}
+    }
+
+    private void fullScan() throws IOException {
+	// Events received from now on are applied by the next query
+	fullScanNeeded = false;
+	touchedPaths.clear();
+	try {
+	    String output = executeStatus(null);
+	    status.clear();
+	    parseStatus(output);
+	    fullScanCount.incrementAndGet();
+	} catch (IOException e) {
+	    fullScanNeeded = true;
+	    throw e;
+	}
+    }
+
+    /**
+     * Registers the watches, then starts the thread that receives the events.
+     * The watches are registered before the first scan, so that no change is
+     * lost.
+     */
+    private void start() throws IOException {
+	GitDirectory gitDirectory = GitDirectory.find(workTree.toFile());
+	if (gitDirectory == null || gitDirectory.getGitDir().toPath().toAbsolutePath().equals(workTree)) {
+	    throw new IOException("Not the root of a Git working tree: " + workTree);
+	}
+
+	watchService = workTree.getFileSystem().newWatchService();
+	try {
+	    Path gitDir = gitDirectory.getGitDir().toPath().toAbsolutePath();
+	    Path commonDir = gitDirectory.getCommonDir().toPath().toAbsolutePath();
+	    register(gitDir, gitDirectories);
+	    register(commonDir, gitDirectories);
+	    registerTree(commonDir.resolve("refs").resolve("heads"), Collections.emptySet(), refDirectories);
+	    registerTree(workTree, listIgnoredDirectories(null), null);
+	    watching = true;
+	} catch (IOException e) {
+	    debug("Watch failed, each query runs a full status: " + e);
+	}
+
+	watchTask = GitExecutors.defaultExecutor().submit(this::watch);
+	started = true;
+    }
+
+    /**
+     * Registers the directories created since the previous query, except those
+     * ignored by Git.
+     */
+    private void registerCreatedDirectories() throws IOException {
+	if (createdDirectories.isEmpty() || !watching) {
+	    return;
+	}
+
+	List<Path> directories = new ArrayList<>(createdDirectories);
+	createdDirectories.removeAll(directories);
+
+	List<String> paths = new ArrayList<>();
+	for (Path directory : directories) {
+	    paths.add(toRelativePath(directory));
+	}
+	long length = paths.stream().mapToLong(path -> path.length() + 1).sum();
+	Set<Path> ignoredDirectories = listIgnoredDirectories(length > MAX_PATHS_LENGTH ? null : paths);
+
+	try {
+	    for (Path directory : directories) {
+		if (Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+		    registerTree(directory, ignoredDirectories, null);
+		}
+	    }
+	} catch (IOException e) {
+	    debug("Watch failed, each query runs a full status: " + e);
+	    watching = false;
+	}
+    }
+
+    /**
+     * Registers a directory and its subdirectories.
+     *
+     * @param group the set of Git directories the registered directories belong
+     *              to, or null for the working tree
+     */
+    private void registerTree(Path root, Set<Path> ignoredDirectories, Set<Path> group) throws IOException {
+	if (!Files.isDirectory(root)) {
+	    return;
+	}
+
+	Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+	    @Override
+	    public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+		    throws IOException {
+		if (group == null && (ignoredDirectories.contains(directory) || isDotGit(directory))) {
+		    return FileVisitResult.SKIP_SUBTREE;
+		}
+		register(directory, group);
+		return FileVisitResult.CONTINUE;
+	    }
+
+	    @Override
+	    public FileVisitResult visitFileFailed(Path file, IOException exception) {
+		return FileVisitResult.CONTINUE; // Removed meanwhile, or unreadable
+	    }
+	});
+    }
+
+    private void register(Path directory, Set<Path> group) throws IOException {
+	WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+		StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+	watchedDirectories.put(watchKey, directory);
+	if (group != null) {
+	    group.add(directory);
+	}
+    }
+
+    /**
+     * Receives the events of the watch service until it is closed.
+     */
+    private void watch() {
+	try {
+	    while (true) {
+		WatchKey watchKey = watchService.take();
+		Path directory = watchedDirectories.get(watchKey);
+		if (directory != null) {
+		    for (WatchEvent<?> event : watchKey.pollEvents()) {
+			handleEvent(directory, event);
+		    }
+		}
+		if (!watchKey.reset()) {
+		    watchedDirectories.remove(watchKey);
+		}
+	    }
+	} catch (ClosedWatchServiceException e) {
+	    debug("Watch service closed.");
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    private void handleEvent(Path directory, WatchEvent<?> event) {
+	if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+	    fullScanNeeded = true;
+	    return;
+	}
+
+	Path child = directory.resolve((Path) event.context());
+	boolean created = event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+		&& Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+
+	// The index, HEAD or a branch moved: any path may have changed
+	if (gitDirectories.contains(directory)) {
+	    if (GIT_STATE_FILES.contains(child.getFileName().toString())) {
+		fullScanNeeded = true;
+	    }
+	    return;
+	}
+	if (refDirectories.contains(directory)) {
+	    fullScanNeeded = true;
+	    if (created) {
+		try {
+		    registerTree(child, Collections.emptySet(), refDirectories);
+		} catch (IOException e) {
+		    watching = false;
+		}
+	    }
+	    return;
+	}
+
+	if (isDotGit(child)) {
+	    return;
+	}
+	if (created) {
+	    createdDirectories.add(child);
+	}
+	touchedPaths.add(toRelativePath(child));
+    }
+
+    /**
+     * Lists the directories ignored by Git, as absolute paths.
+     *
+     * @param paths the paths to list, or null for the whole working tree
+     */
+    private Set<Path> listIgnoredDirectories(List<String> paths) throws IOException {
+	List<String> command = new ArrayList<>(Arrays.asList("git", "--literal-pathspecs", "ls-files", "--others",
+		"--ignored", "--exclude-standard", "--directory", "-z"));
+	if (paths != null) {
+	    command.add("--");
+	    command.addAll(paths);
+	}
+	String output = execute(command);
+
+	Set<Path> ignoredDirectories = new HashSet<>();
+	for (String path : output.split("\0")) {
+	    if (path.endsWith("/")) {
+		ignoredDirectories.add(workTree.resolve(path.substring(0, path.length() - 1)));
+	    }
+	}
+	return ignoredDirectories;
+    }
+
+    /**
+     * Runs {@code git status} without taking the index lock, so that it never
+     * rewrites the watched index.
+     *
+     * @param paths the paths to scan, or null for the whole working tree
+     */
+    private String executeStatus(List<String> paths) throws IOException {
+	List<String> command = new ArrayList<>(Arrays.asList("git", "--no-optional-locks", "--literal-pathspecs",
+		"status", "--porcelain", "-z", "--untracked-files=all", "--no-renames"));
+	if (paths != null) {
+	    command.add("--");
+	    command.addAll(paths);
+	}
+	return execute(command);
+    }
+
+    private String execute(List<String> command) throws IOException {
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand(command.toArray(new String[0]));
+	if (!gitCommander.isResponseOk()) {
+	    throw new IOException("Git command failed: " + String.join(" ", command) + ": "
+		    + gitCommander.getProcessError());
+	}
+	return gitCommander.getProcessOutput();
+    }
+
+    /**
+     * Parses the output of {@code git status --porcelain -z}: entries
+     * {@code "XY path"} separated by NUL bytes, a rename or copy being followed
+     * by its source path.
+     */
+    private void parseStatus(String output) {
+	String[] tokens = output.split("\0");
+	for (int i = 0; i < tokens.length; i++) {
+	    String token = tokens[i];
+	    if (token.length() < 4) {
+		continue;
+	    }
+	    String code = token.substring(0, 2);
+	    status.put(token.substring(3), code);
+	    if (code.charAt(0) == 'R' || code.charAt(0) == 'C') {
+		i++; // Source path
+	    }
+	}
+    }
+
+    private String toRelativePath(Path path) {
+	return workTree.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static boolean isDotGit(Path path) {
+	Path fileName = path.getFileName();
+	return fileName != null && ".git".equals(fileName.toString());
+    }
+
+    /**
+     * Stops watching the working tree. Idempotent.
+     */
+    @Override
+    public synchronized void close() {
+	closed = true;
+	if (watchService != null) {
+	    try {
+		watchService.close();
+	    } catch (IOException e) {
+		debug("Watch service close failure: " + e);
+	    }
+	    watchService = null;
+	}
+	if (watchTask != null) {
+	    watchTask.cancel(true);
+	    watchTask = null;
+	}
+	watchedDirectories.clear();
+	status.clear();
+    }
+
+    @Override
+    public String toString() {
+	return "GitStatusTracker [workTree=" + workTree + ", watchedDirectories=" + watchedDirectories.size()
+		+ ", fullScanCount=" + fullScanCount + ", pathScanCount=" + pathScanCount + "]";
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
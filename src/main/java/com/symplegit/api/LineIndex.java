@@ -0,0 +1,222 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A sparse index of the lines of a command output held in a
+ * {@link ByteBuffer}, typically the memory-mapped output returned by
+ * {@link GitResult#getProcessOutputAsByteBuffer()}. <br>
+ * <br>
+ * The index is built in one pass over the buffer and keeps the offset of one
+ * line every {@code interval} lines only: with the default interval of
+ * {@value #DEFAULT_INTERVAL}, the index of a 10 million lines output takes
+ * about 600 Kb. Accessing line N scans at most {@code interval} lines from the
+ * nearest indexed line. Lines are returned as slices of the buffer: nothing is
+ * copied into the heap until the caller decodes them. <br>
+ * <br>
+ * Lines end with {@code \n}. A trailing {@code \r} is removed, and a final
+ * {@code \n} does not start a new empty line, as with
+ * {@link java.io.BufferedReader#readLine()}. <br>
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author KawanSoft SAS
+ */
+public final class LineIndex {
+
+    /** The default number of lines between two indexed lines. */
+    public static final int DEFAULT_INTERVAL = 64;
+
+    private final ByteBuffer buffer;
+    private final int interval;
+    private final int[] offsets;
+    private final int lineCount;
+
+    /**
+     * Builds the index of the lines of a buffer, with the default interval.
+     *
+     * @param buffer the buffer, from its position to its limit. The buffer
+     *               position and limit are not modified.
+     */
+    public LineIndex(ByteBuffer buffer) {
+	this(buffer, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Builds the index of the lines of a buffer.
+     *
+     * @param buffer   the buffer, from its position to its limit. The buffer
+     *                 position and limit are not modified.
+     * @param interval the number of lines between two indexed lines. 1 indexes
+     *                 every line.
+     */
+    public LineIndex(ByteBuffer buffer, int interval) {
+	Objects.requireNonNull(buffer, "buffer cannot be null!");
+	if (interval <= 0) {
+	    throw new IllegalArgumentException("interval must be > 0: " + interval);
+	}
+	this.buffer = buffer.slice().asReadOnlyBuffer();
+	this.interval = interval;
+
+	int limit = this.buffer.limit();
+	int[] indexed = new int[16];
+	int indexedCount = 0;
+	int lines = 0;
+	int lineStart = 0;
+
+	while (lineStart < limit) {
+	    if (lines % interval == 0) {
+		if (indexedCount == indexed.length) {
+		    indexed = Arrays.copyOf(indexed, indexedCount * 2);
+		}
+		indexed[indexedCount++] = lineStart;
+	    }
+	    lines++;
+	    int end = indexOf((byte) '\n', lineStart);
+	    lineStart = end < 0 ? limit : end + 1;
+	}
+
+	this.offsets = Arrays.copyOf(indexed, indexedCount);
+	this.lineCount = lines;
+    }
+
+    /**
+     * Gets the number of lines.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+	return lineCount;
+    }
+
+    /**
+     * Gets the offset of the first byte of a line in the buffer.
+     *
+     * @param line the line number, starting at 0
+     * @return the offset of the line
+     */
+    public int getLineOffset(int line) {
+	checkLine(line);
+	int offset = offsets[line / interval];
+	for (int i = line % interval; i > 0; i--) {
+	    offset = indexOf((byte) '\n', offset) + 1;
+	}
+	return offset;
+    }
+
+    /**
+     * Gets a line, without its line terminator, as a read-only slice of the
+     * buffer.
+     *
+     * @param line the line number, starting at 0
+     * @return the bytes of the line
+     */
+    public ByteBuffer getLine(int line) {
+	int start = getLineOffset(line);
+	int end = indexOf((byte) '\n', start);
+	if (end < 0) {
+	    end = buffer.limit();
+	}
+	if (end > start && buffer.get(end - 1) == '\r') {
+	    end--;
+	}
+	ByteBuffer slice = buffer.duplicate();
+	slice.limit(end).position(start);
+	return slice.slice();
+    }
+
+    /**
+     * Gets a line, without its line terminator, as a String.
+     *
+     * @param line    the line number, starting at 0
+     * @param charset the charset of the output
+     * @return the line
+     */
+    public String getLineAsString(int line, Charset charset) {
+	return charset.decode(getLine(line)).toString();
+    }
+
+    /**
+     * Gets the number of the line that holds a byte of the buffer.
+     *
+     * @param offset the offset of the byte in the buffer
+     * @return the line number, starting at 0
+     */
+    public int getLineNumber(int offset) {
+	if (offset < 0 || offset >= buffer.limit()) {
+	    throw new IndexOutOfBoundsException("offset: " + offset + ", size: " + buffer.limit());
+	}
+	int indexed = Arrays.binarySearch(offsets, offset);
+	if (indexed < 0) {
+	    indexed = -indexed - 2;
+	}
+	int line = indexed * interval;
+	int lineStart = offsets[indexed];
+	while (true) {
+	    int end = indexOf((byte) '\n', lineStart);
+	    if (end < 0 || end >= offset) {
+		return line;
+	    }
+	    lineStart = end + 1;
+	    line++;
+	}
+    }
+
+    /**
+     * Finds the next occurrence of a byte, such as a delimiter, in the buffer.
+     *
+     * @param b         the byte to find
+     * @param fromIndex the offset where the search starts
+     * @return the offset of the byte, or -1 if it is not found
+     */
+    public int indexOf(byte b, int fromIndex) {
+	int limit = buffer.limit();
+	for (int i = Math.max(0, fromIndex); i < limit; i++) {
+	    if (buffer.get(i) == b) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Gets the indexed buffer.
+     *
+     * @return a read-only view of the indexed buffer
+     */
+    public ByteBuffer getBuffer() {
+	return buffer.duplicate();
+    }
+
+    private void checkLine(int line) {
+	if (line < 0 || line >= lineCount) {
+	    throw new IndexOutOfBoundsException("line: " + line + ", line count: " + lineCount);
+	}
+    }
+
+    @Override
+    public String toString() {
+	return "LineIndex [size=" + buffer.limit() + ", lineCount=" + lineCount + ", interval=" + interval + "]";
+    }
+}
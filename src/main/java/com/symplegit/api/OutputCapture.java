@@ -0,0 +1,270 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Captures the output of a Git command. The output is kept in memory up to a
+ * threshold and is spilled to a temporary file as soon as it goes beyond. This
+ * avoids a disk round trip for the many commands with a tiny output, while
+ * keeping large outputs off the heap. <br>
+ * A threshold of 0 means that the output always goes to a file. <br>
+ * The temporary file is owned by the capture: it is deleted by
+ * {@link #release()}, or when the capture is garbage collected. See
+ * {@link CaptureStore}.
+ *
+ * @author KawanSoft SAS
+ */
+class OutputCapture extends OutputStream {
+
+    private final int memoryThreshold;
+    private final long captureLimit;
+    private final CaptureStore captureStore;
+
+    private byte[] buffer = new byte[0];
+    private int count = 0;
+
+    private CaptureStore.SpillFile spillFile = null;
+    private File file = null;
+    private OutputStream fileOutputStream = null;
+    private volatile boolean released = false;
+
+    private long size = 0;
+    private boolean truncated = false;
+
+    /**
+     * Constructs an in-memory only OutputCapture, without capture limit.
+     *
+     * @param memoryThreshold the maximum number of bytes kept in memory
+     */
+    private OutputCapture(int memoryThreshold) {
+	this(memoryThreshold, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Constructs an OutputCapture.
+     *
+     * @param memoryThreshold the maximum number of bytes kept in memory before
+     *                        spilling to a temporary file
+     * @param captureLimit    the maximum number of captured bytes. Bytes beyond
+     *                        are discarded.
+     * @param captureStore    the store that creates the temporary file
+     */
+    OutputCapture(int memoryThreshold, long captureLimit, CaptureStore captureStore) {
+	if (memoryThreshold < 0) {
+	    throw new IllegalArgumentException("memoryThreshold must be >= 0: " + memoryThreshold);
+	}
+	if (captureLimit < 0) {
+	    throw new IllegalArgumentException("captureLimit must be >= 0: " + captureLimit);
+	}
+	this.memoryThreshold = memoryThreshold;
+	this.captureLimit = captureLimit;
+	this.captureStore = captureStore;
+    }
+
+    /**
+     * Builds an in-memory capture holding the specified bytes.
+     *
+     * @param bytes the captured bytes
+     * @return the in-memory capture
+     */
+    static OutputCapture of(byte[] bytes) {
+	OutputCapture outputCapture = new OutputCapture(bytes.length);
+	outputCapture.buffer = bytes.clone();
+	outputCapture.count = bytes.length;
+	outputCapture.size = bytes.length;
+	return outputCapture;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+	write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+	if (length == 0) {
+	    return;
+	}
+
+	if (size + length > captureLimit) {
+	    truncated = true;
+	    length = (int) (captureLimit - size);
+	    if (length == 0) {
+		return;
+	    }
+	}
+
+	if (file == null && count + (long) length > memoryThreshold) {
+	    spill();
+	}
+
+	if (file != null) {
+	    spillFile.reserve(length);
+	    fileOutputStream.write(bytes, offset, length);
+	} else {
+	    ensureCapacity(count + length);
+	    System.arraycopy(bytes, offset, buffer, count, length);
+	    count += length;
+	}
+	size += length;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+	if (minCapacity > buffer.length) {
+	    int newCapacity = Math.max(Math.max(buffer.length * 2, 256), minCapacity);
+	    buffer = Arrays.copyOf(buffer, Math.min(newCapacity, memoryThreshold));
+	}
+    }
+
+    /**
+     * Moves the bytes captured so far to a new temporary file.
+     */
+    private void spill() throws IOException {
+	if (captureStore == null) {
+	    throw new IOException("Output capture limited to memory: " + memoryThreshold + " bytes.");
+	}
+	spillFile = captureStore.createSpillFile(this);
+	file = spillFile.getFile();
+	fileOutputStream = new BufferedOutputStream(new FileOutputStream(file));
+	spillFile.reserve(count);
+	fileOutputStream.write(buffer, 0, count);
+	buffer = null;
+	count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+	if (fileOutputStream != null) {
+	    fileOutputStream.flush();
+	}
+    }
+
+    @Override
+    public void close() throws IOException {
+	if (fileOutputStream != null) {
+	    fileOutputStream.close();
+	}
+    }
+
+    /**
+     * Frees the captured bytes: the temporary file is deleted at once. The
+     * capture cannot be read anymore. Idempotent.
+     */
+    void release() {
+	released = true;
+	buffer = null;
+	if (fileOutputStream != null) {
+	    try {
+		fileOutputStream.close();
+	    } catch (IOException ignore) {
+		// The file is deleted anyway
+	    }
+	}
+	if (spillFile != null) {
+	    spillFile.release();
+	}
+    }
+
+    /**
+     * Gets the number of captured bytes.
+     *
+     * @return the number of captured bytes
+     */
+    long length() {
+	return size;
+    }
+
+    /**
+     * Says if bytes were discarded because the capture limit was reached.
+     *
+     * @return true if the capture is truncated
+     */
+    boolean isTruncated() {
+	return truncated;
+    }
+
+    /**
+     * Gets the temporary file holding the output.
+     *
+     * @return the temporary file, or null if the output is held in memory
+     */
+    File getFile() {
+	return file;
+    }
+
+    /**
+     * Gets a read-only buffer on the captured bytes, without copying them: the
+     * temporary file, if any, is memory-mapped.
+     *
+     * @return a read-only buffer on the captured bytes
+     * @throws IOException if the capture has been released, if the output is
+     *                     too large to be mapped (2 Gb), or if an I/O error
+     *                     occurs
+     */
+    ByteBuffer asByteBuffer() throws IOException {
+	if (released) {
+	    throw new IOException("The output has been released.");
+	}
+
+	if (file == null) {
+	    return ByteBuffer.wrap(buffer, 0, count).slice().asReadOnlyBuffer();
+	}
+
+	if (size > Integer.MAX_VALUE) {
+	    throw new IOException("Output too large to be mapped: " + size + " bytes.");
+	}
+	try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+	    // The mapping stays valid after the channel is closed
+	    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+    }
+
+    /**
+     * Opens a new InputStream on the captured bytes.
+     *
+     * @return an InputStream on the captured bytes
+     * @throws IOException if the capture has been released, or if an I/O error
+     *                     occurs
+     */
+    InputStream openInputStream() throws IOException {
+	if (released) {
+	    throw new IOException("The output has been released.");
+	}
+
+	if (file == null) {
+	    return new ByteArrayInputStream(buffer, 0, count);
+	}
+	return new BufferedInputStream(new FileInputStream(file));
+    }
+}
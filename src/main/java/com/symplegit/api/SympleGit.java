@@ -21,13 +21,17 @@
 package com.symplegit.api;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
 
+import com.symplegit.api.exception.UncheckedTimeoutException;
+import com.symplegit.api.metrics.GitMetricsCollector;
 import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
 
 /**
  * SympleGit provides a fluent and simplified interface for configuring and
@@ -71,11 +75,40 @@ public class SympleGit implements AutoCloseable {
     /** The default timeout for Git operations. */
     private static final int DEFAULT_TIMEOUT_SECONDS = 0;
 
+    /** The default maximum size of a command output held in memory. */
+    private static final int DEFAULT_OUTPUT_MEMORY_THRESHOLD = 64 * 1024;
+
+    /** The default maximum size of the kept tail of a separated error output. */
+    private static final int DEFAULT_ERROR_CAPTURE_LIMIT = 64 * 1024;
+
+    /** The default time left to killed processes to terminate gracefully. */
+    private static final long DEFAULT_KILL_GRACE_PERIOD_MILLIS = 2000;
+
+    /** The default maximum number of cat-file processes per mode. */
+    private static final int DEFAULT_CAT_FILE_MAX_PROCESSES = 4;
+
+    /** The default idle time after which a cat-file process is stopped. */
+    private static final int DEFAULT_CAT_FILE_IDLE_TIMEOUT_SECONDS = 60;
+
     private final File directory;
     private int timeout;
     private TimeUnit unit;
+    private final long killGracePeriodMillis;
+    private final int outputMemoryThreshold;
+    private final long outputCaptureLimit;
+    private final boolean separateErrorStream;
+    private final int errorCaptureLimit;
+    private final long captureDiskQuota;
+    private final ExecutorService executorService;
 
-    private List<File> tempFiles = new ArrayList<>();
+    private final int catFileMaxProcesses;
+    private final long catFileIdleTimeout;
+    private final TimeUnit catFileIdleTimeoutUnit;
+    private GitCatFilePool catFilePool;
+    private final GitResultCache resultCache;
+    private final GitStatusTracker statusTracker;
+    private final GitMetricsCollector metricsCollector;
+    private final CaptureStore captureStore;
 
     /**
      * Constructs a new instance of SympleGit with the specified configuration.
@@ -86,6 +119,25 @@ public class SympleGit implements AutoCloseable {
 	this.directory = builder.directory;
 	this.timeout = builder.timeout;
 	this.unit = builder.unit;
+	this.killGracePeriodMillis = builder.killGracePeriodMillis;
+	this.outputMemoryThreshold = builder.outputMemoryThreshold;
+	this.outputCaptureLimit = builder.outputCaptureLimit;
+	this.separateErrorStream = builder.separateErrorStream;
+	this.errorCaptureLimit = builder.errorCaptureLimit;
+	this.captureDiskQuota = builder.captureDiskQuota;
+	this.executorService = builder.executorService != null ? builder.executorService
+		: GitExecutors.defaultExecutor();
+	this.catFileMaxProcesses = builder.catFileMaxProcesses;
+	this.catFileIdleTimeout = builder.catFileIdleTimeout;
+	this.catFileIdleTimeoutUnit = builder.catFileIdleTimeoutUnit;
+	this.metricsCollector = builder.metricsCollector;
+	this.captureStore = new CaptureStore(
+		builder.captureDirectory != null ? builder.captureDirectory
+			: new File(System.getProperty("java.io.tmpdir")),
+		builder.captureDiskQuota);
+	this.resultCache = builder.resultCacheMaxEntries > 0 ? new GitResultCache(this, builder.resultCacheMaxEntries)
+		: null;
+	this.statusTracker = builder.statusTracker ? new GitStatusTracker(this) : null;
     }
 
     /**
@@ -125,6 +177,128 @@ public class SympleGit implements AutoCloseable {
 	return unit;
     }
 
+    /**
+     * Gets the time left to the processes of a timed out or cancelled command to
+     * terminate gracefully before they are killed forcibly.
+     *
+     * @return The grace period in milliseconds.
+     */
+    public long getKillGracePeriodMillis() {
+	return killGracePeriodMillis;
+    }
+
+    /**
+     * Gets the maximum size of a command output held in memory before it is
+     * spilled to a temporary file.
+     *
+     * @return The threshold in bytes. 0 means that outputs always go to a file.
+     */
+    public int getOutputMemoryThreshold() {
+	return outputMemoryThreshold;
+    }
+
+    /**
+     * Gets the maximum number of bytes of a standard output captured for a
+     * command. Bytes beyond are discarded.
+     *
+     * @return The limit in bytes.
+     */
+    public long getOutputCaptureLimit() {
+	return outputCaptureLimit;
+    }
+
+    /**
+     * Says if the error output of the commands is captured separately from the
+     * standard output.
+     *
+     * @return true if the error output is separated, false if it is merged into
+     *         the standard output.
+     */
+    public boolean isSeparateErrorStream() {
+	return separateErrorStream;
+    }
+
+    /**
+     * Gets the maximum number of bytes kept from the end of a separated error
+     * output.
+     *
+     * @return The limit in bytes.
+     */
+    public int getErrorCaptureLimit() {
+	return errorCaptureLimit;
+    }
+
+    /**
+     * Gets the directory of the temporary files of the captured outputs.
+     *
+     * @return The directory set with {@link Builder#setCaptureDirectory(File)},
+     *         or the java.io.tmpdir directory.
+     */
+    public File getCaptureDirectory() {
+	return captureStore.getDirectory();
+    }
+
+    /**
+     * Gets the maximum number of bytes of the live temporary files of the
+     * captured outputs.
+     *
+     * @return The quota in bytes.
+     */
+    public long getCaptureDiskQuota() {
+	return captureDiskQuota;
+    }
+
+    /**
+     * Gets the number of bytes currently used by the temporary files of the
+     * captured outputs of this instance.
+     *
+     * @return The number of bytes used in the capture directory.
+     */
+    public long getCaptureDiskUsage() {
+	return captureStore.getUsedBytes();
+    }
+
+    /**
+     * Gets the executor that runs the Git processes.
+     *
+     * @return The executor set with
+     *         {@link Builder#setExecutorService(ExecutorService)}, or the default
+     *         shared executor.
+     */
+    public ExecutorService getExecutorService() {
+	return executorService;
+    }
+
+    /**
+     * Gets the cache of the results of read-only commands, used by the
+     * facilitator classes.
+     *
+     * @return The cache enabled with {@link Builder#setResultCache(int)}, or
+     *         null if the cache is disabled.
+     */
+    public GitResultCache getResultCache() {
+	return resultCache;
+    }
+
+    /**
+     * Gets the tracker of the working tree status.
+     *
+     * @return the status tracker, or null if it is not enabled
+     */
+    public GitStatusTracker getStatusTracker() {
+	return statusTracker;
+    }
+
+    /**
+     * Gets the collector of the metrics of the executed commands.
+     *
+     * @return The collector set with
+     *         {@link Builder#setMetricsCollector(GitMetricsCollector)}, or null.
+     */
+    public GitMetricsCollector getMetricsCollector() {
+	return metricsCollector;
+    }
+
     // Additional methods or functionality as needed
 
     /**
@@ -136,6 +310,20 @@ public class SympleGit implements AutoCloseable {
 	private File directory;
 	private int timeout = DEFAULT_TIMEOUT_SECONDS;
 	private TimeUnit unit = TimeUnit.SECONDS;
+	private long killGracePeriodMillis = DEFAULT_KILL_GRACE_PERIOD_MILLIS;
+	private int outputMemoryThreshold = DEFAULT_OUTPUT_MEMORY_THRESHOLD;
+	private long outputCaptureLimit = Long.MAX_VALUE;
+	private boolean separateErrorStream = false;
+	private int errorCaptureLimit = DEFAULT_ERROR_CAPTURE_LIMIT;
+	private ExecutorService executorService = null;
+	private int catFileMaxProcesses = DEFAULT_CAT_FILE_MAX_PROCESSES;
+	private long catFileIdleTimeout = DEFAULT_CAT_FILE_IDLE_TIMEOUT_SECONDS;
+	private TimeUnit catFileIdleTimeoutUnit = TimeUnit.SECONDS;
+	private int resultCacheMaxEntries = 0;
+	private boolean statusTracker = false;
+	private GitMetricsCollector metricsCollector = null;
+	private File captureDirectory = null;
+	private long captureDiskQuota = Long.MAX_VALUE;
 
 	/**
 	 * Sets the directory path for the Git repository.
@@ -174,6 +362,216 @@ public class SympleGit implements AutoCloseable {
 	    return this;
 	}
 
+	/**
+	 * Sets the time left to the processes of a timed out or cancelled command to
+	 * terminate gracefully. The git process and all its descendants (remote
+	 * helpers, pack processes, hooks...) are first asked to terminate, and are
+	 * killed forcibly when the grace period expires. Defaults to 2 seconds. <br>
+	 * Use 0 to kill them forcibly at once.
+	 *
+	 * @param gracePeriod the grace period
+	 * @param unit        the time unit of the gracePeriod argument
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setKillGracePeriod(long gracePeriod, TimeUnit unit) {
+	    Objects.requireNonNull(unit, "unit cannot be null");
+	    if (gracePeriod < 0) {
+		throw new IllegalArgumentException("gracePeriod must be >= 0: " + gracePeriod);
+	    }
+	    this.killGracePeriodMillis = unit.toMillis(gracePeriod);
+	    return this;
+	}
+
+	/**
+	 * Sets the maximum size of a command output held in memory. Outputs that
+	 * grow beyond are spilled to a temporary file. Defaults to 64 Kb. <br>
+	 * Use 0 to always write outputs to a temporary file.
+	 *
+	 * @param outputMemoryThreshold the threshold in bytes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setOutputMemoryThreshold(int outputMemoryThreshold) {
+	    if (outputMemoryThreshold < 0) {
+		throw new IllegalArgumentException("outputMemoryThreshold must be >= 0: " + outputMemoryThreshold);
+	    }
+	    this.outputMemoryThreshold = outputMemoryThreshold;
+	    return this;
+	}
+
+	/**
+	 * Sets the maximum number of bytes of a standard output captured for a
+	 * command. The remaining output is read and discarded, and
+	 * {@link GitResult#isOutputTruncated()} returns true. Defaults to no limit.
+	 *
+	 * @param outputCaptureLimit the limit in bytes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setOutputCaptureLimit(long outputCaptureLimit) {
+	    if (outputCaptureLimit < 0) {
+		throw new IllegalArgumentException("outputCaptureLimit must be >= 0: " + outputCaptureLimit);
+	    }
+	    this.outputCaptureLimit = outputCaptureLimit;
+	    return this;
+	}
+
+	/**
+	 * Says if the error output of the commands must be captured separately from
+	 * the standard output. Defaults to false: the error output is merged into
+	 * the standard output. <br>
+	 * When true, both outputs are drained concurrently, the standard output
+	 * holds only what Git writes to stdout, and only the end of the error
+	 * output is kept, up to {@link #setErrorCaptureLimit(int)}.
+	 *
+	 * @param separateErrorStream true to separate the error output
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setSeparateErrorStream(boolean separateErrorStream) {
+	    this.separateErrorStream = separateErrorStream;
+	    return this;
+	}
+
+	/**
+	 * Sets the maximum number of bytes kept from the end of a separated error
+	 * output. Defaults to 64 Kb.
+	 *
+	 * @param errorCaptureLimit the limit in bytes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setErrorCaptureLimit(int errorCaptureLimit) {
+	    if (errorCaptureLimit < 0) {
+		throw new IllegalArgumentException("errorCaptureLimit must be >= 0: " + errorCaptureLimit);
+	    }
+	    this.errorCaptureLimit = errorCaptureLimit;
+	    return this;
+	}
+
+	/**
+	 * Sets the directory of the temporary files of the outputs that exceed the
+	 * memory threshold. Defaults to the java.io.tmpdir directory. A tmpfs
+	 * directory avoids disk writes for short lived outputs. <br>
+	 * The files are created in a subdirectory owned by the JVM. The
+	 * subdirectories left by crashed JVMs are deleted by a background task.
+	 *
+	 * @param captureDirectory the directory of the output files. Created if it
+	 *                         does not exist.
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCaptureDirectory(File captureDirectory) {
+	    this.captureDirectory = Objects.requireNonNull(captureDirectory, "captureDirectory cannot be null");
+	    return this;
+	}
+
+	/**
+	 * Sets the maximum number of bytes of all the live output files of the
+	 * instance. A command whose output would exceed the quota fails with an
+	 * IOException, stored in its result. Defaults to no quota. <br>
+	 * Closing the results frees their bytes at once.
+	 *
+	 * @param captureDiskQuota the quota in bytes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCaptureDiskQuota(long captureDiskQuota) {
+	    if (captureDiskQuota < 0) {
+		throw new IllegalArgumentException("captureDiskQuota must be >= 0: " + captureDiskQuota);
+	    }
+	    this.captureDiskQuota = captureDiskQuota;
+	    return this;
+	}
+
+	/**
+	 * Sets the executor that runs the Git processes. The executor is not shut
+	 * down by SympleGit. <br>
+	 * If not set, the executor returned by {@link GitExecutors#defaultExecutor()}
+	 * is used: it is shared by all SympleGit instances and uses virtual threads
+	 * on Java 21+.
+	 *
+	 * @param executorService the executor that runs the Git processes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setExecutorService(ExecutorService executorService) {
+	    this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+	    return this;
+	}
+
+	/**
+	 * Sets the configuration of the cat-file process pool returned by
+	 * {@link SympleGit#catFilePool()}.
+	 *
+	 * @param maxProcesses the maximum number of concurrent processes for each of
+	 *                     the --batch and --batch-check modes
+	 * @param idleTimeout  the time after which an unused process is stopped
+	 * @param unit         the time unit of the idleTimeout argument
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCatFilePool(int maxProcesses, long idleTimeout, TimeUnit unit) {
+	    Objects.requireNonNull(unit, "unit cannot be null");
+	    if (maxProcesses <= 0) {
+		throw new IllegalArgumentException("maxProcesses must be > 0: " + maxProcesses);
+	    }
+	    if (idleTimeout <= 0) {
+		throw new IllegalArgumentException("idleTimeout must be > 0: " + idleTimeout);
+	    }
+	    this.catFileMaxProcesses = maxProcesses;
+	    this.catFileIdleTimeout = idleTimeout;
+	    this.catFileIdleTimeoutUnit = unit;
+	    return this;
+	}
+
+	/**
+	 * Enables the cache of the results of read-only commands, such as
+	 * {@link com.symplegit.api.facilitator.GitBranchRead#getLocalBranches()} or
+	 * {@link com.symplegit.api.facilitator.GitTag#listTags()}. A cached result is
+	 * reused as long as the references of the repository do not change. See
+	 * {@link GitResultCache}. <br>
+	 * The cache is disabled by default.
+	 *
+	 * @param maxEntries the maximum number of cached results. 0 disables the
+	 *                   cache.
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setResultCache(int maxEntries) {
+	    if (maxEntries < 0) {
+		throw new IllegalArgumentException("maxEntries must be >= 0: " + maxEntries);
+	    }
+	    this.resultCacheMaxEntries = maxEntries;
+	    return this;
+	}
+
+	/**
+	 * Enables the tracker of the working tree status, that watches the files and
+	 * answers most status queries from memory, such as
+	 * {@link com.symplegit.api.facilitator.GitBranchRead#isStatusOk()}. See
+	 * {@link GitStatusTracker}. <br>
+	 * The tracker is disabled by default. It starts watching on the first
+	 * query. <br>
+	 * A command run with this SympleGit instance that may write the repository
+	 * makes the next query run a full status. A change made by another process,
+	 * for example a {@code git add} in a terminal, is seen once the watch
+	 * service reports it: a query that follows it immediately may miss it.
+	 *
+	 * @param statusTracker true to enable the status tracker
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setStatusTracker(boolean statusTracker) {
+	    this.statusTracker = statusTracker;
+	    return this;
+	}
+
+	/**
+	 * Sets the collector of the metrics of the executed commands: spawn time,
+	 * wall time, output size, exit code, timeout and cancellation, labeled by Git
+	 * subcommand. See
+	 * {@link com.symplegit.api.metrics.HistogramMetricsCollector} for a built-in
+	 * implementation.
+	 *
+	 * @param metricsCollector the collector called for each executed command
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setMetricsCollector(GitMetricsCollector metricsCollector) {
+	    this.metricsCollector = Objects.requireNonNull(metricsCollector, "metricsCollector cannot be null");
+	    return this;
+	}
+
 	/**
 	 * Builds and returns a SympleGit instance with the current configuration.
 	 *
@@ -194,32 +592,104 @@ public class SympleGit implements AutoCloseable {
 	return gitCommander;
     }
 
+    /**
+     * Executes a list of Git commands, running at most {@code parallelism} of
+     * them at the same time, and waits for their end. <br>
+     * The commands run on the executor of this instance and are subject to its
+     * timeout and capture settings. A timed out command is killed and its
+     * result holds an {@link UncheckedTimeoutException}. <br>
+     * Usage:
+     * 
+     * <pre>
+     * <code>
+    List&lt;String[]&gt; commands = new ArrayList&lt;&gt;();
+    for (String branch : branches) {
+	commands.add(new String[] { "git", "rev-list", "--count", branch });
+    }
+    List&lt;GitResult&gt; results = sympleGit.executeAll(commands, 8);
+     * </code>
+     * </pre>
+     *
+     * @param commands    the Git commands to execute, each one split into an
+     *                    array of strings
+     * @param parallelism the maximum number of concurrent Git processes
+     * @return the results, in the order of the commands
+     * @throws InterruptedException if the calling thread is interrupted. The
+     *                              running commands are killed.
+     */
+    public List<GitResult> executeAll(List<String[]> commands, int parallelism) throws InterruptedException {
+	return executeAll(commands, parallelism, null);
+    }
+
+    /**
+     * Executes a list of Git commands, running at most {@code parallelism} of
+     * them at the same time, and passes each result to a callback as soon as its
+     * command completes. <br>
+     * The callback receives the result and the index of its command in the list.
+     * It is invoked from the calling thread, one result at a time, in the order
+     * of completion. If it throws an exception, the running commands are killed
+     * and the exception is propagated.
+     *
+     * @param commands     the Git commands to execute, each one split into an
+     *                     array of strings
+     * @param parallelism  the maximum number of concurrent Git processes
+     * @param onCompletion the callback invoked with each result and the index of
+     *                     its command
+     * @return the results, in the order of the commands
+     * @throws InterruptedException if the calling thread is interrupted. The
+     *                              running commands are killed.
+     */
+    public List<GitResult> executeAll(List<String[]> commands, int parallelism,
+	    ObjIntConsumer<GitResult> onCompletion) throws InterruptedException {
+	return new GitBatch(this).executeAll(commands, parallelism, onCompletion);
+    }
+
+    /**
+     * Gets the pool of long-lived {@code git cat-file} processes of this
+     * SympleGit instance. The pool is created on first call and is shared by all
+     * threads.
+     *
+     * @return The GitCatFilePool of this instance.
+     */
+    public synchronized GitCatFilePool catFilePool() {
+	if (catFilePool == null) {
+	    catFilePool = new GitCatFilePool(this, catFileMaxProcesses, catFileIdleTimeout, catFileIdleTimeoutUnit);
+	}
+	return catFilePool;
+    }
+
     @Override
     public String toString() {
-	return "SympleGit [directory=" + directory + ", timeout=" + timeout + ", unit=" + unit + "]";
+	return "SympleGit [directory=" + directory + ", timeout=" + timeout + ", unit=" + unit
+		+ ", outputMemoryThreshold=" + outputMemoryThreshold + "]";
     }
 
     /**
-     * Adds a temporary error file or output to the list of temporary error files.
-     * 
-     * @param tempErrorFile the temp file containing the error message
+     * Gets the store of the temporary files of the captured outputs.
+     *
+     * @return the store of the temporary files
      */
-    void addTempFile(File tempFile) {
-	tempFiles.add(tempFile);
+    CaptureStore captureStore() {
+	return captureStore;
     }
 
     /**
-     * Deletes all temporary files. Should be done to to relieve java.io.tmpdir.
-     * <br>
-     * Temporary files are always deleted when the application is closed. <br>
+     * Stops the cat-file processes and the status tracker. <br>
+     * The temporary files of the captured outputs do not depend on the instance:
+     * they are deleted when their {@link GitResult} is closed or garbage
+     * collected.
      */
     @Override
     public void close() throws Exception {
-	if (tempFiles != null) {
-	    for (File tempFile : tempFiles) {
-		tempFile.delete();
+	synchronized (this) {
+	    if (catFilePool != null) {
+		catFilePool.close();
+		catFilePool = null;
 	    }
 	}
+	if (statusTracker != null) {
+	    statusTracker.close();
+	}
     }
 
 
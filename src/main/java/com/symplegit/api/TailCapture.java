@@ -0,0 +1,104 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api;
+
+import java.io.OutputStream;
+
+/**
+ * Captures the last bytes written to it, up to a fixed limit. Used for the
+ * error output of Git commands, whose tail holds the useful messages while
+ * progress output may be huge.
+ *
+ * @author KawanSoft SAS
+ */
+class TailCapture extends OutputStream {
+
+    private final byte[] ring;
+    private long count = 0;
+
+    /**
+     * Constructs a TailCapture.
+     *
+     * @param limit the maximum number of bytes kept
+     */
+    TailCapture(int limit) {
+	if (limit < 0) {
+	    throw new IllegalArgumentException("limit must be >= 0: " + limit);
+	}
+	this.ring = new byte[limit];
+    }
+
+    @Override
+    public synchronized void write(int b) {
+	if (ring.length > 0) {
+	    ring[(int) (count % ring.length)] = (byte) b;
+	}
+	count++;
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+	if (ring.length == 0) {
+	    count += length;
+	    return;
+	}
+
+	// Only the last ring.length bytes may survive
+	if (length > ring.length) {
+	    count += length - ring.length;
+	    offset += length - ring.length;
+	    length = ring.length;
+	}
+
+	int position = (int) (count % ring.length);
+	int first = Math.min(length, ring.length - position);
+	System.arraycopy(bytes, offset, ring, position, first);
+	System.arraycopy(bytes, offset + first, ring, 0, length - first);
+	count += length;
+    }
+
+    /**
+     * Says if bytes were dropped because the limit was reached.
+     *
+     * @return true if the capture is truncated
+     */
+    synchronized boolean isTruncated() {
+	return count > ring.length;
+    }
+
+    /**
+     * Gets the kept bytes, in order.
+     *
+     * @return the last bytes written, up to the limit
+     */
+    synchronized byte[] toByteArray() {
+	if (count <= ring.length) {
+	    byte[] bytes = new byte[(int) count];
+	    System.arraycopy(ring, 0, bytes, 0, (int) count);
+	    return bytes;
+	}
+
+	byte[] bytes = new byte[ring.length];
+	int position = (int) (count % ring.length);
+	System.arraycopy(ring, position, bytes, 0, ring.length - position);
+	System.arraycopy(ring, 0, bytes, ring.length - position, position);
+	return bytes;
+    }
+}
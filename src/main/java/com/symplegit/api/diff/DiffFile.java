@@ -0,0 +1,298 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+/**
+ * The header of a file in a diff: paths, kind of change, modes, object ids
+ * and binary marker. <br>
+ * Instances are immutable and are created with a Builder.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffFile {
+
+    /**
+     * The kind of change of a file.
+     */
+    public enum ChangeType {
+	/** The file is new. */
+	ADDED,
+	/** The file is deleted. */
+	DELETED,
+	/** The content or the mode of the file changed. */
+	MODIFIED,
+	/** The file was moved, and possibly modified. */
+	RENAMED,
+	/** The file is a copy of another one, and possibly modified. */
+	COPIED
+    }
+
+    private final String oldPath;
+    private final String newPath;
+    private final ChangeType changeType;
+    private final int similarity;
+    private final int oldMode;
+    private final int newMode;
+    private final String oldId;
+    private final String newId;
+    private final boolean binary;
+
+    private DiffFile(Builder builder) {
+	this.oldPath = builder.oldPath;
+	this.newPath = builder.newPath;
+	this.changeType = builder.changeType;
+	this.similarity = builder.similarity;
+	this.oldMode = builder.oldMode;
+	this.newMode = builder.newMode;
+	this.oldId = builder.oldId;
+	this.newId = builder.newId;
+	this.binary = builder.binary;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @return A new Builder instance.
+     */
+    public static Builder custom() {
+	return new Builder();
+    }
+
+    /**
+     * Builder class for DiffFile.
+     */
+    public static class Builder {
+
+	private String oldPath = null;
+	private String newPath = null;
+	private ChangeType changeType = ChangeType.MODIFIED;
+	private int similarity = -1;
+	private int oldMode = 0;
+	private int newMode = 0;
+	private String oldId = null;
+	private String newId = null;
+	private boolean binary = false;
+
+	private Builder() {
+	}
+
+	/**
+	 * Sets the path in the old tree.
+	 *
+	 * @param oldPath the old path, or null for an added file
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setOldPath(String oldPath) {
+	    this.oldPath = oldPath;
+	    return this;
+	}
+
+	/**
+	 * Sets the path in the new tree.
+	 *
+	 * @param newPath the new path, or null for a deleted file
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setNewPath(String newPath) {
+	    this.newPath = newPath;
+	    return this;
+	}
+
+	/**
+	 * Sets the kind of change.
+	 *
+	 * @param changeType the kind of change
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setChangeType(ChangeType changeType) {
+	    this.changeType = changeType;
+	    return this;
+	}
+
+	/**
+	 * Sets the similarity of a renamed or copied file.
+	 *
+	 * @param similarity the similarity in percent
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setSimilarity(int similarity) {
+	    this.similarity = similarity;
+	    return this;
+	}
+
+	/**
+	 * Sets the mode of the file in the old tree.
+	 *
+	 * @param oldMode the old mode, for example {@code 0100644}
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setOldMode(int oldMode) {
+	    this.oldMode = oldMode;
+	    return this;
+	}
+
+	/**
+	 * Sets the mode of the file in the new tree.
+	 *
+	 * @param newMode the new mode, for example {@code 0100755}
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setNewMode(int newMode) {
+	    this.newMode = newMode;
+	    return this;
+	}
+
+	/**
+	 * Sets the object ids of the old and new contents.
+	 *
+	 * @param oldId the old object id
+	 * @param newId the new object id
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setIds(String oldId, String newId) {
+	    this.oldId = oldId;
+	    this.newId = newId;
+	    return this;
+	}
+
+	/**
+	 * Marks the file as binary.
+	 *
+	 * @param binary true if Git did not compute the lines of the file
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setBinary(boolean binary) {
+	    this.binary = binary;
+	    return this;
+	}
+
+	/**
+	 * Builds the DiffFile.
+	 *
+	 * @return the DiffFile
+	 */
+	public DiffFile build() {
+	    return new DiffFile(this);
+	}
+    }
+
+    /**
+     * Gets the path in the old tree.
+     *
+     * @return the old path, or null for an added file
+     */
+    public String getOldPath() {
+	return oldPath;
+    }
+
+    /**
+     * Gets the path in the new tree.
+     *
+     * @return the new path, or null for a deleted file
+     */
+    public String getNewPath() {
+	return newPath;
+    }
+
+    /**
+     * Gets the path of the file: the new path, or the old path for a deleted
+     * file.
+     *
+     * @return the path of the file
+     */
+    public String getPath() {
+	return newPath != null ? newPath : oldPath;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return the kind of change
+     */
+    public ChangeType getChangeType() {
+	return changeType;
+    }
+
+    /**
+     * Gets the similarity of a renamed or copied file.
+     *
+     * @return the similarity in percent, or -1 if not renamed nor copied
+     */
+    public int getSimilarity() {
+	return similarity;
+    }
+
+    /**
+     * Gets the mode of the file in the old tree.
+     *
+     * @return the old mode, or 0 if unknown or if the file is added
+     */
+    public int getOldMode() {
+	return oldMode;
+    }
+
+    /**
+     * Gets the mode of the file in the new tree.
+     *
+     * @return the new mode, or 0 if unknown or if the file is deleted
+     */
+    public int getNewMode() {
+	return newMode;
+    }
+
+    /**
+     * Gets the object id of the old content.
+     *
+     * @return the old object id, all zeros for an added file, or null if the
+     *         content did not change
+     */
+    public String getOldId() {
+	return oldId;
+    }
+
+    /**
+     * Gets the object id of the new content.
+     *
+     * @return the new object id, all zeros for a deleted file, or null if the
+     *         content did not change
+     */
+    public String getNewId() {
+	return newId;
+    }
+
+    /**
+     * Says if Git did not compute the lines of the file: the file is binary, or
+     * is larger than the limit set with
+     * {@link DiffOptions.Builder#setMaxFileSize(long)}.
+     *
+     * @return true if the file has no hunks because it is binary or too large
+     */
+    public boolean isBinary() {
+	return binary;
+    }
+
+    @Override
+    public String toString() {
+	return "DiffFile [oldPath=" + oldPath + ", newPath=" + newPath + ", changeType=" + changeType
+		+ ", similarity=" + similarity + ", oldMode=" + Integer.toOctalString(oldMode) + ", newMode="
+		+ Integer.toOctalString(newMode) + ", oldId=" + oldId + ", newId=" + newId + ", binary=" + binary
+		+ "]";
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.IOException;
+
+/**
+ * Receives the parts of a diff while Git writes it: for each file, its header,
+ * then each hunk header followed by the lines of the hunk. <br>
+ * Nothing is kept once a method returns, so a handler that does not store the
+ * lines processes a diff of any size in constant memory. <br>
+ * The methods are called from a thread of the executor of the SympleGit
+ * instance, one at a time and in the order of the diff. Throwing an
+ * IOException stops Git.
+ *
+ * @author KawanSoft SAS
+ */
+public interface DiffHandler {
+
+    /**
+     * Receives the header of a file.
+     *
+     * @param diffFile the header of the file
+     * @throws IOException to stop the diff
+     */
+    void file(DiffFile diffFile) throws IOException;
+
+    /**
+     * Receives the header of a hunk of the last file. Does nothing by default.
+     *
+     * @param diffHunk the header of the hunk
+     * @throws IOException to stop the diff
+     */
+    default void hunk(DiffHunk diffHunk) throws IOException {
+    }
+
+    /**
+     * Receives a line of the last hunk. Not called if the lines are excluded by
+     * {@link DiffOptions.Builder#setIncludeLines(boolean)}. Does nothing by
+     * default.
+     *
+     * @param diffLine the line
+     * @throws IOException to stop the diff
+     */
+    default void line(DiffLine diffLine) throws IOException {
+    }
+}
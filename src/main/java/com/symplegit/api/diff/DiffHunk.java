@@ -0,0 +1,103 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+/**
+ * The header of a hunk: {@code @@ -oldStart,oldCount +newStart,newCount @@
+ * section}. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffHunk {
+
+    private final int oldStart;
+    private final int oldCount;
+    private final int newStart;
+    private final int newCount;
+    private final String section;
+
+    /**
+     * Constructor.
+     *
+     * @param oldStart the first line of the hunk in the old file
+     * @param oldCount the number of lines of the hunk in the old file
+     * @param newStart the first line of the hunk in the new file
+     * @param newCount the number of lines of the hunk in the new file
+     * @param section  the text after the header, usually the enclosing function
+     */
+    public DiffHunk(int oldStart, int oldCount, int newStart, int newCount, String section) {
+	this.oldStart = oldStart;
+	this.oldCount = oldCount;
+	this.newStart = newStart;
+	this.newCount = newCount;
+	this.section = section;
+    }
+
+    /**
+     * Gets the first line of the hunk in the old file.
+     *
+     * @return the first line number, 0 if the old file is empty
+     */
+    public int getOldStart() {
+	return oldStart;
+    }
+
+    /**
+     * Gets the number of lines of the hunk in the old file.
+     *
+     * @return the number of context and deleted lines
+     */
+    public int getOldCount() {
+	return oldCount;
+    }
+
+    /**
+     * Gets the first line of the hunk in the new file.
+     *
+     * @return the first line number, 0 if the new file is empty
+     */
+    public int getNewStart() {
+	return newStart;
+    }
+
+    /**
+     * Gets the number of lines of the hunk in the new file.
+     *
+     * @return the number of context and added lines
+     */
+    public int getNewCount() {
+	return newCount;
+    }
+
+    /**
+     * Gets the text after the header, usually the enclosing function.
+     *
+     * @return the section, empty if none
+     */
+    public String getSection() {
+	return section;
+    }
+
+    @Override
+    public String toString() {
+	return "@@ -" + oldStart + "," + oldCount + " +" + newStart + "," + newCount + " @@"
+		+ (section.isEmpty() ? "" : " " + section);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+/**
+ * A line of a hunk. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffLine {
+
+    /**
+     * The kind of a line.
+     */
+    public enum Type {
+	/** A line present in both files. */
+	CONTEXT,
+	/** A line of the new file only. */
+	ADDED,
+	/** A line of the old file only. */
+	DELETED,
+	/**
+	 * The marker {@code \ No newline at end of file}, for the previous line.
+	 */
+	NO_NEWLINE_AT_END
+    }
+
+    private final Type type;
+    private final int oldLineNumber;
+    private final int newLineNumber;
+    private final String text;
+
+    /**
+     * Constructor.
+     *
+     * @param type          the kind of line
+     * @param oldLineNumber the line number in the old file, 0 if none
+     * @param newLineNumber the line number in the new file, 0 if none
+     * @param text          the text of the line
+     */
+    public DiffLine(Type type, int oldLineNumber, int newLineNumber, String text) {
+	this.type = type;
+	this.oldLineNumber = oldLineNumber;
+	this.newLineNumber = newLineNumber;
+	this.text = text;
+    }
+
+    /**
+     * Gets the kind of line.
+     *
+     * @return the kind of line
+     */
+    public Type getType() {
+	return type;
+    }
+
+    /**
+     * Gets the line number in the old file.
+     *
+     * @return the line number, 0 for an added line or a marker
+     */
+    public int getOldLineNumber() {
+	return oldLineNumber;
+    }
+
+    /**
+     * Gets the line number in the new file.
+     *
+     * @return the line number, 0 for a deleted line or a marker
+     */
+    public int getNewLineNumber() {
+	return newLineNumber;
+    }
+
+    /**
+     * Gets the text of the line, without the leading {@code ' '}, {@code '+'} or
+     * {@code '-'} and without the line terminator.
+     *
+     * @return the text of the line
+     */
+    public String getText() {
+	return text;
+    }
+
+    @Override
+    public String toString() {
+	return "DiffLine [type=" + type + ", oldLineNumber=" + oldLineNumber + ", newLineNumber=" + newLineNumber
+		+ ", text=" + text + "]";
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.symplegit.api.diff.DiffFile.ChangeType;
+
+/**
+ * The status of each file of a diff, as output by
+ * {@code git diff --name-status -z}: a letter ({@code A}, {@code C},
+ * {@code D}, {@code M}, {@code R}, {@code T}, {@code U} or {@code X}), a
+ * similarity score for renamed and copied files, and the paths. <br>
+ * The statuses are held in primitive arrays and the files are accessed by
+ * index, from 0 to {@link #getFileCount()} excluded. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffNameStatus {
+
+    private final int fileCount;
+    private final byte[] statuses;
+    private final byte[] scores;
+    private final String[] paths;
+    private final String[] oldPaths;
+
+    private DiffNameStatus(int fileCount, byte[] statuses, byte[] scores, String[] paths, String[] oldPaths) {
+	this.fileCount = fileCount;
+	this.statuses = statuses;
+	this.scores = scores;
+	this.paths = paths;
+	this.oldPaths = oldPaths;
+    }
+
+    /**
+     * Parses the output of {@code git diff --name-status -z}: for each file,
+     * the status and the path terminated by NUL, or the status with its score,
+     * the old path and the new path for a renamed or copied file.
+     *
+     * @param buffer the output of Git
+     * @return the parsed statuses
+     * @throws IOException if the output is malformed
+     */
+    public static DiffNameStatus parse(ByteBuffer buffer) throws IOException {
+	FieldReader reader = new FieldReader(buffer);
+	int capacity = 16;
+	byte[] statuses = new byte[capacity];
+	byte[] scores = new byte[capacity];
+	String[] paths = new String[capacity];
+	String[] oldPaths = new String[capacity];
+	int count = 0;
+
+	while (reader.hasRemaining()) {
+	    if (count == capacity) {
+		capacity *= 2;
+		statuses = Arrays.copyOf(statuses, capacity);
+		scores = Arrays.copyOf(scores, capacity);
+		paths = Arrays.copyOf(paths, capacity);
+		oldPaths = Arrays.copyOf(oldPaths, capacity);
+	    }
+
+	    String status = reader.readField('\0');
+	    if (status.isEmpty()) {
+		throw new IOException("Invalid Git output: empty status.");
+	    }
+	    statuses[count] = (byte) status.charAt(0);
+	    scores[count] = -1;
+	    if (status.length() > 1) {
+		try {
+		    scores[count] = (byte) Integer.parseInt(status.substring(1));
+		} catch (NumberFormatException e) {
+		    throw new IOException("Invalid status in Git output: " + status, e);
+		}
+	    }
+
+	    char letter = status.charAt(0);
+	    if (letter == 'R' || letter == 'C') {
+		oldPaths[count] = reader.readField('\0');
+	    }
+	    paths[count] = reader.readField('\0');
+	    count++;
+	}
+	return new DiffNameStatus(count, statuses, scores, paths, oldPaths);
+    }
+
+    /**
+     * Gets the number of files of the diff.
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+	return fileCount;
+    }
+
+    /**
+     * Gets the status letter of a file.
+     *
+     * @param index the index of the file
+     * @return the status letter, for example {@code 'M'}
+     */
+    public char getStatus(int index) {
+	checkIndex(index);
+	return (char) statuses[index];
+    }
+
+    /**
+     * Gets the kind of change of a file. Type changes, unmerged and unknown
+     * files are reported as modified.
+     *
+     * @param index the index of the file
+     * @return the kind of change
+     */
+    public ChangeType getChangeType(int index) {
+	switch (getStatus(index)) {
+	case 'A':
+	    return ChangeType.ADDED;
+	case 'D':
+	    return ChangeType.DELETED;
+	case 'R':
+	    return ChangeType.RENAMED;
+	case 'C':
+	    return ChangeType.COPIED;
+	default:
+	    return ChangeType.MODIFIED;
+	}
+    }
+
+    /**
+     * Gets the similarity score of a renamed or copied file, or the
+     * dissimilarity score of a rewritten file.
+     *
+     * @param index the index of the file
+     * @return the score in percent, or -1 if none
+     */
+    public int getScore(int index) {
+	checkIndex(index);
+	return scores[index];
+    }
+
+    /**
+     * Gets the path of a file.
+     *
+     * @param index the index of the file
+     * @return the path of the file, the new path if it was renamed or copied
+     */
+    public String getPath(int index) {
+	checkIndex(index);
+	return paths[index];
+    }
+
+    /**
+     * Gets the old path of a renamed or copied file.
+     *
+     * @param index the index of the file
+     * @return the old path, or null if the file was not renamed nor copied
+     */
+    public String getOldPath(int index) {
+	checkIndex(index);
+	return oldPaths[index];
+    }
+
+    private void checkIndex(int index) {
+	if (index < 0 || index >= fileCount) {
+	    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + fileCount + " files");
+	}
+    }
+
+    @Override
+    public String toString() {
+	return "DiffNameStatus [files=" + fileCount + "]";
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+/**
+ * The options of a parsed diff: rename and copy detection, size limit of the
+ * files whose lines are computed, and whether the lines are passed to the
+ * handler. <br>
+ * Instances are immutable and are created with a Builder:
+ *
+ * <pre>
+ * <code>
+ * DiffOptions diffOptions = DiffOptions.custom()
+ *     .setMaxFileSize(10 * 1024 * 1024)
+ *     .setDetectCopies(true)
+ *     .build();
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffOptions {
+
+    /** The default options: renames detected, no size limit, lines included. */
+    public static final DiffOptions DEFAULT = custom().build();
+
+    private final boolean detectRenames;
+    private final boolean detectCopies;
+    private final long maxFileSize;
+    private final boolean includeLines;
+
+    private DiffOptions(Builder builder) {
+	this.detectRenames = builder.detectRenames;
+	this.detectCopies = builder.detectCopies;
+	this.maxFileSize = builder.maxFileSize;
+	this.includeLines = builder.includeLines;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @return A new Builder instance.
+     */
+    public static Builder custom() {
+	return new Builder();
+    }
+
+    /**
+     * Builder class for DiffOptions.
+     */
+    public static class Builder {
+
+	private boolean detectRenames = true;
+	private boolean detectCopies = false;
+	private long maxFileSize = 0;
+	private boolean includeLines = true;
+
+	private Builder() {
+	}
+
+	/**
+	 * Sets if renamed files are detected. Defaults to true.
+	 *
+	 * @param detectRenames if true, a moved file is reported as renamed
+	 *                      instead of deleted and added
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setDetectRenames(boolean detectRenames) {
+	    this.detectRenames = detectRenames;
+	    return this;
+	}
+
+	/**
+	 * Sets if copied files are detected, among the modified files. Defaults to
+	 * false.
+	 *
+	 * @param detectCopies if true, copies are reported as copied
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setDetectCopies(boolean detectCopies) {
+	    this.detectCopies = detectCopies;
+	    return this;
+	}
+
+	/**
+	 * Sets the size above which the lines of a file are not computed: the file
+	 * is reported as binary, with no hunks. Git does not even load its content.
+	 * Defaults to 0, for no limit.
+	 *
+	 * @param maxFileSize the size limit in bytes, or 0 for no limit
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setMaxFileSize(long maxFileSize) {
+	    if (maxFileSize < 0) {
+		throw new IllegalArgumentException("maxFileSize must be >= 0!");
+	    }
+	    this.maxFileSize = maxFileSize;
+	    return this;
+	}
+
+	/**
+	 * Sets if the lines of the hunks are passed to
+	 * {@link DiffHandler#line(DiffLine)}. Defaults to true. Without the lines,
+	 * the handler receives the file and hunk headers only, and the lines are
+	 * not decoded.
+	 *
+	 * @param includeLines if false, the lines are skipped
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setIncludeLines(boolean includeLines) {
+	    this.includeLines = includeLines;
+	    return this;
+	}
+
+	/**
+	 * Builds the DiffOptions.
+	 *
+	 * @return the DiffOptions
+	 */
+	public DiffOptions build() {
+	    return new DiffOptions(this);
+	}
+    }
+
+    /**
+     * Says if renamed files are detected.
+     *
+     * @return true if renamed files are detected
+     */
+    public boolean isDetectRenames() {
+	return detectRenames;
+    }
+
+    /**
+     * Says if copied files are detected.
+     *
+     * @return true if copied files are detected
+     */
+    public boolean isDetectCopies() {
+	return detectCopies;
+    }
+
+    /**
+     * Gets the size above which the lines of a file are not computed.
+     *
+     * @return the size limit in bytes, or 0 for no limit
+     */
+    public long getMaxFileSize() {
+	return maxFileSize;
+    }
+
+    /**
+     * Says if the lines of the hunks are passed to the handler.
+     *
+     * @return true if the lines are included
+     */
+    public boolean isIncludeLines() {
+	return includeLines;
+    }
+
+    @Override
+    public String toString() {
+	return "DiffOptions [detectRenames=" + detectRenames + ", detectCopies=" + detectCopies + ", maxFileSize="
+		+ maxFileSize + ", includeLines=" + includeLines + "]";
+    }
+}
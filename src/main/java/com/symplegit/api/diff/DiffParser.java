@@ -0,0 +1,474 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Incremental parser of the output of {@code git diff}, in the Git patch
+ * format with the default {@code a/} and {@code b/} prefixes. <br>
+ * The output is written to the parser while Git runs: each file header, hunk
+ * header and line is passed to the {@link DiffHandler} as soon as it is
+ * complete. Only the current line is held in memory. <br>
+ * Hunk lines are counted with the lengths of the hunk header, so that a
+ * deleted line starting with {@code "-- "} is never mistaken for a file
+ * header. Quoted paths are decoded. <br>
+ * {@link #finish()} must be called at the end of the output, to pass the
+ * header of the last file if it has no hunks.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffParser extends OutputStream {
+
+    private static final byte[] DIFF_GIT = "diff --git ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HUNK = "@@ -".getBytes(StandardCharsets.US_ASCII);
+
+    private final DiffHandler handler;
+    private final boolean includeLines;
+
+    private byte[] line = new byte[256];
+    private int length = 0;
+
+    /** The header of the current file, until it is passed to the handler. */
+    private DiffFile.Builder pendingFile = null;
+    private boolean inFile = false;
+
+    private int oldRemaining = 0;
+    private int newRemaining = 0;
+    private int oldLineNumber = 0;
+    private int newLineNumber = 0;
+
+    private int fileCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param handler      the receiver of the parsed diff
+     * @param includeLines if false, the lines of the hunks are skipped without
+     *                     being decoded
+     */
+    public DiffParser(DiffHandler handler, boolean includeLines) {
+	this.handler = Objects.requireNonNull(handler, "handler cannot be null!");
+	this.includeLines = includeLines;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+	if (b == '\n') {
+	    parseLine();
+	    length = 0;
+	} else {
+	    append(new byte[] { (byte) b }, 0, 1);
+	}
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int len) throws IOException {
+	int end = offset + len;
+	int start = offset;
+	for (int i = offset; i < end; i++) {
+	    if (bytes[i] == '\n') {
+		append(bytes, start, i - start);
+		parseLine();
+		length = 0;
+		start = i + 1;
+	    }
+	}
+	append(bytes, start, end - start);
+    }
+
+    private void append(byte[] bytes, int offset, int len) {
+	if (length + len > line.length) {
+	    line = Arrays.copyOf(line, Math.max(line.length * 2, length + len));
+	}
+	System.arraycopy(bytes, offset, line, length, len);
+	length += len;
+    }
+
+    /**
+     * Parses the last line if it is not terminated, and passes the header of
+     * the last file if it is still pending.
+     *
+     * @throws IOException if the handler fails
+     */
+    public void finish() throws IOException {
+	if (length > 0) {
+	    parseLine();
+	    length = 0;
+	}
+	flushFile();
+    }
+
+    /**
+     * Gets the number of files passed to the handler.
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+	return fileCount;
+    }
+
+    private void parseLine() throws IOException {
+	if (oldRemaining > 0 || newRemaining > 0) {
+	    if (parseHunkLine()) {
+		return;
+	    }
+	    // Truncated hunk: the line is a header
+	    oldRemaining = 0;
+	    newRemaining = 0;
+	}
+
+	if (startsWith(DIFF_GIT)) {
+	    flushFile();
+	    startFile();
+	} else if (!inFile) {
+	    return; // Text before the first file
+	} else if (startsWith(HUNK)) {
+	    flushFile();
+	    parseHunkHeader();
+	} else if (length > 0 && line[0] == '\\') {
+	    emitLine(DiffLine.Type.NO_NEWLINE_AT_END, 0, 0);
+	} else if (pendingFile != null) {
+	    parseHeaderLine(new String(line, 0, length, StandardCharsets.UTF_8));
+	}
+    }
+
+    /**
+     * Parses a line of a hunk.
+     *
+     * @return false if the line cannot be in a hunk
+     */
+    private boolean parseHunkLine() throws IOException {
+	// Some tools strip the space of empty context lines
+	byte first = length == 0 ? (byte) ' ' : line[0];
+	switch (first) {
+	case ' ':
+	    if (oldRemaining == 0 || newRemaining == 0) {
+		return false;
+	    }
+	    oldRemaining--;
+	    newRemaining--;
+	    emitLine(DiffLine.Type.CONTEXT, oldLineNumber++, newLineNumber++);
+	    return true;
+	case '-':
+	    if (oldRemaining == 0) {
+		return false;
+	    }
+	    oldRemaining--;
+	    emitLine(DiffLine.Type.DELETED, oldLineNumber++, 0);
+	    return true;
+	case '+':
+	    if (newRemaining == 0) {
+		return false;
+	    }
+	    newRemaining--;
+	    emitLine(DiffLine.Type.ADDED, 0, newLineNumber++);
+	    return true;
+	case '\\':
+	    emitLine(DiffLine.Type.NO_NEWLINE_AT_END, 0, 0);
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
+    private void emitLine(DiffLine.Type type, int oldNumber, int newNumber) throws IOException {
+	if (!includeLines) {
+	    return;
+	}
+	String text;
+	if (type == DiffLine.Type.NO_NEWLINE_AT_END) {
+	    text = new String(line, 0, length, StandardCharsets.UTF_8).substring(1).trim();
+	} else {
+	    text = length == 0 ? "" : new String(line, 1, length - 1, StandardCharsets.UTF_8);
+	}
+	handler.line(new DiffLine(type, oldNumber, newNumber, text));
+    }
+
+    private void startFile() {
+	pendingFile = DiffFile.custom();
+	inFile = true;
+
+	String paths = new String(line, DIFF_GIT.length, length - DIFF_GIT.length, StandardCharsets.UTF_8);
+	String[] oldAndNew = splitGitPaths(paths);
+	if (oldAndNew != null) {
+	    pendingFile.setOldPath(stripPrefix(oldAndNew[0], "a/"));
+	    pendingFile.setNewPath(stripPrefix(oldAndNew[1], "b/"));
+	}
+    }
+
+    private void flushFile() throws IOException {
+	if (pendingFile == null) {
+	    return;
+	}
+	DiffFile diffFile = pendingFile.build();
+	pendingFile = null;
+	fileCount++;
+	handler.file(diffFile);
+    }
+
+    private void parseHeaderLine(String header) throws IOException {
+	if (header.startsWith("old mode ")) {
+	    pendingFile.setOldMode(parseMode(header.substring(9)));
+	} else if (header.startsWith("new mode ")) {
+	    pendingFile.setNewMode(parseMode(header.substring(9)));
+	} else if (header.startsWith("deleted file mode ")) {
+	    pendingFile.setChangeType(DiffFile.ChangeType.DELETED).setNewPath(null)
+		    .setOldMode(parseMode(header.substring(18)));
+	} else if (header.startsWith("new file mode ")) {
+	    pendingFile.setChangeType(DiffFile.ChangeType.ADDED).setOldPath(null)
+		    .setNewMode(parseMode(header.substring(14)));
+	} else if (header.startsWith("similarity index ")) {
+	    pendingFile.setSimilarity(parsePercent(header.substring(17)));
+	} else if (header.startsWith("rename from ")) {
+	    pendingFile.setChangeType(DiffFile.ChangeType.RENAMED).setOldPath(unquote(header.substring(12)));
+	} else if (header.startsWith("rename to ")) {
+	    pendingFile.setNewPath(unquote(header.substring(10)));
+	} else if (header.startsWith("copy from ")) {
+	    pendingFile.setChangeType(DiffFile.ChangeType.COPIED).setOldPath(unquote(header.substring(10)));
+	} else if (header.startsWith("copy to ")) {
+	    pendingFile.setNewPath(unquote(header.substring(8)));
+	} else if (header.startsWith("index ")) {
+	    parseIndexLine(header.substring(6));
+	} else if (header.startsWith("Binary files ") || header.equals("GIT binary patch")) {
+	    pendingFile.setBinary(true);
+	} else if (header.startsWith("--- ")) {
+	    String path = parsePatchPath(header.substring(4), "a/");
+	    if (path != null) {
+		pendingFile.setOldPath(path);
+	    }
+	} else if (header.startsWith("+++ ")) {
+	    String path = parsePatchPath(header.substring(4), "b/");
+	    if (path != null) {
+		pendingFile.setNewPath(path);
+	    }
+	}
+    }
+
+    /**
+     * Parses {@code <old id>..<new id>[ <mode>]}. The mode is present when it
+     * did not change.
+     */
+    private void parseIndexLine(String index) throws IOException {
+	int dots = index.indexOf("..");
+	if (dots < 0) {
+	    return;
+	}
+	int space = index.indexOf(' ', dots);
+	String newId = space < 0 ? index.substring(dots + 2) : index.substring(dots + 2, space);
+	pendingFile.setIds(index.substring(0, dots), newId);
+	if (space > 0) {
+	    int mode = parseMode(index.substring(space + 1));
+	    pendingFile.setOldMode(mode).setNewMode(mode);
+	}
+    }
+
+    /**
+     * Parses {@code @@ -<start>[,<count>] +<start>[,<count>] @@[ <section>]}.
+     */
+    private void parseHunkHeader() throws IOException {
+	String header = new String(line, 0, length, StandardCharsets.UTF_8);
+	try {
+	    int position = HUNK.length;
+	    int space = header.indexOf(' ', position);
+	    int[] oldRange = parseRange(header.substring(position, space));
+	    if (header.charAt(space + 1) != '+') {
+		throw new IOException("Invalid hunk header: " + header);
+	    }
+	    int end = header.indexOf(" @@", space + 2);
+	    int[] newRange = parseRange(header.substring(space + 2, end));
+	    String section = header.length() > end + 4 ? header.substring(end + 4) : "";
+
+	    oldLineNumber = oldRange[0];
+	    oldRemaining = oldRange[1];
+	    newLineNumber = newRange[0];
+	    newRemaining = newRange[1];
+	    handler.hunk(new DiffHunk(oldRange[0], oldRange[1], newRange[0], newRange[1], section));
+	} catch (IndexOutOfBoundsException | NumberFormatException e) {
+	    throw new IOException("Invalid hunk header: " + header, e);
+	}
+    }
+
+    private static int[] parseRange(String range) {
+	int comma = range.indexOf(',');
+	if (comma < 0) {
+	    return new int[] { Integer.parseInt(range), 1 };
+	}
+	return new int[] { Integer.parseInt(range.substring(0, comma)), Integer.parseInt(range.substring(comma + 1)) };
+    }
+
+    private static int parseMode(String mode) throws IOException {
+	try {
+	    return Integer.parseInt(mode.trim(), 8);
+	} catch (NumberFormatException e) {
+	    throw new IOException("Invalid file mode in diff: " + mode, e);
+	}
+    }
+
+    private static int parsePercent(String percent) {
+	try {
+	    return Integer.parseInt(percent.endsWith("%") ? percent.substring(0, percent.length() - 1) : percent);
+	} catch (NumberFormatException e) {
+	    return -1;
+	}
+    }
+
+    /**
+     * Parses the path of a {@code ---} or {@code +++} line. Git adds a tab after
+     * a path that contains a space.
+     *
+     * @return the path, or null for {@code /dev/null}
+     */
+    private static String parsePatchPath(String value, String prefix) {
+	if (value.endsWith("\t")) {
+	    value = value.substring(0, value.length() - 1);
+	}
+	if (value.equals("/dev/null")) {
+	    return null;
+	}
+	return stripPrefix(unquote(value), prefix);
+    }
+
+    /**
+     * Splits the paths of a {@code diff --git} line. They are ambiguous when
+     * they contain spaces and are not quoted: the old and new paths are then
+     * expected to be the same, and other lines give the paths of a rename.
+     *
+     * @return the old and new paths with their prefixes, or null if they cannot
+     *         be split
+     */
+    private static String[] splitGitPaths(String paths) {
+	if (paths.startsWith("\"")) {
+	    int end = closingQuote(paths);
+	    if (end < 0 || end + 2 > paths.length()) {
+		return null;
+	    }
+	    return new String[] { unquote(paths.substring(0, end + 1)), unquote(paths.substring(end + 2)) };
+	}
+	if (paths.endsWith("\"")) {
+	    int start = paths.lastIndexOf(" \"");
+	    return start < 0 ? null
+		    : new String[] { paths.substring(0, start), unquote(paths.substring(start + 1)) };
+	}
+
+	int length = paths.length();
+	if (length % 2 == 1) {
+	    int half = length / 2;
+	    if (paths.charAt(half) == ' ' && paths.regionMatches(2, paths, half + 3, half - 2)) {
+		return new String[] { paths.substring(0, half), paths.substring(half + 1) };
+	    }
+	}
+	int separator = paths.indexOf(" b/");
+	return separator < 0 ? null : new String[] { paths.substring(0, separator), paths.substring(separator + 1) };
+    }
+
+    private static int closingQuote(String quoted) {
+	for (int i = 1; i < quoted.length(); i++) {
+	    char c = quoted.charAt(i);
+	    if (c == '\\') {
+		i++;
+	    } else if (c == '"') {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    private static String stripPrefix(String path, String prefix) {
+	return path.startsWith(prefix) ? path.substring(prefix.length()) : path;
+    }
+
+    /**
+     * Decodes a path quoted by Git, with C escapes and octal escapes for bytes.
+     * A path that is not quoted is returned as is.
+     */
+    static String unquote(String path) {
+	if (path.length() < 2 || !path.startsWith("\"") || !path.endsWith("\"")) {
+	    return path;
+	}
+
+	byte[] bytes = path.substring(1, path.length() - 1).getBytes(StandardCharsets.UTF_8);
+	ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+	for (int i = 0; i < bytes.length; i++) {
+	    byte b = bytes[i];
+	    if (b != '\\' || i + 1 == bytes.length) {
+		out.write(b);
+		continue;
+	    }
+	    byte escaped = bytes[++i];
+	    switch (escaped) {
+	    case 'a':
+		out.write(7);
+		break;
+	    case 'b':
+		out.write('\b');
+		break;
+	    case 't':
+		out.write('\t');
+		break;
+	    case 'n':
+		out.write('\n');
+		break;
+	    case 'v':
+		out.write(11);
+		break;
+	    case 'f':
+		out.write('\f');
+		break;
+	    case 'r':
+		out.write('\r');
+		break;
+	    default:
+		if (escaped >= '0' && escaped <= '3' && i + 2 < bytes.length) {
+		    out.write(((escaped - '0') << 6) | ((bytes[i + 1] - '0') << 3) | (bytes[i + 2] - '0'));
+		    i += 2;
+		} else {
+		    out.write(escaped); // Quote and backslash
+		}
+	    }
+	}
+	return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(byte[] prefix) {
+	if (length < prefix.length) {
+	    return false;
+	}
+	for (int i = 0; i < prefix.length; i++) {
+	    if (line[i] != prefix[i]) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Calls {@link #finish()}.
+     */
+    @Override
+    public void close() throws IOException {
+	finish();
+    }
+}
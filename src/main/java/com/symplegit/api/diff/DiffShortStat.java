@@ -0,0 +1,127 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.IOException;
+
+/**
+ * The totals of a diff, as output by {@code git diff --shortstat}: numbers of
+ * changed files, inserted lines and deleted lines. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffShortStat {
+
+    /** The totals of an empty diff. */
+    public static final DiffShortStat EMPTY = new DiffShortStat(0, 0, 0);
+
+    private final int filesChanged;
+    private final long insertions;
+    private final long deletions;
+
+    /**
+     * Constructor.
+     *
+     * @param filesChanged the number of changed files
+     * @param insertions   the number of inserted lines
+     * @param deletions    the number of deleted lines
+     */
+    public DiffShortStat(int filesChanged, long insertions, long deletions) {
+	this.filesChanged = filesChanged;
+	this.insertions = insertions;
+	this.deletions = deletions;
+    }
+
+    /**
+     * Parses the output of {@code git diff --shortstat}, for example
+     * {@code " 3 files changed, 10 insertions(+), 2 deletions(-)"}. The words
+     * are translated by Git: the parts are told apart by their position and by
+     * their {@code (+)} and {@code (-)} markers only.
+     *
+     * @param output the output of Git, empty for an empty diff
+     * @return the parsed totals
+     * @throws IOException if the output is malformed
+     */
+    public static DiffShortStat parse(String output) throws IOException {
+	String summary = output.trim();
+	if (summary.isEmpty()) {
+	    return EMPTY;
+	}
+
+	String[] parts = summary.split(",");
+	try {
+	    int filesChanged = (int) leadingNumber(parts[0]);
+	    long insertions = 0;
+	    long deletions = 0;
+	    for (int i = 1; i < parts.length; i++) {
+		if (parts[i].contains("(+)")) {
+		    insertions = leadingNumber(parts[i]);
+		} else if (parts[i].contains("(-)")) {
+		    deletions = leadingNumber(parts[i]);
+		}
+	    }
+	    return new DiffShortStat(filesChanged, insertions, deletions);
+	} catch (NumberFormatException e) {
+	    throw new IOException("Invalid Git shortstat output: " + summary, e);
+	}
+    }
+
+    private static long leadingNumber(String part) {
+	String trimmed = part.trim();
+	int end = 0;
+	while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end))) {
+	    end++;
+	}
+	return Long.parseLong(trimmed.substring(0, end));
+    }
+
+    /**
+     * Gets the number of changed files.
+     *
+     * @return the number of changed files, binary files included
+     */
+    public int getFilesChanged() {
+	return filesChanged;
+    }
+
+    /**
+     * Gets the number of inserted lines.
+     *
+     * @return the number of inserted lines
+     */
+    public long getInsertions() {
+	return insertions;
+    }
+
+    /**
+     * Gets the number of deleted lines.
+     *
+     * @return the number of deleted lines
+     */
+    public long getDeletions() {
+	return deletions;
+    }
+
+    @Override
+    public String toString() {
+	return "DiffShortStat [filesChanged=" + filesChanged + ", insertions=" + insertions + ", deletions="
+		+ deletions + "]";
+    }
+}
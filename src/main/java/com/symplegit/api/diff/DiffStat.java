@@ -0,0 +1,204 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The numbers of added and deleted lines of each file of a diff, as output by
+ * {@code git diff --numstat -z}. <br>
+ * The counts are held in primitive arrays and the files are accessed by
+ * index, from 0 to {@link #getFileCount()} excluded:
+ *
+ * <pre>
+ * <code>
+ * DiffStat diffStat = gitDiff.getStagedNumStat();
+ * for (int i = 0; i &lt; diffStat.getFileCount(); i++) {
+ *     System.out.println(diffStat.getPath(i) + " +" + diffStat.getAddedLines(i) + " -" + diffStat.getDeletedLines(i));
+ * }
+ * </code>
+ * </pre>
+ *
+ * Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DiffStat {
+
+    private final int fileCount;
+    private final String[] paths;
+    private final String[] oldPaths;
+    private final int[] addedLines;
+    private final int[] deletedLines;
+    private final long totalAddedLines;
+    private final long totalDeletedLines;
+
+    private DiffStat(int fileCount, String[] paths, String[] oldPaths, int[] addedLines, int[] deletedLines) {
+	this.fileCount = fileCount;
+	this.paths = paths;
+	this.oldPaths = oldPaths;
+	this.addedLines = addedLines;
+	this.deletedLines = deletedLines;
+
+	long added = 0;
+	long deleted = 0;
+	for (int i = 0; i < fileCount; i++) {
+	    added += Math.max(addedLines[i], 0);
+	    deleted += Math.max(deletedLines[i], 0);
+	}
+	this.totalAddedLines = added;
+	this.totalDeletedLines = deleted;
+    }
+
+    /**
+     * Parses the output of {@code git diff --numstat -z}: for each file, the
+     * counts and the path terminated by NUL, or the counts, an empty path and
+     * the old and new paths for a renamed or copied file.
+     *
+     * @param buffer the output of Git
+     * @return the parsed counts
+     * @throws IOException if the output is malformed
+     */
+    public static DiffStat parse(ByteBuffer buffer) throws IOException {
+	FieldReader reader = new FieldReader(buffer);
+	int capacity = 16;
+	String[] paths = new String[capacity];
+	String[] oldPaths = new String[capacity];
+	int[] addedLines = new int[capacity];
+	int[] deletedLines = new int[capacity];
+	int count = 0;
+
+	while (reader.hasRemaining()) {
+	    if (count == capacity) {
+		capacity *= 2;
+		paths = Arrays.copyOf(paths, capacity);
+		oldPaths = Arrays.copyOf(oldPaths, capacity);
+		addedLines = Arrays.copyOf(addedLines, capacity);
+		deletedLines = Arrays.copyOf(deletedLines, capacity);
+	    }
+	    addedLines[count] = reader.readCount('\t');
+	    deletedLines[count] = reader.readCount('\t');
+	    String path = reader.readField('\0');
+	    if (path.isEmpty()) {
+		oldPaths[count] = reader.readField('\0');
+		path = reader.readField('\0');
+	    }
+	    paths[count] = path;
+	    count++;
+	}
+	return new DiffStat(count, paths, oldPaths, addedLines, deletedLines);
+    }
+
+    /**
+     * Gets the number of files of the diff.
+     *
+     * @return the number of files
+     */
+    public int getFileCount() {
+	return fileCount;
+    }
+
+    /**
+     * Gets the path of a file.
+     *
+     * @param index the index of the file
+     * @return the path of the file, the new path if it was renamed or copied
+     */
+    public String getPath(int index) {
+	checkIndex(index);
+	return paths[index];
+    }
+
+    /**
+     * Gets the old path of a renamed or copied file.
+     *
+     * @param index the index of the file
+     * @return the old path, or null if the file was not renamed nor copied
+     */
+    public String getOldPath(int index) {
+	checkIndex(index);
+	return oldPaths[index];
+    }
+
+    /**
+     * Gets the number of added lines of a file.
+     *
+     * @param index the index of the file
+     * @return the number of added lines, or -1 for a binary file
+     */
+    public int getAddedLines(int index) {
+	checkIndex(index);
+	return addedLines[index];
+    }
+
+    /**
+     * Gets the number of deleted lines of a file.
+     *
+     * @param index the index of the file
+     * @return the number of deleted lines, or -1 for a binary file
+     */
+    public int getDeletedLines(int index) {
+	checkIndex(index);
+	return deletedLines[index];
+    }
+
+    /**
+     * Says if a file is binary: Git does not count its lines.
+     *
+     * @param index the index of the file
+     * @return true if the file is binary
+     */
+    public boolean isBinary(int index) {
+	checkIndex(index);
+	return addedLines[index] < 0;
+    }
+
+    /**
+     * Gets the number of added lines of all the files.
+     *
+     * @return the number of added lines, binary files excluded
+     */
+    public long getTotalAddedLines() {
+	return totalAddedLines;
+    }
+
+    /**
+     * Gets the number of deleted lines of all the files.
+     *
+     * @return the number of deleted lines, binary files excluded
+     */
+    public long getTotalDeletedLines() {
+	return totalDeletedLines;
+    }
+
+    private void checkIndex(int index) {
+	if (index < 0 || index >= fileCount) {
+	    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + fileCount + " files");
+	}
+    }
+
+    @Override
+    public String toString() {
+	return "DiffStat [files=" + fileCount + ", totalAddedLines=" + totalAddedLines + ", totalDeletedLines="
+		+ totalDeletedLines + "]";
+    }
+}
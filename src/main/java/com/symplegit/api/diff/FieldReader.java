@@ -0,0 +1,97 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the terminated fields of a {@code -z} output of Git, with a reusable
+ * buffer.
+ *
+ * @author KawanSoft SAS
+ */
+class FieldReader {
+
+    private final ByteBuffer buffer;
+    private byte[] field = new byte[256];
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the output of Git
+     */
+    FieldReader(ByteBuffer buffer) {
+	this.buffer = buffer;
+    }
+
+    /**
+     * Says if the output has more fields.
+     *
+     * @return true if bytes remain
+     */
+    boolean hasRemaining() {
+	return buffer.hasRemaining();
+    }
+
+    /**
+     * Reads a field, decoded as UTF-8.
+     *
+     * @param terminator the terminator of the field, which is skipped
+     * @return the field
+     * @throws IOException if the field is not terminated
+     */
+    String readField(char terminator) throws IOException {
+	int length = 0;
+	while (buffer.hasRemaining()) {
+	    byte b = buffer.get();
+	    if (b == terminator) {
+		return new String(field, 0, length, StandardCharsets.UTF_8);
+	    }
+	    if (length == field.length) {
+		field = Arrays.copyOf(field, length * 2);
+	    }
+	    field[length++] = b;
+	}
+	throw new IOException("Truncated Git output: missing terminator after "
+		+ new String(field, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a field holding a count of lines.
+     *
+     * @param terminator the terminator of the field
+     * @return the count, or -1 for {@code -}
+     * @throws IOException if the field is not a count
+     */
+    int readCount(char terminator) throws IOException {
+	String count = readField(terminator);
+	if (count.equals("-")) {
+	    return -1;
+	}
+	try {
+	    return Integer.parseInt(count);
+	} catch (NumberFormatException e) {
+	    throw new IOException("Invalid line count in Git output: " + count, e);
+	}
+    }
+}
@@ -47,6 +47,9 @@ public class UncheckedTimeoutException extends RuntimeException {
      */
     private static final long serialVersionUID = 1L;
 
+    /** The number of processes terminated because of the timeout. */
+    private final int reapedProcessCount;
+
     /**
      * Constructs a new runtime exception with the specified detail message.
      *
@@ -55,6 +58,21 @@ public class UncheckedTimeoutException extends RuntimeException {
      */
     public UncheckedTimeoutException(String message) {
 	super(message);
+	this.reapedProcessCount = 0;
+    }
+
+    /**
+     * Constructs a new runtime exception with the specified detail message and
+     * the number of processes that were terminated because of the timeout.
+     *
+     * @param message            the detail message. The detail message is saved
+     *                           for later retrieval by the
+     *                           {@link Throwable#getMessage()} method.
+     * @param reapedProcessCount the number of terminated processes
+     */
+    public UncheckedTimeoutException(String message, int reapedProcessCount) {
+	super(message);
+	this.reapedProcessCount = reapedProcessCount;
     }
 
     /**
@@ -75,6 +93,7 @@ public class UncheckedTimeoutException extends RuntimeException {
      */
     public UncheckedTimeoutException(String message, Throwable cause) {
 	super(message, cause);
+	this.reapedProcessCount = 0;
     }
 
     /**
@@ -91,5 +110,16 @@ public class UncheckedTimeoutException extends RuntimeException {
      */
     public UncheckedTimeoutException(Throwable cause) {
 	super(cause);
+	this.reapedProcessCount = 0;
+    }
+
+    /**
+     * Gets the number of processes (the git process and its descendants) that
+     * were terminated because of the timeout.
+     *
+     * @return the number of terminated processes
+     */
+    public int getReapedProcessCount() {
+	return reapedProcessCount;
     }
 }
@@ -19,9 +19,19 @@
  */
 package com.symplegit.api.facilitator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.symplegit.api.GitCommander;
 import com.symplegit.api.GitWrapper;
@@ -53,9 +63,17 @@ import com.symplegit.api.SympleGit;
  */
 public class GitAdd implements GitWrapper {
 
+    /** The maximum length of the paths passed on a command line (Windows limit is 32K). */
+    private static final int MAX_PATHS_LENGTH = 16 * 1024;
+
+    /** Set when Git is older than 2.25 and does not know --pathspec-from-file. */
+    private static volatile boolean pathspecFromFileUnsupported = false;
+
     private GitCommander gitCommander;
+    private File directory;
     private String errorMessage;
     private Exception exception;
+    private List<String> failedPaths = new ArrayList<>();
 
     /**
      * Constructs a GitAdd with a specified SympleGit instance.
@@ -64,6 +82,7 @@ public class GitAdd implements GitWrapper {
      */
     public GitAdd(SympleGit sympleGit) {
 	this.gitCommander = sympleGit.gitCommander();
+	this.directory = sympleGit.getDirectory();
     }
 
     /**
@@ -76,7 +95,9 @@ public class GitAdd implements GitWrapper {
     }
 
     /**
-     * Adds a list of specified file paths to the staging area.
+     * Adds a list of specified file paths to the staging area. All the paths
+     * are passed to a single Git process, see {@link #getFailedPaths()} for the
+     * error handling.
      *
      * @param filenames The list of file names to be added.
      * @throws IOException If an error occurs during command execution.
@@ -85,13 +106,13 @@ public class GitAdd implements GitWrapper {
 	if (filenames == null || filenames.isEmpty()) {
 	    throw new IllegalArgumentException("Filenames list cannot be null or empty.");
 	}
-	for (String file : filenames) {
-	    executeGitCommandWithErrorHandler("git", "add", file);
-	}
+	addPaths(filenames);
     }
 
     /**
-     * Adds a list of specified file paths to the staging area.
+     * Adds a list of specified file paths to the staging area. All the paths
+     * are passed to a single Git process, see {@link #getFailedPaths()} for the
+     * error handling.
      *
      * @param filenames The list of file names to be added.
      * @throws IOException If an error occurs during command execution.
@@ -100,13 +121,13 @@ public class GitAdd implements GitWrapper {
 	if (filenames == null || filenames.length == 0) {
 	    throw new IllegalArgumentException("Filenames list cannot be null or empty.");
 	}
-	for (String file : filenames) {
-	    executeGitCommandWithErrorHandler("git", "add", file);
-	}
+	addPaths(Arrays.asList(filenames));
     }
 
     /**
-     * Adds a list of File objects to the staging area.
+     * Adds a list of File objects to the staging area. All the files are
+     * passed to a single Git process, see {@link #getFailedPaths()} for the
+     * error handling.
      *
      * @param files The list of File objects to be added.
      * @throws IOException If an error occurs during command execution.
@@ -115,13 +136,13 @@ public class GitAdd implements GitWrapper {
 	if (files == null || files.length == 0) {
 	    throw new IllegalArgumentException("File list cannot be null or empty.");
 	}
-	for (File file : files) {
-	    executeGitCommandWithErrorHandler("git", "add", file.getAbsolutePath());
-	}
+	addFiles(Arrays.asList(files));
     }
 
     /**
-     * Adds a list of File objects to the staging area.
+     * Adds a list of File objects to the staging area. All the files are
+     * passed to a single Git process, see {@link #getFailedPaths()} for the
+     * error handling.
      *
      * @param files The list of File objects to be added.
      * @throws IOException If an error occurs during command execution.
@@ -130,8 +151,166 @@ public class GitAdd implements GitWrapper {
 	if (files == null || files.isEmpty()) {
 	    throw new IllegalArgumentException("File list cannot be null or empty.");
 	}
+	List<String> paths = new ArrayList<>(files.size());
 	for (File file : files) {
-	    executeGitCommandWithErrorHandler("git", "add", file.getAbsolutePath());
+	    if (file == null) {
+		throw new IllegalArgumentException("File list cannot contain null.");
+	    }
+	    paths.add(file.getAbsolutePath());
+	}
+	addPaths(paths);
+    }
+
+    /**
+     * Gets the paths that Git reported as failed during the last add of a list
+     * of paths. <br>
+     * Git checks all the paths before staging: if a path does not match any
+     * file, nothing is staged and only this first path is reported. A path
+     * ignored by a .gitignore file or that cannot be read is reported, and the
+     * other paths are staged. In both cases, {@link #isResponseOk()} returns
+     * false and {@link #getError()} holds the messages of Git. <br>
+     * With Git older than 2.25, the paths are added in chunks: the chunks
+     * before a failed one stay staged, and the following ones are not added.
+     *
+     * @return the failed paths, as passed to the add method, empty if none
+     */
+    public List<String> getFailedPaths() {
+	return Collections.unmodifiableList(failedPaths);
+    }
+
+    /**
+     * Adds the paths with a single Git process that reads them, NUL
+     * terminated, from its standard input. This avoids the command line length
+     * limit and takes the index lock once. <br>
+     * Git older than 2.25 rejects {@code --pathspec-from-file}: the paths are
+     * then passed on the command line, in chunks, and the add stops at the
+     * first failed chunk.
+     *
+     * @param paths The paths to be added.
+     */
+    private void addPaths(List<String> paths) throws IOException {
+	failedPaths = new ArrayList<>();
+	errorMessage = null;
+	exception = null;
+
+	for (String path : paths) {
+	    if (path == null) {
+		throw new IllegalArgumentException("Filenames list cannot contain null.");
+	    }
+	}
+
+	if (!pathspecFromFileUnsupported) {
+	    ByteArrayOutputStream pathspecs = new ByteArrayOutputStream();
+	    for (String path : paths) {
+		pathspecs.write(path.getBytes(StandardCharsets.UTF_8));
+		pathspecs.write(0);
+	    }
+
+	    gitCommander.executeGitCommandWithInput(pathspecs.toByteArray(), "git", "add", "--pathspec-from-file=-",
+		    "--pathspec-file-nul");
+	    if (!isPathspecFromFileRejected()) {
+		handleAddResult(paths);
+		return;
+	    }
+	    pathspecFromFileUnsupported = true;
+	}
+
+	int start = 0;
+	while (start < paths.size()) {
+	    List<String> command = new ArrayList<>(Arrays.asList("git", "add", "--"));
+	    long length = 0;
+	    int end = start;
+	    // At least one path per chunk, whatever its length
+	    while (end < paths.size() && (end == start || length + paths.get(end).length() + 1 <= MAX_PATHS_LENGTH)) {
+		length += paths.get(end).length() + 1;
+		command.add(paths.get(end));
+		end++;
+	    }
+
+	    gitCommander.executeGitCommand(command.toArray(new String[0]));
+	    if (!gitCommander.isResponseOk()) {
+		handleAddResult(paths.subList(start, end));
+		return;
+	    }
+	    start = end;
+	}
+    }
+
+    /**
+     * Says if the last command failed because Git does not know
+     * {@code --pathspec-from-file}: Git exits with 129 on an unknown option and
+     * names it without its dashes, while the usage that follows lists the
+     * option only if Git knows it. Option names are not translated.
+     */
+    private boolean isPathspecFromFileRejected() throws IOException {
+	if (gitCommander.getExitCode() != 129) {
+	    return false;
+	}
+	String error = gitCommander.getProcessError();
+	if (error == null || error.isEmpty()) {
+	    error = gitCommander.getProcessOutput();
+	}
+	return error != null && error.contains("pathspec-from-file") && !error.contains("--pathspec-from-file");
+    }
+
+    /**
+     * Stores the error and the failed paths of the last add command, if it
+     * failed.
+     *
+     * @param paths The paths passed to the command.
+     */
+    private void handleAddResult(List<String> paths) throws IOException {
+	if (!gitCommander.isResponseOk()) {
+	    errorMessage = gitCommander.getProcessError();
+	    if (errorMessage == null || errorMessage.isEmpty()) {
+		// The error stream is merged into the output
+		errorMessage = gitCommander.getProcessOutput();
+	    }
+	    exception = gitCommander.getException();
+	    failedPaths = findFailedPaths(paths, errorMessage, directory);
+	}
+    }
+
+    /**
+     * Finds the paths named in the error messages of Git, either quoted or
+     * alone on their line, where Git may name an absolute path relatively to
+     * the repository. Only the words of the messages are translated by Git, so
+     * this does not depend on the language.
+     */
+    private static List<String> findFailedPaths(List<String> paths, String error, File directory) {
+	List<String> found = new ArrayList<>();
+	if (error == null) {
+	    return found;
+	}
+
+	Set<String> named = new HashSet<>();
+	for (String line : error.split("\\R")) {
+	    named.add(line.trim());
+	    int open = line.indexOf('\'');
+	    int close = line.lastIndexOf('\'');
+	    if (open >= 0 && close > open) {
+		named.add(line.substring(open + 1, close));
+	    }
+	}
+
+	Path base = directory.toPath().toAbsolutePath().normalize();
+	for (String path : new LinkedHashSet<>(paths)) {
+	    if (named.contains(path) || named.contains(relativize(base, path))) {
+		found.add(path);
+	    }
+	}
+	return found;
+    }
+
+    private static String relativize(Path base, String path) {
+	try {
+	    Path file = Paths.get(path);
+	    if (!file.isAbsolute()) {
+		return path;
+	    }
+	    return base.relativize(file.normalize()).toString().replace(File.separatorChar, '/');
+	} catch (IllegalArgumentException e) {
+	    return path;
 	}
     }
 
@@ -20,18 +20,35 @@
 package com.symplegit.api.facilitator;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitResultCache;
+import com.symplegit.api.GitStatusTracker;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
+import com.symplegit.internal.graph.CommitResolver;
+import com.symplegit.internal.index.IndexFile;
+import com.symplegit.internal.index.WorkingTreeScan;
+import com.symplegit.internal.objects.ObjectReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+import com.symplegit.internal.refs.UnsupportedRefsException;
 import com.symplegit.util.FrameworkDebug;
 
 /**
@@ -64,6 +81,11 @@ public class GitBranchRead implements GitWrapper {
     /** Debug flag. */
     public static boolean DEBUG = FrameworkDebug.isSet(GitBranchRead.class);
 
+    private static final String REFS_HEADS = "refs/heads/";
+
+    /** The maximum length of the paths passed on a command line (Windows limit is 32K). */
+    private static final int MAX_PATHS_LENGTH = 16 * 1024;
+
     private String outputString = null;
 
     private boolean isOk = false;
@@ -89,7 +111,16 @@ public class GitBranchRead implements GitWrapper {
     }
 
     /**
-     * Says if status is "nothing to commit, working tree clean" or not
+     * Says if status is "nothing to commit, working tree clean" or not. <br>
+     * The index file is read directly and the stat data of the tracked files are
+     * compared in parallel with the working tree. Git is only started for the
+     * files whose stat data changed, for the untracked candidates, and for the
+     * staged changes when the index holds no valid cache tree. When the index
+     * cannot be read, {@code git status --porcelain} is used. The result does not
+     * depend on the locale. <br>
+     * If the status tracker is enabled with
+     * {@link SympleGit.Builder#setStatusTracker(boolean)}, the status is read
+     * from memory.
      * 
      * @return true if status is "nothing to commit, working tree clean", false
      *         otherwise
@@ -100,11 +131,25 @@ public class GitBranchRead implements GitWrapper {
 	    return false;
 	}
 
+	GitStatusTracker statusTracker = sympleGit.getStatusTracker();
+	if (statusTracker != null) {
+	    try {
+		return statusTracker.isClean();
+	    } catch (IOException ioException) {
+		debug("Fallback to Git for status: " + ioException);
+	    }
+	}
+
+	Boolean statusOk = readStatusOk();
+	if (statusOk != null) {
+	    return statusOk;
+	}
+
 	isOk = false;
 
 	try {
 	    GitCommander gitCommander = sympleGit.gitCommander();
-	    gitCommander.executeGitCommand("git", "status");
+	    gitCommander.executeGitCommand("git", "status", "--porcelain");
 
 	    isOk = gitCommander.isResponseOk();
 
@@ -114,13 +159,9 @@ public class GitBranchRead implements GitWrapper {
 		return false;
 	    }
 
-	    // Ok, git status is done
+	    // Ok, git status is done: the porcelain format lists nothing if clean
 	    String outputString = gitCommander.getProcessOutput();
-	    if (outputString != null) {
-		return outputString.contains("nothing to commit, working tree clean");
-	    } else {
-		return false;
-	    }
+	    return outputString != null && outputString.isEmpty();
 	} catch (Exception theException) {
 	    errorMessage = theException.toString();
 	    exception = theException;
@@ -129,13 +170,19 @@ public class GitBranchRead implements GitWrapper {
     }
 
     /**
-     * Returns the active branch
+     * Returns the active branch. <br>
+     * The branch is read directly from the repository files when possible,
+     * without starting a Git process.
      * 
-     * @return the active branch
+     * @return the active branch, or "HEAD" if HEAD is detached
      */
     public String getActiveBranch() {
 
-	String branch = null;
+	String branch = readActiveBranch();
+	if (branch != null) {
+	    isOk = true;
+	    return branch;
+	}
 
 	try {
 	    // git rev-parse --abbrev-ref HEAD
@@ -168,11 +215,27 @@ public class GitBranchRead implements GitWrapper {
     }
 
     /**
-     * Gets a set of the local branches
+     * Gets a set of the local branches. <br>
+     * If the result cache is enabled with
+     * {@link SympleGit.Builder#setResultCache(int)}, the branches are read from
+     * the cache as long as the references of the repository do not change.
      * 
      * @return a set of the local branches
      */
     public Set<String> getLocalBranches() {
+	GitResultCache resultCache = sympleGit.getResultCache();
+	if (resultCache == null) {
+	    return loadLocalBranches();
+	}
+
+	Set<String> branches = getCached(resultCache, "git branch", this::loadLocalBranches);
+	return branches == null ? new HashSet<>() : new HashSet<>(branches);
+    }
+
+    /**
+     * Lists the local branches with {@code git branch}.
+     */
+    private Set<String> loadLocalBranches() {
 
 	Set<String> branches = new HashSet<>();
 	isOk = false;
@@ -216,12 +279,22 @@ public class GitBranchRead implements GitWrapper {
     }
 
     /**
-     * Says if the branch exists
+     * Says if the branch exists. <br>
+     * The branch is looked up directly in the repository files when possible,
+     * without starting a Git process.
      * 
      * @param branch the branch name
      * @return true if the branch exists
      */
     public boolean branchExists(String branch) {
+	if (branch != null) {
+	    Boolean exists = readBranchExists(branch.trim());
+	    if (exists != null) {
+		isOk = true;
+		return exists;
+	    }
+	}
+
 	Set<String> branches = getLocalBranches();
 
 	if (branches == null || !isResponseOk()) {
@@ -238,11 +311,27 @@ public class GitBranchRead implements GitWrapper {
     }
 
     /**
-     * Gets a set of the remote branches only
+     * Gets a set of the remote branches only. <br>
+     * If the result cache is enabled with
+     * {@link SympleGit.Builder#setResultCache(int)}, the branches are read from
+     * the cache as long as the references of the repository do not change.
      * 
      * @return a set of the remote branches only
      */
     public Set<String> getRemoteBranches() {
+	GitResultCache resultCache = sympleGit.getResultCache();
+	if (resultCache == null) {
+	    return loadRemoteBranches();
+	}
+
+	Set<String> branches = getCached(resultCache, "git branch -a", this::loadRemoteBranches);
+	return branches == null ? new TreeSet<>() : new TreeSet<>(branches);
+    }
+
+    /**
+     * Lists the remote branches with {@code git branch -a}.
+     */
+    private Set<String> loadRemoteBranches() {
 
 	Set<String> branches = new TreeSet<>();
 	isOk = false;
@@ -284,6 +373,211 @@ public class GitBranchRead implements GitWrapper {
 	return branches;
     }
 
+    /**
+     * Reads the active branch from the repository files, as
+     * {@code git rev-parse --abbrev-ref HEAD} would return it.
+     *
+     * @return the active branch, or null if the Git command line must be used
+     */
+    private String readActiveBranch() {
+	RefReader refReader = newRefReader();
+	if (refReader == null) {
+	    return null;
+	}
+
+	try {
+	    String target = refReader.getHeadTarget();
+	    if (target == null) {
+		return "HEAD"; // Detached
+	    }
+	    if (!target.startsWith(REFS_HEADS) || refReader.resolve(target) == null) {
+		return null; // Unusual HEAD or unborn branch: let Git report it
+	    }
+
+	    // Git abbreviates to a longer name if the short one is ambiguous. The
+	    // check is strict by default (core.warnAmbiguousRefs): all the other
+	    // rules count, including the remote ones
+	    String name = target.substring(REFS_HEADS.length());
+	    for (String rule : CommitResolver.REF_RULES) {
+		String refName = String.format(rule, name);
+		if (!refName.equals(target) && refReader.exists(refName)) {
+		    return null;
+		}
+	    }
+	    return name;
+	} catch (IOException ioException) {
+	    debug("Fallback to Git for active branch: " + ioException);
+	    return null;
+	}
+    }
+
+    /**
+     * Says if a local branch exists, from the repository files.
+     *
+     * @param branch the branch name
+     * @return true or false, or null if the Git command line must be used
+     */
+    private Boolean readBranchExists(String branch) {
+	RefReader refReader = newRefReader();
+	if (refReader == null) {
+	    return null;
+	}
+
+	try {
+	    String refName = REFS_HEADS + branch;
+	    if (refReader.isSymbolic(refName)) {
+		return null; // Listed as "name -> target" by git branch
+	    }
+	    return refReader.exists(refName);
+	} catch (IOException ioException) {
+	    debug("Fallback to Git for branch exists: " + ioException);
+	    return null;
+	}
+    }
+
+    /**
+     * Says if the working tree is clean, from the index file. Git is asked only
+     * about the paths that the index cannot decide.
+     *
+     * @return true or false, or null if the Git command line must be used
+     */
+    private Boolean readStatusOk() {
+	File directory = sympleGit.getDirectory();
+	GitDirectory gitDirectory = GitDirectory.find(directory);
+	if (gitDirectory == null || gitDirectory.getGitDir().equals(directory)) {
+	    return null; // Bare repository
+	}
+
+	try {
+	    IndexFile indexFile = IndexFile.read(new File(gitDirectory.getGitDir(), "index"),
+		    gitDirectory.getHashLength());
+	    if (indexFile == null) {
+		return null;
+	    }
+
+	    WorkingTreeScan scan = WorkingTreeScan.scan(directory, indexFile);
+	    debug("Index scan: " + scan);
+	    if (scan.hasUnmergedEntries() || scan.hasIntentToAddEntries() || !scan.getMissingPaths().isEmpty()) {
+		return false;
+	    }
+
+	    if (!scan.getChangedPaths().isEmpty()) {
+		// Different stat data do not mean different contents
+		int exitCode = executeWithPaths(scan.getChangedPaths(), "git", "--literal-pathspecs", "diff",
+			"--no-ext-diff", "--quiet").getExitCode();
+		if (exitCode != 0) {
+		    return exitCode == 1 ? Boolean.FALSE : null;
+		}
+	    }
+
+	    Boolean staged = hasStagedChanges(gitDirectory, indexFile);
+	    if (staged == null || staged) {
+		return staged == null ? null : Boolean.FALSE;
+	    }
+
+	    if (scan.getUntrackedPaths().isEmpty()) {
+		return true;
+	    }
+
+	    // Git applies the ignore rules and status.showUntrackedFiles
+	    GitCommander gitCommander = executeWithPaths(scan.getUntrackedPaths(), "git", "--literal-pathspecs",
+		    "status", "--porcelain");
+	    if (!gitCommander.isResponseOk()) {
+		return null;
+	    }
+	    return gitCommander.getProcessOutput().isEmpty();
+	} catch (IOException ioException) {
+	    debug("Fallback to Git for status: " + ioException);
+	    return null;
+	}
+    }
+
+    /**
+     * Says if the index differs from the HEAD commit. The tree cached in the
+     * index is compared with the tree of the HEAD commit when both can be read,
+     * else {@code git diff-index} is used.
+     *
+     * @return true or false, or null if Git failed
+     */
+    private Boolean hasStagedChanges(GitDirectory gitDirectory, IndexFile indexFile) throws IOException {
+	String head = new RefReader(gitDirectory).resolve("HEAD");
+	if (head == null) {
+	    return !indexFile.getEntries().isEmpty(); // Unborn branch: all entries are staged
+	}
+
+	String treeId = indexFile.getRootTreeId();
+	if (treeId != null) {
+	    GitObject commit = new ObjectReader(gitDirectory).read(head);
+	    if (commit != null && "commit".equals(commit.getType())) {
+		return !commit.getContentAsString().startsWith("tree " + treeId + "\n");
+	    }
+	}
+
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand("git", "diff-index", "--cached", "--quiet", "HEAD", "--");
+	int exitCode = gitCommander.getExitCode();
+	return exitCode == 0 || exitCode == 1 ? exitCode == 1 : null;
+    }
+
+    /**
+     * Executes a Git command limited to the specified paths. If the paths do not
+     * fit on a command line, the command is executed on the whole tree.
+     *
+     * @return the GitCommander holding the result
+     */
+    private GitCommander executeWithPaths(List<String> paths, String... command) {
+	List<String> arguments = new ArrayList<>(Arrays.asList(command));
+	long length = paths.stream().mapToLong(path -> path.length() + 1).sum();
+	if (length <= MAX_PATHS_LENGTH) {
+	    arguments.add("--");
+	    arguments.addAll(paths);
+	}
+
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand(arguments.toArray(new String[0]));
+	return gitCommander;
+    }
+
+    /**
+     * Creates a reader of the repository references.
+     *
+     * @return the reader, or null if the references cannot be read directly
+     */
+    private RefReader newRefReader() {
+	GitDirectory gitDirectory = GitDirectory.find(sympleGit.getDirectory());
+	if (gitDirectory == null) {
+	    return null;
+	}
+	try {
+	    return new RefReader(gitDirectory);
+	} catch (UnsupportedRefsException unsupportedRefsException) {
+	    debug("Fallback to Git: " + unsupportedRefsException);
+	    return null;
+	}
+    }
+
+    /**
+     * Gets a set of branches from the result cache, loading it on a cache miss.
+     * Only successful loads are cached.
+     *
+     * @return the cached set, or null if the load failed
+     */
+    private Set<String> getCached(GitResultCache resultCache, String key, Supplier<Set<String>> loader) {
+	try {
+	    Set<String> branches = resultCache.get(key, () -> {
+		Set<String> loaded = loader.get();
+		return isOk ? Collections.unmodifiableSet(loaded) : null;
+	    });
+	    isOk = branches != null;
+	    return branches;
+	} catch (IOException ioException) {
+	    isOk = false;
+	    errorMessage = ioException.toString();
+	    exception = ioException;
+	    return null;
+	}
+    }
+
     @Override
     public boolean isResponseOk() {
 	return isOk;
@@ -21,10 +21,21 @@ package com.symplegit.api.facilitator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Date;
+import java.util.stream.Stream;
 
 import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitObject;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
+import com.symplegit.api.log.CommitHistoryPager;
+import com.symplegit.api.log.CommitLogIterator;
+import com.symplegit.api.log.CommitRecord;
+import com.symplegit.api.log.HistoryQuery;
+import com.symplegit.internal.objects.ObjectReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+import com.symplegit.util.FrameworkDebug;
 
 /**
  * GitCommit provides functionality for handling Git commits. It includes
@@ -53,7 +64,12 @@ import com.symplegit.api.SympleGit;
  */
 public class GitCommit implements GitWrapper {
 
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(GitCommit.class);
+
+    private SympleGit sympleGit;
     private GitCommander gitCommander;
+    private boolean isOk;
     private String errorMessage;
     private Exception exception;
 
@@ -63,6 +79,7 @@ public class GitCommit implements GitWrapper {
      * @param sympleGit The SympleGit instance to be used for Git command execution.
      */
     public GitCommit(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
 	this.gitCommander = sympleGit.gitCommander();
     }
 
@@ -114,6 +131,46 @@ public class GitCommit implements GitWrapper {
 	return gitCommander.isResponseOk() ? gitCommander.getProcessOutputAsInputStream() : null;
     }
 
+    /**
+     * Retrieves the commit log as structured records, parsed while Git runs.
+     * Memory does not grow with the length of the log. <br>
+     * The returned iterator must be closed. See {@link CommitLogIterator}.
+     *
+     * @param options The options and revisions passed to {@code git log}, for
+     *                example {@code "--max-count=100", "main"}. None for the
+     *                history of the current branch.
+     * @return An iterator on the commits, newest first by default.
+     */
+    public CommitLogIterator getCommitLog(String... options) {
+	return CommitLogIterator.execute(sympleGit, options);
+    }
+
+    /**
+     * Retrieves the commit log as a Stream of structured records, parsed while
+     * Git runs. The Stream must be closed, for example with a
+     * try-with-resources statement: this kills Git if the Stream is not fully
+     * consumed.
+     *
+     * @param options The options and revisions passed to {@code git log}. None
+     *                for the history of the current branch.
+     * @return A Stream on the commits.
+     */
+    public Stream<CommitRecord> streamCommitLog(String... options) {
+	return getCommitLog(options).stream();
+    }
+
+    /**
+     * Returns a pager on the history, to read it page by page with a cursor.
+     * The next page is read in the background while the current one is used.
+     * The pager must be closed. See {@link CommitHistoryPager}.
+     *
+     * @param historyQuery The traversal options and the page size.
+     * @return A pager on the history.
+     */
+    public CommitHistoryPager getHistoryPager(HistoryQuery historyQuery) {
+	return new CommitHistoryPager(sympleGit, historyQuery);
+    }
+
     /**
      * Retrieves details of a specific commit given its hash.
      *
@@ -126,6 +183,69 @@ public class GitCommit implements GitWrapper {
 	return gitCommander.isResponseOk() ? gitCommander.getProcessOutput().trim() : null;
     }
 
+    /**
+     * Retrieves the metadata of a specific commit, as stored in the repository:
+     * tree, parents, author, committer and message. This is the output of
+     * {@code git cat-file commit <hash>}. <br>
+     * A commit designated by its full hash or by {@code HEAD} is read directly
+     * from the loose objects or the packs, without starting a Git process.
+     *
+     * @param commitHash The hash of the commit.
+     * @return A String containing the metadata of the specified commit.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public String getCommitMetadata(String commitHash) throws IOException {
+	GitObject commit = readCommitObject(commitHash);
+	if (commit != null) {
+	    isOk = true;
+	    return commit.getContentAsString();
+	}
+
+	executeGitCommandWithErrorHandler("git", "cat-file", "commit", commitHash);
+	return gitCommander.isResponseOk() ? gitCommander.getProcessOutput() : null;
+    }
+
+    /**
+     * Reads a commit from the repository files.
+     *
+     * @param commitHash the full hash of the commit, or HEAD
+     * @return the commit, or null if the Git command line must be used
+     */
+    private GitObject readCommitObject(String commitHash) {
+	if (commitHash == null) {
+	    return null;
+	}
+	GitDirectory gitDirectory = GitDirectory.find(sympleGit.getDirectory());
+	if (gitDirectory == null) {
+	    return null;
+	}
+
+	try {
+	    RefReader refReader = new RefReader(gitDirectory);
+	    if (refReader.usesReplaceObjects()) {
+		return null; // Git reads the replacement commit
+	    }
+
+	    String id = commitHash.trim();
+	    if (id.equals("HEAD")) {
+		id = refReader.resolve("HEAD");
+	    }
+	    if (!RefReader.isObjectId(id)) {
+		return null; // Abbreviated hash or revision expression
+	    }
+
+	    GitObject gitObject = new ObjectReader(gitDirectory).read(id);
+	    if (gitObject == null || !gitObject.getType().equals("commit")) {
+		return null; // Alternates, or a tag that Git peels
+	    }
+	    return gitObject;
+	} catch (IOException | RuntimeException exception) {
+	    // Includes the buffer exceptions of a corrupt pack or index
+	    debug("Fallback to Git for commit metadata: " + exception);
+	    return null;
+	}
+    }
+
     /**
      * Executes a Git command and handles errors generically.
      *
@@ -134,8 +254,9 @@ public class GitCommit implements GitWrapper {
      */
     private void executeGitCommandWithErrorHandler(String... command) throws IOException {
 	gitCommander.executeGitCommand(command);
+	isOk = gitCommander.isResponseOk();
 
-	if (!gitCommander.isResponseOk()) {
+	if (!isOk) {
 	    errorMessage = gitCommander.getProcessError();
 	    exception = gitCommander.getException();
 	}
@@ -143,7 +264,7 @@ public class GitCommit implements GitWrapper {
 
     @Override
     public boolean isResponseOk() {
-	return gitCommander.isResponseOk();
+	return isOk;
     }
 
     @Override
@@ -155,4 +276,15 @@ public class GitCommit implements GitWrapper {
     public Exception getException() {
 	return exception;
     }
+
+    /**
+     * Displays the specified message if the DEBUG flag is set.
+     *
+     * @param sMsg the debug message to display
+     */
+    protected void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
 }
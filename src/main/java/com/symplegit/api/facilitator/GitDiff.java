@@ -21,10 +21,20 @@ package com.symplegit.api.facilitator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.symplegit.api.GitCommander;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
+import com.symplegit.api.diff.DiffHandler;
+import com.symplegit.api.diff.DiffNameStatus;
+import com.symplegit.api.diff.DiffOptions;
+import com.symplegit.api.diff.DiffParser;
+import com.symplegit.api.diff.DiffShortStat;
+import com.symplegit.api.diff.DiffStat;
 
 /**
  * The GitDiff class is responsible for providing functionalities to compare
@@ -114,6 +124,236 @@ public class GitDiff implements GitWrapper {
 	return gitCommander.isResponseOk() ? gitCommander.getProcessOutput() : null;
     }
 
+    /**
+     * Parses the diff between two commits while Git computes it, and passes its
+     * files, hunks and lines to a handler. The diff is never held in memory.
+     * <br>
+     * If the handler throws an exception, Git is stopped,
+     * {@link #isResponseOk()} returns false and the exception is available with
+     * {@link #getException()}.
+     *
+     * @param commitHash1 The hash of the first commit.
+     * @param commitHash2 The hash of the second commit.
+     * @param diffOptions The options of the diff.
+     * @param diffHandler The receiver of the parsed diff.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public void parseDiff(String commitHash1, String commitHash2, DiffOptions diffOptions, DiffHandler diffHandler)
+	    throws IOException {
+	executeParsedDiff(diffOptions, diffHandler, commitHash1, commitHash2);
+    }
+
+    /**
+     * Parses the diff of currently staged changes while Git computes it. See
+     * {@link #parseDiff(String, String, DiffOptions, DiffHandler)}.
+     *
+     * @param diffOptions The options of the diff.
+     * @param diffHandler The receiver of the parsed diff.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public void parseStagedDiff(DiffOptions diffOptions, DiffHandler diffHandler) throws IOException {
+	executeParsedDiff(diffOptions, diffHandler, "--staged");
+    }
+
+    /**
+     * Parses the diff of a specific file while Git computes it. See
+     * {@link #parseDiff(String, String, DiffOptions, DiffHandler)}.
+     *
+     * @param filePath    The path to the file.
+     * @param diffOptions The options of the diff.
+     * @param diffHandler The receiver of the parsed diff.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public void parseFileDiff(String filePath, DiffOptions diffOptions, DiffHandler diffHandler)
+	    throws IOException {
+	executeParsedDiff(diffOptions, diffHandler, "--", filePath);
+    }
+
+    /**
+     * Gets the numbers of added and deleted lines of each file changed between
+     * two commits, without the patch. Renames are detected.
+     *
+     * @param commitHash1 The hash of the first commit.
+     * @param commitHash2 The hash of the second commit.
+     * @return The counts of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffStat getNumStat(String commitHash1, String commitHash2) throws IOException {
+	return executeSummaryDiff("--numstat", commitHash1, commitHash2) ? parseSummary(DiffStat::parse) : null;
+    }
+
+    /**
+     * Gets the numbers of added and deleted lines of each file of the currently
+     * staged changes. See {@link #getNumStat(String, String)}.
+     *
+     * @return The counts of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffStat getStagedNumStat() throws IOException {
+	return executeSummaryDiff("--numstat", "--staged") ? parseSummary(DiffStat::parse) : null;
+    }
+
+    /**
+     * Gets the numbers of added and deleted lines of each file of the working
+     * tree changes not yet staged. See {@link #getNumStat(String, String)}.
+     *
+     * @return The counts of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffStat getWorkingTreeNumStat() throws IOException {
+	return executeSummaryDiff("--numstat") ? parseSummary(DiffStat::parse) : null;
+    }
+
+    /**
+     * Gets the totals of the diff between two commits: numbers of changed
+     * files, inserted lines and deleted lines.
+     *
+     * @param commitHash1 The hash of the first commit.
+     * @param commitHash2 The hash of the second commit.
+     * @return The totals of the diff, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffShortStat getShortStat(String commitHash1, String commitHash2) throws IOException {
+	return executeSummaryDiff("--shortstat", commitHash1, commitHash2) ? parseShortStat() : null;
+    }
+
+    /**
+     * Gets the totals of the currently staged changes. See
+     * {@link #getShortStat(String, String)}.
+     *
+     * @return The totals of the diff, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffShortStat getStagedShortStat() throws IOException {
+	return executeSummaryDiff("--shortstat", "--staged") ? parseShortStat() : null;
+    }
+
+    /**
+     * Gets the totals of the working tree changes not yet staged. See
+     * {@link #getShortStat(String, String)}.
+     *
+     * @return The totals of the diff, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffShortStat getWorkingTreeShortStat() throws IOException {
+	return executeSummaryDiff("--shortstat") ? parseShortStat() : null;
+    }
+
+    /**
+     * Gets the status of each file changed between two commits, without
+     * comparing the contents of the files other than for rename detection.
+     *
+     * @param commitHash1 The hash of the first commit.
+     * @param commitHash2 The hash of the second commit.
+     * @return The status of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffNameStatus getNameStatus(String commitHash1, String commitHash2) throws IOException {
+	return executeSummaryDiff("--name-status", commitHash1, commitHash2) ? parseSummary(DiffNameStatus::parse)
+		: null;
+    }
+
+    /**
+     * Gets the status of each file of the currently staged changes. See
+     * {@link #getNameStatus(String, String)}.
+     *
+     * @return The status of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffNameStatus getStagedNameStatus() throws IOException {
+	return executeSummaryDiff("--name-status", "--staged") ? parseSummary(DiffNameStatus::parse) : null;
+    }
+
+    /**
+     * Gets the status of each file of the working tree changes not yet staged.
+     * See {@link #getNameStatus(String, String)}.
+     *
+     * @return The status of each file, or null if the command failed.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public DiffNameStatus getWorkingTreeNameStatus() throws IOException {
+	return executeSummaryDiff("--name-status") ? parseSummary(DiffNameStatus::parse) : null;
+    }
+
+    /**
+     * Runs a diff that outputs a summary instead of the patch, in a format
+     * independent from the diff settings of the user. Paths are NUL
+     * terminated and never quoted.
+     *
+     * @return true if the command succeeded
+     */
+    private boolean executeSummaryDiff(String summaryOption, String... arguments) throws IOException {
+	List<String> command = new ArrayList<>(Arrays.asList("git", "diff", "--no-color", "--no-ext-diff",
+		"--no-textconv", "-M", "-z", summaryOption));
+	command.addAll(Arrays.asList(arguments));
+	executeGitCommandWithErrorHandler(command.toArray(new String[0]));
+	return gitCommander.isResponseOk();
+    }
+
+    private <T> T parseSummary(SummaryParser<T> summaryParser) throws IOException {
+	try {
+	    return summaryParser.parse(gitCommander.getProcessOutputAsByteBuffer());
+	} catch (IOException e) {
+	    exception = e;
+	    throw e;
+	}
+    }
+
+    private DiffShortStat parseShortStat() throws IOException {
+	try {
+	    return DiffShortStat.parse(gitCommander.getProcessOutput());
+	} catch (IOException e) {
+	    exception = e;
+	    throw e;
+	}
+    }
+
+    /**
+     * Parser of the NUL terminated output of a summary diff.
+     */
+    @FunctionalInterface
+    private interface SummaryParser<T> {
+	T parse(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Runs a diff in the patch format expected by {@link DiffParser}, whatever
+     * the diff settings of the user: no color, no external diff, default
+     * prefixes and full object ids.
+     */
+    private void executeParsedDiff(DiffOptions diffOptions, DiffHandler diffHandler, String... arguments)
+	    throws IOException {
+	List<String> command = new ArrayList<>();
+	command.add("git");
+	if (diffOptions.getMaxFileSize() > 0) {
+	    // Files above the threshold are reported as binary, without being read
+	    command.add("-c");
+	    command.add("core.bigFileThreshold=" + diffOptions.getMaxFileSize());
+	}
+	command.addAll(Arrays.asList("diff", "--no-color", "--no-ext-diff", "--no-textconv", "--full-index",
+		"--src-prefix=a/", "--dst-prefix=b/"));
+	command.add(diffOptions.isDetectRenames() ? "-M" : "--no-renames");
+	if (diffOptions.isDetectCopies()) {
+	    command.add("-C");
+	}
+	command.addAll(Arrays.asList(arguments));
+
+	DiffParser diffParser = new DiffParser(diffHandler, diffOptions.isIncludeLines());
+	gitCommander.executeGitCommandToStream(diffParser, command.toArray(new String[0]));
+	if (!gitCommander.isResponseOk()) {
+	    errorMessage = gitCommander.getProcessError();
+	    exception = gitCommander.getException();
+	    return;
+	}
+
+	try {
+	    diffParser.finish();
+	} catch (IOException e) {
+	    exception = e;
+	    throw e;
+	}
+    }
+
     /**
      * Executes a Git command and handles errors generically.
      *
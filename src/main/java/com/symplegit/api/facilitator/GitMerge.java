@@ -20,10 +20,15 @@
 package com.symplegit.api.facilitator;
 
 import java.io.IOException;
+import java.util.Date;
 
 import com.symplegit.api.GitCommander;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
+import com.symplegit.internal.graph.CommitGraph;
+import com.symplegit.internal.graph.CommitResolver;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.util.FrameworkDebug;
 
 /**
  * The GitMerge class provides functionalities to manage merging operations in a
@@ -52,16 +57,30 @@ import com.symplegit.api.SympleGit;
  */
 public class GitMerge implements GitWrapper {
 
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(GitMerge.class);
+
+    private SympleGit sympleGit;
     private GitCommander gitCommander;
+    private boolean isOk;
     private String errorMessage;
     private Exception exception;
 
+    /** The commit-graph used by the last call to findInCommitGraph(). */
+    private CommitGraph commitGraph;
+
+    /** The Git directories and the resolver, found once per instance. */
+    private GitDirectory gitDirectory;
+    private CommitResolver commitResolver;
+    private boolean commitGraphUnsupported;
+
     /**
      * Constructs a GitMerge with a specified SympleGit instance.
      *
      * @param sympleGit The SympleGit instance to be used for Git command execution.
      */
     public GitMerge(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
 	this.gitCommander = sympleGit.gitCommander();
     }
 
@@ -97,6 +116,129 @@ public class GitMerge implements GitWrapper {
 	return gitCommander.isResponseOk() ? gitCommander.getProcessOutput() : null;
     }
 
+    /**
+     * Says if a commit is an ancestor of another commit, as
+     * {@code git merge-base --is-ancestor}. A commit is an ancestor of itself.
+     * This tells if a branch is merged into another one. <br>
+     * When both commits are in the commit-graph of the repository, the answer
+     * is computed without starting a Git process.
+     *
+     * @param ancestor   The possible ancestor: commit id, branch, tag or HEAD.
+     * @param descendant The possible descendant: commit id, branch, tag or HEAD.
+     * @return true if ancestor is an ancestor of descendant, false otherwise or
+     *         if an error occurred.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public boolean isAncestor(String ancestor, String descendant) throws IOException {
+	int[] positions = findInCommitGraph(ancestor, descendant);
+	if (positions != null) {
+	    try {
+		boolean result = commitGraph.isAncestor(positions[0], positions[1]);
+		isOk = true;
+		return result;
+	    } catch (IOException ioException) {
+		debug("Fallback to Git for ancestry: " + ioException);
+	    }
+	}
+
+	gitCommander.executeGitCommand("git", "merge-base", "--is-ancestor", ancestor, descendant);
+	return handleMergeBaseExitCode() && gitCommander.getExitCode() == 0;
+    }
+
+    /**
+     * Gets the best common ancestor of two commits, as {@code git merge-base}.
+     * <br>
+     * When both commits are in the commit-graph of the repository, the merge
+     * base is computed without starting a Git process.
+     *
+     * @param commit1 The first commit: commit id, branch, tag or HEAD.
+     * @param commit2 The second commit: commit id, branch, tag or HEAD.
+     * @return the id of the merge base, or null if the commits have no common
+     *         ancestor or if an error occurred.
+     * @throws IOException If an error occurs during command execution.
+     */
+    public String getMergeBase(String commit1, String commit2) throws IOException {
+	int[] positions = findInCommitGraph(commit1, commit2);
+	if (positions != null) {
+	    try {
+		int[] mergeBases = commitGraph.getMergeBases(positions[0], positions[1]);
+		isOk = true;
+		return mergeBases.length == 0 ? null : commitGraph.getObjectId(mergeBases[0]);
+	    } catch (IOException ioException) {
+		debug("Fallback to Git for merge base: " + ioException);
+	    }
+	}
+
+	gitCommander.executeGitCommand("git", "merge-base", commit1, commit2);
+	if (!handleMergeBaseExitCode() || gitCommander.getExitCode() != 0) {
+	    return null;
+	}
+	return gitCommander.getProcessOutput().trim();
+    }
+
+    /**
+     * Handles the result of git merge-base, which exits with 1 for a negative
+     * answer.
+     *
+     * @return true if the command succeeded
+     */
+    private boolean handleMergeBaseExitCode() throws IOException {
+	int exitCode = gitCommander.getExitCode();
+	isOk = (exitCode == 0 || exitCode == 1) && gitCommander.getException() == null;
+	if (!isOk) {
+	    errorMessage = gitCommander.getProcessError();
+	    exception = gitCommander.getException();
+	}
+	return isOk;
+    }
+
+    /**
+     * Finds commits in the commit-graph of the repository.
+     *
+     * @param revisions the revisions of the commits
+     * @return the positions of the commits in {@link #commitGraph}, or null if
+     *         a revision cannot be resolved or a commit is not in the graph
+     */
+    private int[] findInCommitGraph(String... revisions) {
+	if (commitGraphUnsupported) {
+	    return null;
+	}
+
+	try {
+	    if (commitResolver == null) {
+		gitDirectory = GitDirectory.find(sympleGit.getDirectory());
+		if (gitDirectory == null) {
+		    commitGraphUnsupported = true;
+		    return null;
+		}
+		commitResolver = new CommitResolver(gitDirectory);
+	    }
+	} catch (IOException ioException) {
+	    debug("References not readable, always fallback to Git: " + ioException);
+	    commitGraphUnsupported = true;
+	    return null;
+	}
+
+	try {
+	    commitGraph = CommitGraph.open(gitDirectory);
+	    if (commitGraph == null) {
+		return null;
+	    }
+	    int[] positions = new int[revisions.length];
+	    for (int i = 0; i < revisions.length; i++) {
+		String id = commitResolver.resolve(revisions[i]);
+		positions[i] = id == null ? -1 : commitGraph.findPosition(id);
+		if (positions[i] < 0) {
+		    return null; // Complex revision, or commit written after the graph
+		}
+	    }
+	    return positions;
+	} catch (IOException ioException) {
+	    debug("Fallback to Git: " + ioException);
+	    return null;
+	}
+    }
+
     /**
      * Executes a Git command and handles errors generically.
      *
@@ -105,8 +247,9 @@ public class GitMerge implements GitWrapper {
      */
     private void executeGitCommandWithErrorHandler(String... command) throws IOException {
 	gitCommander.executeGitCommand(command);
+	isOk = gitCommander.isResponseOk();
 
-	if (!gitCommander.isResponseOk()) {
+	if (!isOk) {
 	    errorMessage = gitCommander.getProcessError();
 	    exception = gitCommander.getException();
 	}
@@ -114,7 +257,7 @@ public class GitMerge implements GitWrapper {
 
     @Override
     public boolean isResponseOk() {
-	return gitCommander.isResponseOk();
+	return isOk;
     }
 
     @Override
@@ -126,4 +269,15 @@ public class GitMerge implements GitWrapper {
     public Exception getException() {
 	return exception;
     }
+
+    /**
+     * Displays the specified message if the DEBUG flag is set.
+     *
+     * @param sMsg the debug message to display
+     */
+    protected void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
 }
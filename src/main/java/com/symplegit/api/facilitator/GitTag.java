@@ -22,6 +22,7 @@ package com.symplegit.api.facilitator;
 import java.io.IOException;
 
 import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitResultCache;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
 
@@ -51,7 +52,9 @@ import com.symplegit.api.SympleGit;
  */
 public class GitTag implements GitWrapper {
 
+    private SympleGit sympleGit;
     private GitCommander gitCommander;
+    private boolean isOk = false;
     private String errorMessage;
     private Exception exception;
 
@@ -61,6 +64,7 @@ public class GitTag implements GitWrapper {
      * @param sympleGit The SympleGit instance to be used for Git command execution.
      */
     public GitTag(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
 	this.gitCommander = sympleGit.gitCommander();
     }
 
@@ -86,14 +90,31 @@ public class GitTag implements GitWrapper {
     }
 
     /**
-     * Lists all tags in the Git repository.
+     * Lists all tags in the Git repository. <br>
+     * If the result cache is enabled with
+     * {@link SympleGit.Builder#setResultCache(int)}, the tags are read from the
+     * cache as long as the references of the repository do not change.
      *
      * @return A string containing all the tags.
      * @throws IOException If an error occurs during command execution.
      */
     public String listTags() throws IOException {
+	GitResultCache resultCache = sympleGit.getResultCache();
+	if (resultCache == null) {
+	    return loadTags();
+	}
+
+	String tags = resultCache.get("git tag", this::loadTags);
+	isOk = tags != null;
+	return tags;
+    }
+
+    /**
+     * Lists the tags with {@code git tag}.
+     */
+    private String loadTags() throws IOException {
 	executeGitCommandWithErrorHandler("git", "tag");
-	return gitCommander.isResponseOk() ? gitCommander.getProcessOutput() : null;
+	return isOk ? gitCommander.getProcessOutput() : null;
     }
 
     /**
@@ -104,8 +125,9 @@ public class GitTag implements GitWrapper {
      */
     private void executeGitCommandWithErrorHandler(String... command) throws IOException {
 	gitCommander.executeGitCommand(command);
+	isOk = gitCommander.isResponseOk();
 
-	if (!gitCommander.isResponseOk()) {
+	if (!isOk) {
 	    errorMessage = gitCommander.getProcessError();
 	    exception = gitCommander.getException();
 	}
@@ -113,7 +135,7 @@ public class GitTag implements GitWrapper {
 
     @Override
     public boolean isResponseOk() {
-	return gitCommander.isResponseOk();
+	return isOk;
     }
 
     @Override
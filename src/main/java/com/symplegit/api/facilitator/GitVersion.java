@@ -22,6 +22,7 @@ package com.symplegit.api.facilitator;
 import java.io.IOException;
 
 import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitResultCache;
 import com.symplegit.api.GitWrapper;
 import com.symplegit.api.SympleGit;
 
@@ -51,7 +52,9 @@ import com.symplegit.api.SympleGit;
  */
 public class GitVersion implements GitWrapper {
 
+    private SympleGit sympleGit;
     private GitCommander gitCommander;
+    private boolean isOk = false;
     private String errorMessage;
     private Exception exception;
 
@@ -61,19 +64,37 @@ public class GitVersion implements GitWrapper {
      * @param sympleGit The SympleGit instance to be used for Git command execution.
      */
     public GitVersion(SympleGit sympleGit) {
+	this.sympleGit = sympleGit;
 	this.gitCommander = sympleGit.gitCommander();
     }
 
     /**
-     * Retrieves the current Git version.
+     * Retrieves the current Git version. <br>
+     * If the result cache is enabled with
+     * {@link SympleGit.Builder#setResultCache(int)}, the version is read once and
+     * then kept in the cache.
      *
      * @return The current Git version as a String.
      * @throws IOException If an error occurs during command execution.
      */
     public String getVersion() throws IOException {
+	GitResultCache resultCache = sympleGit.getResultCache();
+	if (resultCache == null) {
+	    return loadVersion();
+	}
+
+	String version = resultCache.getConstant("git --version", this::loadVersion);
+	isOk = version != null;
+	return version;
+    }
+
+    /**
+     * Reads the version with {@code git --version}.
+     */
+    private String loadVersion() throws IOException {
 	executeGitCommandWithErrorHandler("git", "--version");
 
-	if (gitCommander.isResponseOk()) {
+	if (isOk) {
 	    return gitCommander.getProcessOutput().trim();
 	}
 	return null;
@@ -87,8 +108,9 @@ public class GitVersion implements GitWrapper {
      */
     private void executeGitCommandWithErrorHandler(String... command) throws IOException {
 	gitCommander.executeGitCommand(command);
+	isOk = gitCommander.isResponseOk();
 
-	if (!gitCommander.isResponseOk()) {
+	if (!isOk) {
 	    errorMessage = gitCommander.getProcessError();
 	    exception = gitCommander.getException();
 	}
@@ -96,7 +118,7 @@ public class GitVersion implements GitWrapper {
 
     @Override
     public boolean isResponseOk() {
-	return gitCommander.isResponseOk();
+	return isOk;
     }
 
     @Override
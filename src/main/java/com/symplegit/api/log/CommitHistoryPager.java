@@ -0,0 +1,298 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * Reads a history page by page, for display. <br>
+ * Each page returns the cursor of the next one. While the caller renders a
+ * page, the next page is read in the background, so that it is usually in
+ * memory when requested. <br>
+ * The start revisions of the query are resolved to commit ids when the first
+ * page is read and are kept in the cursors: the pages do not shift when
+ * commits are added meanwhile. A page is read with {@code --skip} from the
+ * pinned commits, which is correct whatever the shape of the history. In
+ * first-parent mode, the history below the last commit seen is read directly
+ * instead. <br>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+ * try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, HistoryQuery.custom().build())) {
+ *     HistoryPage page = pager.getFirstPage();
+ *     render(page.getCommits());
+ *     while (page.hasNext()) {
+ *         page = pager.getPage(page.getNextCursor());
+ *         render(page.getCommits());
+ *     }
+ * }
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommitHistoryPager implements AutoCloseable {
+
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(CommitHistoryPager.class);
+
+    private final SympleGit sympleGit;
+    private final HistoryQuery historyQuery;
+
+    private HistoryCursor prefetchCursor = null;
+    private CompletableFuture<HistoryPage> prefetch = null;
+    private int prefetchHitCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param sympleGit    the SympleGit instance
+     * @param historyQuery the traversal options of the history
+     */
+    public CommitHistoryPager(SympleGit sympleGit, HistoryQuery historyQuery) {
+	this.sympleGit = Objects.requireNonNull(sympleGit, "sympleGit cannot be null!");
+	this.historyQuery = Objects.requireNonNull(historyQuery, "historyQuery cannot be null!");
+    }
+
+    /**
+     * Reads the first page of the history, and starts to read the second one in
+     * the background.
+     *
+     * @return the first page
+     * @throws IOException if a revision cannot be resolved or Git fails
+     */
+    public synchronized HistoryPage getFirstPage() throws IOException {
+	return getPage(null);
+    }
+
+    /**
+     * Reads the page at a cursor, and starts to read the next one in the
+     * background. The page is taken from memory if it has been read ahead.
+     *
+     * @param cursor the cursor returned by the previous page, or null for the
+     *               first page
+     * @return the page
+     * @throws IOException if Git fails or the pager is closed
+     */
+    public synchronized HistoryPage getPage(HistoryCursor cursor) throws IOException {
+	if (closed) {
+	    throw new IOException("History pager is closed.");
+	}
+
+	HistoryPage page = takePrefetchedPage(cursor);
+	if (page == null) {
+	    page = readPage(cursor);
+	}
+
+	if (page.hasNext()) {
+	    startPrefetch(page.getNextCursor());
+	}
+	return page;
+    }
+
+    /**
+     * Gets the page read ahead if it is the requested one. Another page read
+     * ahead is dropped.
+     *
+     * @return the page, or null if it must be read
+     */
+    private HistoryPage takePrefetchedPage(HistoryCursor cursor) throws IOException {
+	CompletableFuture<HistoryPage> future = prefetch;
+	boolean match = future != null && cursor != null && cursor.equals(prefetchCursor);
+	prefetch = null;
+	prefetchCursor = null;
+
+	if (future == null) {
+	    return null;
+	}
+	if (!match) {
+	    future.cancel(false);
+	    return null;
+	}
+
+	try {
+	    HistoryPage page = future.get();
+	    prefetchHitCount++;
+	    return page;
+	} catch (ExecutionException e) {
+	    // Read again by the caller thread, so that the failure is thrown there
+	    debug("History page read ahead failed: " + e.getCause());
+	    return null;
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("Interrupted while waiting for the history page.");
+	}
+    }
+
+    private void startPrefetch(HistoryCursor cursor) {
+	prefetchCursor = cursor;
+	prefetch = CompletableFuture.supplyAsync(() -> {
+	    try {
+		return readPage(cursor);
+	    } catch (IOException e) {
+		throw new UncheckedIOException(e);
+	    }
+	}, GitExecutors.defaultExecutor());
+    }
+
+    /**
+     * Reads one more commit than the page size, to know if a next page exists.
+     */
+    private HistoryPage readPage(HistoryCursor cursor) throws IOException {
+	List<String> startIds = cursor == null ? resolveRevisions() : cursor.getStartIds();
+	int offset = cursor == null ? 0 : cursor.getOffset();
+	int pageSize = historyQuery.getPageSize();
+
+	List<String> options = historyQuery.toFilterOptions();
+	if (cursor != null && historyQuery.isFirstParent() && countIncluded(startIds) == 1) {
+	    // The first-parent chain below the last commit seen is the rest of
+	    // the history: no need to walk the previous pages again
+	    options.add("--skip=1");
+	    options.add("--max-count=" + (pageSize + 1));
+	    for (String startId : startIds) {
+		if (startId.startsWith("^")) {
+		    options.add(startId);
+		}
+	    }
+	    options.add(cursor.getLastSeenId());
+	} else {
+	    if (offset > 0) {
+		options.add("--skip=" + offset);
+	    }
+	    options.add("--max-count=" + (pageSize + 1));
+	    options.addAll(startIds);
+	}
+	options.add("--");
+	options.addAll(historyQuery.getPaths());
+
+	debug("Reading history page at offset " + offset + ": " + options);
+
+	List<CommitRecord> commits = new ArrayList<>(pageSize + 1);
+	try (CommitLogIterator iterator = CommitLogIterator.execute(sympleGit, options.toArray(new String[0]))) {
+	    while (iterator.hasNext()) {
+		commits.add(iterator.next());
+	    }
+	} catch (UncheckedIOException e) {
+	    throw e.getCause();
+	}
+
+	if (commits.size() <= pageSize) {
+	    return new HistoryPage(commits, null);
+	}
+	commits.remove(pageSize);
+	HistoryCursor nextCursor = new HistoryCursor(startIds, commits.get(pageSize - 1).getId(), offset + pageSize);
+	return new HistoryPage(commits, nextCursor);
+    }
+
+    /**
+     * Resolves the revisions of the query to commit ids, so that the pages do
+     * not depend on the moves of the branches.
+     */
+    private List<String> resolveRevisions() throws IOException {
+	List<String> command = new ArrayList<>(List.of("git", "rev-parse", "--revs-only"));
+	command.addAll(historyQuery.getRevisions());
+	command.add("--");
+
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand(command.toArray(new String[0]));
+	if (!gitCommander.isResponseOk()) {
+	    throw new IOException("Cannot resolve revisions " + historyQuery.getRevisions() + ": "
+		    + gitCommander.getProcessError(), gitCommander.getException());
+	}
+
+	List<String> startIds = new ArrayList<>();
+	for (String line : gitCommander.getProcessOutput().split("\n")) {
+	    if (!line.trim().isEmpty()) {
+		startIds.add(line.trim());
+	    }
+	}
+	if (countIncluded(startIds) == 0) {
+	    throw new IOException("No revision to start from: " + historyQuery.getRevisions());
+	}
+	return startIds;
+    }
+
+    private static int countIncluded(List<String> startIds) {
+	int count = 0;
+	for (String startId : startIds) {
+	    if (!startId.startsWith("^")) {
+		count++;
+	    }
+	}
+	return count;
+    }
+
+    /**
+     * Gets the number of pages that were taken from the read ahead.
+     *
+     * @return the number of pages served from memory
+     */
+    public synchronized int getPrefetchHitCount() {
+	return prefetchHitCount;
+    }
+
+    /**
+     * Gets the traversal options of the history.
+     *
+     * @return the history query
+     */
+    public HistoryQuery getHistoryQuery() {
+	return historyQuery;
+    }
+
+    /**
+     * Closes the pager. A page being read ahead is dropped.
+     */
+    @Override
+    public synchronized void close() {
+	closed = true;
+	if (prefetch != null) {
+	    prefetch.cancel(false);
+	    prefetch = null;
+	    prefetchCursor = null;
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
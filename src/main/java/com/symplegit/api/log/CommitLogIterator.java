@@ -0,0 +1,274 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.util.FrameworkDebug;
+import com.symplegit.util.GitExecutors;
+
+/**
+ * Iterates on the commits of a {@code git log}, parsed from the process output
+ * while Git runs. <br>
+ * The commits are read by a background task into a bounded queue: memory stays
+ * constant whatever the length of the log, and Git is paused when the caller
+ * does not consume. <br>
+ * The iterator must be closed: closing it before the end kills the Git
+ * process. A failure of Git is thrown as an {@link UncheckedIOException} by
+ * {@link #hasNext()} once the commits preceding the failure have been
+ * returned. <br>
+ * The timeout of the SympleGit instance applies to the whole iteration.
+ * Setting {@link SympleGit.Builder#setSeparateErrorStream(boolean)} is
+ * recommended, so that warnings of Git do not mix with the commits.
+ * <br>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+ * try (CommitLogIterator iterator = CommitLogIterator.execute(sympleGit, "--first-parent", "main")) {
+ *     while (iterator.hasNext()) {
+ *         CommitRecord commitRecord = iterator.next();
+ *         System.out.println(commitRecord.getId() + " " + commitRecord.getSubject());
+ *     }
+ * }
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommitLogIterator implements Iterator<CommitRecord>, AutoCloseable {
+
+    /** Debug flag. */
+    public static boolean DEBUG = FrameworkDebug.isSet(CommitLogIterator.class);
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /** Marks the end of the log in the queue. */
+    private static final CommitRecord END = CommitRecord.custom("").build();
+
+    private final BlockingQueue<CommitRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final GitCommander gitCommander;
+    private final String[] command;
+
+    private volatile boolean closed = false;
+    private volatile RuntimeException failure = null;
+    private Future<?> task;
+
+    private CommitRecord next = null;
+    private boolean ended = false;
+
+    private CommitLogIterator(SympleGit sympleGit, String[] command) {
+	this.gitCommander = sympleGit.gitCommander();
+	this.command = command;
+    }
+
+    /**
+     * Starts a {@code git log} and returns an iterator on its commits.
+     *
+     * @param sympleGit the SympleGit instance
+     * @param options   the options and revisions passed to {@code git log}, for
+     *                  example {@code "--max-count=100", "main", "--", "src"}.
+     *                  Options that change the output format must not be used.
+     * @return an iterator on the commits, to be closed
+     */
+    public static CommitLogIterator execute(SympleGit sympleGit, String... options) {
+	Objects.requireNonNull(sympleGit, "sympleGit cannot be null!");
+	Objects.requireNonNull(options, "options cannot be null!");
+
+	List<String> command = new ArrayList<>(Arrays.asList("git", "log", "--no-color", "--no-show-signature",
+		"--encoding=UTF-8", "--date=raw", "--format=" + CommitLogParser.FORMAT));
+	command.addAll(Arrays.asList(options));
+
+	CommitLogIterator iterator = new CommitLogIterator(sympleGit, command.toArray(new String[0]));
+	// The unbounded shared executor: the command itself runs on the executor
+	// of the SympleGit instance, which may be bounded
+	iterator.task = GitExecutors.defaultExecutor().submit(iterator::produce);
+	return iterator;
+    }
+
+    /**
+     * Runs Git and puts the parsed commits in the queue, then the end marker.
+     */
+    private void produce() {
+	CommitLogParser parser = new CommitLogParser(this::put);
+	try {
+	    gitCommander.executeGitCommandToStream(parser, command);
+	    if (!closed) {
+		checkResult(parser);
+	    }
+	} catch (IOException e) {
+	    failure = new UncheckedIOException(e);
+	} catch (RuntimeException e) {
+	    failure = e;
+	}
+
+	debug("git log ended after " + parser.getCount() + " commits.");
+	try {
+	    put(END);
+	} catch (IOException ignore) {
+	    // Closed
+	}
+    }
+
+    private void checkResult(CommitLogParser parser) throws IOException {
+	if (gitCommander.isResponseOk() && !parser.hasPendingBytes()) {
+	    return;
+	}
+
+	String error = gitCommander.getProcessError();
+	if (error == null || error.isEmpty()) {
+	    error = parser.getPendingText(); // Merged in the output
+	}
+	Exception exception = gitCommander.getException();
+	String message = "git log failed with exit code " + gitCommander.getExitCode()
+		+ (error.isEmpty() ? "" : ": " + error.trim());
+	throw exception == null ? new IOException(message) : new IOException(message, exception);
+    }
+
+    /**
+     * Puts a commit in the queue, waiting while it is full.
+     *
+     * @throws IOException if the iterator is closed: stops the parsing and kills
+     *                     Git
+     */
+    private void put(CommitRecord commitRecord) throws IOException {
+	try {
+	    while (!queue.offer(commitRecord, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+		if (closed) {
+		    throw new IOException("Commit log iterator closed.");
+		}
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("Commit log iterator interrupted.");
+	}
+    }
+
+    /**
+     * Says if the log has more commits. Waits for Git if the next commit is not
+     * parsed yet.
+     *
+     * @return true if the log has more commits
+     * @throws UncheckedIOException if Git failed or its output cannot be parsed
+     */
+    @Override
+    public boolean hasNext() {
+	if (next != null) {
+	    return true;
+	}
+	if (ended || closed) {
+	    return false;
+	}
+
+	CommitRecord commitRecord;
+	try {
+	    commitRecord = queue.take();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for git log."));
+	}
+
+	if (commitRecord == END) {
+	    ended = true;
+	    if (failure != null) {
+		throw failure;
+	    }
+	    return false;
+	}
+	next = commitRecord;
+	return true;
+    }
+
+    /**
+     * Returns the next commit of the log.
+     *
+     * @return the next commit
+     * @throws NoSuchElementException if the log has no more commits
+     * @throws UncheckedIOException   if Git failed or its output cannot be parsed
+     */
+    @Override
+    public CommitRecord next() {
+	if (!hasNext()) {
+	    throw new NoSuchElementException();
+	}
+	CommitRecord commitRecord = next;
+	next = null;
+	return commitRecord;
+    }
+
+    /**
+     * Returns a sequential Stream on the remaining commits. Closing the Stream
+     * closes this iterator.
+     *
+     * @return a Stream on the remaining commits
+     */
+    public Stream<CommitRecord> stream() {
+	Spliterator<CommitRecord> spliterator = Spliterators.spliteratorUnknownSize(this,
+		Spliterator.ORDERED | Spliterator.NONNULL);
+	return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Closes the iterator. Kills the Git process if it is still running.
+     */
+    @Override
+    public void close() {
+	if (closed) {
+	    return;
+	}
+	closed = true;
+	next = null;
+	queue.clear();
+	if (task != null) {
+	    task.cancel(true);
+	}
+    }
+
+    /**
+     * Prints a debug message with the current timestamp if debugging is enabled.
+     *
+     * @param sMsg The debug message to be printed.
+     */
+    private static void debug(String sMsg) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + sMsg);
+	}
+    }
+}
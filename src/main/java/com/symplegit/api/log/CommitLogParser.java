@@ -0,0 +1,206 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Incremental parser of the output of {@code git log} with the format of
+ * {@link #FORMAT}: 10 fields terminated by a NUL byte, followed by the new line
+ * that Git adds after each commit. <br>
+ * Bytes are parsed as they are written, whatever the chunks: a commit is
+ * passed to the sink as soon as its last field is complete, so that memory
+ * does not grow with the length of the log. The field buffer and the record
+ * builder are reused from one commit to the next.
+ *
+ * @author KawanSoft SAS
+ */
+class CommitLogParser extends OutputStream {
+
+    /** The format passed to {@code git log --format}, with raw dates. */
+    static final String FORMAT = "%H%x00%P%x00%an%x00%ae%x00%ad%x00%cn%x00%ce%x00%cd%x00%s%x00%b%x00";
+
+    private static final int FIELD_COUNT = 10;
+    private static final String[] NO_PARENTS = new String[0];
+
+    /**
+     * Receives the parsed commits.
+     */
+    @FunctionalInterface
+    interface Sink {
+	/**
+	 * Receives a commit.
+	 *
+	 * @param commitRecord the commit
+	 * @throws IOException to stop the parsing
+	 */
+	void accept(CommitRecord commitRecord) throws IOException;
+    }
+
+    private final Sink sink;
+    private final CommitRecord.Builder builder = CommitRecord.custom(null);
+    private final String[] fields = new String[FIELD_COUNT];
+
+    private byte[] buffer = new byte[256];
+    private int length = 0;
+    private int fieldIndex = 0;
+    private long count = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param sink the receiver of the parsed commits
+     */
+    CommitLogParser(Sink sink) {
+	this.sink = sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+	parse((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int len) throws IOException {
+	int end = offset + len;
+	for (int i = offset; i < end; i++) {
+	    byte b = bytes[i];
+	    if (b != 0 && b != '\n') {
+		// Fast path: plain field content
+		if (length == buffer.length) {
+		    buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		buffer[length++] = b;
+	    } else {
+		parse(b);
+	    }
+	}
+    }
+
+    private void parse(byte b) throws IOException {
+	if (b == '\n' && fieldIndex == 0 && length == 0) {
+	    return; // Terminator of the previous commit
+	}
+	if (b != 0) {
+	    if (length == buffer.length) {
+		buffer = Arrays.copyOf(buffer, length * 2);
+	    }
+	    buffer[length++] = b;
+	    return;
+	}
+
+	fields[fieldIndex] = fieldIndex == 0 ? parseId() : new String(buffer, 0, length, StandardCharsets.UTF_8);
+	length = 0;
+	if (++fieldIndex == FIELD_COUNT) {
+	    fieldIndex = 0;
+	    sink.accept(buildRecord());
+	    count++;
+	}
+    }
+
+    private String parseId() throws IOException {
+	if (!isObjectId(buffer, length)) {
+	    throw new IOException("Unexpected git log output: " + getPendingText());
+	}
+	return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private CommitRecord buildRecord() throws IOException {
+	builder.setId(fields[0]);
+	builder.setParentIds(fields[1].isEmpty() ? NO_PARENTS : fields[1].split(" "));
+	builder.setAuthor(fields[2], fields[3]);
+	builder.setCommitter(fields[5], fields[6]);
+	long[] date = parseRawDate(fields[4]);
+	builder.setAuthorTime(date[0], (int) date[1]);
+	date = parseRawDate(fields[7]);
+	builder.setCommitTime(date[0], (int) date[1]);
+	builder.setMessage(fields[8], stripTrailingNewLine(fields[9]));
+	return builder.build();
+    }
+
+    /**
+     * Parses a date of the raw format: seconds since the epoch, a space and the
+     * time zone as {@code +hhmm}.
+     *
+     * @return the seconds and the offset in minutes
+     */
+    private static long[] parseRawDate(String rawDate) throws IOException {
+	try {
+	    int space = rawDate.indexOf(' ');
+	    long seconds = Long.parseLong(space < 0 ? rawDate : rawDate.substring(0, space));
+	    int offsetMinutes = 0;
+	    if (space > 0) {
+		int zone = Integer.parseInt(rawDate.substring(space + 1));
+		offsetMinutes = (zone / 100) * 60 + zone % 100;
+	    }
+	    return new long[] { seconds, offsetMinutes };
+	} catch (NumberFormatException e) {
+	    throw new IOException("Invalid raw date in git log output: " + rawDate, e);
+	}
+    }
+
+    private static String stripTrailingNewLine(String body) {
+	return body.endsWith("\n") ? body.substring(0, body.length() - 1) : body;
+    }
+
+    private static boolean isObjectId(byte[] bytes, int length) {
+	if (length != 40 && length != 64) {
+	    return false;
+	}
+	for (int i = 0; i < length; i++) {
+	    byte b = bytes[i];
+	    if (!(b >= '0' && b <= '9') && !(b >= 'a' && b <= 'f')) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Says if the parser holds the start of a commit that was not terminated.
+     *
+     * @return true if bytes were written after the last complete commit
+     */
+    boolean hasPendingBytes() {
+	return fieldIndex != 0 || length != 0;
+    }
+
+    /**
+     * Gets the bytes written after the last complete commit: error messages of
+     * Git when its error stream is merged with the output.
+     *
+     * @return the pending field, decoded as UTF-8 and trimmed
+     */
+    String getPendingText() {
+	return new String(buffer, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Gets the number of parsed commits.
+     *
+     * @return the number of commits passed to the sink
+     */
+    long getCount() {
+	return count;
+    }
+}
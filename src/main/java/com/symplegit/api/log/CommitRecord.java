@@ -0,0 +1,327 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One commit of a log: id, parents, author, committer, dates, subject and
+ * body. <br>
+ * Dates are kept as seconds since the epoch plus the time zone offset recorded
+ * by Git, and are converted to an {@link OffsetDateTime} on demand. Instances
+ * are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommitRecord {
+
+    private static final String[] NO_PARENTS = new String[0];
+
+    private final String id;
+    private final String[] parentIds;
+    private final String authorName;
+    private final String authorEmail;
+    private final long authorTime;
+    private final int authorOffsetMinutes;
+    private final String committerName;
+    private final String committerEmail;
+    private final long commitTime;
+    private final int commitOffsetMinutes;
+    private final String subject;
+    private final String body;
+
+    private CommitRecord(Builder builder) {
+	this.id = builder.id;
+	this.parentIds = builder.parentIds;
+	this.authorName = builder.authorName;
+	this.authorEmail = builder.authorEmail;
+	this.authorTime = builder.authorTime;
+	this.authorOffsetMinutes = builder.authorOffsetMinutes;
+	this.committerName = builder.committerName;
+	this.committerEmail = builder.committerEmail;
+	this.commitTime = builder.commitTime;
+	this.commitOffsetMinutes = builder.commitOffsetMinutes;
+	this.subject = builder.subject;
+	this.body = builder.body;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @param id the full commit id
+     * @return A new Builder instance.
+     */
+    public static Builder custom(String id) {
+	return new Builder(id);
+    }
+
+    /**
+     * Builder class for CommitRecord. A Builder may be reused: each build takes
+     * a snapshot of the values set so far.
+     */
+    public static class Builder {
+
+	private String id;
+	private String[] parentIds = NO_PARENTS;
+	private String authorName = "";
+	private String authorEmail = "";
+	private long authorTime = 0;
+	private int authorOffsetMinutes = 0;
+	private String committerName = "";
+	private String committerEmail = "";
+	private long commitTime = 0;
+	private int commitOffsetMinutes = 0;
+	private String subject = "";
+	private String body = "";
+
+	private Builder(String id) {
+	    this.id = id;
+	}
+
+	/**
+	 * Sets the commit id.
+	 *
+	 * @param id the full commit id
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setId(String id) {
+	    this.id = id;
+	    return this;
+	}
+
+	/**
+	 * Sets the ids of the parents.
+	 *
+	 * @param parentIds the full ids of the parents, in order
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setParentIds(String... parentIds) {
+	    this.parentIds = parentIds == null || parentIds.length == 0 ? NO_PARENTS : parentIds.clone();
+	    return this;
+	}
+
+	/**
+	 * Sets the author.
+	 *
+	 * @param name  the author name
+	 * @param email the author email
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setAuthor(String name, String email) {
+	    this.authorName = name;
+	    this.authorEmail = email;
+	    return this;
+	}
+
+	/**
+	 * Sets the author date.
+	 *
+	 * @param epochSeconds  the author date, in seconds since the epoch
+	 * @param offsetMinutes the time zone offset of the author, in minutes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setAuthorTime(long epochSeconds, int offsetMinutes) {
+	    this.authorTime = epochSeconds;
+	    this.authorOffsetMinutes = offsetMinutes;
+	    return this;
+	}
+
+	/**
+	 * Sets the committer.
+	 *
+	 * @param name  the committer name
+	 * @param email the committer email
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCommitter(String name, String email) {
+	    this.committerName = name;
+	    this.committerEmail = email;
+	    return this;
+	}
+
+	/**
+	 * Sets the commit date.
+	 *
+	 * @param epochSeconds  the commit date, in seconds since the epoch
+	 * @param offsetMinutes the time zone offset of the committer, in minutes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCommitTime(long epochSeconds, int offsetMinutes) {
+	    this.commitTime = epochSeconds;
+	    this.commitOffsetMinutes = offsetMinutes;
+	    return this;
+	}
+
+	/**
+	 * Sets the message.
+	 *
+	 * @param subject the first paragraph of the message, on one line
+	 * @param body    the rest of the message
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setMessage(String subject, String body) {
+	    this.subject = subject;
+	    this.body = body;
+	    return this;
+	}
+
+	/**
+	 * Builds the CommitRecord.
+	 *
+	 * @return the CommitRecord
+	 */
+	public CommitRecord build() {
+	    return new CommitRecord(this);
+	}
+    }
+
+    /**
+     * Gets the commit id.
+     *
+     * @return the full commit id
+     */
+    public String getId() {
+	return id;
+    }
+
+    /**
+     * Gets the ids of the parents.
+     *
+     * @return the full ids of the parents, in order. Empty for a root commit.
+     */
+    public List<String> getParentIds() {
+	return Collections.unmodifiableList(Arrays.asList(parentIds));
+    }
+
+    /**
+     * Says if the commit is a merge.
+     *
+     * @return true if the commit has more than one parent
+     */
+    public boolean isMerge() {
+	return parentIds.length > 1;
+    }
+
+    /**
+     * Gets the author name.
+     *
+     * @return the author name
+     */
+    public String getAuthorName() {
+	return authorName;
+    }
+
+    /**
+     * Gets the author email.
+     *
+     * @return the author email
+     */
+    public String getAuthorEmail() {
+	return authorEmail;
+    }
+
+    /**
+     * Gets the author date.
+     *
+     * @return the author date, in seconds since the epoch
+     */
+    public long getAuthorTime() {
+	return authorTime;
+    }
+
+    /**
+     * Gets the author date, in the time zone of the author.
+     *
+     * @return the author date
+     */
+    public OffsetDateTime getAuthorDate() {
+	return toDate(authorTime, authorOffsetMinutes);
+    }
+
+    /**
+     * Gets the committer name.
+     *
+     * @return the committer name
+     */
+    public String getCommitterName() {
+	return committerName;
+    }
+
+    /**
+     * Gets the committer email.
+     *
+     * @return the committer email
+     */
+    public String getCommitterEmail() {
+	return committerEmail;
+    }
+
+    /**
+     * Gets the commit date.
+     *
+     * @return the commit date, in seconds since the epoch
+     */
+    public long getCommitTime() {
+	return commitTime;
+    }
+
+    /**
+     * Gets the commit date, in the time zone of the committer.
+     *
+     * @return the commit date
+     */
+    public OffsetDateTime getCommitDate() {
+	return toDate(commitTime, commitOffsetMinutes);
+    }
+
+    /**
+     * Gets the subject: the first paragraph of the message, on one line.
+     *
+     * @return the subject
+     */
+    public String getSubject() {
+	return subject;
+    }
+
+    /**
+     * Gets the body: the message without its subject.
+     *
+     * @return the body, empty if the message has a subject only
+     */
+    public String getBody() {
+	return body;
+    }
+
+    private static OffsetDateTime toDate(long epochSeconds, int offsetMinutes) {
+	return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds),
+		ZoneOffset.ofTotalSeconds(offsetMinutes * 60));
+    }
+
+    @Override
+    public String toString() {
+	return "CommitRecord [id=" + id + ", parentIds=" + Arrays.toString(parentIds) + ", author=" + authorName
+		+ " <" + authorEmail + ">, authorTime=" + authorTime + ", subject=" + subject + "]";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The position of a page in a paginated history: the last commit seen, the
+ * number of commits seen, and the start revisions resolved to commit ids when
+ * the first page was read. <br>
+ * Because the start revisions are pinned, commits added to a branch while the
+ * history is browsed do not shift the pages. <br>
+ * A cursor can be kept between requests as a String with {@link #toToken()}
+ * and restored with {@link #parse(String)}. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class HistoryCursor {
+
+    private final List<String> startIds;
+    private final String lastSeenId;
+    private final int offset;
+
+    /**
+     * Constructor.
+     *
+     * @param startIds   the resolved start revisions, as output by
+     *                   {@code git rev-parse}: excluded ones start with
+     *                   {@code ^}
+     * @param lastSeenId the id of the last commit seen
+     * @param offset     the number of commits seen
+     */
+    HistoryCursor(List<String> startIds, String lastSeenId, int offset) {
+	this.startIds = Collections.unmodifiableList(startIds);
+	this.lastSeenId = Objects.requireNonNull(lastSeenId, "lastSeenId cannot be null!");
+	this.offset = offset;
+    }
+
+    /**
+     * Restores a cursor from its token. As tokens may come back from clients,
+     * the ids must be full commit ids, excluded start ids prefixed with
+     * {@code ^}, so that a token never passes options to Git.
+     *
+     * @param token a token returned by {@link #toToken()}
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    public static HistoryCursor parse(String token) {
+	Objects.requireNonNull(token, "token cannot be null!");
+	String[] parts = token.split("/", -1);
+	if (parts.length != 3 || parts[1].isEmpty() || parts[2].isEmpty()) {
+	    throw new IllegalArgumentException("Invalid history cursor: " + token);
+	}
+	try {
+	    int offset = Integer.parseInt(parts[0]);
+	    if (offset <= 0 || !isCommitId(parts[1])) {
+		throw new IllegalArgumentException("Invalid history cursor: " + token);
+	    }
+	    List<String> startIds = Arrays.asList(parts[2].split(",", -1));
+	    for (String startId : startIds) {
+		if (!isCommitId(startId.startsWith("^") ? startId.substring(1) : startId)) {
+		    throw new IllegalArgumentException("Invalid history cursor: " + token);
+		}
+	    }
+	    return new HistoryCursor(startIds, parts[1], offset);
+	} catch (NumberFormatException e) {
+	    throw new IllegalArgumentException("Invalid history cursor: " + token, e);
+	}
+    }
+
+    /**
+     * Says if a String is a full SHA-1 or SHA-256 commit id.
+     */
+    private static boolean isCommitId(String id) {
+	if (id.length() != 40 && id.length() != 64) {
+	    return false;
+	}
+	for (int i = 0; i < id.length(); i++) {
+	    char c = id.charAt(i);
+	    if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Gets the cursor as a String, to be restored with {@link #parse(String)}.
+     *
+     * @return the token of the cursor
+     */
+    public String toToken() {
+	return offset + "/" + lastSeenId + "/" + String.join(",", startIds);
+    }
+
+    /**
+     * Gets the start revisions resolved to commit ids.
+     *
+     * @return an unmodifiable list of the ids, excluded ones starting with
+     *         {@code ^}
+     */
+    public List<String> getStartIds() {
+	return startIds;
+    }
+
+    /**
+     * Gets the id of the last commit seen.
+     *
+     * @return the id of the last commit of the previous page
+     */
+    public String getLastSeenId() {
+	return lastSeenId;
+    }
+
+    /**
+     * Gets the number of commits seen.
+     *
+     * @return the number of commits in the previous pages
+     */
+    public int getOffset() {
+	return offset;
+    }
+
+    @Override
+    public int hashCode() {
+	return Objects.hash(startIds, lastSeenId, offset);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj) {
+	    return true;
+	}
+	if (!(obj instanceof HistoryCursor)) {
+	    return false;
+	}
+	HistoryCursor other = (HistoryCursor) obj;
+	return offset == other.offset && lastSeenId.equals(other.lastSeenId) && startIds.equals(other.startIds);
+    }
+
+    @Override
+    public String toString() {
+	return "HistoryCursor [" + toToken() + "]";
+    }
+}
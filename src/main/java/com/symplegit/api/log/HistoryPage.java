@@ -0,0 +1,80 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of a paginated history: its commits, and the cursor of the next
+ * page. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class HistoryPage {
+
+    private final List<CommitRecord> commits;
+    private final HistoryCursor nextCursor;
+
+    /**
+     * Constructor.
+     *
+     * @param commits    the commits of the page
+     * @param nextCursor the cursor of the next page, or null if this page is the
+     *                   last one
+     */
+    HistoryPage(List<CommitRecord> commits, HistoryCursor nextCursor) {
+	this.commits = Collections.unmodifiableList(commits);
+	this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the commits of the page.
+     *
+     * @return an unmodifiable list of the commits, in the order of
+     *         {@code git log}
+     */
+    public List<CommitRecord> getCommits() {
+	return commits;
+    }
+
+    /**
+     * Says if the history has more commits.
+     *
+     * @return true if a next page exists
+     */
+    public boolean hasNext() {
+	return nextCursor != null;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     *
+     * @return the cursor of the next page, or null if this page is the last one
+     */
+    public HistoryCursor getNextCursor() {
+	return nextCursor;
+    }
+
+    @Override
+    public String toString() {
+	return "HistoryPage [commits=" + commits.size() + ", nextCursor=" + nextCursor + "]";
+    }
+}
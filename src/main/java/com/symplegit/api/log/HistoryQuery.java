@@ -0,0 +1,284 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.log;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The traversal options of a paginated history: revisions, paths, author,
+ * date range, first-parent mode and page size. <br>
+ * Instances are immutable and are created with a Builder:
+ *
+ * <pre>
+ * <code>
+ * HistoryQuery historyQuery = HistoryQuery.custom()
+ *     .setPaths("src/main")
+ *     .setAuthor("jane@example.com")
+ *     .setSince(Instant.parse("2024-01-01T00:00:00Z"))
+ *     .setPageSize(100)
+ *     .build();
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public final class HistoryQuery {
+
+    /** The default number of commits of a page. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final List<String> revisions;
+    private final List<String> paths;
+    private final String author;
+    private final Instant since;
+    private final Instant until;
+    private final boolean firstParent;
+    private final int pageSize;
+
+    private HistoryQuery(Builder builder) {
+	this.revisions = builder.revisions;
+	this.paths = builder.paths;
+	this.author = builder.author;
+	this.since = builder.since;
+	this.until = builder.until;
+	this.firstParent = builder.firstParent;
+	this.pageSize = builder.pageSize;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @return A new Builder instance.
+     */
+    public static Builder custom() {
+	return new Builder();
+    }
+
+    /**
+     * Builder class for HistoryQuery.
+     */
+    public static class Builder {
+
+	private List<String> revisions = Collections.singletonList("HEAD");
+	private List<String> paths = Collections.emptyList();
+	private String author = null;
+	private Instant since = null;
+	private Instant until = null;
+	private boolean firstParent = false;
+	private int pageSize = DEFAULT_PAGE_SIZE;
+
+	private Builder() {
+	}
+
+	/**
+	 * Sets the revisions to start from. Defaults to {@code HEAD}.
+	 *
+	 * @param revisions the revisions, for example {@code "main"} or
+	 *                  {@code "v1.0..main"}
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setRevisions(String... revisions) {
+	    Objects.requireNonNull(revisions, "revisions cannot be null!");
+	    if (revisions.length == 0) {
+		throw new IllegalArgumentException("revisions cannot be empty!");
+	    }
+	    this.revisions = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(revisions)));
+	    return this;
+	}
+
+	/**
+	 * Limits the history to the commits that modify the paths.
+	 *
+	 * @param paths the paths, relative to the root of the repository
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setPaths(String... paths) {
+	    Objects.requireNonNull(paths, "paths cannot be null!");
+	    this.paths = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(paths)));
+	    return this;
+	}
+
+	/**
+	 * Limits the history to the commits of an author.
+	 *
+	 * @param author a regular expression matched against the name and email
+	 *               of the author, or null for all authors
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setAuthor(String author) {
+	    this.author = author;
+	    return this;
+	}
+
+	/**
+	 * Limits the history to the commits committed at or after a date.
+	 *
+	 * @param since the date, or null for no limit
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setSince(Instant since) {
+	    this.since = since;
+	    return this;
+	}
+
+	/**
+	 * Limits the history to the commits committed at or before a date.
+	 *
+	 * @param until the date, or null for no limit
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setUntil(Instant until) {
+	    this.until = until;
+	    return this;
+	}
+
+	/**
+	 * Follows only the first parent of merge commits.
+	 *
+	 * @param firstParent if true, follows only the first parent
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setFirstParent(boolean firstParent) {
+	    this.firstParent = firstParent;
+	    return this;
+	}
+
+	/**
+	 * Sets the number of commits of a page. Defaults to
+	 * {@link HistoryQuery#DEFAULT_PAGE_SIZE}.
+	 *
+	 * @param pageSize the number of commits of a page
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setPageSize(int pageSize) {
+	    if (pageSize <= 0) {
+		throw new IllegalArgumentException("pageSize must be > 0!");
+	    }
+	    this.pageSize = pageSize;
+	    return this;
+	}
+
+	/**
+	 * Builds the HistoryQuery.
+	 *
+	 * @return the HistoryQuery
+	 */
+	public HistoryQuery build() {
+	    return new HistoryQuery(this);
+	}
+    }
+
+    /**
+     * Builds the {@code git log} options that filter the commits, without the
+     * revisions and the paths.
+     *
+     * @return the filter options
+     */
+    List<String> toFilterOptions() {
+	List<String> options = new ArrayList<>();
+	if (firstParent) {
+	    options.add("--first-parent");
+	}
+	if (author != null) {
+	    options.add("--author=" + author);
+	}
+	if (since != null) {
+	    options.add("--since=@" + since.getEpochSecond());
+	}
+	if (until != null) {
+	    options.add("--until=@" + until.getEpochSecond());
+	}
+	return options;
+    }
+
+    /**
+     * Gets the revisions to start from.
+     *
+     * @return an unmodifiable list of the revisions
+     */
+    public List<String> getRevisions() {
+	return revisions;
+    }
+
+    /**
+     * Gets the paths that the commits must modify.
+     *
+     * @return an unmodifiable list of the paths, empty for no limit
+     */
+    public List<String> getPaths() {
+	return paths;
+    }
+
+    /**
+     * Gets the author filter.
+     *
+     * @return the author filter, or null
+     */
+    public String getAuthor() {
+	return author;
+    }
+
+    /**
+     * Gets the lower limit of the commit dates.
+     *
+     * @return the lower limit, or null
+     */
+    public Instant getSince() {
+	return since;
+    }
+
+    /**
+     * Gets the upper limit of the commit dates.
+     *
+     * @return the upper limit, or null
+     */
+    public Instant getUntil() {
+	return until;
+    }
+
+    /**
+     * Says if only the first parent of merge commits is followed.
+     *
+     * @return true if only the first parent is followed
+     */
+    public boolean isFirstParent() {
+	return firstParent;
+    }
+
+    /**
+     * Gets the number of commits of a page.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+	return pageSize;
+    }
+
+    @Override
+    public String toString() {
+	return "HistoryQuery [revisions=" + revisions + ", paths=" + paths + ", author=" + author + ", since=" + since
+		+ ", until=" + until + ", firstParent=" + firstParent + ", pageSize=" + pageSize + "]";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of the commands of one Git subcommand, collected by a
+ * {@link HistogramMetricsCollector}. Thread-safe and lock-free.
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommandStatistics {
+
+    private final String subcommand;
+    private final LatencyHistogram spawnTime = new LatencyHistogram();
+    private final LatencyHistogram wallTime = new LatencyHistogram();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder cancellationCount = new LongAdder();
+
+    CommandStatistics(String subcommand) {
+	this.subcommand = subcommand;
+    }
+
+    void record(GitCommandEvent event) {
+	if (event.isStarted()) {
+	    spawnTime.record(event.getSpawnNanos());
+	}
+	wallTime.record(event.getWallNanos());
+	outputBytes.add(event.getOutputBytes());
+	if (event.getExitCode() != 0) {
+	    failureCount.increment();
+	}
+	if (event.isTimedOut()) {
+	    timeoutCount.increment();
+	}
+	if (event.isCancelled()) {
+	    cancellationCount.increment();
+	}
+    }
+
+    /**
+     * Gets the Git subcommand of these statistics.
+     *
+     * @return the Git subcommand
+     */
+    public String getSubcommand() {
+	return subcommand;
+    }
+
+    /**
+     * Gets the number of executed commands.
+     *
+     * @return the number of executed commands
+     */
+    public long getCount() {
+	return wallTime.getCount();
+    }
+
+    /**
+     * Gets the histogram of the process spawn times, in nanoseconds.
+     *
+     * @return the spawn time histogram
+     */
+    public LatencyHistogram getSpawnTime() {
+	return spawnTime;
+    }
+
+    /**
+     * Gets the histogram of the wall times to the process exit, in nanoseconds.
+     *
+     * @return the wall time histogram
+     */
+    public LatencyHistogram getWallTime() {
+	return wallTime;
+    }
+
+    /**
+     * Gets the total number of output bytes of the commands.
+     *
+     * @return the total number of output bytes
+     */
+    public long getOutputBytes() {
+	return outputBytes.sum();
+    }
+
+    /**
+     * Gets the number of commands that did not exit with 0, including the timed
+     * out and cancelled ones.
+     *
+     * @return the number of failed commands
+     */
+    public long getFailureCount() {
+	return failureCount.sum();
+    }
+
+    /**
+     * Gets the number of commands killed because they timed out.
+     *
+     * @return the number of timed out commands
+     */
+    public long getTimeoutCount() {
+	return timeoutCount.sum();
+    }
+
+    /**
+     * Gets the number of commands killed because they were cancelled.
+     *
+     * @return the number of cancelled commands
+     */
+    public long getCancellationCount() {
+	return cancellationCount.sum();
+    }
+
+    @Override
+    public String toString() {
+	return "CommandStatistics [subcommand=" + subcommand + ", count=" + getCount() + ", wallTime="
+		+ wallTime.snapshot() + ", spawnTime=" + spawnTime.snapshot() + ", outputBytes=" + getOutputBytes()
+		+ ", failureCount=" + getFailureCount() + ", timeoutCount=" + getTimeoutCount()
+		+ ", cancellationCount=" + getCancellationCount() + "]";
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Describes one executed Git command, for a {@link GitMetricsCollector}. <br>
+ * Durations are in nanoseconds and are measured from the moment the command is
+ * submitted to the operating system. Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitCommandEvent {
+
+    private final String[] command;
+    private final String subcommand;
+    private final long spawnNanos;
+    private final long wallNanos;
+    private final long outputBytes;
+    private final int exitCode;
+    private final boolean timedOut;
+    private final boolean cancelled;
+    private final boolean started;
+
+    private GitCommandEvent(Builder builder) {
+	this.command = builder.command;
+	this.subcommand = subcommandOf(builder.command);
+	this.spawnNanos = builder.spawnNanos;
+	this.wallNanos = builder.wallNanos;
+	this.outputBytes = builder.outputBytes;
+	this.exitCode = builder.exitCode;
+	this.timedOut = builder.timedOut;
+	this.cancelled = builder.cancelled;
+	this.started = builder.started;
+    }
+
+    /**
+     * Creates a new Builder instance.
+     *
+     * @param command the executed Git command
+     * @return A new Builder instance.
+     */
+    public static Builder custom(String... command) {
+	return new Builder(command);
+    }
+
+    /**
+     * Builder class for GitCommandEvent.
+     */
+    public static class Builder {
+
+	private final String[] command;
+	private long spawnNanos = 0;
+	private long wallNanos = 0;
+	private long outputBytes = 0;
+	private int exitCode = -1;
+	private boolean timedOut = false;
+	private boolean cancelled = false;
+	private boolean started = false;
+
+	private Builder(String... command) {
+	    this.command = command == null ? new String[0] : command.clone();
+	}
+
+	/**
+	 * Sets the time spent starting the process.
+	 *
+	 * @param spawnNanos the spawn time in nanoseconds
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setSpawnNanos(long spawnNanos) {
+	    this.spawnNanos = spawnNanos;
+	    return this;
+	}
+
+	/**
+	 * Sets the time from the start request to the end of the process.
+	 *
+	 * @param wallNanos the wall time in nanoseconds
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setWallNanos(long wallNanos) {
+	    this.wallNanos = wallNanos;
+	    return this;
+	}
+
+	/**
+	 * Sets the number of bytes of the standard output.
+	 *
+	 * @param outputBytes the number of bytes
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setOutputBytes(long outputBytes) {
+	    this.outputBytes = outputBytes;
+	    return this;
+	}
+
+	/**
+	 * Sets the exit code of the process.
+	 *
+	 * @param exitCode the exit code, -1 if the process could not be executed
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setExitCode(int exitCode) {
+	    this.exitCode = exitCode;
+	    return this;
+	}
+
+	/**
+	 * Says if the command was killed because it timed out.
+	 *
+	 * @param timedOut true if the command timed out
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setTimedOut(boolean timedOut) {
+	    this.timedOut = timedOut;
+	    return this;
+	}
+
+	/**
+	 * Says if the command was killed because it was cancelled.
+	 *
+	 * @param cancelled true if the command was cancelled
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setCancelled(boolean cancelled) {
+	    this.cancelled = cancelled;
+	    return this;
+	}
+
+	/**
+	 * Says if the process was started.
+	 *
+	 * @param started true if the process was started
+	 * @return The Builder instance for chaining.
+	 */
+	public Builder setStarted(boolean started) {
+	    this.started = started;
+	    return this;
+	}
+
+	/**
+	 * Builds the GitCommandEvent.
+	 *
+	 * @return the GitCommandEvent
+	 */
+	public GitCommandEvent build() {
+	    return new GitCommandEvent(this);
+	}
+    }
+
+    /**
+     * Extracts the Git subcommand, used as label: the first argument after
+     * {@code git} that is not a global option. For example {@code log} for
+     * {@code git -c core.pager=cat log -1}. If there is no subcommand, the last
+     * option is used, for example {@code --version}.
+     *
+     * @param command the Git command
+     * @return the subcommand
+     */
+    public static String subcommandOf(String[] command) {
+	if (command.length < 2) {
+	    return "git";
+	}
+
+	int i = 1;
+	while (i < command.length && command[i].startsWith("-")) {
+	    String option = command[i];
+	    if (option.equals("-c") || option.equals("-C") || option.equals("--git-dir")
+		    || option.equals("--work-tree") || option.equals("--namespace")) {
+		i++; // Skip the option value
+	    }
+	    i++;
+	}
+
+	if (i < command.length) {
+	    return command[i];
+	}
+	String last = command[command.length - 1];
+	return last.startsWith("-") ? last : "git";
+    }
+
+    /**
+     * Gets the executed Git command.
+     *
+     * @return a copy of the executed Git command
+     */
+    public String[] getCommand() {
+	return command.clone();
+    }
+
+    /**
+     * Gets the Git subcommand, such as {@code log} or {@code rev-parse}, that
+     * labels the metrics.
+     *
+     * @return the Git subcommand
+     */
+    public String getSubcommand() {
+	return subcommand;
+    }
+
+    /**
+     * Gets the time spent starting the process: fork, exec and pipe setup.
+     *
+     * @return the spawn time in nanoseconds
+     */
+    public long getSpawnNanos() {
+	return spawnNanos;
+    }
+
+    /**
+     * Gets the time from the start request to the end of the process, including
+     * the output capture.
+     *
+     * @return the wall time in nanoseconds
+     */
+    public long getWallNanos() {
+	return wallNanos;
+    }
+
+    /**
+     * Gets the number of bytes of the standard output, captured or streamed.
+     *
+     * @return the number of bytes
+     */
+    public long getOutputBytes() {
+	return outputBytes;
+    }
+
+    /**
+     * Gets the exit code of the process.
+     *
+     * @return the exit code, -1 if the process could not be executed
+     */
+    public int getExitCode() {
+	return exitCode;
+    }
+
+    /**
+     * Says if the command was killed because it timed out.
+     *
+     * @return true if the command timed out
+     */
+    public boolean isTimedOut() {
+	return timedOut;
+    }
+
+    /**
+     * Says if the command was killed because it was cancelled.
+     *
+     * @return true if the command was cancelled
+     */
+    public boolean isCancelled() {
+	return cancelled;
+    }
+
+    /**
+     * Says if the process was started.
+     *
+     * @return true if the process was started
+     */
+    public boolean isStarted() {
+	return started;
+    }
+
+    @Override
+    public String toString() {
+	return "GitCommandEvent [command=" + Arrays.toString(command) + ", subcommand=" + subcommand
+		+ ", spawnNanos=" + spawnNanos + ", wallNanos=" + wallNanos + ", outputBytes=" + outputBytes
+		+ ", exitCode=" + exitCode + ", timedOut=" + timedOut + ", cancelled=" + cancelled + ", started="
+		+ started + "]";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+/**
+ * Receives the metrics of each Git command executed by a SympleGit instance.
+ * <br>
+ * Set it with
+ * {@link com.symplegit.api.SympleGit.Builder#setMetricsCollector(GitMetricsCollector)}.
+ * {@link HistogramMetricsCollector} is a ready to use implementation. <br>
+ * <br>
+ * Implementations must be thread-safe and fast: {@link #record(GitCommandEvent)}
+ * is called on the thread that ran the command, before the command returns.
+ * Exceptions thrown by implementations are ignored.
+ *
+ * @author KawanSoft SAS
+ */
+public interface GitMetricsCollector {
+
+    /**
+     * Records the metrics of an executed command.
+     *
+     * @param event the description of the command
+     */
+    void record(GitCommandEvent event);
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link GitMetricsCollector} that keeps, for each Git subcommand, the
+ * histograms of the spawn and wall times and the counters of output bytes,
+ * failures, timeouts and cancellations. It has no external dependency and is
+ * lock-free once a subcommand has been seen. <br>
+ * <br>
+ * Usage:
+ * 
+ * <pre>
+ * <code>
+	HistogramMetricsCollector metrics = new HistogramMetricsCollector();
+	final SympleGit sympleGit = SympleGit.custom()
+		.setDirectory(repoDirectoryPath)
+		.setMetricsCollector(metrics)
+		.build();
+	
+	// Run commands, then:
+	HistogramSnapshot logWallTime = metrics.getStatistics("log").getWallTime().snapshot();
+	System.out.println("git log p99: " + logWallTime.getP99() / 1000000 + " ms");
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public class HistogramMetricsCollector implements GitMetricsCollector {
+
+    private final ConcurrentMap<String, CommandStatistics> statistics = new ConcurrentHashMap<>();
+    private final CommandStatistics total = new CommandStatistics("*");
+
+    @Override
+    public void record(GitCommandEvent event) {
+	statistics.computeIfAbsent(event.getSubcommand(), CommandStatistics::new).record(event);
+	total.record(event);
+    }
+
+    /**
+     * Gets the statistics of a Git subcommand.
+     *
+     * @param subcommand the Git subcommand, such as {@code log}
+     * @return the statistics of the subcommand, or null if no such command was
+     *         executed
+     */
+    public CommandStatistics getStatistics(String subcommand) {
+	return statistics.get(subcommand);
+    }
+
+    /**
+     * Gets the statistics of all the executed commands.
+     *
+     * @return the statistics of all the executed commands
+     */
+    public CommandStatistics getTotalStatistics() {
+	return total;
+    }
+
+    /**
+     * Gets the statistics of each executed Git subcommand.
+     *
+     * @return the statistics per subcommand, sorted by subcommand
+     */
+    public Map<String, CommandStatistics> getAllStatistics() {
+	return Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+    @Override
+    public String toString() {
+	return "HistogramMetricsCollector " + getAllStatistics().values();
+    }
+}
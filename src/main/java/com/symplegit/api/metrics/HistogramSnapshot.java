@@ -0,0 +1,142 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}. <br>
+ * Percentiles are approximated by the middle of the bucket that holds them,
+ * bounded by the minimum and maximum recorded values.
+ *
+ * @author KawanSoft SAS
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+	this.counts = counts;
+	this.count = count;
+	this.sum = sum;
+	this.min = min;
+	this.max = max;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+	return count;
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return the smallest recorded value, 0 if there is none
+     */
+    public long getMin() {
+	return min;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the largest recorded value, 0 if there is none
+     */
+    public long getMax() {
+	return max;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return the mean, 0 if there is no value
+     */
+    public double getMean() {
+	return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the value below which the specified percentage of the recorded values
+     * fall.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, 0 if there is no value
+     */
+    public long getValueAtPercentile(double percentile) {
+	if (percentile < 0 || percentile > 100) {
+	    throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+	}
+	if (count == 0) {
+	    return 0;
+	}
+
+	long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+	long seen = 0;
+	for (int i = 0; i < counts.length; i++) {
+	    seen += counts[i];
+	    if (seen >= rank) {
+		long low = LatencyHistogram.lowestValueOf(i);
+		long high = LatencyHistogram.highestValueOf(i);
+		long middle = low + (high - low) / 2;
+		return Math.max(min, Math.min(max, middle));
+	    }
+	}
+	return max;
+    }
+
+    /**
+     * Gets the median.
+     *
+     * @return the 50th percentile
+     */
+    public long getP50() {
+	return getValueAtPercentile(50);
+    }
+
+    /**
+     * Gets the 99th percentile.
+     *
+     * @return the 99th percentile
+     */
+    public long getP99() {
+	return getValueAtPercentile(99);
+    }
+
+    /**
+     * Gets the 99.9th percentile.
+     *
+     * @return the 99.9th percentile
+     */
+    public long getP999() {
+	return getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public String toString() {
+	return "[count=" + count + ", min=" + min + ", p50=" + getP50() + ", p99=" + getP99() + ", p999="
+		+ getP999() + ", max=" + max + ", mean=" + String.format("%.1f", getMean()) + "]";
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of positive long values, such as durations in
+ * nanoseconds or sizes in bytes. <br>
+ * <br>
+ * Values are counted in log-linear buckets: each power of two is split into
+ * {@value #SUB_BUCKET_HALF_COUNT} buckets, so that the relative error of a
+ * reported percentile is below 1.6%, whatever the magnitude of the values. The
+ * histogram uses a fixed amount of memory (about 30 Kb) and
+ * {@link #record(long)} is a few atomic increments: it never blocks and never
+ * allocates. <br>
+ * <br>
+ * {@link #snapshot()} may be called concurrently with {@link #record(long)}.
+ *
+ * @author KawanSoft SAS
+ */
+public final class LatencyHistogram {
+
+    /** Values below 2^SUB_BUCKET_BITS have their own bucket. */
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+	if (value < 0) {
+	    value = 0;
+	}
+	counts.incrementAndGet(indexOf(value));
+	totalCount.incrementAndGet();
+	sum.addAndGet(value);
+	updateMin(value);
+	updateMax(value);
+    }
+
+    private void updateMin(long value) {
+	long current;
+	while (value < (current = min.get())) {
+	    if (min.compareAndSet(current, value)) {
+		return;
+	    }
+	}
+    }
+
+    private void updateMax(long value) {
+	long current;
+	while (value > (current = max.get())) {
+	    if (max.compareAndSet(current, value)) {
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+	return totalCount.get();
+    }
+
+    /**
+     * Takes a snapshot of the recorded values, to compute percentiles.
+     *
+     * @return the snapshot
+     */
+    public HistogramSnapshot snapshot() {
+	long[] snapshotCounts = new long[BUCKET_COUNT];
+	long count = 0;
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    snapshotCounts[i] = counts.get(i);
+	    count += snapshotCounts[i];
+	}
+	return new HistogramSnapshot(snapshotCounts, count, sum.get(), count == 0 ? 0 : min.get(),
+		count == 0 ? 0 : max.get());
+    }
+
+    /**
+     * Resets the histogram. Values recorded concurrently may be lost.
+     */
+    public void reset() {
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    counts.set(i, 0);
+	}
+	totalCount.set(0);
+	sum.set(0);
+	min.set(Long.MAX_VALUE);
+	max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Gets the bucket of a value: values below {@value #SUB_BUCKET_COUNT} have
+     * their own bucket; above, the {@value #SUB_BUCKET_BITS} most significant
+     * bits select the bucket in the power of two of the value.
+     */
+    static int indexOf(long value) {
+	int bits = 64 - Long.numberOfLeadingZeros(value);
+	if (bits <= SUB_BUCKET_BITS) {
+	    return (int) value;
+	}
+	int shift = bits - SUB_BUCKET_BITS;
+	return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the lowest value counted in a bucket.
+     */
+    static long lowestValueOf(int index) {
+	if (index < SUB_BUCKET_COUNT) {
+	    return index;
+	}
+	int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+	long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+	return subBucket << shift;
+    }
+
+    /**
+     * Gets the highest value counted in a bucket.
+     */
+    static long highestValueOf(int index) {
+	if (index < SUB_BUCKET_COUNT) {
+	    return index;
+	}
+	int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+	return lowestValueOf(index) + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+	return "LatencyHistogram " + snapshot();
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import com.symplegit.internal.objects.ObjectIds;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+import com.symplegit.internal.refs.UnsupportedRefsException;
+
+/**
+ * The commit-graph of a repository: the {@code objects/info/commit-graph} file
+ * or the layers of the {@code objects/info/commit-graphs} chain, memory-mapped.
+ * <br>
+ * <br>
+ * Commits are designated by their position in the graph. The graph gives the
+ * parents, the commit time and the generation number (topological level) of a
+ * commit without reading the commit object. Generation numbers allow to stop
+ * the walks early: a commit can only be an ancestor of commits with a greater
+ * generation. <br>
+ * <br>
+ * Commits written after the last {@code git commit-graph write} or
+ * {@code git gc} are not in the graph: callers must then fall back to Git.
+ * <br>
+ * The graphs of the {@value #MAX_CACHED_GRAPHS} most recently used
+ * repositories are cached, and reloaded when the commit-graph file or chain
+ * changes. Instances are immutable and thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommitGraph {
+
+    private static final int PARENT1 = 1;
+    private static final int PARENT2 = 2;
+    private static final int STALE = 4;
+    private static final int RESULT = 8;
+
+    /** The maximum number of cached graphs, one per repository. */
+    public static final int MAX_CACHED_GRAPHS = 16;
+
+    /**
+     * The cached graphs, per objects/info directory, least recently used first.
+     * The mappings of an evicted graph are released by the garbage collector.
+     */
+    private static final Map<File, CommitGraph> CACHE = new LinkedHashMap<File, CommitGraph>(16, 0.75f, true) {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<File, CommitGraph> eldest) {
+	    return size() > MAX_CACHED_GRAPHS;
+	}
+    };
+
+    private final String signature;
+    private final CommitGraphFile[] layers;
+    private final int[] layerStarts;
+    private final int commitCount;
+
+    private CommitGraph(String signature, List<CommitGraphFile> layers) {
+	this.signature = signature;
+	this.layers = layers.toArray(new CommitGraphFile[0]);
+	this.layerStarts = new int[this.layers.length];
+	int count = 0;
+	for (int i = 0; i < this.layers.length; i++) {
+	    layerStarts[i] = count;
+	    count += this.layers[i].getCommitCount();
+	}
+	this.commitCount = count;
+    }
+
+    /**
+     * Opens the commit-graph of a repository, or gets it from the cache if it
+     * has not changed.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @return the commit-graph, or null if the repository has no commit-graph,
+     *         or if the graph cannot be trusted: shallow clone, grafts or
+     *         replace refs change the parents of commits
+     * @throws IOException if a commit-graph file cannot be read or is invalid
+     */
+    public static CommitGraph open(GitDirectory gitDirectory) throws IOException {
+	Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	if (hasAlteredHistory(gitDirectory)) {
+	    return null;
+	}
+
+	File infoDir = new File(gitDirectory.getCommonDir(), "objects" + File.separator + "info");
+	File graphFile = new File(infoDir, "commit-graph");
+	File chainFile = new File(infoDir, "commit-graphs" + File.separator + "commit-graph-chain");
+
+	// Git reads the single file first, then the chain
+	boolean single = graphFile.isFile();
+	File source = single ? graphFile : chainFile;
+	if (!source.isFile()) {
+	    synchronized (CACHE) {
+		CACHE.remove(infoDir);
+	    }
+	    return null;
+	}
+	String signature = source.getName() + ":" + source.lastModified() + ":" + source.length();
+
+	CommitGraph cached;
+	synchronized (CACHE) {
+	    cached = CACHE.get(infoDir);
+	}
+	if (cached != null && cached.signature.equals(signature)) {
+	    return cached;
+	}
+
+	List<CommitGraphFile> layers = new ArrayList<>();
+	if (single) {
+	    layers.add(CommitGraphFile.open(graphFile));
+	} else {
+	    File graphsDir = chainFile.getParentFile();
+	    for (String line : Files.readAllLines(chainFile.toPath(), StandardCharsets.US_ASCII)) {
+		line = line.trim();
+		if (line.isEmpty()) {
+		    continue;
+		}
+		if (ObjectIds.fromHex(line) == null) {
+		    throw new IOException("Invalid commit-graph chain line: " + line);
+		}
+		layers.add(CommitGraphFile.open(new File(graphsDir, "graph-" + line + ".graph")));
+	    }
+	}
+
+	for (int i = 0; i < layers.size(); i++) {
+	    if (layers.get(i).getBaseGraphCount() != i) {
+		throw new IOException("Inconsistent commit-graph chain: " + layers.get(i).getFile());
+	    }
+	}
+
+	CommitGraph commitGraph = new CommitGraph(signature, layers);
+	synchronized (CACHE) {
+	    CACHE.put(infoDir, commitGraph);
+	}
+	return commitGraph;
+    }
+
+    /**
+     * Says if the parents of commits may differ from the ones stored in the
+     * commit objects: Git ignores the commit-graph in these cases.
+     */
+    private static boolean hasAlteredHistory(GitDirectory gitDirectory) throws IOException {
+	File commonDir = gitDirectory.getCommonDir();
+	if (new File(commonDir, "shallow").exists() || new File(commonDir, "info" + File.separator + "grafts").exists()) {
+	    return true;
+	}
+	try {
+	    // The parsed packed-refs file is cached, so this is cheap on each query
+	    return new RefReader(gitDirectory).hasReplaceRefs();
+	} catch (UnsupportedRefsException e) {
+	    return true; // The replace refs cannot be checked
+	}
+    }
+
+    /**
+     * Gets the number of commits in the graph.
+     *
+     * @return the number of commits
+     */
+    public int getCommitCount() {
+	return commitCount;
+    }
+
+    /**
+     * Finds the position of a commit in the graph.
+     *
+     * @param id the commit id, 40 or 64 hex digits
+     * @return the position of the commit, or -1 if it is not in the graph
+     */
+    public int findPosition(String id) {
+	byte[] rawId = ObjectIds.fromHex(id);
+	if (rawId == null || rawId.length != layers[0].getHashLength()) {
+	    return -1;
+	}
+	for (int i = layers.length - 1; i >= 0; i--) {
+	    int position = layers[i].findPosition(rawId);
+	    if (position >= 0) {
+		return layerStarts[i] + position;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Gets the id of a commit.
+     *
+     * @param position the position of the commit
+     * @return the commit id
+     */
+    public String getObjectId(int position) {
+	int layer = layerOf(position);
+	byte[] id = layers[layer].getObjectId(position - layerStarts[layer]);
+	return ObjectIds.toHex(id, 0, id.length);
+    }
+
+    /**
+     * Gets the positions of the parents of a commit, in order.
+     *
+     * @param position the position of the commit
+     * @return the positions of the parents, empty for a root commit
+     * @throws IOException if the graph is inconsistent
+     */
+    public int[] getParents(int position) throws IOException {
+	int layer = layerOf(position);
+	CommitGraphFile file = layers[layer];
+	int local = position - layerStarts[layer];
+
+	int parent1 = file.getParentValue(local, 0);
+	if (parent1 == CommitGraphFile.PARENT_NONE) {
+	    return new int[0];
+	}
+	int parent2 = file.getParentValue(local, 1);
+	if (parent2 == CommitGraphFile.PARENT_NONE) {
+	    return new int[] { checkPosition(parent1) };
+	}
+	if ((parent2 & CommitGraphFile.EDGE_FLAG) == 0) {
+	    return new int[] { checkPosition(parent1), checkPosition(parent2) };
+	}
+
+	// Octopus merge: the other parents are listed in the EDGE chunk
+	List<Integer> parents = new ArrayList<>();
+	parents.add(checkPosition(parent1));
+	int edgeIndex = parent2 & ~CommitGraphFile.EDGE_FLAG;
+	int edge;
+	do {
+	    edge = file.getEdge(edgeIndex++);
+	    parents.add(checkPosition(edge & ~CommitGraphFile.EDGE_FLAG));
+	} while ((edge & CommitGraphFile.EDGE_FLAG) == 0);
+
+	int[] result = new int[parents.size()];
+	for (int i = 0; i < result.length; i++) {
+	    result[i] = parents.get(i);
+	}
+	return result;
+    }
+
+    private int checkPosition(int position) throws IOException {
+	if (position < 0 || position >= commitCount) {
+	    throw new IOException("Invalid parent position in commit-graph: " + position);
+	}
+	return position;
+    }
+
+    /**
+     * Gets the commit time of a commit.
+     *
+     * @param position the position of the commit
+     * @return the commit time in seconds since the epoch
+     */
+    public long getCommitTime(int position) {
+	int layer = layerOf(position);
+	return layers[layer].getCommitTime(position - layerStarts[layer]);
+    }
+
+    /**
+     * Gets the generation number of a commit: its topological level.
+     *
+     * @param position the position of the commit
+     * @return the generation number, 0 if it was not computed by the writer
+     */
+    public int getGeneration(int position) {
+	int layer = layerOf(position);
+	return layers[layer].getGeneration(position - layerStarts[layer]);
+    }
+
+    private int layerOf(int position) {
+	Objects.checkIndex(position, commitCount);
+	int layer = layers.length - 1;
+	while (layerStarts[layer] > position) {
+	    layer--;
+	}
+	return layer;
+    }
+
+    /**
+     * Says if a commit is an ancestor of another commit. A commit is an ancestor
+     * of itself, as with {@code git merge-base --is-ancestor}. <br>
+     * The walk from the descendant does not go below the generation of the
+     * ancestor.
+     *
+     * @param ancestor   the position of the possible ancestor
+     * @param descendant the position of the possible descendant
+     * @return true if ancestor is an ancestor of descendant
+     * @throws IOException if the graph is inconsistent
+     */
+    public boolean isAncestor(int ancestor, int descendant) throws IOException {
+	if (ancestor == descendant) {
+	    return true;
+	}
+	int ancestorGeneration = getGeneration(ancestor);
+	if (ancestorGeneration > 0 && getGeneration(descendant) > 0 && getGeneration(descendant) <= ancestorGeneration) {
+	    return false;
+	}
+
+	BitSet visited = new BitSet();
+	int[] stack = new int[64];
+	int size = 0;
+	stack[size++] = descendant;
+	visited.set(descendant);
+
+	while (size > 0) {
+	    int commit = stack[--size];
+	    for (int parent : getParents(commit)) {
+		if (parent == ancestor) {
+		    return true;
+		}
+		if (visited.get(parent)) {
+		    continue;
+		}
+		visited.set(parent);
+		int generation = getGeneration(parent);
+		if (ancestorGeneration > 0 && generation > 0 && generation <= ancestorGeneration) {
+		    continue; // Too low to reach the ancestor
+		}
+		if (size == stack.length) {
+		    stack = Arrays.copyOf(stack, size * 2);
+		}
+		stack[size++] = parent;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Computes the best common ancestors of two commits, as
+     * {@code git merge-base --all}: common ancestors that are not ancestors of
+     * another common ancestor. <br>
+     * Both histories are painted down from the two commits, the most recent
+     * generations first, until only commits below a found common ancestor
+     * remain.
+     *
+     * @param commit1 the position of the first commit
+     * @param commit2 the position of the second commit
+     * @return the positions of the merge bases, most recent commit time first.
+     *         Empty if the commits have no common ancestor.
+     * @throws IOException if the graph is inconsistent
+     */
+    public int[] getMergeBases(int commit1, int commit2) throws IOException {
+	if (commit1 == commit2) {
+	    return new int[] { commit1 };
+	}
+
+	Map<Integer, Integer> flags = new HashMap<>();
+	Map<Integer, Integer> queuedCopies = new HashMap<>();
+	Comparator<Integer> order = Comparator.comparingInt((Integer commit) -> getGeneration(commit))
+		.thenComparingLong(commit -> getCommitTime(commit)).reversed();
+	PriorityQueue<Integer> queue = new PriorityQueue<>(order);
+	flags.put(commit1, PARENT1);
+	flags.put(commit2, PARENT2);
+	queue.add(commit1);
+	queue.add(commit2);
+	queuedCopies.put(commit1, 1);
+	queuedCopies.put(commit2, 1);
+
+	// The number of queued entries whose commit is not stale: the walk ends
+	// when only stale commits remain
+	int nonStaleCount = 2;
+
+	List<Integer> results = new ArrayList<>();
+	while (nonStaleCount > 0) {
+	    int commit = queue.poll();
+	    queuedCopies.merge(commit, -1, Integer::sum);
+	    int commitFlags = flags.get(commit);
+	    if ((commitFlags & STALE) == 0) {
+		nonStaleCount--;
+	    }
+
+	    int paint = commitFlags & (PARENT1 | PARENT2 | STALE);
+	    if (paint == (PARENT1 | PARENT2)) {
+		if ((commitFlags & RESULT) == 0) {
+		    flags.put(commit, commitFlags | RESULT);
+		    results.add(commit);
+		}
+		// The parents of a common ancestor cannot be best common ancestors
+		paint |= STALE;
+	    }
+
+	    for (int parent : getParents(commit)) {
+		int parentFlags = flags.getOrDefault(parent, 0);
+		if ((parentFlags & paint) == paint) {
+		    continue;
+		}
+		int copies = queuedCopies.getOrDefault(parent, 0);
+		if ((parentFlags & STALE) == 0 && (paint & STALE) != 0) {
+		    nonStaleCount -= copies; // Queued copies become stale
+		}
+		flags.put(parent, parentFlags | paint);
+		queue.add(parent);
+		queuedCopies.put(parent, copies + 1);
+		if (((parentFlags | paint) & STALE) == 0) {
+		    nonStaleCount++;
+		}
+	    }
+	}
+
+	// Drop the results that were reached again from a more recent result
+	List<Integer> mergeBases = new ArrayList<>();
+	for (int result : results) {
+	    if ((flags.get(result) & STALE) == 0) {
+		mergeBases.add(result);
+	    }
+	}
+	removeRedundant(mergeBases);
+	mergeBases.sort(Comparator.comparingLong((Integer commit) -> getCommitTime(commit)).reversed());
+
+	int[] positions = new int[mergeBases.size()];
+	for (int i = 0; i < positions.length; i++) {
+	    positions[i] = mergeBases.get(i);
+	}
+	return positions;
+    }
+
+    /**
+     * Removes the merge bases that are ancestors of another merge base.
+     */
+    private void removeRedundant(List<Integer> mergeBases) throws IOException {
+	if (mergeBases.size() < 2) {
+	    return;
+	}
+	List<Integer> redundant = new ArrayList<>();
+	for (int candidate : mergeBases) {
+	    for (int other : mergeBases) {
+		if (candidate != other && !redundant.contains(other) && isAncestor(candidate, other)) {
+		    redundant.add(candidate);
+		    break;
+		}
+	    }
+	}
+	mergeBases.removeAll(redundant);
+    }
+
+    @Override
+    public String toString() {
+	return "CommitGraph [layers=" + layers.length + ", commitCount=" + commitCount + "]";
+    }
+}
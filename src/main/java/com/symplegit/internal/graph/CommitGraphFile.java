@@ -0,0 +1,245 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped commit-graph file: a {@code commit-graph} file, or one
+ * layer of a commit-graph chain. <br>
+ * <br>
+ * The file starts with the signature {@code CGPH}, the version, the hash
+ * version, the number of chunks and the number of base layers, followed by a
+ * table of chunk offsets. The chunks used here are:
+ * <ul>
+ * <li>{@code OIDF}: fan-out table of the sorted commit ids;</li>
+ * <li>{@code OIDL}: the sorted commit ids;</li>
+ * <li>{@code CDAT}: per commit, the tree id, two parent positions and a word
+ * holding the generation number and the commit time;</li>
+ * <li>{@code EDGE}: the extra parents of octopus merges.</li>
+ * </ul>
+ * Parent positions are global to the chain: the commits of the base layers
+ * come first. <br>
+ * Instances are immutable and thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+final class CommitGraphFile {
+
+    private static final int SIGNATURE = 0x43475048; // CGPH
+    private static final int CHUNK_OIDF = 0x4f494446;
+    private static final int CHUNK_OIDL = 0x4f49444c;
+    private static final int CHUNK_CDAT = 0x43444154;
+    private static final int CHUNK_EDGE = 0x45444745;
+    private static final int HEADER_LENGTH = 8;
+    private static final int CHUNK_ENTRY_LENGTH = 12;
+
+    /** Parent value meaning "no parent". */
+    static final int PARENT_NONE = 0x70000000;
+
+    /** Flag of the second parent value or of an edge: see the EDGE chunk. */
+    static final int EDGE_FLAG = 0x80000000;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int hashLength;
+    private final int baseGraphCount;
+    private final int commitCount;
+
+    private final int fanoutOffset;
+    private final int idsOffset;
+    private final int dataOffset;
+    private final int edgesOffset;
+
+    private CommitGraphFile(File file, ByteBuffer buffer) throws IOException {
+	this.file = file;
+	this.buffer = buffer;
+
+	if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != SIGNATURE) {
+	    throw new IOException("Not a commit-graph file: " + file);
+	}
+	if (buffer.get(4) != 1) {
+	    throw new IOException("Unsupported commit-graph version " + buffer.get(4) + ": " + file);
+	}
+	int hashVersion = buffer.get(5);
+	if (hashVersion != 1 && hashVersion != 2) {
+	    throw new IOException("Unsupported commit-graph hash version " + hashVersion + ": " + file);
+	}
+	this.hashLength = hashVersion == 1 ? 20 : 32;
+	int chunkCount = buffer.get(6) & 0xff;
+	this.baseGraphCount = buffer.get(7) & 0xff;
+
+	int fanout = -1;
+	int ids = -1;
+	int data = -1;
+	int edges = -1;
+	for (int i = 0; i < chunkCount; i++) {
+	    int entry = HEADER_LENGTH + i * CHUNK_ENTRY_LENGTH;
+	    int id = buffer.getInt(entry);
+	    long offset = buffer.getLong(entry + 4);
+	    if (offset < 0 || offset >= buffer.capacity()) {
+		throw new IOException("Invalid commit-graph chunk offset: " + file);
+	    }
+	    if (id == CHUNK_OIDF) {
+		fanout = (int) offset;
+	    } else if (id == CHUNK_OIDL) {
+		ids = (int) offset;
+	    } else if (id == CHUNK_CDAT) {
+		data = (int) offset;
+	    } else if (id == CHUNK_EDGE) {
+		edges = (int) offset;
+	    }
+	}
+	if (fanout < 0 || ids < 0 || data < 0) {
+	    throw new IOException("Missing commit-graph chunk: " + file);
+	}
+
+	this.fanoutOffset = fanout;
+	this.idsOffset = ids;
+	this.dataOffset = data;
+	this.edgesOffset = edges;
+	this.commitCount = buffer.getInt(fanoutOffset + 255 * 4);
+	if (commitCount < 0 || (long) dataOffset + (long) commitCount * (hashLength + 16) > buffer.capacity()) {
+	    throw new IOException("Inconsistent commit-graph size: " + file);
+	}
+    }
+
+    /**
+     * Maps a commit-graph file.
+     *
+     * @param file the commit-graph file
+     * @return the mapped file
+     * @throws IOException if the file cannot be read, is larger than 2 Gb or is
+     *                     not a supported commit-graph file
+     */
+    static CommitGraphFile open(File file) throws IOException {
+	try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+	    if (channel.size() > Integer.MAX_VALUE) {
+		throw new IOException("Commit-graph too large to be mapped: " + file);
+	    }
+	    return new CommitGraphFile(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+	}
+    }
+
+    File getFile() {
+	return file;
+    }
+
+    int getHashLength() {
+	return hashLength;
+    }
+
+    int getBaseGraphCount() {
+	return baseGraphCount;
+    }
+
+    int getCommitCount() {
+	return commitCount;
+    }
+
+    /**
+     * Finds the local position of a commit with the fan-out table and a binary
+     * search.
+     *
+     * @param id the raw commit id
+     * @return the local position, or -1 if the commit is not in this file
+     */
+    int findPosition(byte[] id) {
+	int first = id[0] & 0xff;
+	int low = first == 0 ? 0 : buffer.getInt(fanoutOffset + (first - 1) * 4);
+	int high = buffer.getInt(fanoutOffset + first * 4) - 1;
+
+	while (low <= high) {
+	    int middle = (low + high) >>> 1;
+	    int comparison = compare(id, idsOffset + middle * hashLength);
+	    if (comparison == 0) {
+		return middle;
+	    }
+	    if (comparison < 0) {
+		high = middle - 1;
+	    } else {
+		low = middle + 1;
+	    }
+	}
+	return -1;
+    }
+
+    private int compare(byte[] id, int index) {
+	for (int i = 0; i < hashLength; i++) {
+	    int comparison = (id[i] & 0xff) - (buffer.get(index + i) & 0xff);
+	    if (comparison != 0) {
+		return comparison;
+	    }
+	}
+	return 0;
+    }
+
+    /**
+     * Gets the raw id of the commit at a local position.
+     */
+    byte[] getObjectId(int position) {
+	byte[] id = new byte[hashLength];
+	for (int i = 0; i < hashLength; i++) {
+	    id[i] = buffer.get(idsOffset + position * hashLength + i);
+	}
+	return id;
+    }
+
+    /**
+     * Gets the first or second parent value of the commit at a local position.
+     */
+    int getParentValue(int position, int parent) {
+	return buffer.getInt(dataOffset + position * (hashLength + 16) + hashLength + parent * 4);
+    }
+
+    /**
+     * Gets an entry of the EDGE chunk: the parent position, with
+     * {@link #EDGE_FLAG} set on the last parent.
+     */
+    int getEdge(int index) throws IOException {
+	if (edgesOffset < 0) {
+	    throw new IOException("Missing EDGE chunk: " + file);
+	}
+	return buffer.getInt(edgesOffset + index * 4);
+    }
+
+    /**
+     * Gets the topological level of the commit at a local position: 1 for a
+     * root commit, else 1 + the maximum level of its parents. 0 means that the
+     * writer did not compute it.
+     */
+    int getGeneration(int position) {
+	return buffer.getInt(dataOffset + position * (hashLength + 16) + hashLength + 8) >>> 2;
+    }
+
+    /**
+     * Gets the commit time of the commit at a local position, in seconds since
+     * the epoch (34 bits).
+     */
+    long getCommitTime(int position) {
+	int index = dataOffset + position * (hashLength + 16) + hashLength + 8;
+	long high = buffer.getInt(index) & 0x03L;
+	return high << 32 | (buffer.getInt(index + 4) & 0xffffffffL);
+    }
+}
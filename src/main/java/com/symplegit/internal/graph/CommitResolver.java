@@ -0,0 +1,130 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.graph;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.internal.objects.ObjectReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+
+/**
+ * Resolves simple revisions to commit ids from the repository files: full
+ * commit ids, {@code HEAD}, and reference names such as branches and tags.
+ * Annotated tags are peeled to their commit. <br>
+ * A short name is looked up with the rules of {@code git rev-parse}: the first
+ * existing of {@code <name>}, {@code refs/<name>}, {@code refs/tags/<name>},
+ * {@code refs/heads/<name>}, {@code refs/remotes/<name>} and
+ * {@code refs/remotes/<name>/HEAD}. <br>
+ * Other revisions, such as abbreviated ids or expressions like
+ * {@code HEAD~2}, are not resolved: callers must then fall back to Git.
+ *
+ * @author KawanSoft SAS
+ */
+public final class CommitResolver {
+
+    /**
+     * The rules of {@code git rev-parse} to expand a short reference name, in
+     * order, as {@link String#format(String, Object...)} patterns.
+     */
+    public static final List<String> REF_RULES = Collections.unmodifiableList(Arrays.asList("%s", "refs/%s",
+	    "refs/tags/%s", "refs/heads/%s", "refs/remotes/%s", "refs/remotes/%s/HEAD"));
+
+    private static final int MAX_TAG_DEPTH = 10;
+
+    private final RefReader refReader;
+    private final ObjectReader objectReader;
+
+    /**
+     * Constructs a CommitResolver.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @throws IOException if the references of the repository cannot be read
+     *                     directly
+     */
+    public CommitResolver(GitDirectory gitDirectory) throws IOException {
+	Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	this.refReader = new RefReader(gitDirectory);
+	this.objectReader = new ObjectReader(gitDirectory);
+    }
+
+    /**
+     * Resolves a revision to a commit id.
+     *
+     * @param revision a full commit id, HEAD, or a reference name
+     * @return the commit id, or null if the revision cannot be resolved from the
+     *         repository files
+     * @throws IOException if a reference or an object cannot be read or is not
+     *                     supported
+     */
+    public String resolve(String revision) throws IOException {
+	if (revision == null || revision.isEmpty()) {
+	    return null;
+	}
+	if (RefReader.isObjectId(revision)) {
+	    return peel(revision);
+	}
+
+	for (String rule : REF_RULES) {
+	    String id = refReader.resolve(String.format(rule, revision));
+	    if (id != null) {
+		return peel(id);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Peels annotated tags down to the commit they designate.
+     *
+     * @return the commit id, or null if the object is not found or is not a
+     *         commit
+     */
+    private String peel(String id) throws IOException {
+	for (int depth = 0; depth < MAX_TAG_DEPTH; depth++) {
+	    GitObjectHeader header = objectReader.readHeader(id);
+	    if (header == null) {
+		return null;
+	    }
+	    if (header.getType().equals("commit")) {
+		return id;
+	    }
+	    if (!header.getType().equals("tag")) {
+		return null;
+	    }
+
+	    // A tag starts with "object <id>"
+	    GitObject tag = objectReader.read(id);
+	    String content = tag.getContentAsString();
+	    int end = content.indexOf('\n');
+	    if (!content.startsWith("object ") || end < 0) {
+		throw new IOException("Invalid tag object: " + id);
+	    }
+	    id = content.substring("object ".length(), end);
+	}
+	return null;
+    }
+}
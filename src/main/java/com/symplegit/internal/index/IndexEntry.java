@@ -0,0 +1,209 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.index;
+
+import com.symplegit.internal.objects.ObjectIds;
+
+/**
+ * One entry of the index file: the path of a tracked file, its object id,
+ * its mode and the stat data cached by Git when the file was last known to be
+ * clean. <br>
+ * Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class IndexEntry {
+
+    /** The mode of a regular file. */
+    public static final int MODE_FILE = 0100644;
+    /** The mode of an executable file. */
+    public static final int MODE_EXECUTABLE = 0100755;
+    /** The mode of a symbolic link. */
+    public static final int MODE_SYMLINK = 0120000;
+    /** The mode of a submodule. */
+    public static final int MODE_GITLINK = 0160000;
+
+    private static final int FLAG_ASSUME_VALID = 0x8000;
+    private static final int FLAG_STAGE_MASK = 0x3000;
+    private static final int EXTENDED_FLAG_SKIP_WORKTREE = 0x4000;
+    private static final int EXTENDED_FLAG_INTENT_TO_ADD = 0x2000;
+
+    private final String path;
+    private final byte[] objectId;
+    private final int mode;
+    private final int flags;
+    private final int extendedFlags;
+
+    private final int ctimeSeconds;
+    private final int ctimeNanos;
+    private final int mtimeSeconds;
+    private final int mtimeNanos;
+    private final int dev;
+    private final int ino;
+    private final int uid;
+    private final int gid;
+    private final int size;
+
+    /**
+     * Constructs an IndexEntry from the raw fields of the index file.
+     */
+    IndexEntry(String path, byte[] objectId, int mode, int flags, int extendedFlags, int[] stat) {
+	this.path = path;
+	this.objectId = objectId;
+	this.mode = mode;
+	this.flags = flags;
+	this.extendedFlags = extendedFlags;
+	this.ctimeSeconds = stat[0];
+	this.ctimeNanos = stat[1];
+	this.mtimeSeconds = stat[2];
+	this.mtimeNanos = stat[3];
+	this.dev = stat[4];
+	this.ino = stat[5];
+	this.uid = stat[6];
+	this.gid = stat[7];
+	this.size = stat[8];
+    }
+
+    /**
+     * Gets the path of the entry, relative to the working tree, with '/'
+     * separators.
+     *
+     * @return the path of the entry
+     */
+    public String getPath() {
+	return path;
+    }
+
+    /**
+     * Gets the object id of the entry.
+     *
+     * @return the object id, in hexadecimal
+     */
+    public String getObjectId() {
+	return ObjectIds.toHex(objectId, 0, objectId.length);
+    }
+
+    /**
+     * Gets the mode of the entry: one of {@link #MODE_FILE},
+     * {@link #MODE_EXECUTABLE}, {@link #MODE_SYMLINK} and {@link #MODE_GITLINK}.
+     *
+     * @return the mode of the entry
+     */
+    public int getMode() {
+	return mode;
+    }
+
+    /**
+     * Gets the merge stage of the entry: 0 for a normal entry, 1 to 3 for the
+     * sides of an unresolved conflict.
+     *
+     * @return the merge stage of the entry
+     */
+    public int getStage() {
+	return (flags & FLAG_STAGE_MASK) >>> 12;
+    }
+
+    /**
+     * Says if the entry is marked with {@code git update-index --assume-unchanged}.
+     *
+     * @return true if Git does not check the file for changes
+     */
+    public boolean isAssumeValid() {
+	return (flags & FLAG_ASSUME_VALID) != 0;
+    }
+
+    /**
+     * Says if the entry is marked with {@code git update-index --skip-worktree},
+     * as done by sparse checkouts.
+     *
+     * @return true if the file is not expected in the working tree
+     */
+    public boolean isSkipWorktree() {
+	return (extendedFlags & EXTENDED_FLAG_SKIP_WORKTREE) != 0;
+    }
+
+    /**
+     * Says if the entry was added with {@code git add --intent-to-add}.
+     *
+     * @return true if only the intent to add the file is recorded
+     */
+    public boolean isIntentToAdd() {
+	return (extendedFlags & EXTENDED_FLAG_INTENT_TO_ADD) != 0;
+    }
+
+    /**
+     * Gets the cached modification time, in seconds. Only the low 32 bits are
+     * stored by Git.
+     *
+     * @return the cached modification time, in seconds
+     */
+    public int getMtimeSeconds() {
+	return mtimeSeconds;
+    }
+
+    /**
+     * Gets the nanosecond part of the cached modification time.
+     *
+     * @return the nanosecond part of the cached modification time, 0 if not
+     *         recorded
+     */
+    public int getMtimeNanos() {
+	return mtimeNanos;
+    }
+
+    /**
+     * Gets the cached file size. Only the low 32 bits are stored by Git.
+     *
+     * @return the cached file size
+     */
+    public int getSize() {
+	return size;
+    }
+
+    int getCtimeSeconds() {
+	return ctimeSeconds;
+    }
+
+    int getCtimeNanos() {
+	return ctimeNanos;
+    }
+
+    int getDev() {
+	return dev;
+    }
+
+    int getIno() {
+	return ino;
+    }
+
+    int getUid() {
+	return uid;
+    }
+
+    int getGid() {
+	return gid;
+    }
+
+    @Override
+    public String toString() {
+	return "IndexEntry [path=" + path + ", mode=" + Integer.toOctalString(mode) + ", stage=" + getStage()
+		+ ", objectId=" + getObjectId() + "]";
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.symplegit.internal.objects.ObjectIds;
+
+/**
+ * The index file of a repository ({@code .git/index}), read without starting
+ * a Git process. Versions 2, 3 and 4 are supported. <br>
+ * <br>
+ * Layout:
+ * <ul>
+ * <li>signature {@code DIRC}, version and number of entries;</li>
+ * <li>the entries, sorted by path: 10 stat fields of 4 bytes (ctime, mtime,
+ * dev, ino, mode, uid, gid, size), the object id, 2 bytes of flags, 2 bytes
+ * of extended flags in version 3 and higher, then the path;</li>
+ * <li>the extensions, each one being a 4-byte signature, a 4-byte size and
+ * the data, then the checksum of the file.</li>
+ * </ul>
+ * In versions 2 and 3, the path is padded with 1 to 8 NUL bytes so that the
+ * entry length is a multiple of 8. In version 4, the path is prefix
+ * compressed: a varint gives the number of bytes to remove from the end of
+ * the previous path, and a NUL terminated string gives the bytes to append.
+ * <br>
+ * Only the root of the cache tree extension ({@code TREE}) is decoded. A split
+ * index ({@code link} extension), a sparse index ({@code sdir} extension) and
+ * any other required extension throw an {@link UnsupportedIndexException}. The
+ * checksum of the file is not verified. <br>
+ * Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class IndexFile {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int EXTENSION_TREE = 0x54524545; // "TREE"
+    private static final int HEADER_LENGTH = 12;
+    private static final int STAT_LENGTH = 40;
+    private static final int MODE_TYPE_MASK = 0170000;
+    private static final int MODE_DIRECTORY = 0040000;
+
+    private final File file;
+    private final FileTime lastModified;
+    private final int version;
+    private final List<IndexEntry> entries;
+    private final String rootTreeId;
+
+    private IndexFile(File file, FileTime lastModified, int version, List<IndexEntry> entries,
+	    String rootTreeId) {
+	this.file = file;
+	this.lastModified = lastModified;
+	this.version = version;
+	this.entries = entries;
+	this.rootTreeId = rootTreeId;
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @param file       the index file
+     * @param hashLength the length in bytes of the object ids: 20 or 32
+     * @return the index file, or null if the file does not exist
+     * @throws UnsupportedIndexException if the index uses a version or an
+     *                                   extension that is not supported
+     * @throws IOException               if the file cannot be read or is
+     *                                   corrupt
+     */
+    public static IndexFile read(File file, int hashLength) throws IOException {
+	Objects.requireNonNull(file, "file cannot be null!");
+	if (!file.isFile()) {
+	    return null;
+	}
+
+	// Read before the content: an index rewritten meanwhile then only makes
+	// more entries look racily clean
+	FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+	byte[] data = Files.readAllBytes(file.toPath());
+
+	try {
+	    return parse(file, lastModified, ByteBuffer.wrap(data), hashLength);
+	} catch (IndexOutOfBoundsException e) {
+	    throw new IOException("Corrupt index file: " + file, e);
+	}
+    }
+
+    private static IndexFile parse(File file, FileTime lastModified, ByteBuffer buffer, int hashLength)
+	    throws IOException {
+	byte[] data = buffer.array();
+	int end = data.length - hashLength;
+	if (end < HEADER_LENGTH || buffer.getInt(0) != SIGNATURE) {
+	    throw new IOException("Not an index file: " + file);
+	}
+
+	int version = buffer.getInt(4);
+	if (version < 2 || version > 4) {
+	    throw new UnsupportedIndexException("Unsupported index version " + version + ": " + file);
+	}
+
+	int entryCount = buffer.getInt(8);
+	if (entryCount < 0) {
+	    throw new IOException("Corrupt index file: " + file);
+	}
+
+	List<IndexEntry> entries = new ArrayList<>(Math.min(entryCount, end / (STAT_LENGTH + hashLength)));
+	int[] stat = new int[9];
+	byte[] previousPath = new byte[0];
+	int position = HEADER_LENGTH;
+
+	for (int i = 0; i < entryCount; i++) {
+	    int entryStart = position;
+	    stat[0] = buffer.getInt(position);
+	    stat[1] = buffer.getInt(position + 4);
+	    stat[2] = buffer.getInt(position + 8);
+	    stat[3] = buffer.getInt(position + 12);
+	    stat[4] = buffer.getInt(position + 16);
+	    stat[5] = buffer.getInt(position + 20);
+	    int mode = buffer.getInt(position + 24);
+	    stat[6] = buffer.getInt(position + 28);
+	    stat[7] = buffer.getInt(position + 32);
+	    stat[8] = buffer.getInt(position + 36);
+	    position += STAT_LENGTH;
+
+	    byte[] objectId = Arrays.copyOfRange(data, position, position + hashLength);
+	    position += hashLength;
+
+	    int flags = buffer.getShort(position) & 0xffff;
+	    position += 2;
+	    int extendedFlags = 0;
+	    if ((flags & 0x4000) != 0) {
+		if (version < 3) {
+		    throw new IOException("Corrupt index file, extended flags in version 2: " + file);
+		}
+		extendedFlags = buffer.getShort(position) & 0xffff;
+		position += 2;
+	    }
+
+	    if ((mode & MODE_TYPE_MASK) == MODE_DIRECTORY) {
+		throw new UnsupportedIndexException("Unsupported sparse index: " + file);
+	    }
+
+	    byte[] path;
+	    if (version == 4) {
+		// Varint with the "offset" encoding of Git: each continuation adds 1
+		int c = data[position++] & 0xff;
+		int strip = c & 0x7f;
+		while ((c & 0x80) != 0) {
+		    c = data[position++] & 0xff;
+		    strip = ((strip + 1) << 7) + (c & 0x7f);
+		}
+		if (strip < 0 || strip > previousPath.length) {
+		    throw new IOException("Corrupt index file, invalid path prefix: " + file);
+		}
+		int suffixEnd = indexOfNul(data, position, end);
+		int prefixLength = previousPath.length - strip;
+		path = new byte[prefixLength + suffixEnd - position];
+		System.arraycopy(previousPath, 0, path, 0, prefixLength);
+		System.arraycopy(data, position, path, prefixLength, suffixEnd - position);
+		position = suffixEnd + 1;
+	    } else {
+		int nameLength = flags & 0x0fff;
+		if (nameLength == 0x0fff) {
+		    nameLength = indexOfNul(data, position, end) - position;
+		}
+		path = Arrays.copyOfRange(data, position, position + nameLength);
+		int entryLength = position - entryStart + nameLength;
+		position = entryStart + ((entryLength + 8) & ~7);
+	    }
+	    previousPath = path;
+
+	    if (position > end) {
+		throw new IOException("Corrupt index file, truncated entries: " + file);
+	    }
+	    entries.add(new IndexEntry(new String(path, StandardCharsets.UTF_8), objectId, mode, flags,
+		    extendedFlags, stat));
+	}
+
+	String rootTreeId = null;
+	while (position + 8 <= end) {
+	    int signature = buffer.getInt(position);
+	    int size = buffer.getInt(position + 4);
+	    position += 8;
+	    if (size < 0 || position + size > end) {
+		throw new IOException("Corrupt index file, truncated extension: " + file);
+	    }
+
+	    if (signature == EXTENSION_TREE) {
+		rootTreeId = readRootTreeId(data, position, position + size, hashLength);
+	    } else if (signature >>> 24 < 'A' || signature >>> 24 > 'Z') {
+		// Extensions whose signature does not start with an upper case
+		// letter are required to understand the index
+		String name = new String(data, position - 8, 4, StandardCharsets.US_ASCII);
+		throw new UnsupportedIndexException("Unsupported index extension " + name + ": " + file);
+	    }
+	    position += size;
+	}
+
+	return new IndexFile(file, lastModified, version, Collections.unmodifiableList(entries), rootTreeId);
+    }
+
+    /**
+     * Reads the object id of the root tree in the cache tree extension. The
+     * root comes first, with an empty path; its entry count is -1 when it has
+     * been invalidated by a change of the index.
+     */
+    private static String readRootTreeId(byte[] data, int start, int end, int hashLength) throws IOException {
+	if (start >= end || data[start] != 0) {
+	    return null;
+	}
+	int position = start + 1;
+	int space = indexOf(data, position, end, (byte) ' ');
+	int entryCount;
+	try {
+	    entryCount = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+	} catch (NumberFormatException e) {
+	    throw new IOException("Corrupt cache tree extension.", e);
+	}
+	if (entryCount < 0) {
+	    return null;
+	}
+	int newLine = indexOf(data, space + 1, end, (byte) '\n');
+	if (newLine + 1 + hashLength > end) {
+	    throw new IOException("Corrupt cache tree extension.");
+	}
+	return ObjectIds.toHex(data, newLine + 1, hashLength);
+    }
+
+    private static int indexOfNul(byte[] data, int from, int end) throws IOException {
+	return indexOf(data, from, end, (byte) 0);
+    }
+
+    private static int indexOf(byte[] data, int from, int end, byte b) throws IOException {
+	for (int i = from; i < end; i++) {
+	    if (data[i] == b) {
+		return i;
+	    }
+	}
+	throw new IOException("Corrupt index file, unterminated field.");
+    }
+
+    /**
+     * Gets the index file.
+     *
+     * @return the index file
+     */
+    public File getFile() {
+	return file;
+    }
+
+    /**
+     * Gets the modification time of the index file when it was read. Entries
+     * modified at this time or later are racily clean: their stat data cannot
+     * tell if their content changed.
+     *
+     * @return the modification time of the index file
+     */
+    public FileTime getLastModified() {
+	return lastModified;
+    }
+
+    /**
+     * Gets the version of the index file.
+     *
+     * @return the version of the index file: 2, 3 or 4
+     */
+    public int getVersion() {
+	return version;
+    }
+
+    /**
+     * Gets the entries of the index, sorted by path then by stage.
+     *
+     * @return an unmodifiable list of the entries
+     */
+    public List<IndexEntry> getEntries() {
+	return entries;
+    }
+
+    /**
+     * Gets the id of the tree that the index would write, as cached by Git.
+     *
+     * @return the id of the root tree, or null if the index has no valid cache
+     *         tree
+     */
+    public String getRootTreeId() {
+	return rootTreeId;
+    }
+
+    @Override
+    public String toString() {
+	return "IndexFile [file=" + file + ", version=" + version + ", entries=" + entries.size() + "]";
+    }
+}
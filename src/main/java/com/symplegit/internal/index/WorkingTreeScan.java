@@ -0,0 +1,342 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the stat data cached in the index with the files of the working
+ * tree, without starting a Git process and without reading the content of the
+ * files. <br>
+ * <br>
+ * Each entry ends up in one of three states:
+ * <ul>
+ * <li>clean: the file has the cached stat data, so Git also considers it
+ * unchanged;</li>
+ * <li>changed: the stat data differ, or the entry is racily clean (modified in
+ * the same time slot as the index file), or it is a submodule. The content
+ * may still be unchanged: only Git can tell;</li>
+ * <li>missing: the file does not exist anymore.</li>
+ * </ul>
+ * Entries marked assume-unchanged or skip-worktree are considered clean, as
+ * Git does. The files are compared in parallel on the common fork-join pool.
+ * <br>
+ * The directories holding tracked files are also listed, to find the paths
+ * that are not in the index: the untracked candidates. Directories without any
+ * tracked file are not entered and are reported with a trailing '/'. The
+ * ignore rules are not applied: callers must ask Git which candidates are
+ * ignored. <br>
+ * On file systems without POSIX attributes, only the modification time, the
+ * size and the file type are compared.
+ *
+ * @author KawanSoft SAS
+ */
+public final class WorkingTreeScan {
+
+    private static final boolean UNIX = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    private static final String UNIX_ATTRIBUTES = "unix:mode,ino,dev,uid,gid,ctime,lastModifiedTime,size";
+
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private static final int MODE_TYPE_MASK = 0170000;
+    private static final int MODE_REGULAR = 0100000;
+    private static final int MODE_USER_EXECUTE = 0100;
+
+    private static final byte CLEAN = 0;
+    private static final byte CHANGED = 1;
+    private static final byte MISSING = 2;
+
+    private final List<String> changedPaths;
+    private final List<String> missingPaths;
+    private final List<String> untrackedPaths;
+    private final boolean unmerged;
+    private final boolean intentToAdd;
+
+    private WorkingTreeScan(List<String> changedPaths, List<String> missingPaths, List<String> untrackedPaths,
+	    boolean unmerged, boolean intentToAdd) {
+	this.changedPaths = Collections.unmodifiableList(changedPaths);
+	this.missingPaths = Collections.unmodifiableList(missingPaths);
+	this.untrackedPaths = Collections.unmodifiableList(untrackedPaths);
+	this.unmerged = unmerged;
+	this.intentToAdd = intentToAdd;
+    }
+
+    /**
+     * Compares the entries of an index with the files of the working tree, and
+     * lists the untracked candidates.
+     *
+     * @param workTree  the root of the working tree
+     * @param indexFile the index of the working tree
+     * @return the result of the comparison
+     */
+    public static WorkingTreeScan scan(File workTree, IndexFile indexFile) {
+	Objects.requireNonNull(workTree, "workTree cannot be null!");
+	Objects.requireNonNull(indexFile, "indexFile cannot be null!");
+
+	Path root = workTree.toPath();
+	List<IndexEntry> entries = indexFile.getEntries();
+	FileTime indexTime = indexFile.getLastModified();
+
+	// Each task writes its own slot: the terminal operation publishes them
+	byte[] states = new byte[entries.size()];
+	IntStream indexes = IntStream.range(0, entries.size());
+	if (entries.size() >= PARALLEL_THRESHOLD) {
+	    indexes = indexes.parallel();
+	}
+	indexes.forEach(i -> states[i] = compare(root, entries.get(i), indexTime));
+
+	List<String> changedPaths = new ArrayList<>();
+	List<String> missingPaths = new ArrayList<>();
+	boolean unmerged = false;
+	boolean intentToAdd = false;
+	for (int i = 0; i < states.length; i++) {
+	    IndexEntry entry = entries.get(i);
+	    unmerged |= entry.getStage() != 0;
+	    intentToAdd |= entry.isIntentToAdd();
+	    if (states[i] == CHANGED) {
+		changedPaths.add(entry.getPath());
+	    } else if (states[i] == MISSING) {
+		missingPaths.add(entry.getPath());
+	    }
+	}
+
+	List<String> untrackedPaths = listUntracked(root, entries);
+	return new WorkingTreeScan(changedPaths, missingPaths, untrackedPaths, unmerged, intentToAdd);
+    }
+
+    /**
+     * Compares one entry with its file.
+     */
+    private static byte compare(Path root, IndexEntry entry, FileTime indexTime) {
+	if (entry.isAssumeValid() || entry.isSkipWorktree()) {
+	    return CLEAN;
+	}
+	if (entry.getMode() == IndexEntry.MODE_GITLINK || entry.getStage() != 0 || isRacy(entry, indexTime)) {
+	    return CHANGED;
+	}
+
+	Path file = root.resolve(entry.getPath());
+	try {
+	    return UNIX ? compareUnix(file, entry) : compareBasic(file, entry);
+	} catch (NoSuchFileException e) {
+	    return MISSING;
+	} catch (IOException e) {
+	    // Not a directory, permission denied...: let Git decide
+	    return CHANGED;
+	}
+    }
+
+    private static byte compareUnix(Path file, IndexEntry entry) throws IOException {
+	Map<String, Object> attributes = Files.readAttributes(file, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+
+	int mode = (Integer) attributes.get("mode");
+	if (!isSameType(entry, mode & MODE_TYPE_MASK, (mode & MODE_USER_EXECUTE) != 0)) {
+	    return CHANGED;
+	}
+
+	boolean same = isSameTime(entry.getMtimeSeconds(), entry.getMtimeNanos(),
+		(FileTime) attributes.get("lastModifiedTime"))
+		&& isSameTime(entry.getCtimeSeconds(), entry.getCtimeNanos(), (FileTime) attributes.get("ctime"))
+		&& entry.getSize() == (int) (long) (Long) attributes.get("size")
+		&& entry.getIno() == (int) (long) (Long) attributes.get("ino")
+		&& entry.getDev() == (int) (long) (Long) attributes.get("dev")
+		&& entry.getUid() == (Integer) attributes.get("uid")
+		&& entry.getGid() == (Integer) attributes.get("gid");
+	return same ? CLEAN : CHANGED;
+    }
+
+    private static byte compareBasic(Path file, IndexEntry entry) throws IOException {
+	BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class,
+		LinkOption.NOFOLLOW_LINKS);
+
+	int type = attributes.isSymbolicLink() ? IndexEntry.MODE_SYMLINK
+		: attributes.isRegularFile() ? MODE_REGULAR : 0;
+	if (!isSameType(entry, type, entry.getMode() == IndexEntry.MODE_EXECUTABLE)) {
+	    return CHANGED;
+	}
+
+	boolean same = isSameTime(entry.getMtimeSeconds(), entry.getMtimeNanos(), attributes.lastModifiedTime())
+		&& entry.getSize() == (int) attributes.size();
+	return same ? CLEAN : CHANGED;
+    }
+
+    private static boolean isSameType(IndexEntry entry, int type, boolean executable) {
+	if (entry.getMode() == IndexEntry.MODE_SYMLINK) {
+	    return type == IndexEntry.MODE_SYMLINK;
+	}
+	return type == MODE_REGULAR && executable == (entry.getMode() == IndexEntry.MODE_EXECUTABLE);
+    }
+
+    /**
+     * Compares a cached time with a file time. The nanoseconds are compared only
+     * if Git recorded them.
+     */
+    private static boolean isSameTime(int seconds, int nanos, FileTime fileTime) {
+	if (fileTime == null) {
+	    return false;
+	}
+	long epochSecond = fileTime.toInstant().getEpochSecond();
+	int nano = fileTime.toInstant().getNano();
+	return seconds == (int) epochSecond && (nanos == 0 || nanos == nano);
+    }
+
+    /**
+     * Says if an entry is racily clean: modified not before the index file was
+     * written, so that a later change of the same size could have kept the same
+     * stat data.
+     */
+    private static boolean isRacy(IndexEntry entry, FileTime indexTime) {
+	long entrySeconds = Integer.toUnsignedLong(entry.getMtimeSeconds());
+	long indexSeconds = indexTime.toInstant().getEpochSecond();
+	if (entrySeconds != indexSeconds) {
+	    return entrySeconds > indexSeconds;
+	}
+	return entry.getMtimeNanos() == 0 || entry.getMtimeNanos() >= indexTime.toInstant().getNano();
+    }
+
+    /**
+     * Lists the paths of the directories holding tracked files that are not in
+     * the index. The directories are listed in parallel.
+     */
+    private static List<String> listUntracked(Path root, List<IndexEntry> entries) {
+	Set<String> trackedPaths = new HashSet<>(entries.size() * 2);
+	Set<String> trackedDirectories = new HashSet<>();
+	trackedDirectories.add("");
+	for (IndexEntry entry : entries) {
+	    String path = entry.getPath();
+	    trackedPaths.add(path);
+	    int slash = path.lastIndexOf('/');
+	    while (slash > 0 && trackedDirectories.add(path.substring(0, slash + 1))) {
+		slash = path.lastIndexOf('/', slash - 1);
+	    }
+	}
+
+	return trackedDirectories.parallelStream()
+		.flatMap(directory -> listUntracked(root, directory, trackedPaths, trackedDirectories).stream())
+		.sorted().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Lists the untracked children of a directory.
+     *
+     * @param directory the directory path relative to the root, empty or ending
+     *                  with '/'
+     */
+    private static List<String> listUntracked(Path root, String directory, Set<String> trackedPaths,
+	    Set<String> trackedDirectories) {
+	List<String> untrackedPaths = new ArrayList<>();
+	Path path = directory.isEmpty() ? root : root.resolve(directory);
+
+	try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+	    for (Path child : stream) {
+		String name = child.getFileName().toString();
+		if (".git".equals(name)) {
+		    continue;
+		}
+		String childPath = directory + name;
+		if (trackedPaths.contains(childPath) || trackedDirectories.contains(childPath + "/")) {
+		    continue;
+		}
+		boolean isDirectory = Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+		untrackedPaths.add(isDirectory ? childPath + "/" : childPath);
+	    }
+	} catch (NoSuchFileException | NotDirectoryException e) {
+	    // Directory of skip-worktree entries, or removed meanwhile
+	} catch (IOException e) {
+	    // Unreadable directory: reported as a candidate, Git decides
+	    if (!directory.isEmpty()) {
+		untrackedPaths.add(directory);
+	    }
+	}
+	return untrackedPaths;
+    }
+
+    /**
+     * Gets the paths of the entries whose stat data changed. Their content must
+     * be compared by Git.
+     *
+     * @return the paths of the changed entries
+     */
+    public List<String> getChangedPaths() {
+	return changedPaths;
+    }
+
+    /**
+     * Gets the paths of the entries whose file does not exist anymore.
+     *
+     * @return the paths of the deleted files
+     */
+    public List<String> getMissingPaths() {
+	return missingPaths;
+    }
+
+    /**
+     * Gets the paths that are not in the index, sorted. Directories end with
+     * '/'. Ignored paths are included.
+     *
+     * @return the untracked candidates
+     */
+    public List<String> getUntrackedPaths() {
+	return untrackedPaths;
+    }
+
+    /**
+     * Says if the index holds unresolved conflicts.
+     *
+     * @return true if some entries have a merge stage
+     */
+    public boolean hasUnmergedEntries() {
+	return unmerged;
+    }
+
+    /**
+     * Says if the index holds entries added with {@code git add --intent-to-add}.
+     *
+     * @return true if some entries are intent-to-add entries
+     */
+    public boolean hasIntentToAddEntries() {
+	return intentToAdd;
+    }
+
+    @Override
+    public String toString() {
+	return "WorkingTreeScan [changed=" + changedPaths.size() + ", missing=" + missingPaths.size()
+		+ ", untracked=" + untrackedPaths.size() + ", unmerged=" + unmerged + "]";
+    }
+}
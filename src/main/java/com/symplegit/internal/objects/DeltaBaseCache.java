@@ -0,0 +1,204 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the delta bases inflated by a {@link PackReader}, bounded by the
+ * total size of the cached objects. <br>
+ * Delta chains share their bases: the trees of consecutive commits, or the
+ * successive versions of a file. Keeping the recently used bases avoids
+ * inflating and resolving again the start of a chain. The least recently used
+ * entries are evicted first. An object larger than the cache size is not
+ * cached. <br>
+ * Cached contents are shared and must never be modified. <br>
+ * The cache is thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class DeltaBaseCache {
+
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Constructs a DeltaBaseCache.
+     *
+     * @param maxBytes the maximum total size of the cached objects, 0 to
+     *                 disable the cache
+     */
+    public DeltaBaseCache(long maxBytes) {
+	if (maxBytes < 0) {
+	    throw new IllegalArgumentException("maxBytes must be >= 0: " + maxBytes);
+	}
+	this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The key of a cached object: its pack file and its offset in the pack.
+     */
+    private static final class Key {
+
+	private final File packFile;
+	private final long offset;
+
+	Key(File packFile, long offset) {
+	    this.packFile = packFile;
+	    this.offset = offset;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return offset == other.offset && packFile.equals(other.packFile);
+	}
+
+	@Override
+	public int hashCode() {
+	    return 31 * packFile.hashCode() + Long.hashCode(offset);
+	}
+    }
+
+    /**
+     * A cached object: its pack type code and its content.
+     */
+    static final class Entry {
+
+	final int type;
+	final byte[] data;
+
+	Entry(int type, byte[] data) {
+	    this.type = type;
+	    this.data = data;
+	}
+    }
+
+    /**
+     * Gets a cached object.
+     *
+     * @param packFile the pack file
+     * @param offset   the offset of the object in the pack
+     * @return the cached object, or null
+     */
+    synchronized Entry get(File packFile, long offset) {
+	Entry entry = entries.get(new Key(packFile, offset));
+	if (entry == null) {
+	    missCount++;
+	} else {
+	    hitCount++;
+	}
+	return entry;
+    }
+
+    /**
+     * Caches an object, evicting the least recently used ones if needed.
+     *
+     * @param packFile the pack file
+     * @param offset   the offset of the object in the pack
+     * @param type     the pack type code of the object
+     * @param data     the content of the object, not copied
+     */
+    synchronized void put(File packFile, long offset, int type, byte[] data) {
+	if (data.length > maxBytes) {
+	    return;
+	}
+	Entry previous = entries.put(new Key(packFile, offset), new Entry(type, data));
+	if (previous != null) {
+	    bytes -= previous.data.length;
+	}
+	bytes += data.length;
+
+	Iterator<Entry> iterator = entries.values().iterator();
+	while (bytes > maxBytes && iterator.hasNext()) {
+	    bytes -= iterator.next().data.length;
+	    iterator.remove();
+	}
+    }
+
+    /**
+     * Removes all the cached objects.
+     */
+    public synchronized void clear() {
+	entries.clear();
+	bytes = 0;
+    }
+
+    /**
+     * Gets the maximum total size of the cached objects.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxBytes() {
+	return maxBytes;
+    }
+
+    /**
+     * Gets the total size of the cached objects.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getBytes() {
+	return bytes;
+    }
+
+    /**
+     * Gets the number of cached objects.
+     *
+     * @return the number of cached objects
+     */
+    public synchronized int size() {
+	return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that found an object.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+	return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups that did not find an object.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+	return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+	return "DeltaBaseCache [maxBytes=" + maxBytes + ", bytes=" + bytes + ", size=" + entries.size()
+		+ ", hitCount=" + hitCount + ", missCount=" + missCount + "]";
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * A pool of {@link Inflater} instances, each paired with an input buffer. <br>
+ * An Inflater holds native zlib memory that is only freed by
+ * {@link Inflater#end()} or by the garbage collector: creating one per object
+ * read is expensive. The pooled Inflaters are reset and reused, and the pool
+ * keeps at most a few idle entries per processor.
+ *
+ * @author KawanSoft SAS
+ */
+final class InflaterPool {
+
+    /** The size of the input buffer of an entry. */
+    static final int BUFFER_SIZE = 8192;
+
+    private static final int MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final Queue<Entry> IDLE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    /**
+     * An Inflater with its input buffer. Must be used by one thread at a time.
+     */
+    static final class Entry {
+
+	final Inflater inflater = new Inflater();
+	final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private Entry() {
+
+	}
+    }
+
+    /**
+     * Private constructor
+     */
+    private InflaterPool() {
+
+    }
+
+    /**
+     * Borrows an entry from the pool, or creates a new one if the pool is empty.
+     *
+     * @return a reset entry
+     */
+    static Entry acquire() {
+	Entry entry = IDLE.poll();
+	if (entry == null) {
+	    return new Entry();
+	}
+	IDLE_COUNT.decrementAndGet();
+	return entry;
+    }
+
+    /**
+     * Returns an entry to the pool. The entry is reset, or ended if the pool is
+     * full.
+     *
+     * @param entry the entry to return, must not be used anymore by the caller
+     */
+    static void release(Entry entry) {
+	if (IDLE_COUNT.incrementAndGet() > MAX_IDLE) {
+	    IDLE_COUNT.decrementAndGet();
+	    entry.inflater.end();
+	    return;
+	}
+	entry.inflater.reset();
+	IDLE.offer(entry);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+
+/**
+ * Reads the loose objects of a repository directly from the files of the
+ * {@code objects} directory, without starting a Git process. <br>
+ * <br>
+ * A loose object is stored in {@code objects/xx/yyyy...}, where {@code xx}
+ * are the first two hex digits of its id, as a zlib stream of
+ * {@code <type> <size>\0<content>}. Streams are inflated with pooled
+ * {@link Inflater} instances and input buffers. <br>
+ * <br>
+ * Objects stored in pack files or in alternate object directories are not
+ * found by this reader: callers must then fall back to Git. <br>
+ * Instances are thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class LooseObjectReader {
+
+    /** The maximum size of an object read into memory. */
+    public static final int MAX_OBJECT_SIZE = Integer.MAX_VALUE - 8;
+
+    /** Room for the longest header: "commit " + 19 digits + NUL. */
+    private static final int MAX_HEADER_LENGTH = 32;
+
+    private final File objectsDir;
+
+    /**
+     * Constructs a LooseObjectReader.
+     *
+     * @param gitDirectory the Git directories of the repository
+     */
+    public LooseObjectReader(GitDirectory gitDirectory) {
+	Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	this.objectsDir = new File(gitDirectory.getCommonDir(), "objects");
+    }
+
+    /**
+     * Says if an object is stored as a loose object.
+     *
+     * @param id the full object id
+     * @return true if the loose object file exists
+     */
+    public boolean exists(String id) {
+	return RefReader.isObjectId(id) && fileOf(id).isFile();
+    }
+
+    /**
+     * Reads the header of a loose object: only the first bytes of the object
+     * are inflated.
+     *
+     * @param id the full object id
+     * @return the object header, or null if there is no such loose object
+     * @throws IOException if the object file cannot be read or is corrupt
+     */
+    public GitObjectHeader readHeader(String id) throws IOException {
+	return (GitObjectHeader) read(id, true);
+    }
+
+    /**
+     * Reads a loose object: header and content.
+     *
+     * @param id the full object id
+     * @return the object, or null if there is no such loose object
+     * @throws IOException if the object file cannot be read or is corrupt, or
+     *                     if the object is larger than
+     *                     {@link #MAX_OBJECT_SIZE}
+     */
+    public GitObject read(String id) throws IOException {
+	return (GitObject) read(id, false);
+    }
+
+    /**
+     * Reads a loose object.
+     *
+     * @return a GitObjectHeader if headerOnly, else a GitObject. Null if the
+     *         object does not exist.
+     */
+    private Object read(String id, boolean headerOnly) throws IOException {
+	if (!RefReader.isObjectId(id)) {
+	    return null;
+	}
+
+	InputStream in;
+	try {
+	    in = new FileInputStream(fileOf(id));
+	} catch (FileNotFoundException e) {
+	    return null;
+	}
+
+	InflaterPool.Entry entry = InflaterPool.acquire();
+	try (InputStream input = in) {
+	    Inflater inflater = entry.inflater;
+
+	    // Inflate until the end of the header
+	    byte[] header = new byte[MAX_HEADER_LENGTH];
+	    int headerLength = 0;
+	    int nul = -1;
+	    while (nul < 0) {
+		if (headerLength == header.length) {
+		    throw new IOException("Invalid loose object header: " + id);
+		}
+		int count = inflate(inflater, input, entry.buffer, header, headerLength, header.length - headerLength);
+		if (count < 0) {
+		    throw new EOFException("Truncated loose object: " + id);
+		}
+		for (int i = headerLength; i < headerLength + count; i++) {
+		    if (header[i] == 0) {
+			nul = i;
+			break;
+		    }
+		}
+		headerLength += count;
+	    }
+
+	    GitObjectHeader objectHeader = parseHeader(id, header, nul);
+	    if (headerOnly) {
+		return objectHeader;
+	    }
+
+	    if (objectHeader.getSize() > MAX_OBJECT_SIZE) {
+		throw new IOException("Object too large to be read in memory: " + id + " (" + objectHeader.getSize()
+			+ " bytes)");
+	    }
+
+	    byte[] content = new byte[(int) objectHeader.getSize()];
+	    int length = headerLength - nul - 1;
+	    if (length > content.length) {
+		throw new IOException("Loose object longer than its declared size: " + id);
+	    }
+	    System.arraycopy(header, nul + 1, content, 0, length);
+
+	    while (length < content.length) {
+		int count = inflate(inflater, input, entry.buffer, content, length, content.length - length);
+		if (count < 0) {
+		    throw new EOFException("Truncated loose object: " + id);
+		}
+		length += count;
+	    }
+
+	    // The stream must end exactly with the content
+	    if (inflate(inflater, input, entry.buffer, new byte[1], 0, 1) >= 0) {
+		throw new IOException("Loose object longer than its declared size: " + id);
+	    }
+
+	    return new GitObject(objectHeader, content);
+	} catch (DataFormatException e) {
+	    throw new IOException("Corrupt loose object: " + id, e);
+	} finally {
+	    InflaterPool.release(entry);
+	}
+    }
+
+    /**
+     * Inflates bytes, reading compressed input as needed.
+     *
+     * @return the number of inflated bytes, at least 1, or -1 at the end of the
+     *         zlib stream
+     */
+    private static int inflate(Inflater inflater, InputStream input, byte[] buffer, byte[] out, int offset,
+	    int length) throws IOException, DataFormatException {
+	while (true) {
+	    int count = inflater.inflate(out, offset, length);
+	    if (count > 0) {
+		return count;
+	    }
+	    if (inflater.finished()) {
+		return -1;
+	    }
+	    if (inflater.needsDictionary()) {
+		throw new DataFormatException("Preset dictionary not supported.");
+	    }
+	    if (inflater.needsInput()) {
+		int read = input.read(buffer);
+		if (read < 0) {
+		    throw new EOFException("Truncated zlib stream.");
+		}
+		inflater.setInput(buffer, 0, read);
+	    }
+	}
+    }
+
+    /**
+     * Parses a {@code <type> <size>} header.
+     */
+    private static GitObjectHeader parseHeader(String id, byte[] header, int nul) throws IOException {
+	String value = new String(header, 0, nul, StandardCharsets.US_ASCII);
+	int space = value.indexOf(' ');
+	if (space < 0) {
+	    throw new IOException("Invalid loose object header: " + id);
+	}
+
+	String type = value.substring(0, space);
+	if (!type.equals("commit") && !type.equals("tree") && !type.equals("blob") && !type.equals("tag")) {
+	    throw new IOException("Invalid loose object type: " + id + " (" + type + ")");
+	}
+
+	long size;
+	try {
+	    size = Long.parseLong(value.substring(space + 1));
+	} catch (NumberFormatException e) {
+	    throw new IOException("Invalid loose object size: " + id, e);
+	}
+	if (size < 0) {
+	    throw new IOException("Invalid loose object size: " + id);
+	}
+	return new GitObjectHeader(id, type, size);
+    }
+
+    private File fileOf(String id) {
+	return new File(objectsDir, id.substring(0, 2) + File.separator + id.substring(2));
+    }
+}
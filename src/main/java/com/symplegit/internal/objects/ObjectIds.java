@@ -0,0 +1,88 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+/**
+ * Conversions of object ids between their hex form and their raw bytes. <br>
+ * Object ids are 20 bytes long (SHA-1) or 32 bytes long (SHA-256).
+ *
+ * @author KawanSoft SAS
+ */
+public final class ObjectIds {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Private constructor
+     */
+    private ObjectIds() {
+
+    }
+
+    /**
+     * Converts a hex object id to its raw bytes.
+     *
+     * @param id the object id, 40 or 64 lowercase hex digits
+     * @return the raw bytes, or null if the id is not a valid object id
+     */
+    public static byte[] fromHex(String id) {
+	if (id == null || (id.length() != 40 && id.length() != 64)) {
+	    return null;
+	}
+	byte[] bytes = new byte[id.length() / 2];
+	for (int i = 0; i < bytes.length; i++) {
+	    int high = digit(id.charAt(2 * i));
+	    int low = digit(id.charAt(2 * i + 1));
+	    if (high < 0 || low < 0) {
+		return null;
+	    }
+	    bytes[i] = (byte) (high << 4 | low);
+	}
+	return bytes;
+    }
+
+    /**
+     * Converts raw bytes to a hex object id.
+     *
+     * @param bytes  the buffer holding the raw bytes
+     * @param offset the offset of the id in the buffer
+     * @param length the length of the id in bytes
+     * @return the hex object id
+     */
+    public static String toHex(byte[] bytes, int offset, int length) {
+	char[] chars = new char[length * 2];
+	for (int i = 0; i < length; i++) {
+	    int b = bytes[offset + i] & 0xff;
+	    chars[2 * i] = HEX_DIGITS[b >>> 4];
+	    chars[2 * i + 1] = HEX_DIGITS[b & 0x0f];
+	}
+	return new String(chars);
+    }
+
+    private static int digit(char c) {
+	if (c >= '0' && c <= '9') {
+	    return c - '0';
+	}
+	if (c >= 'a' && c <= 'f') {
+	    return c - 'a' + 10;
+	}
+	return -1;
+    }
+}
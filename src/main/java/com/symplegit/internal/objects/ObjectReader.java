@@ -0,0 +1,80 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.internal.refs.GitDirectory;
+
+/**
+ * Reads the objects of a repository directly from its files: loose objects
+ * first, as looking them up costs a single failed open, then packed objects.
+ * <br>
+ * Objects of alternate object directories are not found: callers must then
+ * fall back to Git. <br>
+ * Instances are thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class ObjectReader {
+
+    private final GitDirectory gitDirectory;
+    private final LooseObjectReader looseObjectReader;
+
+    /**
+     * Constructs an ObjectReader, that uses the shared {@link PackReader} of the
+     * repository.
+     *
+     * @param gitDirectory the Git directories of the repository
+     */
+    public ObjectReader(GitDirectory gitDirectory) {
+	this.gitDirectory = Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	this.looseObjectReader = new LooseObjectReader(gitDirectory);
+    }
+
+    /**
+     * Reads the header of an object.
+     *
+     * @param id the full object id
+     * @return the object header, or null if the object is not found
+     * @throws IOException if the object files cannot be read or are corrupt
+     */
+    public GitObjectHeader readHeader(String id) throws IOException {
+	GitObjectHeader header = looseObjectReader.readHeader(id);
+	return header != null ? header : PackReader.of(gitDirectory).readHeader(id);
+    }
+
+    /**
+     * Reads an object: header and content.
+     *
+     * @param id the full object id
+     * @return the object, or null if the object is not found
+     * @throws IOException if the object files cannot be read or are corrupt, or
+     *                     if the object is larger than
+     *                     {@link LooseObjectReader#MAX_OBJECT_SIZE}
+     */
+    public GitObject read(String id) throws IOException {
+	GitObject gitObject = looseObjectReader.read(id);
+	return gitObject != null ? gitObject : PackReader.of(gitDirectory).read(id);
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.symplegit.internal.refs.GitDirectory;
+
+/**
+ * The pack indexes of the {@code objects/pack} directory of a repository, used
+ * to find the objects stored in packs. <br>
+ * <br>
+ * There is one instance per directory, shared by all callers, so that the
+ * index files are mapped once. The set of packs is reloaded when the
+ * modification time of the directory changes. A lookup that misses lists the
+ * directory again only if it was listed within the resolution of the file
+ * system clock after its modification: a concurrent {@code git gc} or fetch
+ * may then have added a pack without changing the modification time. Only new
+ * index files are mapped; the mappings of removed packs are released by the
+ * garbage collector. <br>
+ * <br>
+ * An index file that cannot be mapped, or whose pack file is missing, is
+ * ignored: its objects are not found, and callers must then fall back to Git.
+ * It is recorded with its modification time, so that it is not opened again
+ * while it does not change. <br>
+ * Instances are thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class PackDirectory {
+
+    /** The maximum number of shared instances, one per repository. */
+    public static final int MAX_INSTANCES = 16;
+
+    /**
+     * The shared instances, per pack directory, least recently used first. An
+     * evicted instance and its mappings are released by the garbage collector
+     * once its last user is done with it.
+     */
+    private static final Map<File, PackDirectory> INSTANCES = new LinkedHashMap<File, PackDirectory>(16, 0.75f,
+	    true) {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<File, PackDirectory> eldest) {
+	    return size() > MAX_INSTANCES;
+	}
+    };
+
+    /**
+     * The delay after the modification of the directory during which a new
+     * pack may not change its modification time: coarse file systems have a 2
+     * seconds resolution.
+     */
+    private static final long RACY_MILLIS = 3000;
+
+    private final File packDir;
+
+    /** The packs, most recent first: recent objects are the most read. */
+    private volatile List<PackIndex> packIndexes = Collections.emptyList();
+    private volatile long lastModified = -1;
+    private volatile long listedMillis = 0;
+
+    /** The names of all the listed index files, rejected ones included. */
+    private volatile List<String> indexNames = Collections.emptyList();
+
+    /** The modification times of the rejected index files, per name. */
+    private final Map<String, Long> rejectedIndexes = new HashMap<>();
+
+    private PackDirectory(File packDir) {
+	this.packDir = packDir;
+    }
+
+    /**
+     * Gets the pack directory of a repository. The instances of the
+     * {@link #MAX_INSTANCES} most recently used repositories are shared.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @return the shared pack directory of the repository
+     */
+    public static PackDirectory of(GitDirectory gitDirectory) {
+	File packDir = packDirOf(gitDirectory);
+	synchronized (INSTANCES) {
+	    return INSTANCES.computeIfAbsent(packDir, PackDirectory::new);
+	}
+    }
+
+    /**
+     * Gets the pack directory file of a repository.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @return the absolute {@code objects/pack} directory
+     */
+    static File packDirOf(GitDirectory gitDirectory) {
+	Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	return new File(gitDirectory.getCommonDir(), "objects" + File.separator + "pack").getAbsoluteFile();
+    }
+
+    /**
+     * Finds an object in the packs.
+     *
+     * @param id the object id, 40 or 64 hex digits
+     * @return the location of the object, or null if it is not in a pack
+     */
+    public PackLocation find(String id) {
+	byte[] rawId = ObjectIds.fromHex(id);
+	return rawId == null ? null : find(rawId);
+    }
+
+    /**
+     * Finds an object in the packs.
+     *
+     * @param id the raw object id
+     * @return the location of the object, or null if it is not in a pack
+     */
+    public PackLocation find(byte[] id) {
+	List<PackIndex> current = getPackIndexes();
+	PackLocation packLocation = find(current, id);
+	if (packLocation != null) {
+	    return packLocation;
+	}
+
+	List<PackIndex> reloaded = reloadAfterMiss();
+	return reloaded == current ? null : find(reloaded, id);
+    }
+
+    private static PackLocation find(List<PackIndex> packIndexes, byte[] id) {
+	for (PackIndex packIndex : packIndexes) {
+	    long offset = packIndex.findOffset(id);
+	    if (offset >= 0) {
+		return new PackLocation(packIndex, offset);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Gets the current pack indexes, most recent first. The set is reloaded if
+     * the directory has been modified.
+     *
+     * @return the current pack indexes
+     */
+    public List<PackIndex> getPackIndexes() {
+	if (packDir.lastModified() != lastModified) {
+	    return reloadIfModified();
+	}
+	return packIndexes;
+    }
+
+    /**
+     * Reloads the set of packs at once if the list of index files has changed,
+     * for example when a pack file disappeared during a read.
+     */
+    synchronized void refresh() {
+	reload(packDir.lastModified());
+    }
+
+    private synchronized List<PackIndex> reloadIfModified() {
+	long modified = packDir.lastModified();
+	if (modified == lastModified) {
+	    return packIndexes; // Reloaded by another thread
+	}
+	return reload(modified);
+    }
+
+    /**
+     * Reloads the set of packs after a missed lookup, only if the directory
+     * was modified or if its last listing may have missed a new pack.
+     */
+    private synchronized List<PackIndex> reloadAfterMiss() {
+	long modified = packDir.lastModified();
+	if (modified == lastModified && listedMillis - modified > RACY_MILLIS) {
+	    return packIndexes;
+	}
+	return reload(modified);
+    }
+
+    /**
+     * Reloads the set of packs if the list of index files has changed.
+     *
+     * @param modified the modification time of the directory before listing it
+     * @return the pack indexes, the same list instance if unchanged
+     */
+    private List<PackIndex> reload(long modified) {
+	listedMillis = System.currentTimeMillis();
+	String[] names = packDir.list((dir, name) -> name.endsWith(".idx"));
+	List<String> newIndexNames = new ArrayList<>();
+	if (names != null) {
+	    for (String name : names) {
+		newIndexNames.add(name);
+	    }
+	    Collections.sort(newIndexNames);
+	}
+	lastModified = modified;
+
+	if (newIndexNames.equals(indexNames)) {
+	    return packIndexes;
+	}
+
+	// Index files are immutable: already mapped ones are kept
+	Map<String, PackIndex> mapped = new HashMap<>();
+	for (PackIndex packIndex : packIndexes) {
+	    mapped.put(packIndex.getIndexFile().getName(), packIndex);
+	}
+
+	// Rejected index files are tried again only when they change
+	rejectedIndexes.keySet().retainAll(newIndexNames);
+	List<PackIndex> newPackIndexes = new ArrayList<>();
+	Map<PackIndex, Long> packModified = new HashMap<>();
+	for (String name : newIndexNames) {
+	    PackIndex packIndex = mapped.get(name);
+	    if (packIndex == null) {
+		File indexFile = new File(packDir, name);
+		long indexModified = indexFile.lastModified();
+		Long rejectedModified = rejectedIndexes.get(name);
+		if (rejectedModified != null && rejectedModified == indexModified) {
+		    continue;
+		}
+		try {
+		    packIndex = PackIndex.open(indexFile);
+		} catch (IOException e) {
+		    rejectedIndexes.put(name, indexModified); // Being written, or unsupported
+		    continue;
+		}
+		long packFileModified = packIndex.getPackFile().lastModified();
+		if (packFileModified == 0) {
+		    rejectedIndexes.put(name, indexModified); // No pack file
+		    continue;
+		}
+		rejectedIndexes.remove(name);
+	    }
+	    long packFileModified = packIndex.getPackFile().lastModified();
+	    if (packFileModified == 0) {
+		continue; // Pack file removed, the index follows
+	    }
+	    newPackIndexes.add(packIndex);
+	    packModified.put(packIndex, packFileModified);
+	}
+	newPackIndexes.sort(Comparator.comparing(packModified::get, Comparator.reverseOrder()));
+
+	indexNames = newIndexNames;
+	packIndexes = Collections.unmodifiableList(newPackIndexes);
+	return packIndexes;
+    }
+
+    @Override
+    public String toString() {
+	return "PackDirectory [packDir=" + packDir + ", packIndexes=" + packIndexes + "]";
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A pack file ({@code .pack}) opened for positional reads. <br>
+ * Positional reads do not move a shared file pointer: concurrent readers do
+ * not block each other. A FileChannel is closed when a thread is interrupted
+ * during a read; the channel is then reopened, so that the interruption of a
+ * reader does not break the others.
+ *
+ * @author KawanSoft SAS
+ */
+final class PackFile implements Closeable {
+
+    private final File file;
+    private volatile FileChannel channel;
+    private volatile boolean closed = false;
+
+    private PackFile(File file, FileChannel channel) {
+	this.file = file;
+	this.channel = channel;
+    }
+
+    /**
+     * Opens a pack file and checks its header.
+     *
+     * @param file the {@code .pack} file
+     * @return the opened pack file
+     * @throws IOException if the file cannot be opened or is not a version 2 or
+     *                     3 pack
+     */
+    static PackFile open(File file) throws IOException {
+	PackFile packFile = new PackFile(file, FileChannel.open(file.toPath(), StandardOpenOption.READ));
+	try {
+	    byte[] header = new byte[8];
+	    if (packFile.read(0, header, 0, header.length) != header.length
+		    || !new String(header, 0, 4, StandardCharsets.US_ASCII).equals("PACK")) {
+		throw new IOException("Not a pack file: " + file);
+	    }
+	    int version = ByteBuffer.wrap(header, 4, 4).getInt();
+	    if (version != 2 && version != 3) {
+		throw new IOException("Unsupported pack version " + version + ": " + file);
+	    }
+	    return packFile;
+	} catch (IOException e) {
+	    packFile.close();
+	    throw e;
+	}
+    }
+
+    /**
+     * Gets the pack file.
+     *
+     * @return the {@code .pack} file
+     */
+    File getFile() {
+	return file;
+    }
+
+    /**
+     * Reads bytes at a position of the file.
+     *
+     * @param position the position in the file
+     * @param bytes    the buffer into which bytes are read
+     * @param offset   the offset in the buffer
+     * @param length   the maximum number of bytes to read
+     * @return the number of bytes read, less than length only at the end of the
+     *         file
+     * @throws IOException if an I/O error occurs or if the pack file is closed
+     */
+    int read(long position, byte[] bytes, int offset, int length) throws IOException {
+	try {
+	    return read(channel, position, bytes, offset, length);
+	} catch (ClosedChannelException e) {
+	    if (e instanceof ClosedByInterruptException || closed) {
+		throw e;
+	    }
+	    // Closed by the interruption of another reader
+	    return read(reopen(), position, bytes, offset, length);
+	}
+    }
+
+    private static int read(FileChannel channel, long position, byte[] bytes, int offset, int length)
+	    throws IOException {
+	ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+	int total = 0;
+	while (buffer.hasRemaining()) {
+	    int count = channel.read(buffer, position + total);
+	    if (count < 0) {
+		break;
+	    }
+	    total += count;
+	}
+	return total;
+    }
+
+    private synchronized FileChannel reopen() throws IOException {
+	if (!channel.isOpen()) {
+	    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+	return channel;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+	closed = true;
+	channel.close();
+    }
+}
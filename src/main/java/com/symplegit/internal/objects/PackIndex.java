@@ -0,0 +1,279 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A memory-mapped pack index file ({@code .idx}, version 2): finds the offset
+ * of an object in its pack file without reading the pack. <br>
+ * <br>
+ * Layout of a version 2 index of N objects:
+ * <ul>
+ * <li>magic {@code \377tOc} and version 2;</li>
+ * <li>fan-out table: 256 counts, entry {@code i} being the number of objects
+ * whose first byte is lower than or equal to {@code i};</li>
+ * <li>N sorted object ids;</li>
+ * <li>N CRC32 of the packed objects;</li>
+ * <li>N 4-byte offsets. An offset with its high bit set is an index in the
+ * table of 8-byte offsets, used for packs larger than 2 Gb;</li>
+ * <li>the table of 8-byte offsets, then the pack and index checksums.</li>
+ * </ul>
+ * A lookup narrows the range with the fan-out table, then does a binary search
+ * in the mapped ids. <br>
+ * Instances are immutable and thread-safe: the mapping is only read with
+ * absolute accessors.
+ *
+ * @author KawanSoft SAS
+ */
+public final class PackIndex {
+
+    private static final int MAGIC = 0xff744f63;
+    private static final int HEADER_LENGTH = 8;
+    private static final int FANOUT_LENGTH = 256 * 4;
+
+    private final File indexFile;
+    private final File packFile;
+    private final ByteBuffer buffer;
+    private final int hashLength;
+    private final int objectCount;
+
+    private final int namesOffset;
+    private final int offsetsOffset;
+    private final int largeOffsetsOffset;
+
+    private PackIndex(File indexFile, ByteBuffer buffer, int hashLength, int objectCount) {
+	this.indexFile = indexFile;
+	String name = indexFile.getName();
+	this.packFile = new File(indexFile.getParentFile(), name.substring(0, name.length() - 4) + ".pack");
+	this.buffer = buffer;
+	this.hashLength = hashLength;
+	this.objectCount = objectCount;
+	this.namesOffset = HEADER_LENGTH + FANOUT_LENGTH;
+	this.offsetsOffset = namesOffset + objectCount * (hashLength + 4);
+	this.largeOffsetsOffset = offsetsOffset + objectCount * 4;
+    }
+
+    /**
+     * Maps a pack index file. The mapping stays valid after the file is closed,
+     * and is released when the PackIndex is garbage collected.
+     *
+     * @param indexFile the {@code .idx} file
+     * @return the mapped pack index
+     * @throws IOException if the file cannot be read, is larger than 2 Gb, is
+     *                     not a version 2 index or is inconsistent
+     */
+    public static PackIndex open(File indexFile) throws IOException {
+	Objects.requireNonNull(indexFile, "indexFile cannot be null!");
+	if (!indexFile.getName().endsWith(".idx")) {
+	    throw new IOException("Not a pack index file: " + indexFile);
+	}
+
+	ByteBuffer buffer;
+	try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+	    long size = channel.size();
+	    if (size > Integer.MAX_VALUE) {
+		throw new IOException("Pack index too large to be mapped: " + indexFile);
+	    }
+	    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	long size = buffer.capacity();
+	if (size < HEADER_LENGTH + FANOUT_LENGTH || buffer.getInt(0) != MAGIC) {
+	    throw new IOException("Unsupported pack index, only version 2 is supported: " + indexFile);
+	}
+	if (buffer.getInt(4) != 2) {
+	    throw new IOException("Unsupported pack index version " + buffer.getInt(4) + ": " + indexFile);
+	}
+
+	long objectCount = buffer.getInt(HEADER_LENGTH + 255 * 4) & 0xffffffffL;
+	int hashLength = hashLength(size, objectCount);
+	if (hashLength < 0) {
+	    throw new IOException("Inconsistent pack index size: " + indexFile);
+	}
+	return new PackIndex(indexFile, buffer, hashLength, (int) objectCount);
+    }
+
+    /**
+     * Deduces the length of the object ids from the size of the index, as the
+     * object format is not stored in a version 2 index. Only one of the two
+     * lengths can give a consistent size.
+     *
+     * @return 20, 32, or -1 if no length is consistent
+     */
+    private static int hashLength(long size, long objectCount) {
+	for (int hashLength : new int[] { 20, 32 }) {
+	    long largeOffsetsLength = size - HEADER_LENGTH - FANOUT_LENGTH - objectCount * (hashLength + 8)
+		    - 2L * hashLength;
+	    if (largeOffsetsLength >= 0 && largeOffsetsLength % 8 == 0 && largeOffsetsLength / 8 <= objectCount) {
+		return hashLength;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Gets the index file.
+     *
+     * @return the {@code .idx} file
+     */
+    public File getIndexFile() {
+	return indexFile;
+    }
+
+    /**
+     * Gets the pack file described by the index.
+     *
+     * @return the {@code .pack} file
+     */
+    public File getPackFile() {
+	return packFile;
+    }
+
+    /**
+     * Gets the number of objects in the pack.
+     *
+     * @return the number of objects
+     */
+    public int getObjectCount() {
+	return objectCount;
+    }
+
+    /**
+     * Gets the length of the object ids: 20 for SHA-1, 32 for SHA-256.
+     *
+     * @return the length of the object ids in bytes
+     */
+    public int getHashLength() {
+	return hashLength;
+    }
+
+    /**
+     * Finds the offset of an object in the pack file.
+     *
+     * @param id the raw object id
+     * @return the offset of the object in the pack file, or -1 if the object is
+     *         not in the pack
+     */
+    public long findOffset(byte[] id) {
+	int position = findPosition(id);
+	return position < 0 ? -1 : getOffset(position);
+    }
+
+    /**
+     * Finds the position of an object in the sorted ids of the index.
+     *
+     * @param id the raw object id
+     * @return the position of the object, or -1 if the object is not in the
+     *         pack
+     */
+    public int findPosition(byte[] id) {
+	if (id.length != hashLength) {
+	    return -1;
+	}
+
+	int first = id[0] & 0xff;
+	int low = first == 0 ? 0 : buffer.getInt(HEADER_LENGTH + (first - 1) * 4);
+	int high = buffer.getInt(HEADER_LENGTH + first * 4) - 1;
+
+	while (low <= high) {
+	    int middle = (low + high) >>> 1;
+	    int comparison = compare(id, namesOffset + middle * hashLength);
+	    if (comparison == 0) {
+		return middle;
+	    }
+	    if (comparison < 0) {
+		high = middle - 1;
+	    } else {
+		low = middle + 1;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Compares an id with the id mapped at an index in the buffer, 8 bytes at
+     * a time.
+     */
+    private int compare(byte[] id, int index) {
+	int i = 0;
+	for (; i + 8 <= id.length; i += 8) {
+	    int comparison = Long.compareUnsigned(getLong(id, i), buffer.getLong(index + i));
+	    if (comparison != 0) {
+		return comparison;
+	    }
+	}
+	for (; i < id.length; i++) {
+	    int comparison = (id[i] & 0xff) - (buffer.get(index + i) & 0xff);
+	    if (comparison != 0) {
+		return comparison;
+	    }
+	}
+	return 0;
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+	long value = 0;
+	for (int i = 0; i < 8; i++) {
+	    value = value << 8 | (bytes[offset + i] & 0xff);
+	}
+	return value;
+    }
+
+    /**
+     * Gets the offset in the pack file of the object at a position.
+     *
+     * @param position the position of the object in the sorted ids
+     * @return the offset of the object in the pack file
+     */
+    public long getOffset(int position) {
+	Objects.checkIndex(position, objectCount);
+	int offset = buffer.getInt(offsetsOffset + position * 4);
+	if (offset >= 0) {
+	    return offset;
+	}
+	// High bit set: index in the table of 8-byte offsets
+	int largeIndex = offset & 0x7fffffff;
+	return buffer.getLong(largeOffsetsOffset + largeIndex * 8);
+    }
+
+    /**
+     * Gets the id of the object at a position.
+     *
+     * @param position the position of the object in the sorted ids
+     * @return the raw object id
+     */
+    public byte[] getObjectId(int position) {
+	Objects.checkIndex(position, objectCount);
+	byte[] id = new byte[hashLength];
+	buffer.duplicate().position(namesOffset + position * hashLength).get(id);
+	return id;
+    }
+
+    @Override
+    public String toString() {
+	return "PackIndex [indexFile=" + indexFile + ", objectCount=" + objectCount + "]";
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+/**
+ * The location of an object in a pack: the pack index that found it and the
+ * offset of the object in the pack file. <br>
+ * Instances are immutable.
+ *
+ * @author KawanSoft SAS
+ */
+public final class PackLocation {
+
+    private final PackIndex packIndex;
+    private final long offset;
+
+    PackLocation(PackIndex packIndex, long offset) {
+	this.packIndex = packIndex;
+	this.offset = offset;
+    }
+
+    /**
+     * Gets the index of the pack holding the object.
+     *
+     * @return the pack index
+     */
+    public PackIndex getPackIndex() {
+	return packIndex;
+    }
+
+    /**
+     * Gets the offset of the object in the pack file.
+     *
+     * @return the offset of the object in the pack file
+     */
+    public long getOffset() {
+	return offset;
+    }
+
+    @Override
+    public String toString() {
+	return "PackLocation [packFile=" + packIndex.getPackFile() + ", offset=" + offset + "]";
+    }
+}
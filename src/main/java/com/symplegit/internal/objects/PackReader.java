@@ -0,0 +1,598 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.objects;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.internal.refs.GitDirectory;
+
+/**
+ * Reads the objects stored in the packs of a repository, without starting a
+ * Git process. <br>
+ * <br>
+ * Objects are located with the pack indexes of a {@link PackDirectory}. A
+ * pack entry is either a whole object, or a delta against a base object: the
+ * base is designated by its offset in the same pack ({@code OFS_DELTA}) or by
+ * its id ({@code REF_DELTA}). Delta chains are resolved iteratively from the
+ * base, and the intermediate bases are kept in a {@link DeltaBaseCache}. <br>
+ * <br>
+ * The instances of the {@value #MAX_INSTANCES} most recently used
+ * repositories are shared, so that all callers share the cache and the opened
+ * pack files. An evicted instance is closed: a read that is still running on it
+ * fails, and callers must then fall back to Git. <br>
+ * Instances are thread-safe.
+ *
+ * @author KawanSoft SAS
+ */
+public final class PackReader implements Closeable {
+
+    /** The default maximum size of the delta base cache: 32 Mb. */
+    public static final long DEFAULT_DELTA_BASE_CACHE_SIZE = 32L * 1024 * 1024;
+
+    /** Git limits the depth to 4095; a longer chain means a corrupt pack. */
+    private static final int MAX_CHAIN_LENGTH = 10000;
+
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+    private static final String[] TYPE_NAMES = { null, "commit", "tree", "blob", "tag" };
+
+    /** Room for the longest entry header: 10 bytes of size, 32 bytes of id. */
+    private static final int MAX_ENTRY_HEADER_LENGTH = 64;
+
+    /** The maximum number of shared instances, one per repository. */
+    public static final int MAX_INSTANCES = 16;
+
+    /** The shared instances, per pack directory, least recently used first. */
+    private static final Map<File, PackReader> INSTANCES = new LinkedHashMap<File, PackReader>(16, 0.75f, true) {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<File, PackReader> eldest) {
+	    if (size() > MAX_INSTANCES) {
+		eldest.getValue().close();
+		return true;
+	    }
+	    return false;
+	}
+    };
+
+    private final PackDirectory packDirectory;
+    private final DeltaBaseCache deltaBaseCache;
+    private final Map<File, PackFile> packFiles = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a PackReader with its own delta base cache.
+     *
+     * @param packDirectory  the pack directory of the repository
+     * @param deltaBaseCache the delta base cache
+     */
+    public PackReader(PackDirectory packDirectory, DeltaBaseCache deltaBaseCache) {
+	this.packDirectory = Objects.requireNonNull(packDirectory, "packDirectory cannot be null!");
+	this.deltaBaseCache = Objects.requireNonNull(deltaBaseCache, "deltaBaseCache cannot be null!");
+    }
+
+    /**
+     * Gets the shared PackReader of a repository, with a delta base cache of
+     * {@link #DEFAULT_DELTA_BASE_CACHE_SIZE}. The returned instance may be
+     * closed later, when evicted: callers get it again for each read.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @return the shared PackReader of the repository
+     */
+    public static PackReader of(GitDirectory gitDirectory) {
+	File packDir = PackDirectory.packDirOf(gitDirectory);
+	synchronized (INSTANCES) {
+	    return INSTANCES.computeIfAbsent(packDir, dir -> new PackReader(PackDirectory.of(gitDirectory),
+		    new DeltaBaseCache(DEFAULT_DELTA_BASE_CACHE_SIZE)));
+	}
+    }
+
+    /**
+     * Gets the delta base cache.
+     *
+     * @return the delta base cache
+     */
+    public DeltaBaseCache getDeltaBaseCache() {
+	return deltaBaseCache;
+    }
+
+    /**
+     * The header of a pack entry.
+     */
+    private static final class EntryHeader {
+
+	private int type;
+	private long size;
+	private int length;
+	private long baseOffset = -1;
+	private byte[] baseId;
+    }
+
+    /**
+     * A delta waiting for its base to be resolved.
+     */
+    private static final class PendingDelta {
+
+	private final PackFile packFile;
+	private final long offset;
+	private final long dataOffset;
+	private final long size;
+
+	PendingDelta(PackFile packFile, long offset, long dataOffset, long size) {
+	    this.packFile = packFile;
+	    this.offset = offset;
+	    this.dataOffset = dataOffset;
+	    this.size = size;
+	}
+    }
+
+    /**
+     * Reads the header of a packed object: for a delta, only the start of the
+     * delta is inflated, and only the entry headers of its chain are read.
+     *
+     * @param id the full object id
+     * @return the object header, or null if the object is not in a pack
+     * @throws IOException if a pack cannot be read or is corrupt
+     */
+    public GitObjectHeader readHeader(String id) throws IOException {
+	try {
+	    return readPackedHeader(id);
+	} catch (NoSuchFileException e) {
+	    // Removed by a repack within the resolution of the directory mtime
+	    packDirectory.refresh();
+	    return readPackedHeader(id);
+	}
+    }
+
+    private GitObjectHeader readPackedHeader(String id) throws IOException {
+	PackLocation packLocation = packDirectory.find(id);
+	if (packLocation == null) {
+	    return null;
+	}
+
+	PackIndex packIndex = packLocation.getPackIndex();
+	PackFile packFile = packFile(packIndex);
+	long offset = packLocation.getOffset();
+	EntryHeader entryHeader = readEntryHeader(packFile, offset, packIndex.getHashLength());
+	if (!isDelta(entryHeader.type)) {
+	    return new GitObjectHeader(id, typeName(entryHeader.type), entryHeader.size);
+	}
+
+	// The delta starts with the sizes of the base and of the result
+	byte[] deltaStart = new byte[20];
+	int length = inflate(packFile, offset + entryHeader.length, deltaStart);
+	int[] position = { 0 };
+	readVarint(deltaStart, length, position);
+	long size = readVarint(deltaStart, length, position);
+
+	for (int chainLength = 0; isDelta(entryHeader.type); chainLength++) {
+	    if (chainLength >= MAX_CHAIN_LENGTH) {
+		throw new IOException("Delta chain too long: " + id);
+	    }
+	    packLocation = baseLocation(packIndex, offset, entryHeader);
+	    packIndex = packLocation.getPackIndex();
+	    packFile = packFile(packIndex);
+	    offset = packLocation.getOffset();
+	    entryHeader = readEntryHeader(packFile, offset, packIndex.getHashLength());
+	}
+	return new GitObjectHeader(id, typeName(entryHeader.type), size);
+    }
+
+    /**
+     * Reads a packed object: header and content.
+     *
+     * @param id the full object id
+     * @return the object, or null if the object is not in a pack
+     * @throws IOException if a pack cannot be read or is corrupt, or if the
+     *                     object is larger than
+     *                     {@link LooseObjectReader#MAX_OBJECT_SIZE}
+     */
+    public GitObject read(String id) throws IOException {
+	try {
+	    return readPacked(id);
+	} catch (NoSuchFileException e) {
+	    // Removed by a repack within the resolution of the directory mtime
+	    packDirectory.refresh();
+	    return readPacked(id);
+	}
+    }
+
+    private GitObject readPacked(String id) throws IOException {
+	PackLocation packLocation = packDirectory.find(id);
+	if (packLocation == null) {
+	    return null;
+	}
+
+	PackIndex packIndex = packLocation.getPackIndex();
+	long offset = packLocation.getOffset();
+	Deque<PendingDelta> pendingDeltas = new ArrayDeque<>();
+
+	// Walk down the chain to a cached base or to a whole object
+	int type;
+	byte[] data;
+	while (true) {
+	    PackFile packFile = packFile(packIndex);
+	    DeltaBaseCache.Entry cached = deltaBaseCache.get(packFile.getFile(), offset);
+	    if (cached != null) {
+		type = cached.type;
+		data = cached.data;
+		break;
+	    }
+
+	    EntryHeader entryHeader = readEntryHeader(packFile, offset, packIndex.getHashLength());
+	    if (!isDelta(entryHeader.type)) {
+		type = entryHeader.type;
+		data = inflate(packFile, offset + entryHeader.length, entryHeader.size);
+		if (!pendingDeltas.isEmpty()) {
+		    deltaBaseCache.put(packFile.getFile(), offset, type, data);
+		}
+		break;
+	    }
+
+	    if (pendingDeltas.size() >= MAX_CHAIN_LENGTH) {
+		throw new IOException("Delta chain too long: " + id);
+	    }
+	    pendingDeltas.push(new PendingDelta(packFile, offset, offset + entryHeader.length, entryHeader.size));
+	    packLocation = baseLocation(packIndex, offset, entryHeader);
+	    packIndex = packLocation.getPackIndex();
+	    offset = packLocation.getOffset();
+	}
+
+	// Apply the deltas, innermost first
+	while (!pendingDeltas.isEmpty()) {
+	    PendingDelta pendingDelta = pendingDeltas.pop();
+	    byte[] delta = inflate(pendingDelta.packFile, pendingDelta.dataOffset, pendingDelta.size);
+	    data = applyDelta(data, delta);
+	    if (!pendingDeltas.isEmpty()) {
+		deltaBaseCache.put(pendingDelta.packFile.getFile(), pendingDelta.offset, type, data);
+	    }
+	}
+
+	return new GitObject(new GitObjectHeader(id, typeName(type), data.length), data);
+    }
+
+    /**
+     * Locates the base of a delta entry.
+     */
+    private PackLocation baseLocation(PackIndex packIndex, long offset, EntryHeader entryHeader)
+	    throws IOException {
+	if (entryHeader.type == OBJ_OFS_DELTA) {
+	    return new PackLocation(packIndex, entryHeader.baseOffset);
+	}
+
+	// REF_DELTA: the base is normally in the same pack
+	long baseOffset = packIndex.findOffset(entryHeader.baseId);
+	if (baseOffset >= 0) {
+	    return new PackLocation(packIndex, baseOffset);
+	}
+	PackLocation packLocation = packDirectory.find(entryHeader.baseId);
+	if (packLocation == null) {
+	    throw new IOException("Missing delta base "
+		    + ObjectIds.toHex(entryHeader.baseId, 0, entryHeader.baseId.length) + " for offset " + offset
+		    + " in " + packIndex.getPackFile());
+	}
+	return packLocation;
+    }
+
+    /**
+     * Reads the header of the entry at an offset: type, size and, for a delta,
+     * the location of its base.
+     */
+    private static EntryHeader readEntryHeader(PackFile packFile, long offset, int hashLength) throws IOException {
+	byte[] bytes = new byte[MAX_ENTRY_HEADER_LENGTH];
+	int length = packFile.read(offset, bytes, 0, bytes.length);
+
+	EntryHeader entryHeader = new EntryHeader();
+	int position = 0;
+	int c = byteAt(bytes, length, position++);
+	entryHeader.type = (c >> 4) & 0x07;
+	long size = c & 0x0f;
+	int shift = 4;
+	while ((c & 0x80) != 0) {
+	    if (shift > 57) {
+		throw new IOException("Invalid entry size at offset " + offset + " in " + packFile.getFile());
+	    }
+	    c = byteAt(bytes, length, position++);
+	    size |= (long) (c & 0x7f) << shift;
+	    shift += 7;
+	}
+	entryHeader.size = size;
+
+	if (entryHeader.type == OBJ_OFS_DELTA) {
+	    // Big-endian, with an implicit +1 on each continuation
+	    c = byteAt(bytes, length, position++);
+	    long distance = c & 0x7f;
+	    while ((c & 0x80) != 0) {
+		if (distance > (Long.MAX_VALUE >>> 8)) {
+		    throw new IOException("Invalid delta base offset at " + offset + " in " + packFile.getFile());
+		}
+		c = byteAt(bytes, length, position++);
+		distance = ((distance + 1) << 7) | (c & 0x7f);
+	    }
+	    if (distance == 0 || distance > offset) {
+		throw new IOException("Invalid delta base offset at " + offset + " in " + packFile.getFile());
+	    }
+	    entryHeader.baseOffset = offset - distance;
+	} else if (entryHeader.type == OBJ_REF_DELTA) {
+	    if (position + hashLength > length) {
+		throw new EOFException("Truncated entry at offset " + offset + " in " + packFile.getFile());
+	    }
+	    entryHeader.baseId = Arrays.copyOfRange(bytes, position, position + hashLength);
+	    position += hashLength;
+	}
+
+	entryHeader.length = position;
+	return entryHeader;
+    }
+
+    private static int byteAt(byte[] bytes, int length, int position) throws EOFException {
+	if (position >= length) {
+	    throw new EOFException("Truncated pack entry header.");
+	}
+	return bytes[position] & 0xff;
+    }
+
+    private static boolean isDelta(int type) {
+	return type == OBJ_OFS_DELTA || type == OBJ_REF_DELTA;
+    }
+
+    private static String typeName(int type) throws IOException {
+	if (type < 1 || type >= TYPE_NAMES.length) {
+	    throw new IOException("Invalid pack entry type: " + type);
+	}
+	return TYPE_NAMES[type];
+    }
+
+    /**
+     * Inflates the whole zlib stream of an entry.
+     *
+     * @param size the inflated size declared in the entry header
+     */
+    private static byte[] inflate(PackFile packFile, long position, long size) throws IOException {
+	if (size > LooseObjectReader.MAX_OBJECT_SIZE) {
+	    throw new IOException("Object too large to be read in memory: " + size + " bytes in " + packFile.getFile());
+	}
+	byte[] data = new byte[(int) size];
+	if (inflate(packFile, position, data) != data.length) {
+	    throw new IOException("Entry shorter than its declared size at " + position + " in " + packFile.getFile());
+	}
+	return data;
+    }
+
+    /**
+     * Inflates the start of a zlib stream.
+     *
+     * @return the number of inflated bytes, less than the length of out only if
+     *         the stream is shorter
+     */
+    private static int inflate(PackFile packFile, long position, byte[] out) throws IOException {
+	InflaterPool.Entry entry = InflaterPool.acquire();
+	try {
+	    Inflater inflater = entry.inflater;
+	    int length = 0;
+	    while (length < out.length) {
+		int count = inflater.inflate(out, length, out.length - length);
+		if (count > 0) {
+		    length += count;
+		} else if (inflater.finished()) {
+		    break;
+		} else if (inflater.needsDictionary()) {
+		    throw new DataFormatException("Preset dictionary not supported.");
+		} else if (inflater.needsInput()) {
+		    int read = packFile.read(position, entry.buffer, 0, entry.buffer.length);
+		    if (read <= 0) {
+			throw new EOFException("Truncated entry in " + packFile.getFile());
+		    }
+		    position += read;
+		    inflater.setInput(entry.buffer, 0, read);
+		}
+	    }
+	    return length;
+	} catch (DataFormatException e) {
+	    throw new IOException("Corrupt entry in " + packFile.getFile(), e);
+	} finally {
+	    InflaterPool.release(entry);
+	}
+    }
+
+    /**
+     * Applies a delta to its base. A delta holds the sizes of the base and of
+     * the result, then instructions that either copy a range of the base or
+     * insert literal bytes.
+     */
+    static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+	try {
+	    int[] position = { 0 };
+	    long baseSize = readVarint(delta, delta.length, position);
+	    long resultSize = readVarint(delta, delta.length, position);
+	    if (baseSize != base.length) {
+		throw new IOException("Delta base size mismatch: " + baseSize + " != " + base.length);
+	    }
+	    if (resultSize > LooseObjectReader.MAX_OBJECT_SIZE) {
+		throw new IOException("Object too large to be read in memory: " + resultSize + " bytes.");
+	    }
+
+	    byte[] result = new byte[(int) resultSize];
+	    int resultLength = 0;
+	    int p = position[0];
+	    while (p < delta.length) {
+		int command = delta[p++] & 0xff;
+		if ((command & 0x80) != 0) {
+		    // Copy from the base: the present bytes of offset and size are flagged
+		    long copyOffset = 0;
+		    int copySize = 0;
+		    if ((command & 0x01) != 0) {
+			copyOffset = delta[p++] & 0xff;
+		    }
+		    if ((command & 0x02) != 0) {
+			copyOffset |= (delta[p++] & 0xff) << 8;
+		    }
+		    if ((command & 0x04) != 0) {
+			copyOffset |= (delta[p++] & 0xff) << 16;
+		    }
+		    if ((command & 0x08) != 0) {
+			copyOffset |= (long) (delta[p++] & 0xff) << 24;
+		    }
+		    if ((command & 0x10) != 0) {
+			copySize = delta[p++] & 0xff;
+		    }
+		    if ((command & 0x20) != 0) {
+			copySize |= (delta[p++] & 0xff) << 8;
+		    }
+		    if ((command & 0x40) != 0) {
+			copySize |= (delta[p++] & 0xff) << 16;
+		    }
+		    if (copySize == 0) {
+			copySize = 0x10000;
+		    }
+		    if (copyOffset + copySize > base.length || resultLength + copySize > result.length) {
+			throw new IOException("Delta copy out of bounds.");
+		    }
+		    System.arraycopy(base, (int) copyOffset, result, resultLength, copySize);
+		    resultLength += copySize;
+		} else if (command != 0) {
+		    // Insert the next command bytes
+		    if (p + command > delta.length || resultLength + command > result.length) {
+			throw new IOException("Delta insert out of bounds.");
+		    }
+		    System.arraycopy(delta, p, result, resultLength, command);
+		    p += command;
+		    resultLength += command;
+		} else {
+		    throw new IOException("Invalid delta command 0.");
+		}
+	    }
+
+	    if (resultLength != result.length) {
+		throw new IOException("Delta result size mismatch: " + resultLength + " != " + result.length);
+	    }
+	    return result;
+	} catch (ArrayIndexOutOfBoundsException e) {
+	    throw new IOException("Truncated delta.", e);
+	}
+    }
+
+    /**
+     * Reads a little-endian base 128 size of a delta header.
+     */
+    private static long readVarint(byte[] bytes, int length, int[] position) throws IOException {
+	long value = 0;
+	int shift = 0;
+	int c;
+	do {
+	    if (position[0] >= length || shift > 57) {
+		throw new IOException("Invalid delta header.");
+	    }
+	    c = bytes[position[0]++] & 0xff;
+	    value |= (long) (c & 0x7f) << shift;
+	    shift += 7;
+	} while ((c & 0x80) != 0);
+	return value;
+    }
+
+    /**
+     * Gets the opened pack file of an index, opening it if needed. The pack
+     * files that left the pack directory are closed.
+     */
+    private PackFile packFile(PackIndex packIndex) throws IOException {
+	File file = packIndex.getPackFile();
+	PackFile packFile = packFiles.get(file);
+	if (packFile != null) {
+	    return packFile;
+	}
+
+	synchronized (packFiles) {
+	    if (closed) {
+		throw new IOException("PackReader is closed: " + packDirectory);
+	    }
+	    packFile = packFiles.get(file);
+	    if (packFile == null) {
+		closeRemovedPackFiles();
+		packFile = PackFile.open(file);
+		packFiles.put(file, packFile);
+	    }
+	    return packFile;
+	}
+    }
+
+    private void closeRemovedPackFiles() {
+	Set<File> current = new HashSet<>();
+	for (PackIndex packIndex : packDirectory.getPackIndexes()) {
+	    current.add(packIndex.getPackFile());
+	}
+	Iterator<Map.Entry<File, PackFile>> iterator = packFiles.entrySet().iterator();
+	while (iterator.hasNext()) {
+	    Map.Entry<File, PackFile> entry = iterator.next();
+	    if (!current.contains(entry.getKey())) {
+		iterator.remove();
+		try {
+		    entry.getValue().close();
+		} catch (IOException ignore) {
+		    // Nothing more to do
+		}
+	    }
+	}
+    }
+
+    /**
+     * Closes the opened pack files and clears the delta base cache. Reads
+     * fail afterwards.
+     */
+    @Override
+    public void close() {
+	synchronized (packFiles) {
+	    closed = true;
+	    for (PackFile packFile : packFiles.values()) {
+		try {
+		    packFile.close();
+		} catch (IOException ignore) {
+		    // Nothing more to do
+		}
+	    }
+	    packFiles.clear();
+	}
+	deltaBaseCache.clear();
+    }
+
+    @Override
+    public String toString() {
+	return "PackReader [packDirectory=" + packDirectory + ", deltaBaseCache=" + deltaBaseCache + "]";
+    }
+}
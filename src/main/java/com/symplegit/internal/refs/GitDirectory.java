@@ -0,0 +1,191 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.refs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Locates the Git directories of a repository from its working directory,
+ * without starting a Git process. <br>
+ * <br>
+ * Supports:
+ * <ul>
+ * <li>Standard repositories, with a {@code .git} directory.</li>
+ * <li>Linked worktrees and submodules, with a {@code .git} file holding a
+ * {@code gitdir: <path>} line.</li>
+ * <li>Bare repositories, when the working directory is the Git directory
+ * itself.</li>
+ * </ul>
+ * The Git directory holds the {@code HEAD} of the worktree. The common
+ * directory holds the refs, the packed-refs and the objects shared by all
+ * worktrees: this is the Git directory itself, except for linked worktrees.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitDirectory {
+
+    private static final String GITDIR_PREFIX = "gitdir:";
+
+    private final File gitDir;
+    private final File commonDir;
+    private volatile int hashLength = 0;
+
+    private GitDirectory(File gitDir, File commonDir) {
+	this.gitDir = gitDir;
+	this.commonDir = commonDir;
+    }
+
+    /**
+     * Locates the Git directories of the repository whose working directory is
+     * passed. Parent directories are not searched.
+     *
+     * @param directory the working directory of the repository, or the Git
+     *                  directory of a bare repository
+     * @return the GitDirectory, or null if the directory is not the root of a
+     *         Git repository
+     */
+    public static GitDirectory find(File directory) {
+	Objects.requireNonNull(directory, "directory cannot be null!");
+
+	File dotGit = new File(directory, ".git");
+	File gitDir = null;
+
+	try {
+	    if (dotGit.isDirectory()) {
+		gitDir = dotGit;
+	    } else if (dotGit.isFile()) {
+		gitDir = readGitDirFile(dotGit);
+	    } else if (new File(directory, "HEAD").isFile() && new File(directory, "objects").isDirectory()) {
+		gitDir = directory; // Bare repository
+	    }
+
+	    if (gitDir == null || !new File(gitDir, "HEAD").isFile()) {
+		return null;
+	    }
+
+	    return new GitDirectory(gitDir, readCommonDir(gitDir));
+	} catch (IOException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Gets the Git directory, that holds the {@code HEAD} of the worktree.
+     *
+     * @return the Git directory
+     */
+    public File getGitDir() {
+	return gitDir;
+    }
+
+    /**
+     * Gets the common directory, that holds the refs, the packed-refs and the
+     * objects.
+     *
+     * @return the common directory
+     */
+    public File getCommonDir() {
+	return commonDir;
+    }
+
+    /**
+     * Gets the length in bytes of the object ids of the repository: 32 if the
+     * {@code extensions.objectFormat} of the repository is {@code sha256}, else
+     * 20. The configuration is read once.
+     *
+     * @return the length in bytes of the object ids
+     */
+    public int getHashLength() {
+	int length = hashLength;
+	if (length == 0) {
+	    length = readHashLength(new File(commonDir, "config"));
+	    hashLength = length;
+	}
+	return length;
+    }
+
+    /**
+     * Reads the object format from the {@code [extensions]} section of the
+     * repository configuration.
+     */
+    private static int readHashLength(File configFile) {
+	List<String> lines;
+	try {
+	    lines = Files.readAllLines(configFile.toPath(), StandardCharsets.UTF_8);
+	} catch (IOException e) {
+	    return 20;
+	}
+
+	boolean inExtensions = false;
+	for (String line : lines) {
+	    String trimmed = line.trim().toLowerCase(Locale.ROOT);
+	    if (trimmed.startsWith("[")) {
+		inExtensions = trimmed.startsWith("[extensions]");
+	    } else if (inExtensions && trimmed.startsWith("objectformat")) {
+		String value = trimmed.substring(trimmed.indexOf('=') + 1).trim();
+		return "sha256".equals(value) ? 32 : 20;
+	    }
+	}
+	return 20;
+    }
+
+    /**
+     * Reads the Git directory from a {@code .git} file.
+     */
+    private static File readGitDirFile(File dotGitFile) throws IOException {
+	String content = new String(Files.readAllBytes(dotGitFile.toPath()), StandardCharsets.UTF_8).trim();
+	if (!content.startsWith(GITDIR_PREFIX)) {
+	    return null;
+	}
+	return resolve(dotGitFile.getParentFile(), content.substring(GITDIR_PREFIX.length()).trim());
+    }
+
+    /**
+     * Reads the common directory of a Git directory: the {@code commondir} file
+     * exists only in the Git directories of linked worktrees.
+     */
+    private static File readCommonDir(File gitDir) throws IOException {
+	File commonDirFile = new File(gitDir, "commondir");
+	if (!commonDirFile.isFile()) {
+	    return gitDir;
+	}
+	String path = new String(Files.readAllBytes(commonDirFile.toPath()), StandardCharsets.UTF_8).trim();
+	return resolve(gitDir, path);
+    }
+
+    private static File resolve(File base, String path) throws IOException {
+	File file = new File(path);
+	if (!file.isAbsolute()) {
+	    file = new File(base, path);
+	}
+	return file.getCanonicalFile();
+    }
+
+    @Override
+    public String toString() {
+	return "GitDirectory [gitDir=" + gitDir + ", commonDir=" + commonDir + "]";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.refs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The content of a {@code packed-refs} file: the names of the packed
+ * references and their object ids. <br>
+ * Parsed files are cached: a file is parsed again only when its modification
+ * time or its size change.
+ *
+ * @author KawanSoft SAS
+ */
+final class PackedRefs {
+
+    private static final PackedRefs EMPTY = new PackedRefs(null, -1, Collections.emptyMap());
+
+    /** The parsed files, per path. */
+    private static final Map<File, PackedRefs> CACHE = new ConcurrentHashMap<>();
+
+    private final FileTime lastModified;
+    private final long size;
+    private final Map<String, String> refs;
+    private final boolean replaceRefs;
+
+    private PackedRefs(FileTime lastModified, long size, Map<String, String> refs) {
+	this.lastModified = lastModified;
+	this.size = size;
+	this.refs = refs;
+	this.replaceRefs = refs.keySet().stream().anyMatch(refName -> refName.startsWith("refs/replace/"));
+    }
+
+    /**
+     * Reads a {@code packed-refs} file, or gets it from the cache if it has not
+     * changed.
+     *
+     * @param file the {@code packed-refs} file
+     * @return the packed references, empty if the file does not exist
+     * @throws IOException if the file cannot be read or parsed
+     */
+    static PackedRefs read(File file) throws IOException {
+	BasicFileAttributes attrs;
+	try {
+	    attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+	} catch (NoSuchFileException e) {
+	    CACHE.remove(file);
+	    return EMPTY;
+	}
+
+	PackedRefs cached = CACHE.get(file);
+	if (cached != null && cached.size == attrs.size() && cached.lastModified.equals(attrs.lastModifiedTime())) {
+	    return cached;
+	}
+
+	PackedRefs packedRefs = new PackedRefs(attrs.lastModifiedTime(), attrs.size(), parse(file));
+	CACHE.put(file, packedRefs);
+	return packedRefs;
+    }
+
+    /**
+     * Parses the lines {@code <object id> <ref name>}. Comment lines ({@code #})
+     * and peeled lines ({@code ^<object id>}) are skipped.
+     */
+    private static Map<String, String> parse(File file) throws IOException {
+	Map<String, String> refs = new HashMap<>();
+	try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		if (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == '^') {
+		    continue;
+		}
+		int space = line.indexOf(' ');
+		if (space < 0 || !RefReader.isObjectId(line.substring(0, space))) {
+		    throw new IOException("Unsupported packed-refs line in " + file + ": " + line);
+		}
+		refs.put(line.substring(space + 1), line.substring(0, space));
+	    }
+	}
+	return refs;
+    }
+
+    /**
+     * Gets the object id of a packed reference.
+     *
+     * @param refName the full name of the reference, such as
+     *                {@code refs/heads/master}
+     * @return the object id, or null if the reference is not packed
+     */
+    String get(String refName) {
+	return refs.get(refName);
+    }
+
+    /**
+     * Says if replace references are packed. Computed once per parsed file.
+     *
+     * @return true if a packed reference is under {@code refs/replace/}
+     */
+    boolean hasReplaceRefs() {
+	return replaceRefs;
+    }
+}
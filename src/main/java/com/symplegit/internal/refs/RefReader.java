@@ -0,0 +1,252 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.refs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Reads {@code HEAD} and the references of a repository directly from the
+ * files: loose refs and {@code packed-refs}, in standard repositories and in
+ * linked worktrees. No Git process is started. <br>
+ * <br>
+ * The reader only handles the files format. It throws an
+ * {@link UnsupportedRefsException} for anything else, for example a repository
+ * using the reftable format, so that callers fall back to the Git command line.
+ *
+ * @author KawanSoft SAS
+ */
+public final class RefReader {
+
+    /** The prefix of the content of a symbolic ref. */
+    private static final String SYMREF_PREFIX = "ref: ";
+
+    /** The maximum depth of symbolic refs chains. */
+    private static final int MAX_SYMREF_DEPTH = 5;
+
+    private final GitDirectory gitDirectory;
+
+    /**
+     * Constructs a RefReader.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @throws UnsupportedRefsException if the repository does not use the files
+     *                                  format for its references
+     */
+    public RefReader(GitDirectory gitDirectory) throws UnsupportedRefsException {
+	this.gitDirectory = Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+	if (new File(gitDirectory.getCommonDir(), "reftable").isDirectory()) {
+	    throw new UnsupportedRefsException("reftable format is not supported: " + gitDirectory.getCommonDir());
+	}
+    }
+
+    /**
+     * Gets the reference that {@code HEAD} points to.
+     *
+     * @return the full name of the reference, such as {@code refs/heads/master},
+     *         or null if {@code HEAD} is detached
+     * @throws IOException if {@code HEAD} cannot be read or is not supported
+     */
+    public String getHeadTarget() throws IOException {
+	String head = readRefFile(new File(gitDirectory.getGitDir(), "HEAD").toPath());
+	if (head == null) {
+	    throw new UnsupportedRefsException("HEAD not found in " + gitDirectory.getGitDir());
+	}
+	if (head.startsWith(SYMREF_PREFIX)) {
+	    return head.substring(SYMREF_PREFIX.length()).trim();
+	}
+	if (isObjectId(head)) {
+	    return null;
+	}
+	throw new UnsupportedRefsException("Unsupported HEAD content: " + head);
+    }
+
+    /**
+     * Resolves a reference to an object id, following symbolic refs.
+     *
+     * @param refName the full name of the reference, such as
+     *                {@code refs/heads/master}, or {@code HEAD}
+     * @return the object id, or null if the reference does not exist
+     * @throws IOException if a reference cannot be read or is not supported
+     */
+    public String resolve(String refName) throws IOException {
+	String name = refName;
+	for (int depth = 0; depth < MAX_SYMREF_DEPTH; depth++) {
+	    String value = readRef(name);
+	    if (value == null) {
+		return null;
+	    }
+	    if (!value.startsWith(SYMREF_PREFIX)) {
+		return value;
+	    }
+	    name = value.substring(SYMREF_PREFIX.length()).trim();
+	}
+	throw new UnsupportedRefsException("Symbolic refs chain too deep: " + refName);
+    }
+
+    /**
+     * Says if a reference exists, as a loose ref or as a packed ref.
+     *
+     * @param refName the full name of the reference, such as
+     *                {@code refs/heads/master}
+     * @return true if the reference exists
+     * @throws IOException if the reference cannot be read or is not supported
+     */
+    public boolean exists(String refName) throws IOException {
+	return readRef(refName) != null;
+    }
+
+    /**
+     * Says if the repository has replace references, loose or packed: Git then
+     * reads replacement objects instead of the original ones. <br>
+     * The packed references are parsed once per change of the
+     * {@code packed-refs} file.
+     *
+     * @return true if a reference exists under {@code refs/replace/}
+     * @throws IOException if the packed references cannot be read
+     */
+    public boolean hasReplaceRefs() throws IOException {
+	String[] looseRefs = new File(gitDirectory.getCommonDir(), "refs" + File.separator + "replace").list();
+	if (looseRefs != null && looseRefs.length > 0) {
+	    return true;
+	}
+	return PackedRefs.read(new File(gitDirectory.getCommonDir(), "packed-refs")).hasReplaceRefs();
+    }
+
+    /**
+     * Says if Git reads replacement objects in this repository: it has replace
+     * references, and the {@code GIT_NO_REPLACE_OBJECTS} environment variable
+     * is not set. A custom {@code GIT_REPLACE_REF_BASE} is assumed to hold
+     * replace references. <br>
+     * Objects must then be read by Git, not from the repository files.
+     *
+     * @return true if Git may read replacement objects
+     * @throws IOException if the packed references cannot be read
+     */
+    public boolean usesReplaceObjects() throws IOException {
+	if (System.getenv("GIT_NO_REPLACE_OBJECTS") != null) {
+	    return false;
+	}
+	if (System.getenv("GIT_REPLACE_REF_BASE") != null) {
+	    return true;
+	}
+	return hasReplaceRefs();
+    }
+
+    /**
+     * Says if a reference is a symbolic ref, pointing to another reference.
+     *
+     * @param refName the full name of the reference, such as
+     *                {@code refs/heads/master}
+     * @return true if the reference exists and is a symbolic ref
+     * @throws IOException if the reference cannot be read or is not supported
+     */
+    public boolean isSymbolic(String refName) throws IOException {
+	String value = readRef(refName);
+	return value != null && value.startsWith(SYMREF_PREFIX);
+    }
+
+    /**
+     * Reads the value of a reference: an object id, or {@code ref: <name>} for a
+     * symbolic ref. Loose refs take precedence over packed refs.
+     */
+    private String readRef(String refName) throws IOException {
+	if (!isSafeRefName(refName)) {
+	    throw new UnsupportedRefsException("Unsupported ref name: " + refName);
+	}
+
+	// HEAD and pseudo refs are per worktree, the refs/ hierarchy is shared
+	File baseDir = refName.startsWith("refs/") ? gitDirectory.getCommonDir() : gitDirectory.getGitDir();
+	Path loose = new File(baseDir, refName).toPath();
+	String value = readRefFile(loose);
+	if (value != null) {
+	    if (!loose.toRealPath().getFileName().toString().equals(loose.getFileName().toString())) {
+		return null; // Case-insensitive file system matched another ref
+	    }
+	    if (!value.startsWith(SYMREF_PREFIX) && !isObjectId(value)) {
+		throw new UnsupportedRefsException("Unsupported content of ref " + refName + ": " + value);
+	    }
+	    return value;
+	}
+
+	return PackedRefs.read(new File(gitDirectory.getCommonDir(), "packed-refs")).get(refName);
+    }
+
+    /**
+     * Reads a loose ref file.
+     *
+     * @return the trimmed content, or null if the file does not exist or is a
+     *         directory
+     */
+    private static String readRefFile(Path path) throws IOException {
+	if (Files.isDirectory(path)) {
+	    return null;
+	}
+	try {
+	    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+	} catch (NoSuchFileException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Says if a ref name can be safely mapped to a file: no empty, relative or
+     * hidden component, no character forbidden by Git.
+     */
+    static boolean isSafeRefName(String refName) {
+	if (refName == null || refName.isEmpty() || refName.startsWith("/") || refName.endsWith("/")
+		|| refName.endsWith(".lock") || refName.contains("..") || refName.contains("//")
+		|| refName.contains("@{") || refName.contains("/.") || refName.startsWith(".")) {
+	    return false;
+	}
+	for (int i = 0; i < refName.length(); i++) {
+	    char c = refName.charAt(i);
+	    if (c <= ' ' || c == 0x7F || c == '~' || c == '^' || c == ':' || c == '?' || c == '*' || c == '['
+		    || c == '\\') {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Says if a string is a SHA-1 or SHA-256 object id in hexadecimal.
+     *
+     * @param s the string to test
+     * @return true if the string is an object id
+     */
+    public static boolean isObjectId(String s) {
+	if (s == null || (s.length() != 40 && s.length() != 64)) {
+	    return false;
+	}
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+		return false;
+	    }
+	}
+	return true;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.refs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Computes a cheap fingerprint of the state of the references of a repository,
+ * using only {@code stat} calls: no file is read and no process is started.
+ * <br>
+ * <br>
+ * The fingerprint is built from the modification time and the size of
+ * {@code HEAD} and {@code packed-refs}, and from the modification time of each
+ * directory under {@code refs/}. Git updates a loose ref by renaming a lock file
+ * in the directory of the ref, and deletes loose refs from their directory:
+ * both change the modification time of that directory. <br>
+ * Two equal fingerprints mean that the references have not changed, within the
+ * timestamp resolution of the file system.
+ *
+ * @author KawanSoft SAS
+ */
+public final class RefStateFingerprint {
+
+    /**
+     * Private constructor
+     */
+    private RefStateFingerprint() {
+
+    }
+
+    /**
+     * Computes the fingerprint of the references of a repository.
+     *
+     * @param gitDirectory the Git directories of the repository
+     * @return the fingerprint
+     * @throws IOException if an I/O error occurs
+     */
+    public static String compute(GitDirectory gitDirectory) throws IOException {
+	Objects.requireNonNull(gitDirectory, "gitDirectory cannot be null!");
+
+	StringBuilder fingerprint = new StringBuilder(128);
+	appendFile(fingerprint, new File(gitDirectory.getGitDir(), "HEAD").toPath());
+	appendFile(fingerprint, new File(gitDirectory.getCommonDir(), "packed-refs").toPath());
+
+	Path refs = new File(gitDirectory.getCommonDir(), "refs").toPath();
+	if (Files.isDirectory(refs)) {
+	    Files.walkFileTree(refs, new SimpleFileVisitor<Path>() {
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+		    fingerprint.append(dir).append(':').append(attrs.lastModifiedTime().toInstant()).append(';');
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+		    if (exc instanceof NoSuchFileException) {
+			return FileVisitResult.CONTINUE; // Deleted while walking
+		    }
+		    throw exc;
+		}
+	    });
+	}
+
+	return fingerprint.toString();
+    }
+
+    private static void appendFile(StringBuilder fingerprint, Path file) throws IOException {
+	try {
+	    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+	    fingerprint.append(attrs.lastModifiedTime().toInstant()).append('/').append(attrs.size()).append(';');
+	} catch (NoSuchFileException e) {
+	    fingerprint.append("-;");
+	}
+    }
+}
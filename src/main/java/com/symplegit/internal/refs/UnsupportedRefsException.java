@@ -0,0 +1,43 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.internal.refs;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the references of a repository cannot be read directly from the
+ * files, for example because the repository uses the reftable format. Callers
+ * fall back to the Git command line.
+ *
+ * @author KawanSoft SAS
+ */
+public class UnsupportedRefsException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs an UnsupportedRefsException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public UnsupportedRefsException(String message) {
+	super(message);
+    }
+}
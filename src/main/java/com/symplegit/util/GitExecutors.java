@@ -0,0 +1,128 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors used by SympleGit to run and watch Git processes. <br>
+ * <br>
+ * The default executor is shared by all SympleGit instances that do not define
+ * their own executor. When the runtime is Java 21 or higher, it creates a
+ * virtual thread per task, so that thousands of concurrent process waits cost
+ * almost nothing. On older runtimes, it is a cached pool of daemon platform
+ * threads that are reused between commands. <br>
+ * <br>
+ * The shared executors live as long as the JVM and must not be shut down.
+ *
+ * @author KawanSoft SAS
+ */
+public final class GitExecutors {
+
+    private static final boolean VIRTUAL_THREADS;
+    private static final ExecutorService DEFAULT_EXECUTOR;
+    private static final ScheduledExecutorService SCHEDULER = Executors
+	    .newSingleThreadScheduledExecutor(daemonThreadFactory("symplegit-scheduler"));
+
+    static {
+	ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+	VIRTUAL_THREADS = virtualThreadExecutor != null;
+	DEFAULT_EXECUTOR = VIRTUAL_THREADS ? virtualThreadExecutor : newCachedDaemonThreadPool();
+    }
+
+    /**
+     * Private constructor
+     */
+    private GitExecutors() {
+
+    }
+
+    /**
+     * Gets the default shared executor used to run Git commands.
+     *
+     * @return the default shared executor
+     */
+    public static ExecutorService defaultExecutor() {
+	return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Says if the default shared executor uses virtual threads.
+     *
+     * @return true if the runtime supports virtual threads (Java 21+), else false
+     */
+    public static boolean isVirtualThreadExecutor() {
+	return VIRTUAL_THREADS;
+    }
+
+    /**
+     * Gets the shared single thread scheduler used for housekeeping tasks, such
+     * as the eviction of idle processes. Scheduled tasks must be short and must
+     * not block.
+     *
+     * @return the shared scheduler
+     */
+    public static ScheduledExecutorService scheduler() {
+	return SCHEDULER;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, using
+     * reflection so that the library still runs on Java 11.
+     *
+     * @return the virtual thread executor, or null if the runtime does not
+     *         support virtual threads
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+	try {
+	    Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+	    return (ExecutorService) method.invoke(null);
+	} catch (ReflectiveOperationException | RuntimeException e) {
+	    // Java < 21, or preview feature not enabled
+	    return null;
+	}
+    }
+
+    /**
+     * Creates a cached pool of daemon threads: threads are created on demand,
+     * reused between tasks and stopped after one minute of inactivity.
+     */
+    private static ExecutorService newCachedDaemonThreadPool() {
+	return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+		daemonThreadFactory("symplegit-executor"));
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+	AtomicInteger threadNumber = new AtomicInteger(1);
+	return runnable -> {
+	    Thread thread = new Thread(runnable, prefix + "-" + threadNumber.getAndIncrement());
+	    thread.setDaemon(true);
+	    return thread;
+	};
+    }
+}
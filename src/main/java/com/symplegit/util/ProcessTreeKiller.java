@@ -0,0 +1,147 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.util;
+
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Kills a process together with all its descendants. Git commands start
+ * helper processes such as {@code git-remote-https}, {@code index-pack},
+ * {@code pack-objects} or hooks, which survive the top-level {@code git}
+ * process if only this one is killed. <br>
+ * <br>
+ * Processes are first asked to terminate gracefully. Those still alive after
+ * the grace period are killed forcibly.
+ *
+ * @author KawanSoft SAS
+ */
+public final class ProcessTreeKiller {
+
+    /**
+     * Private constructor
+     */
+    private ProcessTreeKiller() {
+
+    }
+
+    /**
+     * Kills a process and all its descendants.
+     *
+     * @param process     the root process
+     * @param gracePeriod the time left to the processes to terminate gracefully
+     *                    before they are killed forcibly. 0 means immediate
+     *                    forcible kill.
+     * @param unit        the time unit of the gracePeriod argument
+     * @return the number of processes that were alive and have been terminated
+     */
+    public static int kill(Process process, long gracePeriod, TimeUnit unit) {
+	Objects.requireNonNull(process, "process cannot be null!");
+	return kill(process.toHandle(), gracePeriod, unit);
+    }
+
+    /**
+     * Kills a process and all its descendants.
+     *
+     * @param root        the root process
+     * @param gracePeriod the time left to the processes to terminate gracefully
+     *                    before they are killed forcibly. 0 means immediate
+     *                    forcible kill.
+     * @param unit        the time unit of the gracePeriod argument
+     * @return the number of processes that were alive and have been terminated
+     */
+    public static int kill(ProcessHandle root, long gracePeriod, TimeUnit unit) {
+	Objects.requireNonNull(root, "root cannot be null!");
+	Objects.requireNonNull(unit, "unit cannot be null!");
+
+	// Snapshot the tree before anything dies: orphans are re-parented and
+	// would not be descendants anymore
+	Set<ProcessHandle> processes = collectAlive(root);
+	if (processes.isEmpty()) {
+	    return 0;
+	}
+
+	if (gracePeriod > 0) {
+	    for (ProcessHandle processHandle : processes) {
+		processHandle.destroy();
+	    }
+	    waitForExit(processes, unit.toNanos(gracePeriod));
+	}
+
+	// Escalate. Children started during the grace period are included
+	for (ProcessHandle processHandle : new LinkedHashSet<>(processes)) {
+	    if (processHandle.isAlive()) {
+		processes.addAll(collectAlive(processHandle));
+	    }
+	}
+	for (ProcessHandle processHandle : processes) {
+	    if (processHandle.isAlive()) {
+		processHandle.destroyForcibly();
+	    }
+	}
+
+	return processes.size();
+    }
+
+    /**
+     * Collects a process and its descendants that are still alive, deepest
+     * descendants first: each process comes after all its descendants.
+     */
+    private static Set<ProcessHandle> collectAlive(ProcessHandle root) {
+	Set<ProcessHandle> processes = new LinkedHashSet<>();
+	collectAlive(root, processes);
+	return processes;
+    }
+
+    /**
+     * Walks the tree of a process in post-order.
+     */
+    private static void collectAlive(ProcessHandle process, Set<ProcessHandle> processes) {
+	process.children().forEach(child -> collectAlive(child, processes));
+	if (process.isAlive()) {
+	    processes.add(process);
+	}
+    }
+
+    /**
+     * Waits until all processes are dead or until the timeout expires.
+     */
+    private static void waitForExit(Set<ProcessHandle> processes, long timeoutNanos) {
+	long deadline = System.nanoTime() + timeoutNanos;
+	for (ProcessHandle processHandle : processes) {
+	    long remaining = deadline - System.nanoTime();
+	    if (remaining <= 0) {
+		return;
+	    }
+	    try {
+		processHandle.onExit().get(remaining, TimeUnit.NANOSECONDS);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    } catch (ExecutionException | TimeoutException e) {
+		return;
+	    }
+	}
+    }
+}
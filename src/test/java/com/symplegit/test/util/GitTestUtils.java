@@ -19,10 +19,17 @@
  */
 package com.symplegit.test.util;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import org.apache.commons.io.FileUtils;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+
 public class GitTestUtils {
 
     /**
@@ -45,9 +52,45 @@ public class GitTestUtils {
 
         return tempDir;
     }
+
+    /**
+     * Creates a new temporary Git repository with a local identity and an initial
+     * commit. An existing directory with the same name is deleted first, so each
+     * call starts from a known state.
+     * @param name the name of the directory to create in java.io.tmpdir
+     * @return The File object representing the created directory.
+     * @throws IOException if an error occurs during directory creation.
+     */
+    public static File createNewTemporaryGitRepo(String name) throws IOException {
+	File tempDir = new File(System.getProperty("java.io.tmpdir") + File.separator + name);
+	FileUtils.deleteDirectory(tempDir);
+	tempDir.mkdirs();
+
+	executeGitCommand(tempDir, "git", "init");
+	executeGitCommand(tempDir, "git", "symbolic-ref", "HEAD", "refs/heads/master");
+	executeGitCommand(tempDir, "git", "config", "user.name", "SympleGit Test");
+	executeGitCommand(tempDir, "git", "config", "user.email", "test@symplegit.com");
+	makeInitialCommit(tempDir);
+	return tempDir;
+    }
     
 
 
+    /**
+     * Executes a Git command with the commander of a SympleGit instance and
+     * asserts that it succeeds.
+     * @param sympleGit the SympleGit instance of the repository
+     * @param command the Git command to execute
+     * @return the output of the command
+     * @throws IOException if an error occurs during command execution.
+     */
+    public static String git(SympleGit sympleGit, String... command) throws IOException {
+	GitCommander commander = sympleGit.gitCommander();
+	commander.executeGitCommand(command);
+	assertTrue(commander.isResponseOk(), commander.getProcessError());
+	return commander.getProcessOutput();
+    }
+
     public static void createAndCheckoutBranch(File repoDir, String branchName) throws IOException {
         executeGitCommand(repoDir, "git", "checkout", "-b", branchName);
     }
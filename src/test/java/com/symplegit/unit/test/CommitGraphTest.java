@@ -0,0 +1,281 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitMerge;
+import com.symplegit.internal.graph.CommitGraph;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.test.util.GitTestUtils;
+
+public class CommitGraphTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+    private int fileCount = 0;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commit_graph");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+
+        // Criss-cross merges: two best merge bases
+        git(sympleGit, "git", "checkout", "-q", "-b", "side");
+        commit("side 1");
+        git(sympleGit, "git", "checkout", "-q", "master");
+        commit("master 1");
+        git(sympleGit, "git", "checkout", "-q", "-b", "cross", "side");
+        git(sympleGit, "git", "merge", "-q", "--no-ff", "-m", "cross merge", "master");
+        git(sympleGit, "git", "checkout", "-q", "master");
+        git(sympleGit, "git", "merge", "-q", "--no-ff", "-m", "master merge", "side");
+        commit("master 2");
+        git(sympleGit, "git", "checkout", "-q", "cross");
+        commit("cross 1");
+
+        // Octopus merge: parents beyond the second are in the EDGE chunk
+        git(sympleGit, "git", "checkout", "-q", "master");
+        for (int i = 1; i <= 3; i++) {
+            git(sympleGit, "git", "checkout", "-q", "-b", "octo" + i, "master");
+            commit("octo " + i);
+        }
+        git(sympleGit, "git", "checkout", "-q", "master");
+        git(sympleGit, "git", "merge", "-q", "--no-ff", "-m", "octopus", "octo1", "octo2", "octo3");
+        commit("master 3");
+
+        // Unrelated history
+        git(sympleGit, "git", "checkout", "-q", "--orphan", "orphan");
+        commit("orphan 1");
+        git(sympleGit, "git", "checkout", "-q", "master");
+    }
+
+    private void commit(String message) throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "file_" + (fileCount++) + ".txt", message);
+        git(sympleGit, "git", "add", ".");
+        git(sympleGit, "git", "commit", "-q", "-m", message);
+    }
+
+    private List<String> allCommits() throws IOException {
+        return Arrays.asList(git(sympleGit, "git", "rev-list", "--all").trim().split("\n"));
+    }
+
+    private CommitGraph openGraph() throws IOException {
+        CommitGraph commitGraph = CommitGraph.open(GitDirectory.find(tempRepo));
+        assertNotNull(commitGraph);
+        return commitGraph;
+    }
+
+    private void assertGraphMatchesGit(CommitGraph commitGraph) throws IOException {
+        List<String> commits = allCommits();
+        assertEquals(commits.size(), commitGraph.getCommitCount());
+
+        for (String line : git(sympleGit, "git", "rev-list", "--all", "--parents").trim().split("\n")) {
+            String[] ids = line.split(" ");
+            int position = commitGraph.findPosition(ids[0]);
+            assertEquals(ids[0], commitGraph.getObjectId(position));
+            int[] parents = commitGraph.getParents(position);
+            assertEquals(ids.length - 1, parents.length, ids[0]);
+            for (int i = 0; i < parents.length; i++) {
+                assertEquals(ids[i + 1], commitGraph.getObjectId(parents[i]));
+            }
+            if (parents.length == 0) {
+                assertEquals(1, commitGraph.getGeneration(position));
+            }
+            assertEquals(Long.parseLong(git(sympleGit, "git", "show", "-s", "--format=%ct", ids[0]).trim()),
+                    commitGraph.getCommitTime(position));
+        }
+
+        for (String descendant : commits) {
+            Set<String> ancestors = new HashSet<>(allAncestors(descendant));
+            for (String ancestor : commits) {
+                assertEquals(ancestors.contains(ancestor),
+                        commitGraph.isAncestor(commitGraph.findPosition(ancestor), commitGraph.findPosition(descendant)),
+                        ancestor + " ancestor of " + descendant);
+            }
+        }
+    }
+
+    private List<String> allAncestors(String commit) throws IOException {
+        return Arrays.asList(git(sympleGit, "git", "rev-list", commit).trim().split("\n"));
+    }
+
+    private Set<String> gitMergeBases(String commit1, String commit2) throws IOException {
+        GitCommander commander = sympleGit.gitCommander();
+        commander.executeGitCommand("git", "merge-base", "--all", commit1, commit2);
+        String output = commander.getProcessOutput().trim();
+        return output.isEmpty() ? new TreeSet<>() : new TreeSet<>(Arrays.asList(output.split("\n")));
+    }
+
+    @Test
+    public void testSingleFile() throws IOException {
+        git(sympleGit, "git", "commit-graph", "write", "--reachable");
+        assertTrue(new File(tempRepo, ".git/objects/info/commit-graph").isFile());
+        assertGraphMatchesGit(openGraph());
+    }
+
+    @Test
+    public void testMergeBases() throws IOException {
+        git(sympleGit, "git", "commit-graph", "write", "--reachable");
+        CommitGraph commitGraph = openGraph();
+
+        String[] tips = { "master", "side", "cross", "octo1", "octo2", "octo3", "orphan",
+                "master~1", "cross~1", "master~1^2", "master~1^4" };
+        for (String tip1 : tips) {
+            for (String tip2 : tips) {
+                String commit1 = git(sympleGit, "git", "rev-parse", tip1).trim();
+                String commit2 = git(sympleGit, "git", "rev-parse", tip2).trim();
+                int[] positions = commitGraph.getMergeBases(commitGraph.findPosition(commit1),
+                        commitGraph.findPosition(commit2));
+                Set<String> mergeBases = new TreeSet<>();
+                for (int position : positions) {
+                    mergeBases.add(commitGraph.getObjectId(position));
+                }
+                assertEquals(gitMergeBases(commit1, commit2), mergeBases, tip1 + " " + tip2);
+            }
+        }
+
+        // Criss-cross merge
+        assertEquals(2, gitMergeBases("master~1", "cross").size());
+    }
+
+    @Test
+    public void testSplitChain() throws IOException {
+        git(sympleGit, "git", "commit-graph", "write", "--reachable", "--split=no-merge");
+        git(sympleGit, "git", "checkout", "-q", "-b", "after-split", "master");
+        commit("after split");
+        git(sympleGit, "git", "merge", "-q", "--no-ff", "-m", "merge cross", "cross");
+        git(sympleGit, "git", "commit-graph", "write", "--reachable", "--split=no-merge");
+
+        File chain = new File(tempRepo, ".git/objects/info/commit-graphs/commit-graph-chain");
+        assertTrue(chain.isFile());
+        assertEquals(2, git(sympleGit, "git", "-c", "alias.cat-chain=!cat", "cat-chain", chain.getAbsolutePath())
+                .trim().split("\n").length);
+        assertFalse(new File(tempRepo, ".git/objects/info/commit-graph").exists());
+        assertGraphMatchesGit(openGraph());
+    }
+
+    @Test
+    public void testGitMergeFacilitator() throws IOException {
+        GitMerge gitMerge = new GitMerge(sympleGit);
+        List<Object> withoutGraph = new ArrayList<>();
+        List<Object> withGraph = new ArrayList<>();
+
+        for (List<Object> results : Arrays.asList(withoutGraph, withGraph)) {
+            if (results == withGraph) {
+                git(sympleGit, "git", "commit-graph", "write", "--reachable");
+                git(sympleGit, "git", "tag", "-a", "-m", "annotated", "v1", "side");
+            }
+            results.add(gitMerge.isAncestor("side", "master"));
+            assertTrue(gitMerge.isResponseOk());
+            results.add(gitMerge.isAncestor("master", "side"));
+            assertTrue(gitMerge.isResponseOk());
+            results.add(gitMerge.isAncestor("orphan", "master"));
+            results.add(gitMerge.getMergeBase("octo1", "octo2"));
+            results.add(gitMerge.getMergeBase("orphan", "master"));
+            assertTrue(gitMerge.isResponseOk());
+            results.add(gitMerge.isAncestor(git(sympleGit, "git", "rev-parse", "side").trim(), "HEAD"));
+        }
+        assertEquals(withoutGraph, withGraph);
+        assertEquals(Arrays.asList(true, false, false, git(sympleGit, "git", "rev-parse", "master~2").trim(), null, true),
+                withGraph);
+
+        // Annotated tag peeled to its commit
+        assertTrue(gitMerge.isAncestor("v1", "master"));
+
+        // A commit written after the graph is answered by Git
+        commit("after graph");
+        assertTrue(gitMerge.isAncestor("side", "HEAD"));
+        assertTrue(gitMerge.isResponseOk());
+
+        assertFalse(gitMerge.isAncestor("no-such-branch", "HEAD"));
+        assertFalse(gitMerge.isResponseOk());
+        assertNull(gitMerge.getMergeBase("no-such-branch", "HEAD"));
+        assertFalse(gitMerge.isResponseOk());
+    }
+
+    @Test
+    public void testReplaceRefs() throws IOException {
+        git(sympleGit, "git", "commit-graph", "write", "--reachable");
+        GitMerge gitMerge = new GitMerge(sympleGit);
+        assertFalse(gitMerge.isAncestor("orphan", "master"));
+        openGraph();
+
+        // Git ignores the graph when replace refs exist, loose or packed
+        git(sympleGit, "git", "replace", "--graft", "master", "orphan");
+        assertNull(CommitGraph.open(GitDirectory.find(tempRepo)));
+        git(sympleGit, "git", "pack-refs", "--all");
+        assertFalse(new File(tempRepo, ".git/refs/replace").exists()
+                && new File(tempRepo, ".git/refs/replace").list().length > 0);
+        assertNull(CommitGraph.open(GitDirectory.find(tempRepo)));
+        assertTrue(gitMerge.isAncestor("orphan", "master"));
+
+        git(sympleGit, "git", "replace", "-d", git(sympleGit, "git", "rev-parse", "master").trim());
+        openGraph();
+        assertFalse(gitMerge.isAncestor("orphan", "master"));
+    }
+
+    @Test
+    public void testNoGraph() throws IOException {
+        assertNull(CommitGraph.open(GitDirectory.find(tempRepo)));
+    }
+
+    @Test
+    public void testCacheIsBounded() throws IOException {
+        git(sympleGit, "git", "commit-graph", "write", "--reachable");
+        CommitGraph commitGraph = openGraph();
+        assertSame(commitGraph, openGraph());
+
+        for (int i = 0; i < CommitGraph.MAX_CACHED_GRAPHS; i++) {
+            File otherRepo = new File(tempRepo.getParentFile(), "git_test_repo_commit_graph_" + i);
+            FileUtils.deleteDirectory(otherRepo);
+            String path = otherRepo.getAbsolutePath();
+            git(sympleGit, "git", "init", "-q", path);
+            git(sympleGit, "git", "-C", path, "-c", "user.name=Test", "-c", "user.email=test@symplegit.com",
+                    "commit", "-q", "--allow-empty", "-m", "Commit " + i);
+            git(sympleGit, "git", "-C", path, "commit-graph", "write", "--reachable");
+            assertNotNull(CommitGraph.open(GitDirectory.find(otherRepo)));
+        }
+        assertNotSame(commitGraph, openGraph());
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitCommit;
+import com.symplegit.api.log.CommitHistoryPager;
+import com.symplegit.api.log.CommitRecord;
+import com.symplegit.api.log.HistoryCursor;
+import com.symplegit.api.log.HistoryPage;
+import com.symplegit.api.log.HistoryQuery;
+import com.symplegit.test.util.GitTestUtils;
+
+public class CommitHistoryPagerTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_history_pager");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+    }
+
+    private List<String> gitLog(String... options) throws IOException {
+        List<String> command = new ArrayList<>(Arrays.asList("git", "log", "--format=%H"));
+        command.addAll(Arrays.asList(options));
+        String output = git(sympleGit, command.toArray(new String[0])).trim();
+        return output.isEmpty() ? List.of() : Arrays.asList(output.split("\n"));
+    }
+
+    /**
+     * Commits a change of a file, alternately in two directories and by two
+     * authors.
+     */
+    private void makeCommits(String prefix, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            String directory = i % 2 == 0 ? "even" : "odd";
+            new File(tempRepo, directory).mkdirs();
+            GitTestUtils.createFileInRepo(tempRepo, directory + "/file.txt", prefix + " " + i);
+            git(sympleGit, "git", "add", ".");
+            git(sympleGit, "git", "commit", "-q", "-m", prefix + " " + i,
+                    "--author=" + (i % 3 == 0 ? "Alice <alice@example.com>" : "Bob <bob@example.com>"));
+        }
+    }
+
+    /**
+     * Reads all the pages and checks their size.
+     */
+    private List<String> readAllPages(CommitHistoryPager pager, int pageSize) throws IOException {
+        List<String> ids = new ArrayList<>();
+        HistoryPage page = pager.getFirstPage();
+        while (true) {
+            for (CommitRecord commitRecord : page.getCommits()) {
+                ids.add(commitRecord.getId());
+            }
+            if (!page.hasNext()) {
+                assertTrue(page.getCommits().size() <= pageSize);
+                return ids;
+            }
+            assertEquals(pageSize, page.getCommits().size());
+            page = pager.getPage(page.getNextCursor());
+        }
+    }
+
+    @Test
+    public void testPages() throws IOException {
+        makeCommits("Commit", 24);
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPageSize(10).build();
+        try (CommitHistoryPager pager = new GitCommit(sympleGit).getHistoryPager(historyQuery)) {
+            assertEquals(gitLog(), readAllPages(pager, 10));
+            // 25 commits: the second and third pages were read ahead
+            assertEquals(2, pager.getPrefetchHitCount());
+        }
+    }
+
+    @Test
+    public void testExactPageCount() throws IOException {
+        makeCommits("Commit", 19);
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPageSize(10).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            HistoryPage page = pager.getFirstPage();
+            assertTrue(page.hasNext());
+            page = pager.getPage(page.getNextCursor());
+            assertEquals(10, page.getCommits().size());
+            assertFalse(page.hasNext());
+            assertNull(page.getNextCursor());
+        }
+    }
+
+    @Test
+    public void testFilters() throws IOException {
+        makeCommits("Commit", 30);
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPaths("even").setAuthor("bob@example.com")
+                .setPageSize(3).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            List<String> expected = gitLog("--author=bob@example.com", "--", "even");
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, readAllPages(pager, 3));
+        }
+    }
+
+    @Test
+    public void testDateRange() throws IOException {
+        makeCommits("Commit", 4);
+        String commitTime = git(sympleGit, "git", "log", "-1", "--format=%ct").trim();
+
+        HistoryQuery historyQuery = HistoryQuery.custom()
+                .setUntil(Instant.ofEpochSecond(Long.parseLong(commitTime) - 3600)).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            HistoryPage page = pager.getFirstPage();
+            assertEquals(List.of(), page.getCommits());
+            assertFalse(page.hasNext());
+        }
+    }
+
+    @Test
+    public void testMergedHistory() throws IOException {
+        makeCommits("Main", 6);
+        git(sympleGit, "git", "checkout", "-q", "-b", "feature", "HEAD~3");
+        makeCommits("Feature", 5);
+        git(sympleGit, "git", "checkout", "-q", "master");
+        makeCommits("Main after", 4);
+        git(sympleGit, "git", "merge", "-q", "--no-edit", "-X", "theirs", "feature");
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPageSize(4).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            assertEquals(gitLog(), readAllPages(pager, 4));
+        }
+
+        historyQuery = HistoryQuery.custom().setPageSize(4).setFirstParent(true).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            assertEquals(gitLog("--first-parent"), readAllPages(pager, 4));
+        }
+    }
+
+    @Test
+    public void testPinnedStart() throws IOException {
+        makeCommits("Commit", 9);
+        List<String> expected = gitLog();
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPageSize(5).build();
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            HistoryPage firstPage = pager.getFirstPage();
+
+            // New commits do not shift the next pages
+            makeCommits("New", 3);
+            HistoryPage secondPage = pager.getPage(firstPage.getNextCursor());
+
+            List<String> ids = new ArrayList<>();
+            firstPage.getCommits().forEach(commitRecord -> ids.add(commitRecord.getId()));
+            secondPage.getCommits().forEach(commitRecord -> ids.add(commitRecord.getId()));
+            assertEquals(expected, ids);
+        }
+    }
+
+    @Test
+    public void testCursorToken() throws IOException {
+        makeCommits("Commit", 12);
+
+        HistoryQuery historyQuery = HistoryQuery.custom().setPageSize(5).build();
+        HistoryCursor cursor;
+        List<CommitRecord> expected;
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            cursor = pager.getFirstPage().getNextCursor();
+            expected = pager.getPage(cursor).getCommits();
+        }
+
+        // A new pager, as for a new request of a web UI
+        HistoryCursor parsedCursor = HistoryCursor.parse(cursor.toToken());
+        assertEquals(cursor, parsedCursor);
+        try (CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery)) {
+            HistoryPage page = pager.getPage(parsedCursor);
+            assertEquals(expected.size(), page.getCommits().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), page.getCommits().get(i).getId());
+            }
+            assertEquals(0, pager.getPrefetchHitCount());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("not a cursor"));
+    }
+
+    @Test
+    public void testCursorTokenValidation() {
+        String id = "0123456789abcdef0123456789abcdef01234567";
+        HistoryCursor cursor = HistoryCursor.parse("5/" + id + "/" + id + ",^" + id);
+        assertEquals(Arrays.asList(id, "^" + id), cursor.getStartIds());
+
+        // Ids are passed to git log: an option-like id must never get there
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("1/--output=/some/file/HEAD"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("1/" + id + "/--output=/tmp/x"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("1/--all/" + id));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("1/" + id + "/HEAD"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("1/" + id + "/" + id + ","));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("0/" + id + "/" + id));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.parse("-5/" + id + "/" + id));
+        assertThrows(IllegalArgumentException.class,
+                () -> HistoryCursor.parse("5/" + id.toUpperCase() + "/" + id));
+    }
+
+    @Test
+    public void testErrors() {
+        HistoryQuery historyQuery = HistoryQuery.custom().setRevisions("no-such-branch").build();
+        CommitHistoryPager pager = new CommitHistoryPager(sympleGit, historyQuery);
+        assertThrows(IOException.class, pager::getFirstPage);
+
+        pager.close();
+        assertThrows(IOException.class, pager::getFirstPage);
+    }
+}
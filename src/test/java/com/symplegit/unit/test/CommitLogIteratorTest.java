@@ -0,0 +1,164 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitCommit;
+import com.symplegit.api.log.CommitLogIterator;
+import com.symplegit.api.log.CommitRecord;
+import com.symplegit.test.util.GitTestUtils;
+
+public class CommitLogIteratorTest {
+
+    private static final int COMMIT_COUNT = 600;
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commit_log");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+        // The repository holds an initial commit
+    }
+
+    @Test
+    public void testFields() throws IOException {
+        // Message in a file: command line arguments depend on the platform charset
+        File messageFile = new File(tempRepo, "../commit_log_message.txt");
+        Files.write(messageFile.toPath(),
+                "Subject with \u00e9\n\nFirst line of body\nSecond line\n".getBytes(StandardCharsets.UTF_8));
+        git(sympleGit, "git", "commit", "-q", "--allow-empty", "--author=Jane Doe <jane@example.com>",
+                "--date=2024-03-01T10:15:30+0530", "-F", messageFile.getAbsolutePath());
+
+        String expected = git(sympleGit, "git", "log", "-1", "--format=%H%n%P%n%an%n%ae%n%at%n%cn%n%ce%n%ct").trim();
+        String[] lines = expected.split("\n");
+
+        List<CommitRecord> commitRecords = new ArrayList<>();
+        try (CommitLogIterator iterator = new GitCommit(sympleGit).getCommitLog()) {
+            while (iterator.hasNext()) {
+                commitRecords.add(iterator.next());
+            }
+        }
+        assertEquals(2, commitRecords.size());
+
+        CommitRecord commitRecord = commitRecords.get(0);
+        assertEquals(lines[0], commitRecord.getId());
+        assertEquals(List.of(lines[1]), commitRecord.getParentIds());
+        assertEquals("Jane Doe", commitRecord.getAuthorName());
+        assertEquals("jane@example.com", commitRecord.getAuthorEmail());
+        assertEquals(Long.parseLong(lines[4]), commitRecord.getAuthorTime());
+        assertEquals(lines[5], commitRecord.getCommitterName());
+        assertEquals(lines[6], commitRecord.getCommitterEmail());
+        assertEquals(Long.parseLong(lines[7]), commitRecord.getCommitTime());
+        assertEquals("2024-03-01T10:15:30+05:30", commitRecord.getAuthorDate().toString());
+        assertEquals("Subject with \u00e9", commitRecord.getSubject());
+        assertEquals("First line of body\nSecond line", commitRecord.getBody());
+        assertFalse(commitRecord.isMerge());
+
+        CommitRecord root = commitRecords.get(1);
+        assertEquals("Initial commit", root.getSubject());
+        assertEquals("", root.getBody());
+        assertEquals(List.of(), root.getParentIds());
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        git(sympleGit, "git", "checkout", "-q", "-b", "feature");
+        git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Feature");
+        git(sympleGit, "git", "checkout", "-q", "master");
+        git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Master");
+        git(sympleGit, "git", "merge", "-q", "--no-ff", "-m", "Merge feature", "feature");
+
+        try (Stream<CommitRecord> stream = new GitCommit(sympleGit).streamCommitLog("--max-count=1")) {
+            CommitRecord merge = stream.findFirst().get();
+            assertTrue(merge.isMerge());
+            assertEquals(git(sympleGit, "git", "rev-parse", "HEAD^1").trim(), merge.getParentIds().get(0));
+            assertEquals(git(sympleGit, "git", "rev-parse", "HEAD^2").trim(), merge.getParentIds().get(1));
+        }
+    }
+
+    @Test
+    public void testLongLog() throws IOException {
+        // More commits than the queue holds: the producer waits for the consumer
+        for (int i = 1; i < COMMIT_COUNT; i++) {
+            git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Commit " + i);
+        }
+
+        try (Stream<CommitRecord> stream = new GitCommit(sympleGit).streamCommitLog()) {
+            List<String> subjects = stream.map(CommitRecord::getSubject).collect(Collectors.toList());
+            assertEquals(COMMIT_COUNT, subjects.size());
+            assertEquals("Commit " + (COMMIT_COUNT - 1), subjects.get(0));
+            assertEquals("Initial commit", subjects.get(COMMIT_COUNT - 1));
+        }
+    }
+
+    @Test
+    public void testEarlyClose() throws IOException {
+        for (int i = 1; i < COMMIT_COUNT; i++) {
+            git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Commit " + i);
+        }
+
+        CommitLogIterator iterator = CommitLogIterator.execute(sympleGit);
+        assertTrue(iterator.hasNext());
+        assertEquals("Commit " + (COMMIT_COUNT - 1), iterator.next().getSubject());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testInvalidRevision() {
+        try (CommitLogIterator iterator = CommitLogIterator.execute(sympleGit, "no-such-branch")) {
+            UncheckedIOException exception = assertThrows(UncheckedIOException.class, iterator::hasNext);
+            assertTrue(exception.getMessage().contains("no-such-branch"), exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidRevisionMergedErrorStream() {
+        SympleGit mergedSympleGit = SympleGit.custom().setDirectory(tempRepo).build();
+        try (CommitLogIterator iterator = CommitLogIterator.execute(mergedSympleGit, "no-such-branch")) {
+            UncheckedIOException exception = assertThrows(UncheckedIOException.class, iterator::hasNext);
+            assertTrue(exception.getMessage().contains("no-such-branch"), exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.diff.DiffFile;
+import com.symplegit.api.diff.DiffFile.ChangeType;
+import com.symplegit.api.diff.DiffHandler;
+import com.symplegit.api.diff.DiffHunk;
+import com.symplegit.api.diff.DiffLine;
+import com.symplegit.api.diff.DiffOptions;
+import com.symplegit.api.diff.DiffParser;
+import com.symplegit.api.facilitator.GitDiff;
+import com.symplegit.test.util.GitTestUtils;
+
+public class DiffParserTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_diff_parser");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+    }
+
+    private void commitAll(String message) throws IOException {
+        git(sympleGit, "git", "add", "-A");
+        git(sympleGit, "git", "commit", "-q", "-m", message);
+    }
+
+    /**
+     * Records the events of a diff.
+     */
+    private static class RecordingHandler implements DiffHandler {
+
+        final List<DiffFile> files = new ArrayList<>();
+        final List<DiffHunk> hunks = new ArrayList<>();
+        final List<DiffLine> lines = new ArrayList<>();
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void file(DiffFile diffFile) {
+            files.add(diffFile);
+            events.add("file " + diffFile);
+        }
+
+        @Override
+        public void hunk(DiffHunk diffHunk) {
+            hunks.add(diffHunk);
+            events.add("hunk " + diffHunk);
+        }
+
+        @Override
+        public void line(DiffLine diffLine) {
+            lines.add(diffLine);
+            events.add("line " + diffLine);
+        }
+
+        DiffFile file(String path) {
+            for (DiffFile diffFile : files) {
+                if (path.equals(diffFile.getPath())) {
+                    return diffFile;
+                }
+            }
+            throw new AssertionError("No file " + path + " in " + files);
+        }
+    }
+
+    private RecordingHandler parseStagedDiff(DiffOptions diffOptions) throws IOException {
+        RecordingHandler handler = new RecordingHandler();
+        GitDiff gitDiff = new GitDiff(sympleGit);
+        gitDiff.parseStagedDiff(diffOptions, handler);
+        assertTrue(gitDiff.isResponseOk(), gitDiff.getError());
+        return handler;
+    }
+
+    @Test
+    public void testModifiedFile() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "lines.txt", "one\ntwo\nthree\nfour\nfive\nsix\nseven\n");
+        commitAll("Lines");
+        GitTestUtils.createFileInRepo(tempRepo, "lines.txt", "one\ntwo\n3\nfour\nfive\nsix\nseven\neight");
+        git(sympleGit, "git", "add", "lines.txt");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.DEFAULT);
+        assertEquals(1, handler.files.size());
+        DiffFile diffFile = handler.files.get(0);
+        assertEquals("lines.txt", diffFile.getOldPath());
+        assertEquals("lines.txt", diffFile.getNewPath());
+        assertEquals(ChangeType.MODIFIED, diffFile.getChangeType());
+        assertEquals(0100644, diffFile.getOldMode());
+        assertEquals(0100644, diffFile.getNewMode());
+        assertEquals(git(sympleGit, "git", "rev-parse", "HEAD:lines.txt").trim(), diffFile.getOldId());
+        assertEquals(git(sympleGit, "git", "rev-parse", ":lines.txt").trim(), diffFile.getNewId());
+        assertFalse(diffFile.isBinary());
+
+        assertEquals(1, handler.hunks.size());
+        DiffHunk diffHunk = handler.hunks.get(0);
+        assertEquals(1, diffHunk.getOldStart());
+        assertEquals(7, diffHunk.getOldCount());
+        assertEquals(1, diffHunk.getNewStart());
+        assertEquals(8, diffHunk.getNewCount());
+
+        List<String> lines = new ArrayList<>();
+        for (DiffLine diffLine : handler.lines) {
+            lines.add(diffLine.getType() + " " + diffLine.getOldLineNumber() + " " + diffLine.getNewLineNumber()
+                    + " " + diffLine.getText());
+        }
+        assertEquals(List.of("CONTEXT 1 1 one", "CONTEXT 2 2 two", "DELETED 3 0 three", "ADDED 0 3 3",
+                "CONTEXT 4 4 four", "CONTEXT 5 5 five", "CONTEXT 6 6 six", "CONTEXT 7 7 seven", "ADDED 0 8 eight",
+                "NO_NEWLINE_AT_END 0 0 No newline at end of file"), lines);
+    }
+
+    @Test
+    public void testChangeTypes() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        GitTestUtils.createFileInRepo(tempRepo, "moved.txt", content.toString());
+        GitTestUtils.createFileInRepo(tempRepo, "deleted.txt", "deleted\n");
+        GitTestUtils.createFileInRepo(tempRepo, "script.sh", "echo\n");
+        commitAll("Files");
+
+        git(sympleGit, "git", "mv", "moved.txt", "renamed.txt");
+        git(sympleGit, "git", "rm", "-q", "deleted.txt");
+        git(sympleGit, "git", "update-index", "--chmod=+x", "script.sh");
+        GitTestUtils.createFileInRepo(tempRepo, "added.txt", "added\n");
+        GitTestUtils.createFileInRepo(tempRepo, "image.bin", "binary\u0000content");
+        git(sympleGit, "git", "add", "added.txt", "image.bin");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.DEFAULT);
+        assertEquals(5, handler.files.size(), handler.events.toString());
+
+        DiffFile added = handler.file("added.txt");
+        assertEquals(ChangeType.ADDED, added.getChangeType());
+        assertNull(added.getOldPath());
+        assertEquals(0100644, added.getNewMode());
+
+        DiffFile deleted = handler.file("deleted.txt");
+        assertEquals(ChangeType.DELETED, deleted.getChangeType());
+        assertNull(deleted.getNewPath());
+
+        DiffFile renamed = handler.file("renamed.txt");
+        assertEquals(ChangeType.RENAMED, renamed.getChangeType());
+        assertEquals("moved.txt", renamed.getOldPath());
+        assertEquals(100, renamed.getSimilarity());
+
+        DiffFile script = handler.file("script.sh");
+        assertEquals(ChangeType.MODIFIED, script.getChangeType());
+        assertEquals(0100644, script.getOldMode());
+        assertEquals(0100755, script.getNewMode());
+
+        DiffFile binary = handler.file("image.bin");
+        assertTrue(binary.isBinary());
+
+        // Without rename detection
+        handler = parseStagedDiff(DiffOptions.custom().setDetectRenames(false).build());
+        assertEquals(ChangeType.DELETED, handler.file("moved.txt").getChangeType());
+        assertEquals(ChangeType.ADDED, handler.file("renamed.txt").getChangeType());
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        GitTestUtils.createFileInRepo(tempRepo, "original.txt", content.toString());
+        commitAll("Original");
+        GitTestUtils.createFileInRepo(tempRepo, "original.txt", content + "more\n");
+        GitTestUtils.createFileInRepo(tempRepo, "copy.txt", content.toString());
+        git(sympleGit, "git", "add", ".");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.custom().setDetectCopies(true).build());
+        DiffFile copy = handler.file("copy.txt");
+        assertEquals(ChangeType.COPIED, copy.getChangeType());
+        assertEquals("original.txt", copy.getOldPath());
+    }
+
+    @Test
+    public void testLinesLookingLikeHeaders() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "tricky.txt", "-- a\n++ b\ndiff --git a/x b/x\nkeep\n");
+        commitAll("Tricky");
+        GitTestUtils.createFileInRepo(tempRepo, "tricky.txt", "++ c\nkeep\n");
+        git(sympleGit, "git", "add", ".");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.DEFAULT);
+        assertEquals(1, handler.files.size(), handler.events.toString());
+        List<String> texts = new ArrayList<>();
+        for (DiffLine diffLine : handler.lines) {
+            texts.add(diffLine.getType() + " " + diffLine.getText());
+        }
+        assertEquals(List.of("DELETED -- a", "DELETED ++ b", "DELETED diff --git a/x b/x", "ADDED ++ c",
+                "CONTEXT keep"), texts);
+    }
+
+    @Test
+    public void testSpecialPaths() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "with space.txt", "space\n");
+        GitTestUtils.createFileInRepo(tempRepo, "with\ttab.txt", "tab\n");
+        GitTestUtils.createFileInRepo(tempRepo, "with \"quote\".bin", "binary\u0000quote");
+        git(sympleGit, "git", "add", ".");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.DEFAULT);
+        assertEquals(3, handler.files.size(), handler.events.toString());
+        assertEquals(ChangeType.ADDED, handler.file("with space.txt").getChangeType());
+        assertEquals(ChangeType.ADDED, handler.file("with\ttab.txt").getChangeType());
+        // No --- and +++ lines for a binary file: paths of the diff --git line
+        assertTrue(handler.file("with \"quote\".bin").isBinary());
+    }
+
+    @Test
+    public void testMaxFileSize() throws IOException {
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            big.append("line ").append(i).append('\n');
+        }
+        GitTestUtils.createFileInRepo(tempRepo, "big.txt", big.toString());
+        GitTestUtils.createFileInRepo(tempRepo, "small.txt", "small\n");
+        commitAll("Files");
+        GitTestUtils.createFileInRepo(tempRepo, "big.txt", big + "end\n");
+        GitTestUtils.createFileInRepo(tempRepo, "small.txt", "small changed\n");
+        git(sympleGit, "git", "add", ".");
+
+        RecordingHandler handler = parseStagedDiff(DiffOptions.custom().setMaxFileSize(10_000).build());
+        assertTrue(handler.file("big.txt").isBinary());
+        assertFalse(handler.file("small.txt").isBinary());
+        assertEquals(1, handler.hunks.size());
+        assertEquals(2, handler.lines.size());
+
+        handler = parseStagedDiff(DiffOptions.DEFAULT);
+        assertFalse(handler.file("big.txt").isBinary());
+        assertEquals(2, handler.hunks.size());
+    }
+
+    @Test
+    public void testWithoutLines() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "file.txt", "one\n");
+        commitAll("File");
+        GitTestUtils.createFileInRepo(tempRepo, "file.txt", "two\n");
+
+        RecordingHandler handler = new RecordingHandler();
+        GitDiff gitDiff = new GitDiff(sympleGit);
+        gitDiff.parseFileDiff("file.txt", DiffOptions.custom().setIncludeLines(false).build(), handler);
+        assertTrue(gitDiff.isResponseOk(), gitDiff.getError());
+        assertEquals(1, handler.files.size());
+        assertEquals(1, handler.hunks.size());
+        assertEquals(0, handler.lines.size());
+    }
+
+    @Test
+    public void testCommitDiff() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "file.txt", "one\n");
+        commitAll("First");
+        GitTestUtils.createFileInRepo(tempRepo, "file.txt", "two\n");
+        commitAll("Second");
+
+        RecordingHandler handler = new RecordingHandler();
+        GitDiff gitDiff = new GitDiff(sympleGit);
+        gitDiff.parseDiff("HEAD~1", "HEAD", DiffOptions.DEFAULT, handler);
+        assertTrue(gitDiff.isResponseOk(), gitDiff.getError());
+        assertEquals("file.txt", handler.files.get(0).getPath());
+        assertEquals(2, handler.lines.size());
+    }
+
+    @Test
+    public void testIncrementalWrites() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "a.txt", "a\nb\nc\n");
+        GitTestUtils.createFileInRepo(tempRepo, "b.bin", "b\u0000");
+        commitAll("Files");
+        GitTestUtils.createFileInRepo(tempRepo, "a.txt", "a\nB\nc\nd");
+        GitTestUtils.createFileInRepo(tempRepo, "b.bin", "c\u0000");
+        git(sympleGit, "git", "add", ".");
+        byte[] diff = git(sympleGit, "git", "diff", "--staged").getBytes(StandardCharsets.UTF_8);
+
+        RecordingHandler whole = new RecordingHandler();
+        try (DiffParser diffParser = new DiffParser(whole, true)) {
+            diffParser.write(diff);
+        }
+
+        // Byte by byte and in small chunks: same events
+        RecordingHandler byteByByte = new RecordingHandler();
+        try (DiffParser diffParser = new DiffParser(byteByByte, true)) {
+            for (byte b : diff) {
+                diffParser.write(b);
+            }
+        }
+        assertEquals(whole.events, byteByByte.events);
+
+        RecordingHandler chunks = new RecordingHandler();
+        try (DiffParser diffParser = new DiffParser(chunks, true)) {
+            for (int i = 0; i < diff.length; i += 7) {
+                diffParser.write(diff, i, Math.min(7, diff.length - i));
+            }
+        }
+        assertEquals(whole.events, chunks.events);
+        assertEquals(2, whole.files.size());
+    }
+
+    @Test
+    public void testHandlerFailure() throws IOException {
+        GitTestUtils.createFileInRepo(tempRepo, "file.txt", "one\n");
+        git(sympleGit, "git", "add", ".");
+
+        GitDiff gitDiff = new GitDiff(sympleGit);
+        gitDiff.parseStagedDiff(DiffOptions.DEFAULT, diffFile -> {
+            throw new IOException("Handler failure");
+        });
+        assertFalse(gitDiff.isResponseOk());
+        assertTrue(String.valueOf(gitDiff.getException()).contains("Handler failure"),
+                String.valueOf(gitDiff.getException()));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.diff.DiffFile.ChangeType;
+import com.symplegit.api.diff.DiffNameStatus;
+import com.symplegit.api.diff.DiffShortStat;
+import com.symplegit.api.diff.DiffStat;
+import com.symplegit.api.facilitator.GitDiff;
+import com.symplegit.test.util.GitTestUtils;
+
+public class DiffSummaryTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+    private GitDiff gitDiff;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_diff_summary");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+        gitDiff = new GitDiff(sympleGit);
+    }
+
+    private void write(String path, String content) throws IOException {
+        Files.write(new File(tempRepo, path).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void commitAll(String message) throws IOException {
+        git(sympleGit, "git", "add", "-A");
+        git(sympleGit, "git", "commit", "-q", "-m", message);
+    }
+
+    private int indexOf(DiffStat diffStat, String path) {
+        for (int i = 0; i < diffStat.getFileCount(); i++) {
+            if (diffStat.getPath(i).equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testNumStatBetweenCommits() throws IOException {
+        write("a.txt", "1\n2\n3\n");
+        write("image.bin", "x\0y");
+        write("with space.txt", "one\n");
+        commitAll("First");
+        String first = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+
+        write("a.txt", "1\nTWO\n3\n4\n");
+        write("image.bin", "x\0z");
+        new File(tempRepo, "with space.txt").delete();
+        commitAll("Second");
+
+        DiffStat diffStat = gitDiff.getNumStat(first, "HEAD");
+        assertTrue(gitDiff.isResponseOk(), gitDiff.getError());
+        assertEquals(3, diffStat.getFileCount());
+
+        int a = indexOf(diffStat, "a.txt");
+        assertEquals(2, diffStat.getAddedLines(a));
+        assertEquals(1, diffStat.getDeletedLines(a));
+        assertFalse(diffStat.isBinary(a));
+        assertNull(diffStat.getOldPath(a));
+
+        int image = indexOf(diffStat, "image.bin");
+        assertTrue(diffStat.isBinary(image));
+        assertEquals(-1, diffStat.getAddedLines(image));
+
+        int deleted = indexOf(diffStat, "with space.txt");
+        assertEquals(0, diffStat.getAddedLines(deleted));
+        assertEquals(1, diffStat.getDeletedLines(deleted));
+
+        assertEquals(2, diffStat.getTotalAddedLines());
+        assertEquals(2, diffStat.getTotalDeletedLines());
+    }
+
+    @Test
+    public void testNumStatRename() throws IOException {
+        write("old.txt", "a\nb\nc\nd\ne\nf\ng\nh\n");
+        commitAll("Add");
+        git(sympleGit, "git", "mv", "old.txt", "new.txt");
+
+        DiffStat diffStat = gitDiff.getStagedNumStat();
+        assertEquals(1, diffStat.getFileCount());
+        assertEquals("new.txt", diffStat.getPath(0));
+        assertEquals("old.txt", diffStat.getOldPath(0));
+        assertEquals(0, diffStat.getAddedLines(0));
+    }
+
+    @Test
+    public void testStagedAndWorkingTree() throws IOException {
+        write("a.txt", "1\n");
+        commitAll("Add");
+
+        write("a.txt", "1\n2\n");
+        git(sympleGit, "git", "add", "a.txt");
+        write("a.txt", "1\n2\n3\n4\n");
+
+        DiffStat staged = gitDiff.getStagedNumStat();
+        assertEquals(1, staged.getAddedLines(0));
+        DiffStat workingTree = gitDiff.getWorkingTreeNumStat();
+        assertEquals(2, workingTree.getAddedLines(0));
+
+        DiffShortStat shortStat = gitDiff.getWorkingTreeShortStat();
+        assertEquals(1, shortStat.getFilesChanged());
+        assertEquals(2, shortStat.getInsertions());
+        assertEquals(0, shortStat.getDeletions());
+
+        assertEquals('M', gitDiff.getStagedNameStatus().getStatus(0));
+        assertEquals('M', gitDiff.getWorkingTreeNameStatus().getStatus(0));
+    }
+
+    @Test
+    public void testShortStatBetweenCommits() throws IOException {
+        write("a.txt", "1\n2\n3\n");
+        write("b.txt", "b\n");
+        commitAll("First");
+        String first = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        write("a.txt", "1\n3\n");
+        write("c.txt", "c\nc\n");
+        commitAll("Second");
+
+        DiffShortStat shortStat = gitDiff.getShortStat(first, "HEAD");
+        assertEquals(2, shortStat.getFilesChanged());
+        assertEquals(2, shortStat.getInsertions());
+        assertEquals(1, shortStat.getDeletions());
+
+        assertEquals(0, gitDiff.getShortStat("HEAD", "HEAD").getFilesChanged());
+    }
+
+    @Test
+    public void testNameStatus() throws IOException {
+        write("keep.txt", "keep\n");
+        write("gone.txt", "gone\n");
+        write("moved.txt", "a\nb\nc\nd\ne\nf\ng\nh\n");
+        commitAll("First");
+        String first = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+
+        write("keep.txt", "kept\n");
+        new File(tempRepo, "gone.txt").delete();
+        new File(tempRepo, "moved.txt").renameTo(new File(tempRepo, "renamed.txt"));
+        write("added.txt", "added\n");
+        commitAll("Second");
+
+        DiffNameStatus nameStatus = gitDiff.getNameStatus(first, "HEAD");
+        assertEquals(4, nameStatus.getFileCount());
+        for (int i = 0; i < nameStatus.getFileCount(); i++) {
+            String path = nameStatus.getPath(i);
+            if (path.equals("keep.txt")) {
+                assertEquals(ChangeType.MODIFIED, nameStatus.getChangeType(i));
+                assertEquals(-1, nameStatus.getScore(i));
+            } else if (path.equals("gone.txt")) {
+                assertEquals('D', nameStatus.getStatus(i));
+            } else if (path.equals("added.txt")) {
+                assertEquals(ChangeType.ADDED, nameStatus.getChangeType(i));
+            } else {
+                assertEquals("renamed.txt", path);
+                assertEquals("moved.txt", nameStatus.getOldPath(i));
+                assertEquals(ChangeType.RENAMED, nameStatus.getChangeType(i));
+                assertEquals(100, nameStatus.getScore(i));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidRevision() throws IOException {
+        assertNull(gitDiff.getNumStat("HEAD", "no-such-revision"));
+        assertFalse(gitDiff.isResponseOk());
+        assertTrue(gitDiff.getError() != null && !gitDiff.getError().isEmpty());
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        DiffStat diffStat = DiffStat.parse(ByteBuffer.wrap("3\t1\tsrc/a.txt\0-\t-\tb.bin\0001\t0\t\0old\0new\0"
+                .getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, diffStat.getFileCount());
+        assertTrue(diffStat.isBinary(1));
+        assertEquals("old", diffStat.getOldPath(2));
+        assertEquals("new", diffStat.getPath(2));
+        assertEquals(4, diffStat.getTotalAddedLines());
+
+        assertThrows(IOException.class,
+                () -> DiffStat.parse(ByteBuffer.wrap("3\t1\tunterminated".getBytes(StandardCharsets.UTF_8))));
+
+        DiffShortStat shortStat = DiffShortStat.parse(" 1 file changed, 3 deletions(-)\n");
+        assertEquals(1, shortStat.getFilesChanged());
+        assertEquals(0, shortStat.getInsertions());
+        assertEquals(3, shortStat.getDeletions());
+        assertEquals(DiffShortStat.EMPTY, DiffShortStat.parse(""));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitAdd;
+import com.symplegit.test.util.GitTestUtils;
+
+public class GitAddBulkTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+    private GitAdd gitAdd;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_add_bulk");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+        gitAdd = new GitAdd(sympleGit);
+    }
+
+    private File write(String path) throws IOException {
+        File file = new File(tempRepo, path);
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<String> staged() throws IOException {
+        String output = git(sympleGit, "git", "diff", "--cached", "--name-only", "-z");
+        List<String> staged = new ArrayList<>();
+        for (String path : output.split("\0")) {
+            if (!path.isEmpty()) {
+                staged.add(path);
+            }
+        }
+        return staged;
+    }
+
+    @Test
+    public void testAddManyFiles() throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String path = "generated-file-with-a-rather-long-name-" + i + ".txt";
+            write(path);
+            paths.add(path);
+        }
+        write("with space 'quoted'.txt");
+        paths.add("with space 'quoted'.txt");
+
+        gitAdd.add(paths);
+        assertTrue(gitAdd.isResponseOk(), gitAdd.getError());
+        assertTrue(gitAdd.getFailedPaths().isEmpty());
+        assertEquals(paths.size(), staged().size());
+    }
+
+    @Test
+    public void testAddFilesWithAbsolutePaths() throws IOException {
+        File file1 = write("file1.txt");
+        File file2 = write("file2.txt");
+
+        gitAdd.addFiles(file1, file2);
+        assertTrue(gitAdd.isResponseOk(), gitAdd.getError());
+        assertEquals(Arrays.asList("file1.txt", "file2.txt"), staged());
+    }
+
+    @Test
+    public void testMissingPathStopsTheAdd() throws IOException {
+        write("present.txt");
+
+        gitAdd.add("present.txt", "missing.txt");
+        assertFalse(gitAdd.isResponseOk());
+        assertTrue(gitAdd.getError().contains("missing.txt"), gitAdd.getError());
+        assertEquals(Collections.singletonList("missing.txt"), gitAdd.getFailedPaths());
+        assertTrue(staged().isEmpty());
+
+        gitAdd.add("present.txt");
+        assertTrue(gitAdd.isResponseOk());
+        assertTrue(gitAdd.getFailedPaths().isEmpty());
+        assertEquals(Collections.singletonList("present.txt"), staged());
+    }
+
+    @Test
+    public void testIgnoredPathIsReported() throws IOException {
+        Files.write(new File(tempRepo, ".gitignore").toPath(), "*.log\n".getBytes(StandardCharsets.UTF_8));
+        File kept = write("kept.txt");
+        File ignored = write("ignored.log");
+
+        gitAdd.addFiles(kept, ignored);
+        assertFalse(gitAdd.isResponseOk());
+        assertEquals(Collections.singletonList(ignored.getAbsolutePath()), gitAdd.getFailedPaths());
+        assertEquals(Collections.singletonList("kept.txt"), staged());
+    }
+
+    @Test
+    public void testExecuteWithInput() throws IOException {
+        GitCommander commander = sympleGit.gitCommander();
+        commander.executeGitCommandWithInput("hello\n".getBytes(StandardCharsets.UTF_8), "git", "hash-object",
+                "--stdin");
+        assertTrue(commander.isResponseOk());
+        assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", commander.getProcessOutput().trim());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCatFilePool;
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.api.SympleGit;
+import com.symplegit.test.util.GitTestUtils;
+
+public class GitCatFilePoolTest {
+
+    private SympleGit sympleGit;
+    private GitCatFilePool catFilePool;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        File repoDir = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_cat_file");
+        sympleGit = SympleGit.custom()
+                .setDirectory(repoDir)
+                .setCatFilePool(2, 1, TimeUnit.SECONDS)
+                .build();
+        catFilePool = sympleGit.catFilePool();
+    }
+
+    @Test
+    public void testReadHeader() throws IOException {
+        GitObjectHeader header = catFilePool.readHeader("HEAD");
+        assertNotNull(header, "HEAD header should not be null");
+        assertEquals("commit", header.getType());
+        assertEquals(40, header.getId().length());
+        assertTrue(header.getSize() > 0);
+    }
+
+    @Test
+    public void testReadObjectByPath() throws IOException {
+        GitObject blob = catFilePool.readObject("HEAD:initial.txt");
+        assertNotNull(blob, "Blob should not be null");
+        assertEquals("blob", blob.getType());
+        assertEquals("Initial commit content", blob.getContentAsString());
+    }
+
+    @Test
+    public void testMissingObject() throws IOException {
+        assertNull(catFilePool.readHeader("HEAD:does-not-exist.txt"));
+        assertNull(catFilePool.readObject("HEAD:does-not-exist.txt"));
+        assertFalse(catFilePool.exists("HEAD:does-not-exist.txt"));
+        // The process must still be usable after a missing object
+        assertTrue(catFilePool.exists("HEAD"));
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<GitObject>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> catFilePool.readObject("HEAD:initial.txt")));
+            }
+            for (Future<GitObject> future : futures) {
+                assertEquals("Initial commit content", future.get().getContentAsString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(catFilePool.getIdleProcessCount() <= 2, "Pool should not exceed its maximum size");
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        catFilePool.readHeader("HEAD");
+        assertEquals(1, catFilePool.getIdleProcessCount());
+        Thread.sleep(2500);
+        assertEquals(0, catFilePool.getIdleProcessCount(), "Idle process should have been evicted");
+        assertNotNull(catFilePool.readHeader("HEAD"), "Pool should restart a process after eviction");
+    }
+
+    @Test
+    public void testReplacedObject() throws IOException {
+        String original = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Replacement");
+        String replacement = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        String replacementContent = catFilePool.readObject(replacement).getContentAsString();
+        assertTrue(catFilePool.readObject(original).getContentAsString().contains("Initial commit"));
+
+        // Git reads the replacement object, the pool must give the same answer
+        git(sympleGit, "git", "replace", original, replacement);
+        assertEquals(replacementContent, catFilePool.readObject(original).getContentAsString());
+        assertEquals(replacementContent.length(), catFilePool.readHeader(original).getSize());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        sympleGit.close();
+    }
+}
@@ -20,17 +20,41 @@
 package com.symplegit.unit.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 
 import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitResult;
 import com.symplegit.api.SympleGit;
+import com.symplegit.api.exception.UncheckedTimeoutException;
 import com.symplegit.test.util.GitTestUtils;
 
 public class GitCommanderTest {
@@ -76,4 +100,438 @@ public class GitCommanderTest {
         assertNotNull(error, "Error stream should not be null for failed command.");
     }
     
+    @Test
+    public void testOutputCaptureInMemoryAndSpilled() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+
+        // Threshold big enough: output is held in memory
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setOutputMemoryThreshold(64 * 1024)
+                .build();
+        commander = sympleGit.gitCommander();
+        commander.executeGitCommand("git", "rev-parse", "--abbrev-ref", "HEAD");
+        assertTrue(commander.isResponseOk());
+        assertEquals("master", commander.getProcessOutput().trim());
+        assertEquals(commander.getProcessOutput().length(), commander.getSize());
+
+        // Threshold of 1 byte: output is spilled to a temporary file
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setOutputMemoryThreshold(1)
+                .build();
+        commander = sympleGit.gitCommander();
+        commander.executeGitCommand("git", "rev-parse", "--abbrev-ref", "HEAD");
+        assertTrue(commander.isResponseOk());
+        assertEquals("master", commander.getProcessOutput().trim());
+        assertEquals(commander.getProcessOutput().length(), commander.getSize());
+        assertNotNull(commander.getProcessOutputAsInputStream());
+    }
+
+    @Test
+    public void testCustomExecutorService() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(1, runnable -> {
+            threadCount.incrementAndGet();
+            return new Thread(runnable);
+        });
+
+        try {
+            SympleGit sympleGit = SympleGit.custom()
+                    .setDirectory(tempRepo)
+                    .setExecutorService(executorService)
+                    .build();
+
+            for (int i = 0; i < 5; i++) {
+                commander = sympleGit.gitCommander();
+                commander.executeGitCommand("git", "status");
+                assertTrue(commander.isResponseOk(), "Command should be executed successfully.");
+            }
+
+            // The executor is reused and not shut down between commands
+            assertEquals(1, threadCount.get());
+            assertTrue(!executorService.isShutdown());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteGitCommandAsync() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        CompletableFuture<GitResult> branch = commander.executeGitCommandAsync("git", "rev-parse", "--abbrev-ref", "HEAD");
+        CompletableFuture<GitResult> status = commander.executeGitCommandAsync("git", "status");
+        CompletableFuture.allOf(branch, status).get(30, TimeUnit.SECONDS);
+
+        assertTrue(branch.get().isResponseOk());
+        assertEquals("master", branch.get().getProcessOutput().trim());
+        assertTrue(status.get().getProcessOutput().contains("On branch"));
+
+        GitResult invalid = commander.executeGitCommandAsync("ls", "-l").get();
+        assertFalse(invalid.isResponseOk());
+        assertEquals(-1, invalid.getExitCode());
+    }
+
+    @Test
+    public void testExecuteGitCommandAsyncCancelAndTimeout() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        // Waits forever on its standard input
+        CompletableFuture<GitResult> future = commander.executeGitCommandAsync("git", "hash-object", "--stdin");
+        Thread.sleep(200);
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setTimeout(1, TimeUnit.SECONDS)
+                .build();
+        commander = sympleGit.gitCommander();
+        CompletableFuture<GitResult> timedOut = commander.executeGitCommandAsync("git", "hash-object", "--stdin");
+        ExecutionException executionException = assertThrows(ExecutionException.class,
+                () -> timedOut.get(30, TimeUnit.SECONDS));
+        assertTrue(executionException.getCause() instanceof UncheckedTimeoutException);
+    }
+
+    @Test
+    public void testTimeoutKillsProcessTree() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setTimeout(1, TimeUnit.SECONDS)
+                .setKillGracePeriod(500, TimeUnit.MILLISECONDS)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        // Shell alias: git starts a shell, which starts sleep
+        UncheckedTimeoutException timeoutException = assertThrows(UncheckedTimeoutException.class,
+                () -> commander.executeGitCommand("git", "-c", "alias.wait=!sleep 60; true", "wait"));
+        assertTrue(timeoutException.getReapedProcessCount() >= 2,
+                "git and its descendants should be reaped: " + timeoutException.getReapedProcessCount());
+        assertNotNull(commander.getResult());
+        assertEquals(timeoutException.getReapedProcessCount(), commander.getResult().getReapedProcessCount());
+        assertFalse(commander.isResponseOk());
+    }
+
+    /** An executor that stops running its tasks when it is paused. */
+    private static class PausableExecutorService extends AbstractExecutorService {
+        private final ExecutorService executorService = Executors.newCachedThreadPool();
+        private volatile boolean paused = false;
+
+        @Override
+        public void execute(Runnable command) {
+            if (!paused) {
+                executorService.execute(command);
+            }
+        }
+        @Override public void shutdown() { executorService.shutdown(); }
+        @Override public List<Runnable> shutdownNow() { return executorService.shutdownNow(); }
+        @Override public boolean isShutdown() { return executorService.isShutdown(); }
+        @Override public boolean isTerminated() { return executorService.isTerminated(); }
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executorService.awaitTermination(timeout, unit);
+        }
+    }
+
+    @Test
+    public void testTimeoutWithoutResult() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        PausableExecutorService executorService = new PausableExecutorService();
+        try {
+            SympleGit sympleGit = SympleGit.custom()
+                    .setDirectory(tempRepo)
+                    .setTimeout(1, TimeUnit.SECONDS)
+                    .setKillGracePeriod(0, TimeUnit.SECONDS)
+                    .setExecutorService(executorService)
+                    .build();
+            commander = sympleGit.gitCommander();
+            commander.executeGitCommand("git", "rev-parse", "HEAD");
+            assertTrue(commander.isResponseOk());
+
+            // The command never runs: no result, and not the previous one
+            executorService.paused = true;
+            assertThrows(UncheckedTimeoutException.class, () -> commander.executeGitCommand("git", "status"));
+            assertNull(commander.getResult());
+            assertFalse(commander.isResponseOk());
+            assertEquals(-1, commander.getExitCode());
+            assertNull(commander.getProcessOutput());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptedWithoutResult() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        PausableExecutorService executorService = new PausableExecutorService();
+        try {
+            SympleGit sympleGit = SympleGit.custom()
+                    .setDirectory(tempRepo)
+                    .setExecutorService(executorService)
+                    .build();
+            commander = sympleGit.gitCommander();
+            commander.executeGitCommand("git", "rev-parse", "HEAD");
+            assertTrue(commander.isResponseOk());
+
+            executorService.paused = true;
+            Thread.currentThread().interrupt();
+            try {
+                commander.executeGitCommand("git", "status");
+            } finally {
+                assertTrue(Thread.interrupted());
+            }
+            assertTrue(commander.getException() instanceof InterruptedException);
+            assertNull(commander.getResult());
+            assertFalse(commander.isResponseOk());
+            assertEquals(-1, commander.getExitCode());
+            assertNull(commander.getProcessOutput());
+            assertEquals(0, commander.getSize());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteAll() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+
+        // Counts the tasks running at the same time
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        ExecutorService countingExecutor = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                executorService.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        command.run();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                });
+            }
+            @Override public void shutdown() { executorService.shutdown(); }
+            @Override public List<Runnable> shutdownNow() { return executorService.shutdownNow(); }
+            @Override public boolean isShutdown() { return executorService.isShutdown(); }
+            @Override public boolean isTerminated() { return executorService.isTerminated(); }
+            @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return executorService.awaitTermination(timeout, unit);
+            }
+        };
+
+        try {
+            SympleGit sympleGit = SympleGit.custom()
+                    .setDirectory(tempRepo)
+                    .setExecutorService(countingExecutor)
+                    .build();
+
+            List<String[]> commands = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                commands.add(new String[] { "git", "-c", "batch.value=value" + i, "config", "--get", "batch.value" });
+            }
+            commands.add(new String[] { "ls", "-l" });
+
+            List<Integer> completionOrder = new ArrayList<>();
+            List<GitResult> results = sympleGit.executeAll(commands, 3, (result, index) -> completionOrder.add(index));
+
+            assertEquals(commands.size(), results.size());
+            for (int i = 0; i < 20; i++) {
+                assertTrue(results.get(i).isResponseOk());
+                assertEquals("value" + i, results.get(i).getProcessOutput().trim(), "Results in submission order");
+            }
+            assertFalse(results.get(20).isResponseOk());
+            assertEquals(commands.size(), completionOrder.size());
+            // A task that has published its result may still be counted while the next one starts
+            assertTrue(maxRunning.get() <= 3 + 1, "Max concurrent commands: " + maxRunning.get());
+        } finally {
+            executorService.shutdown();
+        }
+
+        // Timed out commands are killed and reported in their result
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setTimeout(1, TimeUnit.SECONDS)
+                .setKillGracePeriod(0, TimeUnit.SECONDS)
+                .build();
+        List<GitResult> results = sympleGit.executeAll(Collections.singletonList(
+                new String[] { "git", "hash-object", "--stdin" }), 1);
+        assertFalse(results.get(0).isResponseOk());
+        assertTrue(results.get(0).getException() instanceof UncheckedTimeoutException);
+    }
+
+    private static long outputFileCount(File captureDirectory) throws IOException {
+        try (Stream<Path> paths = Files.walk(captureDirectory.toPath())) {
+            return paths.filter(path -> path.getFileName().toString().startsWith("symplegit-output-")).count();
+        }
+    }
+
+    @Test
+    public void testCaptureLifecycleAndQuota() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        File captureDirectory = new File(tempRepo.getParentFile(), "git_test_capture_dir");
+        FileUtils.deleteDirectory(captureDirectory);
+
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setOutputMemoryThreshold(1)
+                .setCaptureDirectory(captureDirectory)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        // Closing the result deletes the file at once
+        commander.executeGitCommand("git", "log", "-1");
+        GitResult result = commander.getResult();
+        assertEquals(1, outputFileCount(captureDirectory));
+        assertEquals(result.getSize(), sympleGit.getCaptureDiskUsage());
+        result.close();
+        assertEquals(0, outputFileCount(captureDirectory));
+        assertEquals(0, sympleGit.getCaptureDiskUsage());
+        assertThrows(IOException.class, () -> commander.getProcessOutput());
+
+        // An unreferenced result has its file deleted by the garbage collector
+        commander.executeGitCommand("git", "log", "-1");
+        assertEquals(1, outputFileCount(captureDirectory));
+        commander = null;
+        long deadline = System.currentTimeMillis() + 10000;
+        while (outputFileCount(captureDirectory) > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(0, outputFileCount(captureDirectory));
+
+        // Quota
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setOutputMemoryThreshold(1)
+                .setCaptureDirectory(captureDirectory)
+                .setCaptureDiskQuota(10)
+                .build();
+        commander = sympleGit.gitCommander();
+        commander.executeGitCommand("git", "log", "-1");
+        assertFalse(commander.isResponseOk());
+        assertTrue(commander.getException().getMessage().contains("quota"), commander.getException().toString());
+        assertEquals(0, outputFileCount(captureDirectory));
+        assertEquals(0, sympleGit.getCaptureDiskUsage());
+    }
+
+    @Test
+    public void testOrphanCaptureSweep() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        File captureDirectory = new File(tempRepo.getParentFile(), "git_test_capture_sweep_dir");
+        FileUtils.deleteDirectory(captureDirectory);
+
+        // An unlocked subdirectory, left by a dead JVM, and a locked one
+        File orphan = new File(captureDirectory, "symplegit-captures-1-orphan");
+        File live = new File(captureDirectory, "symplegit-captures-2-live");
+        long old = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+        for (File subdirectory : new File[] { orphan, live }) {
+            subdirectory.mkdirs();
+            File outputFile = new File(subdirectory, "symplegit-output-old.txt");
+            Files.write(outputFile.toPath(), new byte[] { 'x' });
+            outputFile.setLastModified(old);
+            subdirectory.setLastModified(old);
+        }
+
+        try (FileChannel channel = FileChannel.open(new File(live, ".lock").toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+            live.setLastModified(old);
+            SympleGit sympleGit = SympleGit.custom()
+                    .setDirectory(tempRepo)
+                    .setOutputMemoryThreshold(1)
+                    .setCaptureDirectory(captureDirectory)
+                    .build();
+            commander = sympleGit.gitCommander();
+            commander.executeGitCommand("git", "log", "-1");
+            assertTrue(commander.isResponseOk());
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (orphan.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertFalse(orphan.exists());
+            assertEquals(2, outputFileCount(captureDirectory), "Live output files must be kept");
+            assertTrue(commander.getProcessOutput().length() > 0);
+        }
+    }
+
+    @Test
+    public void testStreamedOutput() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        List<String> lines = new ArrayList<>();
+        commander.executeGitCommandForEachLine(lines::add, "git", "ls-files");
+        assertTrue(commander.isResponseOk());
+        assertEquals(Collections.singletonList("initial.txt"), lines);
+
+        commander.executeGitCommand("git", "log", "-1");
+        String captured = commander.getProcessOutput();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        commander.executeGitCommandToStream(outputStream, "git", "log", "-1");
+        assertTrue(commander.isResponseOk());
+        assertEquals(captured, outputStream.toString("UTF-8"));
+        assertEquals(outputStream.size(), commander.getSize());
+
+        ByteArrayOutputStream channelOutputStream = new ByteArrayOutputStream();
+        commander.executeGitCommandToChannel(Channels.newChannel(channelOutputStream), "git", "log", "-1");
+        assertTrue(commander.isResponseOk());
+        assertEquals(captured, channelOutputStream.toString("UTF-8"));
+
+        // A failing consumer stops the command
+        commander.executeGitCommandForEachLine(line -> {
+            throw new IllegalStateException("Consumer failure");
+        }, "git", "log", "-1");
+        assertFalse(commander.isResponseOk());
+        assertTrue(commander.getException() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testSeparateErrorStreamAndLimits() throws Exception {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_commander");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        commander.executeGitCommand("git", "rev-parse", "--verify", "does-not-exist");
+        assertFalse(commander.isResponseOk());
+        assertEquals(0, commander.getSize(), "Error message should not be in standard output");
+        assertTrue(commander.getProcessError().contains("fatal"));
+
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setSeparateErrorStream(true)
+                .setErrorCaptureLimit(5)
+                .setOutputCaptureLimit(10)
+                .build();
+        commander = sympleGit.gitCommander();
+
+        commander.executeGitCommand("git", "rev-parse", "--verify", "does-not-exist");
+        assertEquals(5, commander.getProcessError().length());
+        assertTrue(commander.getResult().isErrorTruncated());
+
+        commander.executeGitCommand("git", "log", "-1");
+        assertTrue(commander.isResponseOk());
+        assertEquals(10, commander.getSize());
+        assertTrue(commander.getResult().isOutputTruncated());
+        assertTrue(commander.getProcessOutput().startsWith("commit "));
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitResultCache;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitBranchRead;
+import com.symplegit.api.facilitator.GitTag;
+import com.symplegit.api.facilitator.GitVersion;
+import com.symplegit.test.util.GitTestUtils;
+
+public class GitResultCacheTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_result_cache");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setResultCache(16)
+                .build();
+    }
+
+    @Test
+    public void testCacheDisabledByDefault() {
+        SympleGit noCache = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        assertNull(noCache.getResultCache());
+    }
+
+    @Test
+    public void testBranchesInvalidatedOnRefChange() throws IOException {
+        GitResultCache cache = sympleGit.getResultCache();
+        assertNotNull(cache);
+
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        Set<String> branches = gitBranchRead.getLocalBranches();
+        assertTrue(gitBranchRead.isResponseOk());
+        assertTrue(branches.contains("master"));
+        assertEquals(1, cache.getMissCount());
+
+        branches = gitBranchRead.getLocalBranches();
+        assertTrue(gitBranchRead.isResponseOk());
+        assertTrue(branches.contains("master"));
+        assertEquals(1, cache.getHitCount());
+
+        // The returned set is a copy
+        branches.clear();
+        assertTrue(gitBranchRead.getLocalBranches().contains("master"));
+
+        sympleGit.gitCommander().executeGitCommand("git", "branch", "new-branch");
+        branches = gitBranchRead.getLocalBranches();
+        assertTrue(branches.contains("new-branch"), "New branch must be seen: " + branches);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testTagsAndVersion() throws IOException {
+        GitResultCache cache = sympleGit.getResultCache();
+
+        GitTag gitTag = new GitTag(sympleGit);
+        assertEquals("", gitTag.listTags().trim());
+        gitTag.createTag("v1.0", "HEAD");
+        assertTrue(gitTag.listTags().contains("v1.0"));
+        assertTrue(gitTag.listTags().contains("v1.0"));
+        assertTrue(gitTag.isResponseOk());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        GitVersion gitVersion = new GitVersion(sympleGit);
+        String version = gitVersion.getVersion();
+        assertTrue(version.startsWith("git version"));
+        assertEquals(version, new GitVersion(sympleGit).getVersion());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        SympleGit smallCache = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setResultCache(1)
+                .build();
+        GitResultCache cache = smallCache.getResultCache();
+
+        new GitBranchRead(smallCache).getLocalBranches();
+        new GitTag(smallCache).listTags();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        new GitBranchRead(smallCache).getLocalBranches();
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+}
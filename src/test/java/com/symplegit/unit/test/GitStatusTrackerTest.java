@@ -0,0 +1,202 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Objects;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitStatusTracker;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitBranchRead;
+import com.symplegit.test.util.GitTestUtils;
+
+public class GitStatusTrackerTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+    private GitStatusTracker statusTracker;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_status_tracker");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setStatusTracker(true)
+                .build();
+
+        createFile("src/Alpha.java", "alpha");
+        createFile("src/Beta.java", "beta");
+        createFile(".gitignore", "build/\n");
+        createFile("build/Alpha.class", "ignored");
+        git(sympleGit, "git", "add", ".");
+        git(sympleGit, "git", "commit", "-q", "-m", "initial");
+
+        statusTracker = sympleGit.getStatusTracker();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        sympleGit.close();
+    }
+
+    private void createFile(String path, String content) throws IOException {
+        new File(tempRepo, path).getParentFile().mkdirs();
+        GitTestUtils.createFileInRepo(tempRepo, path, content);
+    }
+
+    /**
+     * Waits until the tracker reports the expected status for a path: the watch
+     * events are received asynchronously.
+     */
+    private void waitForStatus(String path, String expectedCode) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        Map<String, String> status = statusTracker.getStatus();
+        while (!Objects.equals(expectedCode, status.get(path)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = statusTracker.getStatus();
+        }
+        assertEquals(expectedCode, status.get(path), status.toString());
+    }
+
+    /**
+     * Waits until the tracker has run more full scans than the given count.
+     */
+    private void waitForFullScan(long fullScanCount) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        statusTracker.getStatus();
+        while (statusTracker.getFullScanCount() <= fullScanCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            statusTracker.getStatus();
+        }
+        assertTrue(statusTracker.getFullScanCount() > fullScanCount);
+    }
+
+    @Test
+    public void testCleanFromMemory() throws IOException {
+        assertTrue(statusTracker.isClean());
+        assertTrue(statusTracker.isClean());
+        assertTrue(new GitBranchRead(sympleGit).isStatusOk());
+
+        assertEquals(1, statusTracker.getFullScanCount());
+        assertEquals(0, statusTracker.getPathScanCount());
+    }
+
+    @Test
+    public void testModifiedFile() throws IOException, InterruptedException {
+        assertTrue(statusTracker.isClean());
+
+        createFile("src/Alpha.java", "alpha modified");
+        waitForStatus("src/Alpha.java", " M");
+        assertFalse(new GitBranchRead(sympleGit).isStatusOk());
+
+        createFile("src/Alpha.java", "alpha");
+        waitForStatus("src/Alpha.java", null);
+        assertTrue(statusTracker.isClean());
+
+        // Only the touched paths were scanned again
+        assertEquals(1, statusTracker.getFullScanCount());
+        assertTrue(statusTracker.getPathScanCount() > 0);
+    }
+
+    @Test
+    public void testDeletedFile() throws IOException, InterruptedException {
+        assertTrue(statusTracker.isClean());
+
+        Files.delete(new File(tempRepo, "src/Beta.java").toPath());
+        waitForStatus("src/Beta.java", " D");
+    }
+
+    @Test
+    public void testNewDirectory() throws IOException, InterruptedException {
+        assertTrue(statusTracker.isClean());
+
+        createFile("docs/guide/intro.md", "intro");
+        waitForStatus("docs/guide/intro.md", "??");
+
+        // The new directories are watched from now on
+        createFile("docs/guide/usage.md", "usage");
+        waitForStatus("docs/guide/usage.md", "??");
+    }
+
+    @Test
+    public void testIgnoredDirectory() throws IOException, InterruptedException {
+        assertTrue(statusTracker.isClean());
+
+        createFile("build/Beta.class", "ignored");
+        createFile("src/Gamma.java", "gamma");
+        waitForStatus("src/Gamma.java", "??");
+        assertEquals(1, statusTracker.getStatus().size());
+    }
+
+    @Test
+    public void testIndexChange() throws IOException, InterruptedException {
+        assertTrue(statusTracker.isClean());
+
+        createFile("src/Alpha.java", "alpha staged");
+        git(sympleGit, "git", "add", "src/Alpha.java");
+        waitForFullScan(1);
+        waitForStatus("src/Alpha.java", "M ");
+
+        git(sympleGit, "git", "commit", "-q", "-m", "alpha staged");
+        waitForStatus("src/Alpha.java", null);
+        assertTrue(statusTracker.isClean());
+    }
+
+    @Test
+    public void testCommandOfSameInstance() throws IOException {
+        assertTrue(statusTracker.isClean());
+        long fullScanCount = statusTracker.getFullScanCount();
+
+        // Read-only commands keep the status in memory
+        git(sympleGit, "git", "log", "-1");
+        assertTrue(statusTracker.isClean());
+        assertEquals(fullScanCount, statusTracker.getFullScanCount());
+
+        // A staged change is seen at once, without waiting for the watch events
+        createFile("src/Alpha.java", "alpha staged");
+        git(sympleGit, "git", "add", "src/Alpha.java");
+        assertEquals("M ", statusTracker.getStatus().get("src/Alpha.java"));
+
+        git(sympleGit, "git", "commit", "-q", "-m", "alpha staged");
+        assertTrue(new GitBranchRead(sympleGit).isStatusOk());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        assertTrue(statusTracker.isClean());
+        sympleGit.close();
+        assertThrows(IOException.class, () -> statusTracker.isClean());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.exception.UncheckedTimeoutException;
+import com.symplegit.api.metrics.CommandStatistics;
+import com.symplegit.api.metrics.GitCommandEvent;
+import com.symplegit.api.metrics.HistogramMetricsCollector;
+import com.symplegit.api.metrics.HistogramSnapshot;
+import com.symplegit.api.metrics.LatencyHistogram;
+import com.symplegit.test.util.GitTestUtils;
+
+public class HistogramMetricsCollectorTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getP99());
+
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(100000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(100000000, snapshot.getMax());
+        assertWithinOnePercent(50000000, snapshot.getP50());
+        assertWithinOnePercent(99000000, snapshot.getP99());
+        assertWithinOnePercent(99900000, snapshot.getP999());
+        assertWithinOnePercent(50000500, (long) snapshot.getMean());
+    }
+
+    @Test
+    public void testHistogramConcurrentRecords() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                executorService.execute(() -> {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i);
+                    }
+                });
+            }
+        } finally {
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(60, TimeUnit.SECONDS));
+        }
+        assertEquals(800000, histogram.snapshot().getCount());
+        assertEquals(99999, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void testSubcommandLabel() {
+        assertEquals("log", GitCommandEvent.custom("git", "-c", "core.pager=cat", "log", "-1").build().getSubcommand());
+        assertEquals("status", GitCommandEvent.custom("git", "-C", "/tmp", "--no-pager", "status").build().getSubcommand());
+        assertEquals("--version", GitCommandEvent.custom("git", "--version").build().getSubcommand());
+    }
+
+    @Test
+    public void testCommandsAreRecorded() throws Exception {
+        File tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_metrics");
+        HistogramMetricsCollector metrics = new HistogramMetricsCollector();
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setMetricsCollector(metrics)
+                .setTimeout(1, TimeUnit.SECONDS)
+                .setKillGracePeriod(0, TimeUnit.SECONDS)
+                .build();
+
+        GitCommander gitCommander = sympleGit.gitCommander();
+        for (int i = 0; i < 3; i++) {
+            gitCommander.executeGitCommand("git", "rev-parse", "HEAD");
+            assertTrue(gitCommander.isResponseOk());
+        }
+        gitCommander.executeGitCommand("git", "rev-parse", "--verify", "does-not-exist");
+
+        CommandStatistics revParse = metrics.getStatistics("rev-parse");
+        assertNotNull(revParse);
+        assertEquals(4, revParse.getCount());
+        assertEquals(1, revParse.getFailureCount());
+        assertEquals(3 * 41, revParse.getOutputBytes() - gitCommander.getSize());
+        assertTrue(revParse.getWallTime().snapshot().getP50() > 0);
+        assertTrue(revParse.getSpawnTime().snapshot().getMax() <= revParse.getWallTime().snapshot().getMax());
+
+        assertThrows(UncheckedTimeoutException.class,
+                () -> gitCommander.executeGitCommand("git", "hash-object", "--stdin"));
+        assertEquals(1, metrics.getStatistics("hash-object").getTimeoutCount());
+
+        assertNull(metrics.getStatistics("log"));
+        assertEquals(5, metrics.getTotalStatistics().getCount());
+    }
+
+    private static void assertWithinOnePercent(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 100, "Expected ~" + expected + " but was " + actual);
+    }
+}
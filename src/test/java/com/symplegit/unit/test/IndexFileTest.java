@@ -0,0 +1,267 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitBranchRead;
+import com.symplegit.internal.index.IndexEntry;
+import com.symplegit.internal.index.IndexFile;
+import com.symplegit.internal.index.WorkingTreeScan;
+import com.symplegit.test.util.GitTestUtils;
+
+public class IndexFileTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_index_file");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+
+        // Shared prefixes exercise the path compression of version 4
+        createFile("src/main/java/Alpha.java", "alpha");
+        createFile("src/main/java/AlphaBeta.java", "alpha beta");
+        createFile("src/main/resources/config.properties", "key=value");
+        createFile("src/test/java/AlphaTest.java", "alpha test");
+        createFile("README.md", "readme");
+        createFile(".gitignore", "build/\n*.log\n");
+        git(sympleGit, "git", "add", ".");
+        git(sympleGit, "git", "commit", "-q", "-m", "initial");
+    }
+
+    private void createFile(String path, String content) throws IOException {
+        new File(tempRepo, path).getParentFile().mkdirs();
+        GitTestUtils.createFileInRepo(tempRepo, path, content);
+    }
+
+    private IndexFile readIndex() throws IOException {
+        IndexFile indexFile = IndexFile.read(new File(tempRepo, ".git/index"), 20);
+        assertNotNull(indexFile);
+        return indexFile;
+    }
+
+    private void assertIndexMatchesGit(IndexFile indexFile) throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (String line : git(sympleGit, "git", "ls-files", "-s").trim().split("\n")) {
+            expected.add(line);
+        }
+
+        List<String> actual = new ArrayList<>();
+        for (IndexEntry entry : indexFile.getEntries()) {
+            actual.add(Integer.toOctalString(entry.getMode()) + " " + entry.getObjectId() + " " + entry.getStage()
+                    + "\t" + entry.getPath());
+        }
+        assertEquals(expected, actual);
+    }
+
+    private boolean isStatusOk() {
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        boolean statusOk = gitBranchRead.isStatusOk();
+        assertTrue(gitBranchRead.isResponseOk(), gitBranchRead.getError());
+        return statusOk;
+    }
+
+    /**
+     * Moves the modification time of a file one minute back, so that its stat
+     * data differ from the index without being racily clean.
+     */
+    private void touchInThePast(String path) throws IOException {
+        File file = new File(tempRepo, path);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() - 60_000));
+    }
+
+    @Test
+    public void testVersion2() throws IOException {
+        git(sympleGit, "git", "update-index", "--index-version", "2");
+        IndexFile indexFile = readIndex();
+        assertEquals(2, indexFile.getVersion());
+        assertIndexMatchesGit(indexFile);
+    }
+
+    @Test
+    public void testVersion3() throws IOException {
+        // Intent-to-add entries need the extended flags of version 3
+        createFile("src/main/java/Gamma.java", "gamma");
+        git(sympleGit, "git", "add", "--intent-to-add", "src/main/java/Gamma.java");
+
+        IndexFile indexFile = readIndex();
+        assertEquals(3, indexFile.getVersion());
+        assertIndexMatchesGit(indexFile);
+
+        for (IndexEntry entry : indexFile.getEntries()) {
+            assertEquals(entry.getPath().endsWith("Gamma.java"), entry.isIntentToAdd(), entry.getPath());
+        }
+        assertFalse(isStatusOk());
+    }
+
+    @Test
+    public void testVersion4() throws IOException {
+        git(sympleGit, "git", "update-index", "--index-version", "4");
+        IndexFile indexFile = readIndex();
+        assertEquals(4, indexFile.getVersion());
+        assertIndexMatchesGit(indexFile);
+        assertTrue(isStatusOk());
+    }
+
+    @Test
+    public void testRootTreeId() throws IOException {
+        assertEquals(git(sympleGit, "git", "rev-parse", "HEAD^{tree}").trim(), readIndex().getRootTreeId());
+    }
+
+    @Test
+    public void testCorruptCacheTree() throws Exception {
+        // The entry count of the root follows "TREE", the extension size and an empty path
+        File file = new File(tempRepo, ".git/index");
+        byte[] data = Files.readAllBytes(file.toPath());
+        int tree = new String(data, StandardCharsets.ISO_8859_1).indexOf("TREE");
+        assertTrue(tree > 0);
+        assertEquals(0, data[tree + 8]);
+        data[tree + 9] = 'x';
+
+        // Git ignores an unreadable cache tree, once the checksum matches
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        digest.update(data, 0, data.length - 20);
+        System.arraycopy(digest.digest(), 0, data, data.length - 20, 20);
+        Files.write(file.toPath(), data);
+
+        IOException exception = assertThrows(IOException.class, () -> readIndex());
+        assertTrue(exception.getMessage().contains("cache tree"), exception.getMessage());
+        assertTrue(isStatusOk());
+    }
+
+    @Test
+    public void testConflict() throws IOException {
+        git(sympleGit, "git", "checkout", "-q", "-b", "other");
+        createFile("README.md", "other");
+        git(sympleGit, "git", "commit", "-q", "-a", "-m", "other");
+        git(sympleGit, "git", "checkout", "-q", "master");
+        createFile("README.md", "master");
+        git(sympleGit, "git", "commit", "-q", "-a", "-m", "master");
+
+        GitCommander commander = sympleGit.gitCommander();
+        commander.executeGitCommand("git", "merge", "other");
+        assertFalse(commander.isResponseOk());
+
+        IndexFile indexFile = readIndex();
+        assertIndexMatchesGit(indexFile);
+        assertTrue(WorkingTreeScan.scan(tempRepo, indexFile).hasUnmergedEntries());
+        assertFalse(isStatusOk());
+    }
+
+    @Test
+    public void testScanClean() throws IOException {
+        // Files older than the index are not racily clean: no Git check needed
+        for (IndexEntry entry : readIndex().getEntries()) {
+            touchInThePast(entry.getPath());
+        }
+        git(sympleGit, "git", "update-index", "--refresh");
+
+        WorkingTreeScan scan = WorkingTreeScan.scan(tempRepo, readIndex());
+        assertEquals(List.of(), scan.getChangedPaths());
+        assertEquals(List.of(), scan.getMissingPaths());
+        assertEquals(List.of(), scan.getUntrackedPaths());
+        assertTrue(isStatusOk());
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        touchInThePast("README.md");
+        Files.delete(new File(tempRepo, "src/test/java/AlphaTest.java").toPath());
+        createFile("src/main/java/Untracked.java", "untracked");
+        createFile("build/classes/Alpha.class", "ignored");
+
+        WorkingTreeScan scan = WorkingTreeScan.scan(tempRepo, readIndex());
+        assertTrue(scan.getChangedPaths().contains("README.md"), scan.getChangedPaths().toString());
+        assertEquals(List.of("src/test/java/AlphaTest.java"), scan.getMissingPaths());
+        // Ignore rules are applied by Git, not by the scan
+        assertEquals(List.of("build/", "src/main/java/Untracked.java"), scan.getUntrackedPaths());
+    }
+
+    @Test
+    public void testStatusOkClean() throws IOException {
+        assertTrue(isStatusOk());
+
+        // Same content, other stat data: Git compares the content
+        touchInThePast("README.md");
+        assertTrue(isStatusOk());
+
+        // Ignored files
+        createFile("build/classes/Alpha.class", "ignored");
+        createFile("src/main/java/trace.log", "ignored");
+        assertTrue(isStatusOk());
+    }
+
+    @Test
+    public void testStatusOkModified() throws IOException {
+        createFile("README.md", "README");
+        touchInThePast("README.md");
+        assertFalse(isStatusOk());
+    }
+
+    @Test
+    public void testStatusOkDeleted() throws IOException {
+        Files.delete(new File(tempRepo, "src/main/java/Alpha.java").toPath());
+        assertFalse(isStatusOk());
+    }
+
+    @Test
+    public void testStatusOkStaged() throws IOException {
+        createFile("README.md", "staged");
+        git(sympleGit, "git", "add", "README.md");
+        assertFalse(isStatusOk());
+
+        // Back to the committed content in the working tree only
+        createFile("README.md", "readme");
+        assertFalse(isStatusOk());
+    }
+
+    @Test
+    public void testStatusOkUntracked() throws IOException {
+        createFile("src/main/java/Untracked.java", "untracked");
+        assertFalse(isStatusOk());
+
+        Files.delete(new File(tempRepo, "src/main/java/Untracked.java").toPath());
+        createFile("docs/guide.md", "untracked directory");
+        assertFalse(isStatusOk());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.LineIndex;
+import com.symplegit.api.SympleGit;
+import com.symplegit.test.util.GitTestUtils;
+
+public class LineIndexTest {
+
+    @Test
+    public void testLines() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        content.append("last line without terminator");
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int interval : new int[] { 1, 7, LineIndex.DEFAULT_INTERVAL }) {
+            LineIndex lineIndex = new LineIndex(buffer, interval);
+            assertEquals(1001, lineIndex.getLineCount());
+            assertEquals("line 0", lineIndex.getLineAsString(0, StandardCharsets.UTF_8));
+            assertEquals("line 499", lineIndex.getLineAsString(499, StandardCharsets.UTF_8));
+            assertEquals("line 999", lineIndex.getLineAsString(999, StandardCharsets.UTF_8));
+            assertEquals("last line without terminator", lineIndex.getLineAsString(1000, StandardCharsets.UTF_8));
+
+            int offset = lineIndex.getLineOffset(731);
+            assertEquals(731, lineIndex.getLineNumber(offset));
+            assertEquals(731, lineIndex.getLineNumber(offset + 4));
+            assertEquals(offset + 4, lineIndex.indexOf((byte) ' ', offset));
+        }
+
+        assertEquals(0, buffer.position(), "Buffer must not be modified");
+        assertThrows(IndexOutOfBoundsException.class, () -> new LineIndex(buffer).getLine(1001));
+        assertEquals(0, new LineIndex(ByteBuffer.allocate(0)).getLineCount());
+        assertEquals(2, new LineIndex(ByteBuffer.wrap("a\n\n".getBytes())).getLineCount());
+    }
+
+    @Test
+    public void testMappedOutput() throws Exception {
+        File tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_line_index");
+        SympleGit sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .setOutputMemoryThreshold(16)
+                .build();
+        GitCommander gitCommander = sympleGit.gitCommander();
+
+        gitCommander.executeGitCommand("git", "log", "-1", "--format=%H%n%s%n%T");
+        ByteBuffer buffer = gitCommander.getProcessOutputAsByteBuffer();
+        assertTrue(buffer instanceof MappedByteBuffer, "Spilled output must be mapped");
+        assertTrue(buffer.isReadOnly());
+        assertEquals(gitCommander.getSize(), buffer.remaining());
+
+        LineIndex lineIndex = gitCommander.getResult().getProcessOutputLineIndex();
+        assertEquals(3, lineIndex.getLineCount());
+        assertEquals(40, lineIndex.getLine(0).remaining());
+        assertEquals("Initial commit", lineIndex.getLineAsString(1, StandardCharsets.UTF_8));
+
+        // Small output held in memory
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        gitCommander = sympleGit.gitCommander();
+        gitCommander.executeGitCommand("git", "rev-parse", "--abbrev-ref", "HEAD");
+        buffer = gitCommander.getProcessOutputAsByteBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals("master", StandardCharsets.UTF_8.decode(buffer).toString().trim());
+    }
+}
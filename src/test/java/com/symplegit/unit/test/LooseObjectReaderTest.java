@@ -0,0 +1,133 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitCommit;
+import com.symplegit.internal.objects.LooseObjectReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.test.util.GitTestUtils;
+
+public class LooseObjectReaderTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+    private LooseObjectReader reader;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_loose_objects");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        reader = new LooseObjectReader(GitDirectory.find(tempRepo));
+    }
+
+    @Test
+    public void testReadCommitAndBlob() throws IOException {
+        String commitId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        GitObject commit = reader.read(commitId);
+        assertNotNull(commit);
+        assertEquals("commit", commit.getType());
+        assertEquals(git(sympleGit, "git", "cat-file", "commit", commitId), commit.getContentAsString());
+
+        // Larger than the inflater input buffer, and poorly compressible
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append(Integer.toHexString(i * 7919)).append('\n');
+        }
+        GitTestUtils.createFileInRepo(tempRepo, "large.txt", content.toString());
+        String blobId = git(sympleGit, "git", "hash-object", "-w", "large.txt").trim();
+
+        GitObjectHeader header = reader.readHeader(blobId);
+        assertEquals("blob", header.getType());
+        assertEquals(Long.parseLong(git(sympleGit, "git", "cat-file", "-s", blobId).trim()), header.getSize());
+
+        GitObject blob = reader.read(blobId);
+        assertArrayEquals(content.toString().getBytes(StandardCharsets.UTF_8), blob.getContent());
+    }
+
+    @Test
+    public void testMissingAndCorruptObjects() throws IOException {
+        assertNull(reader.read("0000000000000000000000000000000000000000"));
+        assertNull(reader.read("HEAD"));
+        assertFalse(reader.exists("0000000000000000000000000000000000000000"));
+
+        String blobId = git(sympleGit, "git", "hash-object", "-w", "initial.txt").trim();
+        assertTrue(reader.exists(blobId));
+        File objectFile = new File(tempRepo, ".git/objects/" + blobId.substring(0, 2) + "/" + blobId.substring(2));
+        byte[] bytes = Files.readAllBytes(objectFile.toPath());
+        objectFile.setWritable(true);
+        Files.write(objectFile.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> reader.read(blobId));
+    }
+
+    @Test
+    public void testCommitMetadata() throws IOException {
+        GitCommit gitCommit = new GitCommit(sympleGit);
+        String expected = git(sympleGit, "git", "cat-file", "commit", "HEAD");
+
+        assertEquals(expected, gitCommit.getCommitMetadata("HEAD"));
+        assertTrue(gitCommit.isResponseOk());
+
+        // Packed objects are read by Git
+        git(sympleGit, "git", "gc", "--quiet");
+        String commitId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        assertNull(reader.read(commitId));
+        assertEquals(expected, gitCommit.getCommitMetadata(commitId));
+        assertTrue(gitCommit.isResponseOk());
+
+        assertNull(gitCommit.getCommitMetadata("unknown-revision"));
+        assertFalse(gitCommit.isResponseOk());
+    }
+
+    @Test
+    public void testReplacedCommitMetadata() throws IOException {
+        GitCommit gitCommit = new GitCommit(sympleGit);
+        String original = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        git(sympleGit, "git", "commit", "-q", "--allow-empty", "-m", "Replacement");
+        String replacement = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        git(sympleGit, "git", "replace", original, replacement);
+
+        String expected = git(sympleGit, "git", "cat-file", "commit", original);
+        assertTrue(expected.contains("Replacement"));
+        assertEquals(expected, gitCommit.getCommitMetadata(original));
+    }
+}
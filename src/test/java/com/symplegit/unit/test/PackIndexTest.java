@@ -0,0 +1,156 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.internal.objects.ObjectIds;
+import com.symplegit.internal.objects.PackDirectory;
+import com.symplegit.internal.objects.PackIndex;
+import com.symplegit.internal.objects.PackLocation;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.test.util.GitTestUtils;
+
+public class PackIndexTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_pack_index");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            GitTestUtils.createFileInRepo(tempRepo, "file_" + i + ".txt", "Content " + i);
+            git(sympleGit, "git", "add", ".");
+            git(sympleGit, "git", "commit", "-m", "Commit " + i);
+        }
+    }
+
+    private File packFile() {
+        File[] packs = new File(tempRepo, ".git/objects/pack").listFiles((dir, name) -> name.endsWith(".pack"));
+        assertEquals(1, packs.length);
+        return packs[0];
+    }
+
+    /**
+     * Lists the offsets of the objects of an index with git show-index.
+     */
+    private Map<String, Long> showIndex(File indexFile) throws IOException {
+        String output = git(sympleGit, "git", "-c", "alias.show-index-file=!f() { git show-index < \"$1\"; }; f",
+                "show-index-file", indexFile.getAbsolutePath());
+        Map<String, Long> offsets = new LinkedHashMap<>();
+        for (String line : output.split("\n")) {
+            String[] fields = line.split(" ");
+            offsets.put(fields[1], Long.parseLong(fields[0]));
+        }
+        return offsets;
+    }
+
+    private void assertIndex(PackIndex packIndex, Map<String, Long> expected) {
+        assertEquals(expected.size(), packIndex.getObjectCount());
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            byte[] id = ObjectIds.fromHex(entry.getKey());
+            assertEquals(entry.getValue().longValue(), packIndex.findOffset(id), entry.getKey());
+            int position = packIndex.findPosition(id);
+            assertEquals(entry.getKey(), ObjectIds.toHex(packIndex.getObjectId(position), 0, 20));
+        }
+        assertEquals(-1, packIndex.findOffset(ObjectIds.fromHex("0000000000000000000000000000000000000000")));
+        assertEquals(-1, packIndex.findOffset(ObjectIds.fromHex("ffffffffffffffffffffffffffffffffffffffff")));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        File packFile = packFile();
+        File indexFile = new File(packFile.getPath().replace(".pack", ".idx"));
+
+        PackIndex packIndex = PackIndex.open(indexFile);
+        assertEquals(20, packIndex.getHashLength());
+        assertEquals(packFile, packIndex.getPackFile());
+        assertIndex(packIndex, showIndex(indexFile));
+    }
+
+    @Test
+    public void testLargeOffsets() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        File packFile = packFile();
+
+        // All offsets above 0 go to the table of 8-byte offsets
+        File indexFile = new File(tempRepo, "large.idx");
+        git(sympleGit, "git", "index-pack", "--index-version=2,0", "-o", indexFile.getAbsolutePath(),
+                packFile.getAbsolutePath());
+
+        PackIndex packIndex = PackIndex.open(indexFile);
+        assertIndex(packIndex, showIndex(indexFile));
+    }
+
+    @Test
+    public void testPackDirectoryRefresh() throws IOException {
+        PackDirectory packDirectory = PackDirectory.of(GitDirectory.find(tempRepo));
+        String head = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        assertNull(packDirectory.find(head));
+
+        git(sympleGit, "git", "gc", "--quiet");
+        PackLocation packLocation = packDirectory.find(head);
+        assertNotNull(packLocation);
+        assertEquals(packFile(), packLocation.getPackIndex().getPackFile());
+
+        // A new pack is seen on the next lookup miss
+        GitTestUtils.makeCommit(tempRepo, "After gc");
+        String newHead = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        git(sympleGit, "git", "repack", "-a", "-d", "-q");
+        packLocation = packDirectory.find(newHead);
+        assertNotNull(packLocation);
+        assertEquals(packFile(), packLocation.getPackIndex().getPackFile());
+        assertEquals(1, packDirectory.getPackIndexes().size());
+    }
+
+    @Test
+    public void testSharedInstancesAreBounded() throws IOException {
+        PackDirectory packDirectory = PackDirectory.of(GitDirectory.find(tempRepo));
+        assertSame(packDirectory, PackDirectory.of(GitDirectory.find(tempRepo)));
+
+        for (int i = 0; i < PackDirectory.MAX_INSTANCES; i++) {
+            File otherRepo = new File(tempRepo.getParentFile(), "git_test_repo_pack_index_" + i);
+            FileUtils.deleteDirectory(otherRepo);
+            git(sympleGit, "git", "init", "-q", otherRepo.getAbsolutePath());
+            PackDirectory.of(GitDirectory.find(otherRepo));
+        }
+        assertNotSame(packDirectory, PackDirectory.of(GitDirectory.find(tempRepo)));
+    }
+}
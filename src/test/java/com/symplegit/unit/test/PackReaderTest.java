@@ -0,0 +1,289 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.GitCatFilePool;
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.GitObject;
+import com.symplegit.api.GitObjectHeader;
+import com.symplegit.api.SympleGit;
+import com.symplegit.internal.objects.DeltaBaseCache;
+import com.symplegit.internal.objects.ObjectReader;
+import com.symplegit.internal.objects.PackDirectory;
+import com.symplegit.internal.objects.PackReader;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.test.util.GitTestUtils;
+
+public class PackReaderTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_pack_reader");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+
+        // Successive versions of a file, packed as delta chains
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            lines.add("Line " + i + " of a file that changes a little at each commit");
+        }
+        for (int commit = 0; commit < 12; commit++) {
+            lines.set(commit * 20, "Changed by commit " + commit);
+            GitTestUtils.createFileInRepo(tempRepo, "versioned.txt", String.join("\n", lines));
+            git(sympleGit, "git", "add", ".");
+            git(sympleGit, "git", "commit", "-m", "Version " + commit);
+        }
+    }
+
+    private byte[] gitBytes(String... command) throws IOException {
+        GitCommander commander = sympleGit.gitCommander();
+        commander.executeGitCommand(command);
+        assertTrue(commander.isResponseOk(), commander.getProcessError());
+        try (InputStream in = commander.getProcessOutputAsInputStream()) {
+            return in == null ? new byte[0] : IOUtils.toByteArray(in);
+        }
+    }
+
+    /**
+     * Lists all the objects of the repository with their type.
+     */
+    private Map<String, String> allObjects() throws IOException {
+        Map<String, String> objects = new LinkedHashMap<>();
+        String output = git(sympleGit, "git", "cat-file", "--batch-all-objects", "--batch-check=%(objectname) %(objecttype)");
+        for (String line : output.split("\n")) {
+            String[] fields = line.split(" ");
+            objects.put(fields[0], fields[1]);
+        }
+        return objects;
+    }
+
+    private int deltaCount() throws IOException {
+        File[] indexes = new File(tempRepo, ".git/objects/pack").listFiles((dir, name) -> name.endsWith(".idx"));
+        int count = 0;
+        for (File index : indexes) {
+            for (String line : git(sympleGit, "git", "verify-pack", "-v", index.getAbsolutePath()).split("\n")) {
+                // Deltas have two more columns: depth and base
+                if (line.matches("[0-9a-f]{40} \\w+ +\\d+ \\d+ \\d+ \\d+ [0-9a-f]{40}")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void assertAllObjects(PackReader packReader) throws IOException {
+        Map<String, String> objects = allObjects();
+        for (Map.Entry<String, String> entry : objects.entrySet()) {
+            String id = entry.getKey();
+            String type = entry.getValue();
+            GitObject gitObject = packReader.read(id);
+            assertNotNull(gitObject, id);
+            assertEquals(type, gitObject.getType(), id);
+            assertArrayEquals(gitBytes("git", "cat-file", type, id), gitObject.getContent(), id);
+
+            GitObjectHeader header = packReader.readHeader(id);
+            assertEquals(type, header.getType(), id);
+            assertEquals(gitObject.getSize(), header.getSize(), id);
+        }
+    }
+
+    @Test
+    public void testOffsetDeltas() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        assertTrue(deltaCount() > 0, "The pack should hold deltas");
+
+        PackReader packReader = new PackReader(PackDirectory.of(GitDirectory.find(tempRepo)),
+                new DeltaBaseCache(PackReader.DEFAULT_DELTA_BASE_CACHE_SIZE));
+        assertAllObjects(packReader);
+        assertNull(packReader.read("0000000000000000000000000000000000000000"));
+
+        // The bases of the chains are cached
+        DeltaBaseCache cache = packReader.getDeltaBaseCache();
+        assertTrue(cache.size() > 0);
+        long hits = cache.getHitCount();
+        assertAllObjects(packReader);
+        assertTrue(cache.getHitCount() > hits);
+    }
+
+    @Test
+    public void testRefDeltas() throws IOException {
+        git(sympleGit, "git", "-c", "repack.useDeltaBaseOffset=false", "repack", "-a", "-d", "-f", "-q");
+        assertTrue(deltaCount() > 0, "The pack should hold deltas");
+        assertAllObjects(PackReader.of(GitDirectory.find(tempRepo)));
+    }
+
+    @Test
+    public void testSmallCache() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        DeltaBaseCache cache = new DeltaBaseCache(2000);
+        PackReader packReader = new PackReader(PackDirectory.of(GitDirectory.find(tempRepo)), cache);
+        assertAllObjects(packReader);
+        assertTrue(cache.getBytes() <= 2000);
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        git(sympleGit, "git", "gc", "--quiet");
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : allObjects().entrySet()) {
+            expected.put(entry.getKey(), gitBytes("git", "cat-file", entry.getValue(), entry.getKey()));
+        }
+
+        PackReader packReader = new PackReader(PackDirectory.of(GitDirectory.find(tempRepo)),
+                new DeltaBaseCache(4096));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 5; round++) {
+                        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                            assertArrayEquals(entry.getValue(), packReader.read(entry.getKey()).getContent());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedIndex() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        File packDir = new File(tempRepo, ".git/objects/pack");
+        Files.write(new File(packDir, "pack-0000000000000000000000000000000000000000.idx").toPath(),
+                "not an index".getBytes(StandardCharsets.US_ASCII));
+
+        PackDirectory packDirectory = PackDirectory.of(GitDirectory.find(tempRepo));
+        assertEquals(1, packDirectory.getPackIndexes().size());
+        String headId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        assertNotNull(packDirectory.find(headId));
+        assertNull(packDirectory.find("0123456789012345678901234567890123456789"));
+        assertNull(packDirectory.find("0123456789012345678901234567890123456789"));
+
+        // A new pack is still found after the rejected index
+        GitTestUtils.makeCommit(tempRepo, "After gc");
+        String newId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        git(sympleGit, "git", "repack", "--quiet");
+        assertEquals(2, packDirectory.getPackIndexes().size());
+        assertNotNull(packDirectory.find(newId));
+    }
+
+    @Test
+    public void testCorruptIndexFallsBackToGit() throws IOException {
+        git(sympleGit, "git", "repack", "-a", "-d", "--quiet");
+        String headId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        int first = Integer.parseInt(headId.substring(0, 2), 16);
+        Assumptions.assumeTrue(first < 255);
+
+        // A second pack with the same objects, newer: it is searched first
+        File packDir = new File(tempRepo, ".git/objects/pack");
+        GitCommander commander = sympleGit.gitCommander();
+        commander.executeGitCommandWithInput(git(sympleGit, "git", "rev-list", "--objects", "--all")
+                .getBytes(StandardCharsets.UTF_8), "git", "pack-objects", "--quiet",
+                new File(packDir, "pack").getAbsolutePath());
+        assertTrue(commander.isResponseOk(), commander.getProcessError());
+        String packName = "pack-" + commander.getProcessOutput().trim();
+        assertTrue(new File(packDir, packName + ".pack").setLastModified(System.currentTimeMillis() + 60_000));
+
+        // A fanout entry far beyond the ids: Git ignores the non-monotonic index
+        Path index = new File(packDir, packName + ".idx").toPath();
+        index.toFile().setWritable(true);
+        byte[] bytes = Files.readAllBytes(index);
+        ByteBuffer.wrap(bytes).putInt(8 + first * 4, 0x7fffffff);
+        Files.write(index, bytes);
+
+        GitCatFilePool catFilePool = sympleGit.catFilePool();
+        assertEquals("commit", catFilePool.readHeader(headId).getType());
+        assertTrue(catFilePool.readObject(headId).getContentAsString().startsWith("tree "));
+    }
+
+    @Test
+    public void testCatFilePoolReadsPacks() throws IOException {
+        git(sympleGit, "git", "gc", "--quiet");
+        String blobId = git(sympleGit, "git", "rev-parse", "HEAD:versioned.txt").trim();
+        GitCatFilePool catFilePool = sympleGit.catFilePool();
+        GitObject blob = catFilePool.readObject(blobId);
+        assertArrayEquals(gitBytes("git", "cat-file", "blob", blobId), blob.getContent());
+        assertEquals(0, catFilePool.getIdleProcessCount(), "No cat-file process should be started");
+    }
+
+    @Test
+    public void testSharedInstancesAreBoundedAndClosed() throws IOException {
+        git(sympleGit, "git", "repack", "-a", "-d", "-q");
+        String headId = git(sympleGit, "git", "rev-parse", "HEAD").trim();
+        ObjectReader objectReader = new ObjectReader(GitDirectory.find(tempRepo));
+        PackReader packReader = PackReader.of(GitDirectory.find(tempRepo));
+        assertSame(packReader, PackReader.of(GitDirectory.find(tempRepo)));
+        assertNotNull(packReader.read(headId));
+
+        for (int i = 0; i < PackReader.MAX_INSTANCES; i++) {
+            File otherRepo = new File(tempRepo.getParentFile(), "git_test_repo_pack_reader_" + i);
+            FileUtils.deleteDirectory(otherRepo);
+            git(sympleGit, "git", "init", "-q", otherRepo.getAbsolutePath());
+            PackReader.of(GitDirectory.find(otherRepo));
+        }
+
+        // The evicted reader is closed, the object reader uses a new one
+        assertNotSame(packReader, PackReader.of(GitDirectory.find(tempRepo)));
+        assertThrows(IOException.class, () -> packReader.read(headId));
+        assertEquals("commit", objectReader.read(headId).getType());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.unit.test;
+
+import static com.symplegit.test.util.GitTestUtils.git;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitBranchRead;
+import com.symplegit.internal.refs.GitDirectory;
+import com.symplegit.internal.refs.RefReader;
+import com.symplegit.test.util.GitTestUtils;
+
+public class RefReaderTest {
+
+    private File tempRepo;
+    private SympleGit sympleGit;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempRepo = GitTestUtils.createNewTemporaryGitRepo("git_test_repo_ref_reader");
+        sympleGit = SympleGit.custom()
+                .setDirectory(tempRepo)
+                .build();
+    }
+
+    @Test
+    public void testHeadAndLooseRefs() throws IOException {
+        RefReader refReader = new RefReader(GitDirectory.find(tempRepo));
+        assertEquals("refs/heads/master", refReader.getHeadTarget());
+        assertEquals(git(sympleGit, "git", "rev-parse", "HEAD").trim(), refReader.resolve("HEAD"));
+        assertTrue(refReader.exists("refs/heads/master"));
+        assertFalse(refReader.exists("refs/heads/missing"));
+        assertTrue(RefReader.isObjectId(refReader.resolve("refs/heads/master")));
+    }
+
+    @Test
+    public void testActiveBranch() throws IOException {
+        GitTestUtils.createAndCheckoutBranch(tempRepo, "feature/one");
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        assertEquals("feature/one", gitBranchRead.getActiveBranch());
+        assertTrue(gitBranchRead.isResponseOk());
+        assertTrue(gitBranchRead.branchExists("feature/one"));
+        assertTrue(gitBranchRead.branchExists("master"));
+        assertFalse(gitBranchRead.branchExists("feature"));
+    }
+
+    @Test
+    public void testDetachedHead() throws IOException {
+        git(sympleGit, "git", "checkout", "--detach");
+        RefReader refReader = new RefReader(GitDirectory.find(tempRepo));
+        assertNull(refReader.getHeadTarget());
+
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        assertEquals(git(sympleGit, "git", "rev-parse", "--abbrev-ref", "HEAD").trim(), gitBranchRead.getActiveBranch());
+        assertTrue(gitBranchRead.isResponseOk());
+    }
+
+    @Test
+    public void testPackedRefs() throws IOException {
+        GitTestUtils.createAndCheckoutBranch(tempRepo, "packed");
+        git(sympleGit, "git", "pack-refs", "--all");
+        assertFalse(new File(tempRepo, ".git/refs/heads/packed").exists());
+
+        RefReader refReader = new RefReader(GitDirectory.find(tempRepo));
+        assertEquals(git(sympleGit, "git", "rev-parse", "packed").trim(), refReader.resolve("refs/heads/packed"));
+
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        assertEquals("packed", gitBranchRead.getActiveBranch());
+        assertTrue(gitBranchRead.branchExists("packed"));
+        assertFalse(gitBranchRead.branchExists("unpacked"));
+
+        // A loose ref takes precedence over the packed one
+        GitTestUtils.makeCommit(tempRepo, "After pack");
+        assertEquals(git(sympleGit, "git", "rev-parse", "packed").trim(), refReader.resolve("refs/heads/packed"));
+    }
+
+    @Test
+    public void testAmbiguousBranchFallsBackToGit() throws IOException {
+        GitTestUtils.createAndCheckoutBranch(tempRepo, "release");
+        git(sympleGit, "git", "tag", "release");
+
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        assertEquals(git(sympleGit, "git", "rev-parse", "--abbrev-ref", "HEAD").trim(), gitBranchRead.getActiveBranch());
+        assertTrue(gitBranchRead.isResponseOk());
+    }
+
+    @Test
+    public void testBranchNamedAsRemoteFallsBackToGit() throws IOException {
+        GitTestUtils.createAndCheckoutBranch(tempRepo, "origin");
+        git(sympleGit, "git", "update-ref", "refs/remotes/origin/master", "HEAD");
+        git(sympleGit, "git", "symbolic-ref", "refs/remotes/origin/HEAD", "refs/remotes/origin/master");
+
+        GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+        assertEquals("heads/origin", git(sympleGit, "git", "rev-parse", "--abbrev-ref", "HEAD").trim());
+        assertEquals("heads/origin", gitBranchRead.getActiveBranch());
+        assertTrue(gitBranchRead.isResponseOk());
+
+        // A remote-tracking ref with the name of the branch
+        GitTestUtils.createAndCheckoutBranch(tempRepo, "upstream");
+        git(sympleGit, "git", "update-ref", "refs/remotes/upstream", "HEAD");
+        assertEquals("heads/upstream", new GitBranchRead(sympleGit).getActiveBranch());
+    }
+
+    @Test
+    public void testWorktree() throws IOException {
+        File worktree = new File(tempRepo.getParentFile(), "git_test_repo_ref_reader_worktree");
+        FileUtils.deleteDirectory(worktree);
+        git(sympleGit, "git", "worktree", "add", "-b", "side", worktree.getAbsolutePath());
+        try {
+            SympleGit worktreeGit = SympleGit.custom()
+                    .setDirectory(worktree)
+                    .build();
+            GitBranchRead gitBranchRead = new GitBranchRead(worktreeGit);
+            assertEquals("side", gitBranchRead.getActiveBranch());
+            assertTrue(gitBranchRead.branchExists("master"));
+
+            // Branches are shared with the main working tree
+            RefReader refReader = new RefReader(GitDirectory.find(worktree));
+            assertNotNull(refReader.resolve("refs/heads/side"));
+            assertEquals("refs/heads/side", refReader.getHeadTarget());
+        } finally {
+            git(sympleGit, "git", "worktree", "remove", "--force", worktree.getAbsolutePath());
+        }
+    }
+}
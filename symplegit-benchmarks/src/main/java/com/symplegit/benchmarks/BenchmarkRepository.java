@@ -0,0 +1,191 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates local Git repositories of configurable size for the benchmarks.
+ * <br>
+ * Repositories are built with {@code git fast-import}, which writes thousands
+ * of commits per second, and are kept in
+ * {@code java.io.tmpdir/symplegit-benchmarks} so that they are generated once
+ * and shared by all benchmark forks. <br>
+ * <br>
+ * A repository holds:
+ * <ul>
+ * <li>{@code commits} commits on {@code master}, each one modifying one of
+ * {@value #FILE_COUNT} small text files.</li>
+ * <li>One branch every {@value #BRANCH_EVERY} commits.</li>
+ * <li>A {@code large.txt} file of {@code largeFileSize} bytes, added by the first
+ * commit.</li>
+ * </ul>
+ *
+ * @author KawanSoft SAS
+ */
+public final class BenchmarkRepository {
+
+    /** The number of small text files modified by the commits. */
+    static final int FILE_COUNT = 20;
+
+    /** A branch is created every BRANCH_EVERY commits. */
+    static final int BRANCH_EVERY = 10;
+
+    private static final String READY_MARKER = "symplegit-benchmark-ready";
+
+    /**
+     * Private constructor
+     */
+    private BenchmarkRepository() {
+
+    }
+
+    /**
+     * Gets a generated repository, creating it if it does not exist yet.
+     *
+     * @param commits       the number of commits
+     * @param largeFileSize the size of the large file, in bytes
+     * @return the working directory of the repository
+     * @throws IOException if the repository cannot be generated
+     */
+    public static synchronized File get(int commits, int largeFileSize) throws IOException {
+	if (commits < 2) {
+	    throw new IllegalArgumentException("commits must be >= 2: " + commits);
+	}
+
+	File root = new File(System.getProperty("java.io.tmpdir"), "symplegit-benchmarks");
+	File repo = new File(root, "repo-" + commits + "-" + largeFileSize);
+	File gitDir = new File(repo, ".git");
+
+	if (new File(gitDir, READY_MARKER).exists()) {
+	    return repo;
+	}
+
+	FileUtils.deleteDirectory(repo);
+	if (!repo.mkdirs()) {
+	    throw new IOException("Cannot create directory: " + repo);
+	}
+
+	run(repo, "git", "init", "-q");
+	run(repo, "git", "symbolic-ref", "HEAD", "refs/heads/master");
+	fastImport(repo, commits, largeFileSize);
+	run(repo, "git", "checkout", "-q", "-f", "master");
+
+	FileUtils.touch(new File(gitDir, READY_MARKER));
+	return repo;
+    }
+
+    /**
+     * Streams the commits to {@code git fast-import}.
+     */
+    private static void fastImport(File repo, int commits, int largeFileSize) throws IOException {
+	ProcessBuilder processBuilder = new ProcessBuilder("git", "fast-import", "--quiet");
+	processBuilder.directory(repo);
+	processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+	processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+	Process process = processBuilder.start();
+
+	try (OutputStream out = new BufferedOutputStream(process.getOutputStream(), 64 * 1024)) {
+	    long timestamp = 1700000000L;
+	    for (int i = 1; i <= commits; i++) {
+		write(out, "commit refs/heads/master\n");
+		write(out, "mark :" + i + "\n");
+		String ident = "Benchmark <benchmark@symplegit.com> " + (timestamp + i * 60L) + " +0000\n";
+		write(out, "author " + ident);
+		write(out, "committer " + ident);
+		data(out, ("Commit " + i + "\n\nModifies file " + (i % FILE_COUNT) + ".\n")
+			.getBytes(StandardCharsets.UTF_8));
+		if (i > 1) {
+		    write(out, "from :" + (i - 1) + "\n");
+		} else {
+		    write(out, "M 100644 inline large.txt\n");
+		    data(out, largeContent(largeFileSize));
+		}
+		write(out, "M 100644 inline file" + (i % FILE_COUNT) + ".txt\n");
+		data(out, fileContent(i));
+		write(out, "\n");
+
+		if (i % BRANCH_EVERY == 0) {
+		    write(out, "reset refs/heads/branch-" + i + "\n");
+		    write(out, "from :" + i + "\n\n");
+		}
+	    }
+	    write(out, "done\n");
+	}
+
+	waitFor(process, "git fast-import");
+    }
+
+    private static byte[] fileContent(int commit) {
+	StringBuilder content = new StringBuilder();
+	for (int line = 0; line < 50; line++) {
+	    content.append("Line ").append(line).append(" of commit ").append(commit).append('\n');
+	}
+	return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] largeContent(int size) {
+	byte[] content = new byte[size];
+	for (int i = 0; i < size; i++) {
+	    content[i] = (i % 80 == 79) ? (byte) '\n' : (byte) ('a' + i % 26);
+	}
+	return content;
+    }
+
+    private static void data(OutputStream out, byte[] data) throws IOException {
+	write(out, "data " + data.length + "\n");
+	out.write(data);
+	write(out, "\n");
+    }
+
+    private static void write(OutputStream out, String s) throws IOException {
+	out.write(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void run(File directory, String... command) throws IOException {
+	ProcessBuilder processBuilder = new ProcessBuilder(command);
+	processBuilder.directory(directory);
+	processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+	processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+	waitFor(processBuilder.start(), String.join(" ", command));
+    }
+
+    private static void waitFor(Process process, String command) throws IOException {
+	try {
+	    if (!process.waitFor(10, TimeUnit.MINUTES)) {
+		process.destroyForcibly();
+		throw new IOException("Timeout: " + command);
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted: " + command, e);
+	}
+	if (process.exitValue() != 0) {
+	    throw new IOException("Failed with exit code " + process.exitValue() + ": " + command);
+	}
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. Accepts the standard JMH command line options. <br>
+ * Unless the {@code -rf} and {@code -rff} options are passed, the results are
+ * written in JSON to {@value #DEFAULT_RESULT_FILE}, so that they can be
+ * compared between releases. <br>
+ * <br>
+ * Usage:
+ * 
+ * <pre>
+ * <code>
+    java -jar target/benchmarks.jar
+    java -jar target/benchmarks.jar GitCommanderBenchmark -p commits=10000
+ * </code>
+ * </pre>
+ *
+ * @author KawanSoft SAS
+ */
+public final class BenchmarkRunner {
+
+    /** The default result file. */
+    static final String DEFAULT_RESULT_FILE = "symplegit-benchmarks.json";
+
+    /**
+     * Private constructor
+     */
+    private BenchmarkRunner() {
+
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+	CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+	if (commandLineOptions.shouldHelp()) {
+	    commandLineOptions.showHelp();
+	    return;
+	}
+
+	ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+	if (!commandLineOptions.getResultFormat().hasValue()) {
+	    optionsBuilder.resultFormat(ResultFormatType.JSON);
+	}
+	if (!commandLineOptions.getResult().hasValue()) {
+	    optionsBuilder.result(DEFAULT_RESULT_FILE);
+	}
+
+	new Runner(optionsBuilder.build()).run();
+    }
+}
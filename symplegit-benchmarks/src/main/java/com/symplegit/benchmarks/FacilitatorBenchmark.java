@@ -0,0 +1,105 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.symplegit.api.GitWrapper;
+import com.symplegit.api.SympleGit;
+import com.symplegit.api.facilitator.GitBranchRead;
+import com.symplegit.api.facilitator.GitCommit;
+import com.symplegit.api.facilitator.GitDiff;
+
+/**
+ * Measures the Facilitator API calls: Git process, output capture and parsing.
+ *
+ * @author KawanSoft SAS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FacilitatorBenchmark {
+
+    /** The number of commits of the generated repository. */
+    @Param({ "100", "1000" })
+    public int commits;
+
+    /** The number of commits between the two compared commits of the diff. */
+    @Param({ "10" })
+    public int diffDistance;
+
+    private SympleGit sympleGit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+	File repo = BenchmarkRepository.get(commits, 1024);
+	sympleGit = SympleGit.custom().setDirectory(repo).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+	sympleGit.close();
+    }
+
+    @Benchmark
+    public Set<String> getLocalBranches() throws IOException {
+	GitBranchRead gitBranchRead = new GitBranchRead(sympleGit);
+	return checked(gitBranchRead, gitBranchRead.getLocalBranches());
+    }
+
+    @Benchmark
+    public String getCommitHistory() throws IOException {
+	GitCommit gitCommit = new GitCommit(sympleGit);
+	return checked(gitCommit, gitCommit.getCommitHistory());
+    }
+
+    @Benchmark
+    public String getDiff() throws IOException {
+	GitDiff gitDiff = new GitDiff(sympleGit);
+	return checked(gitDiff, gitDiff.getDiff("HEAD~" + diffDistance, "HEAD"));
+    }
+
+    private static <T> T checked(GitWrapper gitWrapper, T result) throws IOException {
+	if (!gitWrapper.isResponseOk()) {
+	    throw new IOException("Git call failed: " + gitWrapper.getError());
+	}
+	return result;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of SympleGit
+ * SympleGit: Straightforward  Git in Java. Follows 
+ *           'AI-Extensible Open Source Software' pattern
+ * Copyright (C) 2024,  KawanSoft SAS
+ * (http://www.kawansoft.com). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.symplegit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.symplegit.api.GitCommander;
+import com.symplegit.api.SympleGit;
+
+/**
+ * Measures the round trip of {@link GitCommander#executeGitCommand(String...)}
+ * for a tiny output and for a large output, including its capture, and the
+ * streaming of a large output.
+ *
+ * @author KawanSoft SAS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitCommanderBenchmark {
+
+    /** The number of commits of the generated repository. */
+    @Param({ "100", "1000" })
+    public int commits;
+
+    /** The size of the large file, that is the large output. */
+    @Param({ "1048576" })
+    public int largeFileSize;
+
+    private SympleGit sympleGit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+	File repo = BenchmarkRepository.get(commits, largeFileSize);
+	sympleGit = SympleGit.custom().setDirectory(repo).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+	sympleGit.close();
+    }
+
+    @Benchmark
+    public String smallOutput() throws IOException {
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand("git", "rev-parse", "HEAD");
+	return checked(gitCommander).getProcessOutput();
+    }
+
+    @Benchmark
+    public String largeOutput() throws IOException {
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommand("git", "cat-file", "blob", "HEAD:large.txt");
+	return checked(gitCommander).getProcessOutput();
+    }
+
+    @Benchmark
+    public long largeOutputToStream() throws IOException {
+	GitCommander gitCommander = sympleGit.gitCommander();
+	gitCommander.executeGitCommandToStream(NullOutputStream.NULL_OUTPUT_STREAM, "git", "cat-file", "blob",
+		"HEAD:large.txt");
+	return checked(gitCommander).getSize();
+    }
+
+    static GitCommander checked(GitCommander gitCommander) throws IOException {
+	if (!gitCommander.isResponseOk()) {
+	    throw new IOException("Git command failed: " + gitCommander.getProcessError());
+	}
+	return gitCommander;
+    }
+}